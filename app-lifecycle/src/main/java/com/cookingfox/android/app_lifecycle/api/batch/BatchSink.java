@@ -0,0 +1,22 @@
+package com.cookingfox.android.app_lifecycle.api.batch;
+
+import java.util.List;
+
+/**
+ * Receives the items of a lifecycle-gated batching queue, e.g. to send analytics events or sync
+ * requests over the network in one request.
+ *
+ * @param <T> The type of the items.
+ */
+public interface BatchSink<T> {
+
+    /**
+     * Sends a batch of items. Batches are sent one at a time, in the order the items were
+     * submitted, on the send executor of the queue: this may block, e.g. for a network request.
+     *
+     * @param batch The items to send: never empty. The list is not used after this call, so it
+     *              may be kept by the sink.
+     */
+    void send(List<T> batch);
+
+}
@@ -0,0 +1,132 @@
+package com.cookingfox.android.app_lifecycle.api.cache;
+
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+
+import java.util.Arrays;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Immutable policy that defines how much of a cache is retained when an app lifecycle event
+ * occurs, as a fraction of its current size: 1 keeps the cache as is, 0 clears it.
+ */
+public final class EvictionPolicy {
+
+    /**
+     * Policy that never evicts.
+     */
+    public static final EvictionPolicy NONE = new EvictionPolicy(createRetainAll());
+
+    /**
+     * Policy that trims to 25% when the app is stopped, and clears when the app is finished.
+     */
+    public static final EvictionPolicy DEFAULT = NONE
+            .trimOn(AppLifecycleEvent.STOP, 0.25f)
+            .trimOn(AppLifecycleEvent.FINISH, 0f);
+
+    /**
+     * The fraction to retain per event, indexed by event ordinal.
+     */
+    private final float[] retainFractions;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    private EvictionPolicy(float[] retainFractions) {
+        this.retainFractions = retainFractions;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns a copy of this policy that trims the cache to the fraction of its current size when
+     * the event occurs.
+     *
+     * @param event          The app lifecycle event.
+     * @param retainFraction The fraction of the current size to retain, from 0 to 1.
+     * @return The new policy.
+     * @throws NullPointerException     when the event is null.
+     * @throws IllegalArgumentException when the fraction is not between 0 and 1.
+     */
+    public EvictionPolicy trimOn(AppLifecycleEvent event, float retainFraction) {
+        checkNotNull(event, "Event can not be null");
+        checkArgument(retainFraction >= 0f && retainFraction <= 1f,
+                "Retain fraction must be between 0 and 1");
+
+        final float[] next = retainFractions.clone();
+        next[event.ordinal()] = retainFraction;
+
+        return new EvictionPolicy(next);
+    }
+
+    /**
+     * Returns a copy of this policy that clears the cache when the event occurs.
+     *
+     * @param event The app lifecycle event.
+     * @return The new policy.
+     * @throws NullPointerException when the event is null.
+     */
+    public EvictionPolicy clearOn(AppLifecycleEvent event) {
+        return trimOn(event, 0f);
+    }
+
+    /**
+     * @param event The app lifecycle event.
+     * @return The fraction of the current size to retain when the event occurs: 1 when the cache
+     * is not trimmed.
+     */
+    public float getRetainFraction(AppLifecycleEvent event) {
+        return retainFractions[event.ordinal()];
+    }
+
+    /**
+     * @param event The app lifecycle event.
+     * @return Whether the cache is trimmed when the event occurs.
+     */
+    public boolean evictsOn(AppLifecycleEvent event) {
+        return retainFractions[event.ordinal()] < 1f;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof EvictionPolicy &&
+                Arrays.equals(retainFractions, ((EvictionPolicy) o).retainFractions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(retainFractions);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("EvictionPolicy{");
+        boolean first = true;
+
+        for (AppLifecycleEvent event : AppLifecycleEvent.values()) {
+            if (evictsOn(event)) {
+                builder.append(first ? "" : ", ").append(event).append('=')
+                        .append(getRetainFraction(event));
+                first = false;
+            }
+        }
+
+        return builder.append('}').toString();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private static float[] createRetainAll() {
+        final float[] retainFractions = new float[AppLifecycleEvent.values().length];
+        Arrays.fill(retainFractions, 1f);
+
+        return retainFractions;
+    }
+
+}
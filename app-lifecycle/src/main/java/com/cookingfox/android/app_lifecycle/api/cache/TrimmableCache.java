@@ -0,0 +1,20 @@
+package com.cookingfox.android.app_lifecycle.api.cache;
+
+/**
+ * In-memory cache that can release part of its contents, so memory is freed at predictable
+ * points in the app lifecycle.
+ *
+ * @see EvictionPolicy
+ */
+public interface TrimmableCache {
+
+    /**
+     * Evicts entries until the cache has at most the fraction of its current size left. Which
+     * entries are evicted is up to the cache (e.g. the least recently used).
+     *
+     * @param retainFraction The fraction of the current size to retain, from 0 (clear the cache)
+     *                       to 1 (keep everything).
+     */
+    void trim(float retainFraction);
+
+}
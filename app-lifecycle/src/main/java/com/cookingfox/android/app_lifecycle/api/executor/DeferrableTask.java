@@ -0,0 +1,11 @@
+package com.cookingfox.android.app_lifecycle.api.executor;
+
+/**
+ * If this interface is implemented by a task that is submitted to a lifecycle aware executor, the
+ * task is not executed while the app is in background, but held until the app is started again.
+ * <p>
+ * Use this for work that only benefits the user while the app is visible (e.g. prefetching images
+ * or refreshing content), and that can be postponed without losing data.
+ */
+public interface DeferrableTask {
+}
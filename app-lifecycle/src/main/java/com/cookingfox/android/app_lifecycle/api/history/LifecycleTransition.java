@@ -0,0 +1,89 @@
+package com.cookingfox.android.app_lifecycle.api.history;
+
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Immutable app lifecycle transition that was read from a persistent history.
+ */
+public final class LifecycleTransition {
+
+    private final AppLifecycleEvent event;
+    private final String originName;
+    private final long timeMillis;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param event      The lifecycle event.
+     * @param originName The (end of the) class name of the activity that triggered the event.
+     * @param timeMillis When the event occurred, in {@link System#currentTimeMillis()} time.
+     * @throws NullPointerException when the event or origin name is null.
+     */
+    public LifecycleTransition(AppLifecycleEvent event, String originName, long timeMillis) {
+        this.event = checkNotNull(event, "Event can not be null");
+        this.originName = checkNotNull(originName, "Origin name can not be null");
+        this.timeMillis = timeMillis;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @return The lifecycle event.
+     */
+    public AppLifecycleEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * @return The class name of the activity that triggered the event. Long names are truncated at
+     * the start, so the simple name is kept.
+     */
+    public String getOriginName() {
+        return originName;
+    }
+
+    /**
+     * @return When the event occurred, in {@link System#currentTimeMillis()} time.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof LifecycleTransition)) {
+            return false;
+        }
+
+        final LifecycleTransition that = (LifecycleTransition) o;
+
+        return event == that.event && originName.equals(that.originName) &&
+                timeMillis == that.timeMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = event.hashCode();
+        result = 31 * result + originName.hashCode();
+        result = 31 * result + (int) (timeMillis ^ (timeMillis >>> 32));
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LifecycleTransition{event=" + event + ", originName=" + originName +
+                ", timeMillis=" + timeMillis + "}";
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.cookingfox.android.app_lifecycle.api.history;
+
+/**
+ * How the previous run of the app ended, based on the last lifecycle transition it recorded.
+ */
+public enum PreviousExit {
+
+    /**
+     * There is no history of a previous run: this is the first run, the history could not be
+     * read, or the previous run did not create the app.
+     */
+    NONE,
+
+    /**
+     * The app was finished: its last activity was finished normally.
+     */
+    FINISHED,
+
+    /**
+     * The process ended while the app was stopped. This is usually the system reclaiming memory
+     * from a background app, which is normal on Android.
+     */
+    KILLED_IN_BACKGROUND,
+
+    /**
+     * The process ended while the app was created, started, resumed or paused. This is usually a
+     * crash, but can also be the user force stopping the app or removing it from the recent apps.
+     */
+    DIED_IN_FOREGROUND
+
+}
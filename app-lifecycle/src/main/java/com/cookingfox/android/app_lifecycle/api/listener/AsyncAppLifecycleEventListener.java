@@ -0,0 +1,13 @@
+package com.cookingfox.android.app_lifecycle.api.listener;
+
+/**
+ * If this interface is implemented, the listener will not be called directly when an event is
+ * triggered by an activity, but on the manager's asynchronous executor. Events for a listener are
+ * always delivered one at a time, in the order they were triggered.
+ * <p>
+ * Use this for listeners that perform slow work (e.g. flushing logs or closing database handles),
+ * which would otherwise delay the activity transition. Listeners that must complete before the
+ * activity transition completes should not implement this interface.
+ */
+public interface AsyncAppLifecycleEventListener {
+}
@@ -0,0 +1,15 @@
+package com.cookingfox.android.app_lifecycle.api.listener;
+
+import com.cookingfox.android.app_lifecycle.api.memory.MemoryPressure;
+
+public interface OnAppLowMemory extends AppLifecycleEventListener {
+
+    /**
+     * When the whole system is running low on memory, see
+     * {@link android.content.ComponentCallbacks#onLowMemory()}.
+     *
+     * @param pressure The low memory signal, correlated with the current app state.
+     */
+    void onAppLowMemory(MemoryPressure pressure);
+
+}
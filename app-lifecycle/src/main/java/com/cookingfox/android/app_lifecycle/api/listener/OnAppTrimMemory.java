@@ -0,0 +1,15 @@
+package com.cookingfox.android.app_lifecycle.api.listener;
+
+import com.cookingfox.android.app_lifecycle.api.memory.MemoryPressure;
+
+public interface OnAppTrimMemory extends AppLifecycleEventListener {
+
+    /**
+     * When the system asks the app to release memory, see
+     * {@link android.content.ComponentCallbacks2#onTrimMemory(int)}.
+     *
+     * @param pressure The trim level, correlated with the current app state.
+     */
+    void onAppTrimMemory(MemoryPressure pressure);
+
+}
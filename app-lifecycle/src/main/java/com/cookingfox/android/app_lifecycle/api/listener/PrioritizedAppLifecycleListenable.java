@@ -0,0 +1,20 @@
+package com.cookingfox.android.app_lifecycle.api.listener;
+
+/**
+ * Provides the ability to listen for app lifecycle events with a priority. This is separate from
+ * {@link AppLifecycleListenable}, so existing implementations do not have to implement it.
+ */
+public interface PrioritizedAppLifecycleListenable extends AppLifecycleListenable {
+
+    /**
+     * Adds a listener for lifecycle events with a priority. Listeners with a higher priority are
+     * called first; listeners with the same priority are called in reverse order of adding. A
+     * listener that is added without a priority has priority 0.
+     *
+     * @param listener The listener to add.
+     * @param priority The priority of the listener: higher is called first.
+     * @return The current instance, so method calls can be chained.
+     */
+    PrioritizedAppLifecycleListenable addListener(AppLifecycleEventListener listener, int priority);
+
+}
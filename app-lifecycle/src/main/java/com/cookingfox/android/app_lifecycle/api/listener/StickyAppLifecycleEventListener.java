@@ -0,0 +1,14 @@
+package com.cookingfox.android.app_lifecycle.api.listener;
+
+/**
+ * If this interface is implemented, the listener receives the current app state when it is added:
+ * the events that lead to the current state are replayed to the listener, before it receives any
+ * new events. For example, a listener that is added while the app is resumed receives CREATE,
+ * START and RESUME.
+ * <p>
+ * Use this for components that are initialized lazily, after the app was already created or
+ * started, so they do not need to track or poll the app state themselves. The listener only
+ * receives the replayed events it is subscribed to.
+ */
+public interface StickyAppLifecycleEventListener {
+}
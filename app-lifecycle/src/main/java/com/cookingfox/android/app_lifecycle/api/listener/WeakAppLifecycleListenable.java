@@ -0,0 +1,32 @@
+package com.cookingfox.android.app_lifecycle.api.listener;
+
+/**
+ * Provides the ability to listen for app lifecycle events with weakly referenced listeners. This
+ * is separate from {@link AppLifecycleListenable}, so existing implementations do not have to
+ * implement it.
+ */
+public interface WeakAppLifecycleListenable extends AppLifecycleListenable {
+
+    /**
+     * Adds a listener for lifecycle events, which is only weakly referenced: the listener does not
+     * prevent itself, or the activity or views it captures, from being garbage collected. A
+     * collected listener is no longer called and is removed automatically. Keep a strong reference
+     * to the listener for as long as it should be called, e.g. in a field of the activity.
+     *
+     * @param listener The listener to add.
+     * @return The current instance, so method calls can be chained.
+     */
+    WeakAppLifecycleListenable addWeakListener(AppLifecycleEventListener listener);
+
+    /**
+     * Adds a weakly referenced listener for lifecycle events with a priority.
+     *
+     * @param listener The listener to add.
+     * @param priority The priority of the listener: higher is called first.
+     * @return The current instance, so method calls can be chained.
+     * @see #addWeakListener(AppLifecycleEventListener)
+     * @see PrioritizedAppLifecycleListenable#addListener(AppLifecycleEventListener, int)
+     */
+    WeakAppLifecycleListenable addWeakListener(AppLifecycleEventListener listener, int priority);
+
+}
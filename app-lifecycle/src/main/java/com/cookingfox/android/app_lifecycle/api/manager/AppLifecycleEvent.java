@@ -0,0 +1,90 @@
+package com.cookingfox.android.app_lifecycle.api.manager;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppCreated;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppFinished;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppPaused;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppResumed;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStarted;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
+
+/**
+ * App lifecycle events, used to control and validate the order of events, and to identify events
+ * in diagnostics (e.g. listener metrics).
+ */
+public enum AppLifecycleEvent {
+
+    CREATE(OnAppCreated.class) {
+        @Override
+        public void dispatch(AppLifecycleEventListener listener, Class<?> origin) {
+            ((OnAppCreated) listener).onAppCreated(origin);
+        }
+    },
+    START(OnAppStarted.class) {
+        @Override
+        public void dispatch(AppLifecycleEventListener listener, Class<?> origin) {
+            ((OnAppStarted) listener).onAppStarted(origin);
+        }
+    },
+    RESUME(OnAppResumed.class) {
+        @Override
+        public void dispatch(AppLifecycleEventListener listener, Class<?> origin) {
+            ((OnAppResumed) listener).onAppResumed(origin);
+        }
+    },
+    PAUSE(OnAppPaused.class) {
+        @Override
+        public void dispatch(AppLifecycleEventListener listener, Class<?> origin) {
+            ((OnAppPaused) listener).onAppPaused(origin);
+        }
+    },
+    STOP(OnAppStopped.class) {
+        @Override
+        public void dispatch(AppLifecycleEventListener listener, Class<?> origin) {
+            ((OnAppStopped) listener).onAppStopped(origin);
+        }
+    },
+    FINISH(OnAppFinished.class) {
+        @Override
+        public void dispatch(AppLifecycleEventListener listener, Class<?> origin) {
+            ((OnAppFinished) listener).onAppFinished(origin);
+        }
+    };
+
+    /**
+     * The listener interface that receives this event.
+     */
+    private final Class<? extends AppLifecycleEventListener> listenerType;
+
+    AppLifecycleEvent(Class<? extends AppLifecycleEventListener> listenerType) {
+        this.listenerType = listenerType;
+    }
+
+    /**
+     * @return The listener interface that receives this event, e.g. {@link OnAppCreated}.
+     */
+    public Class<? extends AppLifecycleEventListener> getListenerType() {
+        return listenerType;
+    }
+
+    /**
+     * Returns whether the listener implements the listener interface for this event.
+     *
+     * @param listener The listener to check.
+     * @return Whether the listener should be notified of this event.
+     */
+    public boolean isSubscribed(AppLifecycleEventListener listener) {
+        return listenerType.isInstance(listener);
+    }
+
+    /**
+     * Calls the method for this event on the listener. The listener must be subscribed to this
+     * event.
+     *
+     * @param listener The listener to notify.
+     * @param origin   The activity class that triggered the event.
+     * @see #isSubscribed(AppLifecycleEventListener)
+     */
+    public abstract void dispatch(AppLifecycleEventListener listener, Class<?> origin);
+
+}
@@ -0,0 +1,63 @@
+package com.cookingfox.android.app_lifecycle.api.manager;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppLowMemory;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppTrimMemory;
+import com.cookingfox.android.app_lifecycle.api.memory.MemoryPressure;
+
+/**
+ * Memory pressure events from the system. Unlike {@link AppLifecycleEvent}, these events do not
+ * change the app state and can occur at any moment.
+ */
+public enum AppMemoryEvent {
+
+    TRIM_MEMORY(OnAppTrimMemory.class) {
+        @Override
+        public void dispatch(AppLifecycleEventListener listener, MemoryPressure pressure) {
+            ((OnAppTrimMemory) listener).onAppTrimMemory(pressure);
+        }
+    },
+    LOW_MEMORY(OnAppLowMemory.class) {
+        @Override
+        public void dispatch(AppLifecycleEventListener listener, MemoryPressure pressure) {
+            ((OnAppLowMemory) listener).onAppLowMemory(pressure);
+        }
+    };
+
+    /**
+     * The listener interface that receives this event.
+     */
+    private final Class<? extends AppLifecycleEventListener> listenerType;
+
+    AppMemoryEvent(Class<? extends AppLifecycleEventListener> listenerType) {
+        this.listenerType = listenerType;
+    }
+
+    /**
+     * @return The listener interface that receives this event, e.g. {@link OnAppTrimMemory}.
+     */
+    public Class<? extends AppLifecycleEventListener> getListenerType() {
+        return listenerType;
+    }
+
+    /**
+     * Returns whether the listener implements the listener interface for this event.
+     *
+     * @param listener The listener to check.
+     * @return Whether the listener should be notified of this event.
+     */
+    public boolean isSubscribed(AppLifecycleEventListener listener) {
+        return listenerType.isInstance(listener);
+    }
+
+    /**
+     * Calls the method for this event on the listener. The listener must be subscribed to this
+     * event.
+     *
+     * @param listener The listener to notify.
+     * @param pressure The memory pressure signal.
+     * @see #isSubscribed(AppLifecycleEventListener)
+     */
+    public abstract void dispatch(AppLifecycleEventListener listener, MemoryPressure pressure);
+
+}
@@ -0,0 +1,22 @@
+package com.cookingfox.android.app_lifecycle.api.manager;
+
+/**
+ * Allows the app to trigger memory events, which a manager dispatches to its memory listeners. This
+ * is separate from {@link AppLifecycleManager}, so existing managers do not have to implement it:
+ * memory events are only forwarded to managers that do.
+ */
+public interface AppMemoryManager {
+
+    /**
+     * Trigger a memory trim event, see {@link android.content.ComponentCallbacks2#onTrimMemory(int)}.
+     *
+     * @param level The trim level.
+     */
+    void onTrimMemory(int level);
+
+    /**
+     * Trigger a low memory event, see {@link android.content.ComponentCallbacks#onLowMemory()}.
+     */
+    void onLowMemory();
+
+}
@@ -0,0 +1,42 @@
+package com.cookingfox.android.app_lifecycle.api.manager;
+
+/**
+ * Provides the current app state, as observed by the listeners of an app lifecycle manager. This is
+ * separate from {@link AppLifecycleManager}, so existing managers do not have to implement it.
+ */
+public interface AppStateQueryable {
+
+    /**
+     * Returns the last app lifecycle event that listeners were notified of. Can be called from any
+     * thread: does not block or allocate.
+     *
+     * @return The current app state, or null when the app has not been created.
+     */
+    AppLifecycleEvent getCurrentState();
+
+    /**
+     * Returns the class of the activity that triggered the current app state. Can be called from
+     * any thread: does not block or allocate.
+     *
+     * @return The current origin, or null when the app has not been created.
+     */
+    Class<?> getCurrentOrigin();
+
+    /**
+     * Returns whether the app is in foreground: started, resumed or paused. Can be called from any
+     * thread: does not block or allocate.
+     *
+     * @return Whether the app is in foreground.
+     */
+    boolean isInForeground();
+
+    /**
+     * Returns the time since the app changed to its current state. Can be called from any thread:
+     * does not block or allocate.
+     *
+     * @return The time since the last transition in milliseconds, or -1 when the app has not been
+     * created.
+     */
+    long getTimeSinceLastTransition();
+
+}
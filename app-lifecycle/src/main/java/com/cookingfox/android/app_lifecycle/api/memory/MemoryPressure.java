@@ -0,0 +1,131 @@
+package com.cookingfox.android.app_lifecycle.api.memory;
+
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+
+/**
+ * Immutable memory pressure signal from the system, correlated with the app state at the moment
+ * it was received. This allows listeners to tell a backgrounded app with hidden UI apart from an
+ * app in foreground that is under memory pressure.
+ * <p>
+ * The trim levels have the same values as the constants in
+ * {@link android.content.ComponentCallbacks2}.
+ */
+public final class MemoryPressure {
+
+    public static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+    public static final int TRIM_MEMORY_RUNNING_LOW = 10;
+    public static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+    public static final int TRIM_MEMORY_UI_HIDDEN = 20;
+    public static final int TRIM_MEMORY_BACKGROUND = 40;
+    public static final int TRIM_MEMORY_MODERATE = 60;
+    public static final int TRIM_MEMORY_COMPLETE = 80;
+
+    private final int level;
+    private final AppLifecycleEvent appState;
+    private final boolean lowMemory;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param level     The trim level; {@link #TRIM_MEMORY_COMPLETE} for a low memory signal.
+     * @param appState  The last app lifecycle event, or null when the app is not created.
+     * @param lowMemory Whether this is a low memory signal instead of a trim request.
+     */
+    public MemoryPressure(int level, AppLifecycleEvent appState, boolean lowMemory) {
+        this.level = level;
+        this.appState = appState;
+        this.lowMemory = lowMemory;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @return The trim level, e.g. {@link #TRIM_MEMORY_UI_HIDDEN}.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return The last app lifecycle event when the signal was received, or null when the app was
+     * not created (yet).
+     */
+    public AppLifecycleEvent getAppState() {
+        return appState;
+    }
+
+    /**
+     * @return Whether this is a low memory signal, which is sent when the whole system is low on
+     * memory.
+     */
+    public boolean isLowMemory() {
+        return lowMemory;
+    }
+
+    /**
+     * @return Whether the app was in foreground: started, resumed or paused.
+     */
+    public boolean isInForeground() {
+        return appState == AppLifecycleEvent.START ||
+                appState == AppLifecycleEvent.RESUME ||
+                appState == AppLifecycleEvent.PAUSE;
+    }
+
+    /**
+     * @return Whether the UI of the app was hidden: the app was not in foreground.
+     */
+    public boolean isUiHidden() {
+        return !isInForeground();
+    }
+
+    /**
+     * @return Whether the app was in foreground while the device is running low on memory. Memory
+     * should be released without affecting what the user sees.
+     */
+    public boolean isForegroundPressure() {
+        return isInForeground() && (lowMemory || level < TRIM_MEMORY_UI_HIDDEN);
+    }
+
+    /**
+     * @return Whether the pressure is critical: the system is low on memory, the app is running
+     * critically low, or the process is likely to be killed soon.
+     */
+    public boolean isCritical() {
+        return lowMemory || level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_COMPLETE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof MemoryPressure)) {
+            return false;
+        }
+
+        final MemoryPressure that = (MemoryPressure) o;
+
+        return level == that.level && appState == that.appState && lowMemory == that.lowMemory;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = level;
+        result = 31 * result + (appState == null ? 0 : appState.hashCode());
+        result = 31 * result + (lowMemory ? 1 : 0);
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryPressure{level=" + level + ", appState=" + appState +
+                ", lowMemory=" + lowMemory + "}";
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.cookingfox.android.app_lifecycle.api.metrics;
+
+public interface OnAppStartup {
+
+    /**
+     * When the app was launched and the first activity of the launch was resumed.
+     *
+     * @param timing The type and timestamps of the launch.
+     */
+    void onAppStartup(StartupTiming timing);
+
+}
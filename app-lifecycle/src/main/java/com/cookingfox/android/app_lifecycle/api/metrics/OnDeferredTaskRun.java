@@ -0,0 +1,18 @@
+package com.cookingfox.android.app_lifecycle.api.metrics;
+
+/**
+ * Listener for the execution times of deferred initialization tasks.
+ */
+public interface OnDeferredTaskRun {
+
+    /**
+     * When a deferred task has run. This is called on the thread that ran the task, directly after
+     * the task returned: the main thread, or a thread of the background executor.
+     *
+     * @param task          The task that has run.
+     * @param background    Whether the task ran on the background executor.
+     * @param durationNanos The time the task took, in nanoseconds.
+     */
+    void onDeferredTaskRun(Runnable task, boolean background, long durationNanos);
+
+}
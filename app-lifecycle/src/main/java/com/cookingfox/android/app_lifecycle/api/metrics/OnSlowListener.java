@@ -0,0 +1,18 @@
+package com.cookingfox.android.app_lifecycle.api.metrics;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+
+public interface OnSlowListener {
+
+    /**
+     * When a listener took longer than the configured budget to handle a lifecycle event. This is
+     * called on the thread that dispatched the event, directly after the listener returned.
+     *
+     * @param listener      The slow listener.
+     * @param event         The event the listener handled.
+     * @param durationNanos The time the listener took, in nanoseconds.
+     */
+    void onSlowListener(AppLifecycleEventListener listener, AppLifecycleEvent event, long durationNanos);
+
+}
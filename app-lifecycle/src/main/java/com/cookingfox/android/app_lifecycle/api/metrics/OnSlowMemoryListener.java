@@ -0,0 +1,23 @@
+package com.cookingfox.android.app_lifecycle.api.metrics;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+
+/**
+ * Implement this interface next to {@link OnSlowListener} to also be notified of listeners that
+ * took too long to handle a memory event.
+ */
+public interface OnSlowMemoryListener {
+
+    /**
+     * When a listener took longer than the configured budget to handle a memory event. This is
+     * called on the thread that dispatched the event, directly after the listener returned.
+     *
+     * @param listener      The slow listener.
+     * @param event         The memory event the listener handled.
+     * @param durationNanos The time the listener took, in nanoseconds.
+     */
+    void onSlowMemoryListener(AppLifecycleEventListener listener, AppMemoryEvent event,
+                              long durationNanos);
+
+}
@@ -0,0 +1,120 @@
+package com.cookingfox.android.app_lifecycle.api.metrics;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Immutable timestamps of a single app launch. All timestamps are in milliseconds, in the time base
+ * of {@link android.os.SystemClock#elapsedRealtime()}.
+ */
+public final class StartupTiming {
+
+    /**
+     * Value of a timestamp that is unknown or does not apply to the launch type.
+     */
+    public static final long UNKNOWN = -1;
+
+    private final StartupType type;
+    private final long processStartMillis;
+    private final long applicationInitMillis;
+    private final long activityCreateMillis;
+    private final long launchMillis;
+    private final long resumeMillis;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param type                  The type of launch.
+     * @param processStartMillis    When the process was started, or {@link #UNKNOWN}.
+     * @param applicationInitMillis When the app lifecycle manager was initialized, usually from
+     *                              {@link android.app.Application#onCreate()}.
+     * @param activityCreateMillis  When the first activity of the launch was created, or
+     *                              {@link #UNKNOWN} for a hot launch.
+     * @param launchMillis          When the launch started.
+     * @param resumeMillis          When the first activity of the launch was resumed.
+     * @throws NullPointerException when the type is null.
+     */
+    public StartupTiming(StartupType type, long processStartMillis, long applicationInitMillis,
+                         long activityCreateMillis, long launchMillis, long resumeMillis) {
+        this.type = checkNotNull(type, "Startup type can not be null");
+        this.processStartMillis = processStartMillis;
+        this.applicationInitMillis = applicationInitMillis;
+        this.activityCreateMillis = activityCreateMillis;
+        this.launchMillis = launchMillis;
+        this.resumeMillis = resumeMillis;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @return The type of launch.
+     */
+    public StartupType getType() {
+        return type;
+    }
+
+    /**
+     * @return When the process was started, or {@link #UNKNOWN} when the platform does not
+     * provide it (before Android N).
+     */
+    public long getProcessStartMillis() {
+        return processStartMillis;
+    }
+
+    /**
+     * @return When the app lifecycle manager was initialized.
+     */
+    public long getApplicationInitMillis() {
+        return applicationInitMillis;
+    }
+
+    /**
+     * @return When the first activity of the launch was created, or {@link #UNKNOWN} for a hot
+     * launch.
+     */
+    public long getActivityCreateMillis() {
+        return activityCreateMillis;
+    }
+
+    /**
+     * Returns when the launch started: the process start for a cold launch (or the Application
+     * initialization if the process start is unknown), the activity creation for a warm launch,
+     * and the activity start for a hot launch.
+     *
+     * @return When the launch started.
+     */
+    public long getLaunchMillis() {
+        return launchMillis;
+    }
+
+    /**
+     * @return When the first activity of the launch was resumed.
+     */
+    public long getResumeMillis() {
+        return resumeMillis;
+    }
+
+    /**
+     * @return The time from the start of the launch until the first resume.
+     */
+    public long getDurationMillis() {
+        return resumeMillis - launchMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "StartupTiming{" +
+                "type=" + type +
+                ", durationMillis=" + getDurationMillis() +
+                ", processStartMillis=" + processStartMillis +
+                ", applicationInitMillis=" + applicationInitMillis +
+                ", activityCreateMillis=" + activityCreateMillis +
+                ", launchMillis=" + launchMillis +
+                ", resumeMillis=" + resumeMillis +
+                '}';
+    }
+
+}
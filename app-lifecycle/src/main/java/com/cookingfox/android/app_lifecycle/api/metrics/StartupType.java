@@ -0,0 +1,24 @@
+package com.cookingfox.android.app_lifecycle.api.metrics;
+
+/**
+ * The type of app launch, based on how much of the app needed to be (re)created.
+ */
+public enum StartupType {
+
+    /**
+     * The first activity of the process was created: the process and Application were initialized
+     * for this launch.
+     */
+    COLD,
+
+    /**
+     * An activity was created after the app was finished, while the process was still alive.
+     */
+    WARM,
+
+    /**
+     * The app was brought back to foreground, while its activity was still alive.
+     */
+    HOT
+
+}
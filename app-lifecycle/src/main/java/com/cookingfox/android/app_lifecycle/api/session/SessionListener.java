@@ -0,0 +1,25 @@
+package com.cookingfox.android.app_lifecycle.api.session;
+
+public interface SessionListener {
+
+    /**
+     * When a new foreground session was started: the app was started for the first time, or it
+     * was started after being in background for longer than the session timeout.
+     *
+     * @param sessionId The ID of the new session.
+     */
+    void onSessionStarted(long sessionId);
+
+    /**
+     * When a session has ended: the app was in background for longer than the session timeout.
+     * This is called when the app is started again, directly before the next session is started,
+     * while the tracker already reports that there is no current session once the timeout passed.
+     *
+     * @param sessionId        The ID of the ended session.
+     * @param foregroundMillis The total time the app was in foreground during the session.
+     * @param backgroundMillis The total time the app was in background during the session,
+     *                         excluding the timeout after the last stop.
+     */
+    void onSessionEnded(long sessionId, long foregroundMillis, long backgroundMillis);
+
+}
@@ -0,0 +1,29 @@
+package com.cookingfox.android.app_lifecycle.api.time;
+
+import android.os.SystemClock;
+
+/**
+ * Source of the current time, so components that measure lifecycle timings can be tested with a
+ * controlled time.
+ */
+public interface Clock {
+
+    /**
+     * Clock that uses {@link SystemClock#elapsedRealtime()}.
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+    };
+
+    /**
+     * Returns the milliseconds since boot, including time spent in sleep. This is a monotonic
+     * clock, in the same time base as {@link SystemClock#elapsedRealtime()}.
+     *
+     * @return The elapsed time in milliseconds.
+     */
+    long elapsedRealtime();
+
+}
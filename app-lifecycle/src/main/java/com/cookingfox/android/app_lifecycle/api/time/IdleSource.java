@@ -0,0 +1,26 @@
+package com.cookingfox.android.app_lifecycle.api.time;
+
+/**
+ * Signals when a thread is idle, so deferred work can run without delaying more important work
+ * (e.g. drawing frames or handling input), and can be tested without a message loop.
+ * Implementations must run the tasks on the thread that triggers the lifecycle events (usually
+ * the main thread).
+ */
+public interface IdleSource {
+
+    /**
+     * Runs the task once, the next time the thread is idle. Requesting a task that is already
+     * pending may result in the task running twice.
+     *
+     * @param task The task to run.
+     */
+    void runWhenIdle(Runnable task);
+
+    /**
+     * Cancels all pending runs of the task. Does nothing if the task is not pending.
+     *
+     * @param task The task to cancel.
+     */
+    void cancel(Runnable task);
+
+}
@@ -0,0 +1,26 @@
+package com.cookingfox.android.app_lifecycle.api.time;
+
+/**
+ * Schedules delayed tasks, so components that defer lifecycle work can be tested without waiting.
+ * Implementations must run the tasks on the thread that triggers the lifecycle events (usually
+ * the main thread).
+ */
+public interface Scheduler {
+
+    /**
+     * Schedules the task to run once after the delay. Scheduling a task that is already scheduled
+     * may result in the task running twice: cancel it first to reschedule it.
+     *
+     * @param task        The task to run.
+     * @param delayMillis The delay in milliseconds.
+     */
+    void schedule(Runnable task, long delayMillis);
+
+    /**
+     * Cancels all pending runs of the task. Does nothing if the task is not scheduled.
+     *
+     * @param task The task to cancel.
+     */
+    void cancel(Runnable task);
+
+}
@@ -4,25 +4,34 @@ import android.app.Application;
 import android.os.Build;
 
 import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleManager;
+import com.cookingfox.android.app_lifecycle.api.time.Clock;
 import com.cookingfox.android.app_lifecycle.impl.activity.AppLifecycleActivityCallbacks;
 import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+import com.cookingfox.android.app_lifecycle.impl.metrics.StartupTracker;
 
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
 
 /**
- * Provides initialization of app lifecycle manager and static access to manager.
+ * Provides initialization of app lifecycle manager and static access to manager. The manager can be
+ * safely accessed from any thread.
  */
 public final class AppLifecycleProvider {
 
     /**
      * Wraps {@link Application.ActivityLifecycleCallbacks}, if supported.
      */
-    protected static AppLifecycleActivityCallbacks activityLifecycleCallbacks;
+    protected static volatile AppLifecycleActivityCallbacks activityLifecycleCallbacks;
 
     /**
-     * Static instance of lifecycle manager.
+     * Static instance of lifecycle manager. Volatile, so a manager that is initialized on the main
+     * thread is safely published to background threads.
      */
-    protected static AppLifecycleManager manager;
+    protected static volatile AppLifecycleManager manager;
+
+    /**
+     * Measures app launches, starting from the moment the provider is initialized.
+     */
+    protected static volatile StartupTracker startupTracker;
 
     /**
      * Disposes the app lifecycle manager.
@@ -30,7 +39,7 @@ public final class AppLifecycleProvider {
      * @throws NullPointerException when not initialized.
      * @see AppLifecycleManager#dispose()
      */
-    public static void dispose() {
+    public static synchronized void dispose() {
         getManager().dispose();
 
         // SDK >= 14? use activity lifecycle callbacks
@@ -40,6 +49,7 @@ public final class AppLifecycleProvider {
         }
 
         manager = null;
+        startupTracker = null;
     }
 
     /**
@@ -53,6 +63,19 @@ public final class AppLifecycleProvider {
                 "call `AppLifecycleProvider.initialize()` first");
     }
 
+    /**
+     * Returns the startup tracker, which measures app launches (cold, warm and hot) from the moment
+     * the provider was initialized. Call {@link #initialize(Application)} from
+     * {@link Application#onCreate()} to get an accurate Application initialization time.
+     *
+     * @return Startup tracker instance.
+     * @throws NullPointerException when not initialized.
+     */
+    public static StartupTracker getStartupTracker() {
+        return checkNotNull(startupTracker, "Can not get startup tracker: not yet initialized - " +
+                "call `AppLifecycleProvider.initialize()` first");
+    }
+
     /**
      * Initializes the app lifecycle manager.
      *
@@ -62,22 +85,109 @@ public final class AppLifecycleProvider {
      * @throws IllegalStateException when the manager is already initialized.
      */
     public static AppLifecycleManager initialize(Application app) {
+        return initialize(app, new CrossActivityAppLifecycleManager());
+    }
+
+    /**
+     * Initializes the provider with a custom app lifecycle manager, e.g. a manager with a specific
+     * executor for asynchronous listeners.
+     *
+     * @param app        An instance of the Android application, to ensure the correct starting
+     *                   point.
+     * @param newManager The app lifecycle manager to use.
+     * @return App lifecycle manager instance.
+     * @throws NullPointerException  when the Application or manager instance is null.
+     * @throws IllegalStateException when the manager is already initialized.
+     */
+    public static AppLifecycleManager initialize(Application app, AppLifecycleManager newManager) {
+        return initialize(app, newManager, Clock.SYSTEM);
+    }
+
+    /**
+     * Initializes the provider with a custom app lifecycle manager and startup tracker.
+     *
+     * @param app        An instance of the Android application, to ensure the correct starting
+     *                   point.
+     * @param newManager The app lifecycle manager to use.
+     * @param newTracker The startup tracker to use: it is added to the manager as a listener.
+     * @return App lifecycle manager instance.
+     * @throws NullPointerException  when the Application, manager or tracker instance is null.
+     * @throws IllegalStateException when the manager is already initialized.
+     */
+    public static synchronized AppLifecycleManager initialize(Application app,
+                                                              AppLifecycleManager newManager,
+                                                              StartupTracker newTracker) {
+        checkArguments(app, newManager);
+        checkNotNull(newTracker, "Can not initialize app lifecycle manager: provided startup " +
+                "tracker instance is null");
+
+        return install(app, newManager, newTracker);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PACKAGE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Initializes the provider with a custom app lifecycle manager and a default startup tracker
+     * that measures time with the clock. The arguments are validated before the tracker is
+     * created, so creating it (which reads the clock) never hides an invalid argument.
+     *
+     * @param app        An instance of the Android application.
+     * @param newManager The app lifecycle manager to use.
+     * @param clock      The clock of the default startup tracker.
+     * @return App lifecycle manager instance.
+     * @throws NullPointerException  when the Application, manager or clock instance is null.
+     * @throws IllegalStateException when the manager is already initialized.
+     */
+    static synchronized AppLifecycleManager initialize(Application app,
+                                                       AppLifecycleManager newManager,
+                                                       Clock clock) {
+        checkArguments(app, newManager);
+        checkNotNull(clock, "Can not initialize app lifecycle manager: provided clock is null");
+
+        return install(app, newManager,
+                new StartupTracker(clock, StartupTracker.readProcessStartMillis()));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Validates the arguments that every initialization requires, and that the provider is not
+     * initialized yet.
+     */
+    private static void checkArguments(Application app, AppLifecycleManager newManager) {
         checkNotNull(app, "Can not initialize app lifecycle manager: provided `Application` " +
                 "instance is null");
+        checkNotNull(newManager, "Can not initialize app lifecycle manager: provided manager " +
+                "instance is null");
 
         if (manager != null) {
             throw new IllegalStateException("App lifecycle manager is already initialized");
         }
+    }
 
-        manager = new CrossActivityAppLifecycleManager();
-
+    /**
+     * Registers the activity lifecycle callbacks and the startup tracker, and publishes the
+     * manager. Must be called while holding the class lock, after validating the arguments.
+     */
+    private static AppLifecycleManager install(Application app, AppLifecycleManager newManager,
+                                               StartupTracker tracker) {
         // SDK >= 14? use activity lifecycle callbacks
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-            activityLifecycleCallbacks = new AppLifecycleActivityCallbacks(app, manager);
+            activityLifecycleCallbacks = new AppLifecycleActivityCallbacks(app, newManager);
             activityLifecycleCallbacks.initialize();
         }
 
-        return manager;
+        newManager.addListener(tracker);
+
+        // publish the manager when it is fully initialized
+        startupTracker = tracker;
+        manager = newManager;
+
+        return newManager;
     }
 
 }
@@ -4,19 +4,24 @@ import android.annotation.TargetApi;
 import android.app.Activity;
 import android.app.Application;
 import android.app.Application.ActivityLifecycleCallbacks;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
 import android.os.Build;
 import android.os.Bundle;
 
 import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleManager;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryManager;
 
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
 
 /**
  * Implementation of {@link ActivityLifecycleCallbacks} which communicates lifecycle events to the
- * app lifecycle manager.
+ * app lifecycle manager. Also implements {@link ComponentCallbacks2}, to communicate memory trim
+ * and low memory events to a manager that implements {@link AppMemoryManager}.
  */
 @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
-public class AppLifecycleActivityCallbacks implements ActivityLifecycleCallbacks {
+public class AppLifecycleActivityCallbacks implements ActivityLifecycleCallbacks,
+        ComponentCallbacks2 {
 
     /**
      * Reference to Android application.
@@ -43,10 +48,12 @@ public class AppLifecycleActivityCallbacks implements ActivityLifecycleCallbacks
 
     public void dispose() {
         app.unregisterActivityLifecycleCallbacks(this);
+        app.unregisterComponentCallbacks(this);
     }
 
     public void initialize() {
         app.registerActivityLifecycleCallbacks(this);
+        app.registerComponentCallbacks(this);
     }
 
     @Override
@@ -88,4 +95,23 @@ public class AppLifecycleActivityCallbacks implements ActivityLifecycleCallbacks
         // ignore activity lifecycle event: see `onActivityStopped`
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        if (manager instanceof AppMemoryManager) {
+            ((AppMemoryManager) manager).onTrimMemory(level);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        if (manager instanceof AppMemoryManager) {
+            ((AppMemoryManager) manager).onLowMemory();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration configuration) {
+        // ignore: configuration changes are detected by the manager
+    }
+
 }
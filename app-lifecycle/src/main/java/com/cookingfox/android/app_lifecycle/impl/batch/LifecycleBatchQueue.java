@@ -0,0 +1,384 @@
+package com.cookingfox.android.app_lifecycle.impl.batch;
+
+import com.cookingfox.android.app_lifecycle.api.batch.BatchSink;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppFinished;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStarted;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.StickyAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.time.Scheduler;
+import com.cookingfox.android.app_lifecycle.impl.executor.DaemonExecutors;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Queue that sends items to a sink depending on the foreground state of the app: while the app is
+ * started, every submitted item is sent immediately. While the app is stopped, items are buffered
+ * and sent in one batch when the batch is full, when the oldest item has waited for the maximum
+ * delay, when the app is started again or when the app is finished.
+ * <p>
+ * Register the queue with the app lifecycle manager; it is a persistent listener, so it keeps
+ * working after the app is finished and created again, and a sticky listener, so it knows whether
+ * the app is in foreground when it is added later. Until the app is started, items are buffered.
+ * <p>
+ * Items can be submitted from any thread. The thread that submits an item, triggers a lifecycle
+ * event or runs the scheduled flush only takes the buffered items: the batches are sent to the
+ * sink on the send executor, one batch at a time and in order, so a slow sink never blocks the
+ * main thread. When the sink throws, the batch is dropped and counted, and the next batches are
+ * still sent. When the send executor rejects the batches, they are dropped and counted. The
+ * scheduler is also called from the submitting threads, so it must be thread-safe, like
+ * {@link com.cookingfox.android.app_lifecycle.impl.time.HandlerScheduler}.
+ *
+ * @param <T> The type of the items.
+ */
+public class LifecycleBatchQueue<T> implements PersistentAppLifecycleEventListener,
+        StickyAppLifecycleEventListener, OnAppStarted, OnAppStopped, OnAppFinished {
+
+    protected final BatchSink<T> sink;
+    protected final Scheduler scheduler;
+    protected final Executor sendExecutor;
+    protected final int maxBatchSize;
+    protected final long maxDelayMillis;
+
+    /**
+     * Guards the background state, the buffered items, the batches that wait to be sent and the
+     * counts.
+     */
+    protected final Object lock = new Object();
+
+    /**
+     * Sends the buffered items when the maximum delay has passed. This is created once, so it can
+     * be cancelled.
+     */
+    protected final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Sends the batches that wait to be sent, on the send executor. At most one send task is
+     * submitted at a time, so the batches are sent one at a time and in order.
+     */
+    protected final Runnable sendTask = new Runnable() {
+        @Override
+        public void run() {
+            sendPending();
+        }
+    };
+
+    /**
+     * The batches that were taken from the buffer and wait to be sent.
+     */
+    protected final LinkedList<List<T>> pendingBatches = new LinkedList<List<T>>();
+
+    protected List<T> buffer = new ArrayList<T>();
+    protected boolean inBackground = true;
+    protected boolean flushScheduled;
+    protected boolean sending;
+    protected long sentBatchCount;
+    protected long sentItemCount;
+    protected long droppedItemCount;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a queue that sends the batches on a single background thread, which is only started
+     * when needed.
+     *
+     * @param sink           Receives the batches.
+     * @param scheduler      Schedules sending the buffered items after the maximum delay.
+     * @param maxBatchSize   The maximum number of items in a batch.
+     * @param maxDelayMillis The maximum time an item is buffered while the app is in background.
+     * @throws NullPointerException     when the sink or scheduler is null.
+     * @throws IllegalArgumentException when the batch size is not positive or the delay is
+     *                                  negative.
+     */
+    public LifecycleBatchQueue(BatchSink<T> sink, Scheduler scheduler, int maxBatchSize,
+                               long maxDelayMillis) {
+        this(sink, scheduler, DaemonExecutors.newSingleThreadExecutor("LifecycleBatchQueue"),
+                maxBatchSize, maxDelayMillis);
+    }
+
+    /**
+     * @param sink           Receives the batches.
+     * @param scheduler      Schedules sending the buffered items after the maximum delay.
+     * @param sendExecutor   The executor that calls the sink.
+     * @param maxBatchSize   The maximum number of items in a batch.
+     * @param maxDelayMillis The maximum time an item is buffered while the app is in background.
+     * @throws NullPointerException     when the sink, scheduler or executor is null.
+     * @throws IllegalArgumentException when the batch size is not positive or the delay is
+     *                                  negative.
+     */
+    public LifecycleBatchQueue(BatchSink<T> sink, Scheduler scheduler, Executor sendExecutor,
+                               int maxBatchSize, long maxDelayMillis) {
+        checkArgument(maxBatchSize > 0, "Max batch size must be positive");
+        checkArgument(maxDelayMillis >= 0, "Max delay can not be negative");
+
+        this.sink = checkNotNull(sink, "Sink can not be null");
+        this.scheduler = checkNotNull(scheduler, "Scheduler can not be null");
+        this.sendExecutor = checkNotNull(sendExecutor, "Send executor can not be null");
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Sends the item immediately when the app is in foreground, or adds it to the current batch.
+     * Items that are submitted concurrently in foreground may be sent together.
+     *
+     * @param item The item to send.
+     * @throws NullPointerException when the item is null.
+     */
+    public void submit(T item) {
+        checkNotNull(item, "Item can not be null");
+
+        synchronized (lock) {
+            buffer.add(item);
+
+            if (inBackground && buffer.size() < maxBatchSize) {
+                scheduleFlush();
+                return;
+            }
+        }
+
+        flush();
+    }
+
+    /**
+     * Takes the buffered items, if any, and hands them to the send executor. Does not wait for the
+     * sink.
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (flushScheduled) {
+                flushScheduled = false;
+                scheduler.cancel(flushTask);
+            }
+
+            if (buffer.isEmpty()) {
+                return;
+            }
+
+            addPendingBatches(buffer);
+            buffer = new ArrayList<T>();
+
+            if (sending) {
+                // the running send task also sends the new batches
+                return;
+            }
+
+            sending = true;
+        }
+
+        executeSendTask();
+    }
+
+    @Override
+    public void onAppStarted(Class<?> origin) {
+        synchronized (lock) {
+            inBackground = false;
+        }
+
+        flush();
+    }
+
+    @Override
+    public void onAppStopped(Class<?> origin) {
+        synchronized (lock) {
+            inBackground = true;
+        }
+    }
+
+    @Override
+    public void onAppFinished(Class<?> origin) {
+        flush();
+    }
+
+    /**
+     * @return Whether the app is in background, so items are buffered.
+     */
+    public boolean isInBackground() {
+        synchronized (lock) {
+            return inBackground;
+        }
+    }
+
+    /**
+     * @return The number of items that are currently buffered or wait to be sent.
+     */
+    public int getBufferedCount() {
+        synchronized (lock) {
+            int count = buffer.size();
+
+            for (List<T> batch : pendingBatches) {
+                count += batch.size();
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * @return The total number of batches that were sent, including single items in foreground.
+     */
+    public long getSentBatchCount() {
+        synchronized (lock) {
+            return sentBatchCount;
+        }
+    }
+
+    /**
+     * @return The total number of items that were sent.
+     */
+    public long getSentItemCount() {
+        synchronized (lock) {
+            return sentItemCount;
+        }
+    }
+
+    /**
+     * @return The total number of items that were dropped, because the sink threw or the send
+     * executor rejected them.
+     */
+    public long getDroppedItemCount() {
+        synchronized (lock) {
+            return droppedItemCount;
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Schedules sending the buffered items after the maximum delay, unless already scheduled. Must
+     * be called while holding the lock.
+     */
+    protected void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(flushTask, maxDelayMillis);
+        }
+    }
+
+    /**
+     * Adds the items to the batches that wait to be sent, in batches of at most the maximum batch
+     * size: the buffer can exceed the maximum when items are submitted concurrently, before the
+     * full buffer is taken. Must be called while holding the lock.
+     *
+     * @param items The items to send.
+     */
+    protected void addPendingBatches(List<T> items) {
+        final int size = items.size();
+
+        if (size <= maxBatchSize) {
+            pendingBatches.add(items);
+            return;
+        }
+
+        for (int start = 0; start < size; start += maxBatchSize) {
+            pendingBatches.add(new ArrayList<T>(
+                    items.subList(start, Math.min(size, start + maxBatchSize))));
+        }
+    }
+
+    /**
+     * Submits the send task to the send executor. When the executor rejects it (e.g. because it
+     * was shut down), the batches that wait to be sent are dropped and counted.
+     */
+    protected void executeSendTask() {
+        try {
+            sendExecutor.execute(sendTask);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                sending = false;
+
+                for (List<T> batch : pendingBatches) {
+                    droppedItemCount += batch.size();
+                }
+
+                pendingBatches.clear();
+            }
+        }
+    }
+
+    /**
+     * Sends the batches that wait to be sent, in order, until none are left. When the sink throws,
+     * the send task is submitted again for the remaining batches.
+     */
+    protected void sendPending() {
+        while (true) {
+            final List<T> batch;
+
+            synchronized (lock) {
+                batch = pendingBatches.poll();
+
+                if (batch == null) {
+                    sending = false;
+                    return;
+                }
+            }
+
+            boolean sent = false;
+
+            try {
+                send(batch);
+                sent = true;
+            } finally {
+                if (!sent) {
+                    final boolean remaining;
+
+                    synchronized (lock) {
+                        remaining = !pendingBatches.isEmpty();
+
+                        if (!remaining) {
+                            sending = false;
+                        }
+                    }
+
+                    if (remaining) {
+                        executeSendTask();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the batch to the sink and updates the counts: the batch is counted as sent when the
+     * sink returns, and as dropped when it throws.
+     *
+     * @param batch The items to send.
+     */
+    protected void send(List<T> batch) {
+        boolean sent = false;
+
+        try {
+            sink.send(batch);
+            sent = true;
+        } finally {
+            synchronized (lock) {
+                if (sent) {
+                    sentBatchCount++;
+                    sentItemCount += batch.size();
+                } else {
+                    droppedItemCount += batch.size();
+                }
+            }
+        }
+    }
+
+}
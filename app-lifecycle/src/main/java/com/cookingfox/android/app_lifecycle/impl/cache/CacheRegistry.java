@@ -0,0 +1,187 @@
+package com.cookingfox.android.app_lifecycle.impl.cache;
+
+import com.cookingfox.android.app_lifecycle.api.cache.EvictionPolicy;
+import com.cookingfox.android.app_lifecycle.api.cache.TrimmableCache;
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Registry of in-memory caches, which are trimmed according to their eviction policy when app
+ * lifecycle events occur.
+ * <p>
+ * Register the registry with the app lifecycle manager; it is a persistent listener, so caches are
+ * also trimmed after the app is finished and created again. Caches are trimmed on the thread that
+ * triggers the lifecycle event (usually the main thread), so trimming should be fast. Caches can
+ * be registered from any thread, and handling an event does not allocate any objects.
+ */
+public class CacheRegistry implements PersistentAppLifecycleEventListener, AppLifecycleListener {
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    /**
+     * Registered caches, replaced on every change, so they can be iterated without allocating.
+     */
+    protected volatile Entry[] entries = NO_ENTRIES;
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Registers the cache with the eviction policy. If the cache is already registered, its policy
+     * is replaced.
+     *
+     * @param cache  The cache to trim.
+     * @param policy When and how much to trim the cache.
+     * @throws NullPointerException when the cache or policy is null.
+     */
+    public synchronized void register(TrimmableCache cache, EvictionPolicy policy) {
+        checkNotNull(cache, "Cache can not be null");
+        checkNotNull(policy, "Eviction policy can not be null");
+
+        final Entry[] current = entries;
+        final int index = indexOf(current, cache);
+        final Entry[] next;
+
+        if (index >= 0) {
+            next = current.clone();
+            next[index] = new Entry(cache, policy);
+        } else {
+            next = new Entry[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = new Entry(cache, policy);
+        }
+
+        entries = next;
+    }
+
+    /**
+     * Unregisters the cache.
+     *
+     * @param cache The cache to unregister.
+     * @return Whether the cache was registered.
+     */
+    public synchronized boolean unregister(TrimmableCache cache) {
+        final Entry[] current = entries;
+        final int index = indexOf(current, cache);
+
+        if (index < 0) {
+            return false;
+        }
+
+        final Entry[] next = new Entry[current.length - 1];
+        System.arraycopy(current, 0, next, 0, index);
+        System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+
+        entries = next;
+        return true;
+    }
+
+    /**
+     * @param cache The cache to check.
+     * @return Whether the cache is registered.
+     */
+    public boolean isRegistered(TrimmableCache cache) {
+        return indexOf(entries, cache) >= 0;
+    }
+
+    /**
+     * @param cache The cache to check.
+     * @return The eviction policy of the cache, or null if it is not registered.
+     */
+    public EvictionPolicy getPolicy(TrimmableCache cache) {
+        final Entry[] current = entries;
+        final int index = indexOf(current, cache);
+
+        return index < 0 ? null : current[index].policy;
+    }
+
+    /**
+     * @return The number of registered caches.
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Trims the registered caches according to their eviction policy for the event.
+     *
+     * @param event The app lifecycle event.
+     */
+    public void evict(AppLifecycleEvent event) {
+        for (Entry entry : entries) {
+            final float retainFraction = entry.policy.getRetainFraction(event);
+
+            if (retainFraction < 1f) {
+                entry.cache.trim(retainFraction);
+            }
+        }
+    }
+
+    @Override
+    public void onAppCreated(Class<?> origin) {
+        evict(AppLifecycleEvent.CREATE);
+    }
+
+    @Override
+    public void onAppStarted(Class<?> origin) {
+        evict(AppLifecycleEvent.START);
+    }
+
+    @Override
+    public void onAppResumed(Class<?> origin) {
+        evict(AppLifecycleEvent.RESUME);
+    }
+
+    @Override
+    public void onAppPaused(Class<?> origin) {
+        evict(AppLifecycleEvent.PAUSE);
+    }
+
+    @Override
+    public void onAppStopped(Class<?> origin) {
+        evict(AppLifecycleEvent.STOP);
+    }
+
+    @Override
+    public void onAppFinished(Class<?> origin) {
+        evict(AppLifecycleEvent.FINISH);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private static int indexOf(Entry[] entries, TrimmableCache cache) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].cache == cache) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INNER CLASS: Entry
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * A registered cache and its eviction policy.
+     */
+    protected static final class Entry {
+
+        final TrimmableCache cache;
+        final EvictionPolicy policy;
+
+        Entry(TrimmableCache cache, EvictionPolicy policy) {
+            this.cache = cache;
+            this.policy = policy;
+        }
+
+    }
+
+}
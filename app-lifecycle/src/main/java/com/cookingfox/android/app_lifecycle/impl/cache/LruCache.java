@@ -0,0 +1,253 @@
+package com.cookingfox.android.app_lifecycle.impl.cache;
+
+import com.cookingfox.android.app_lifecycle.api.cache.TrimmableCache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Thread-safe cache that evicts the least recently used entries when its maximum size is
+ * exceeded, and when it is trimmed by the {@link CacheRegistry}.
+ * <p>
+ * By default, the size of every entry is 1, so the size is the number of entries. Override
+ * {@link #sizeOf(Object, Object)} to measure entries differently (e.g. in bytes for bitmaps), and
+ * {@link #entryEvicted(Object, Object)} to release evicted values.
+ *
+ * @param <K> The type of keys.
+ * @param <V> The type of values.
+ */
+public class LruCache<K, V> implements TrimmableCache {
+
+    /**
+     * The entries, in access order: least recently used first.
+     */
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+    private final int maxSize;
+    private int size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param maxSize The maximum total size of the entries.
+     * @throws IllegalArgumentException when the maximum size is not positive.
+     */
+    public LruCache(int maxSize) {
+        checkArgument(maxSize > 0, "Max size must be positive");
+
+        this.maxSize = maxSize;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the value for the key and marks the entry as most recently used.
+     *
+     * @param key The key of the entry.
+     * @return The value, or null if the key is not cached.
+     * @throws NullPointerException when the key is null.
+     */
+    public synchronized V get(K key) {
+        checkNotNull(key, "Key can not be null");
+
+        final V value = map.get(key);
+
+        if (value == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+
+        return value;
+    }
+
+    /**
+     * Caches the value for the key as most recently used entry, and evicts the least recently used
+     * entries if the maximum size is exceeded.
+     *
+     * @param key   The key of the entry.
+     * @param value The value to cache.
+     * @return The previous value for the key, or null.
+     * @throws NullPointerException when the key or value is null.
+     */
+    public V put(K key, V value) {
+        checkNotNull(key, "Key can not be null");
+        checkNotNull(value, "Value can not be null");
+
+        final V previous;
+
+        synchronized (this) {
+            size += safeSizeOf(key, value);
+            previous = map.put(key, value);
+
+            if (previous != null) {
+                size -= safeSizeOf(key, previous);
+            }
+        }
+
+        trimToSize(maxSize);
+
+        return previous;
+    }
+
+    /**
+     * Removes the entry for the key.
+     *
+     * @param key The key of the entry.
+     * @return The removed value, or null.
+     * @throws NullPointerException when the key is null.
+     */
+    public synchronized V remove(K key) {
+        checkNotNull(key, "Key can not be null");
+
+        final V previous = map.remove(key);
+
+        if (previous != null) {
+            size -= safeSizeOf(key, previous);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Evicts the least recently used entries until the total size is at most the provided size.
+     *
+     * @param targetSize The maximum total size after trimming.
+     */
+    public void trimToSize(int targetSize) {
+        while (true) {
+            final K key;
+            final V value;
+
+            synchronized (this) {
+                if (size <= targetSize || map.isEmpty()) {
+                    return;
+                }
+
+                final Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+                final Map.Entry<K, V> eldest = iterator.next();
+                key = eldest.getKey();
+                value = eldest.getValue();
+                iterator.remove();
+
+                size -= safeSizeOf(key, value);
+                evictionCount++;
+            }
+
+            // outside the lock, so releasing the value does not block other threads
+            entryEvicted(key, value);
+        }
+    }
+
+    @Override
+    public void trim(float retainFraction) {
+        final int targetSize;
+
+        synchronized (this) {
+            targetSize = (int) (size * retainFraction);
+        }
+
+        trimToSize(targetSize);
+    }
+
+    /**
+     * Evicts all entries.
+     */
+    public void evictAll() {
+        trimToSize(-1);
+    }
+
+    /**
+     * @return The total size of the entries.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The maximum total size of the entries.
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of times {@link #get(Object)} returned a value.
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return The number of times {@link #get(Object)} returned null.
+     */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return The number of evicted entries.
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LruCache{size=" + size + ", maxSize=" + maxSize + ", hits=" + hitCount +
+                ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the size of the entry, in the same unit as the maximum size. The size of an entry
+     * must not change while it is cached.
+     *
+     * @param key   The key of the entry.
+     * @param value The value of the entry.
+     * @return The size of the entry: 1 by default.
+     */
+    protected int sizeOf(K key, V value) {
+        return 1;
+    }
+
+    /**
+     * Called after an entry was evicted because the cache exceeded its maximum size or was
+     * trimmed. Not called for entries that are removed or replaced.
+     *
+     * @param key   The key of the evicted entry.
+     * @param value The value of the evicted entry.
+     */
+    protected void entryEvicted(K key, V value) {
+        // override to release the value
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private int safeSizeOf(K key, V value) {
+        final int entrySize = sizeOf(key, value);
+
+        if (entrySize < 0) {
+            throw new IllegalStateException("Negative size for entry: " + key + "=" + value);
+        }
+
+        return entrySize;
+    }
+
+}
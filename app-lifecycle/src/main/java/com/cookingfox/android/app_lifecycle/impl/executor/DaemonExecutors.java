@@ -0,0 +1,59 @@
+package com.cookingfox.android.app_lifecycle.impl.executor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Creates the default executors of the library's background work.
+ */
+public final class DaemonExecutors {
+
+    /**
+     * The time an idle thread is kept alive.
+     */
+    static final long KEEP_ALIVE_SECONDS = 30;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    private DaemonExecutors() {
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates an executor with a single daemon thread, which is started on the first task and
+     * stops when it has been idle for a while.
+     *
+     * @param threadName The name of the thread.
+     * @return The executor.
+     * @throws NullPointerException when the thread name is null.
+     */
+    public static Executor newSingleThreadExecutor(final String threadName) {
+        checkNotNull(threadName, "Thread name can not be null");
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+}
@@ -0,0 +1,384 @@
+package com.cookingfox.android.app_lifecycle.impl.executor;
+
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppResumed;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.StickyAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.metrics.OnDeferredTaskRun;
+import com.cookingfox.android.app_lifecycle.api.time.IdleSource;
+import com.cookingfox.android.app_lifecycle.impl.time.MessageQueueIdleSource;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Defers non-critical initialization (e.g. of SDKs) from {@code Application.onCreate()} until
+ * the app is resumed for the first time, so it does not delay the cold start.
+ * <p>
+ * Tasks are held until the first resume, and then run by priority: higher priorities first, tasks
+ * with the same priority in order of submission. Main thread tasks run when the main thread is
+ * idle, in slots with a time budget: a slot runs tasks until the budget is used, and the remaining
+ * tasks run in the next idle slot. A slot always runs at least one task, so a task that takes
+ * longer than the budget still runs. Background tasks are passed to the background executor. The
+ * execution time of every task is reported to the {@link OnDeferredTaskRun} listener.
+ * <p>
+ * Tasks that are submitted after the first resume are scheduled right away. Register the
+ * initializer with the app lifecycle manager; it is a sticky listener, so it is released when the
+ * app was already resumed, and a persistent listener. Tasks can be submitted from any thread.
+ */
+public class DeferredInitializer implements PersistentAppLifecycleEventListener,
+        StickyAppLifecycleEventListener, OnAppResumed {
+
+    /**
+     * The default time budget of an idle slot: a quarter of a frame at 60 frames per second.
+     */
+    public static final long DEFAULT_SLOT_BUDGET_MILLIS = 4;
+
+    /**
+     * The priority of tasks that are submitted without priority.
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
+    protected final IdleSource idleSource;
+    protected final Executor backgroundExecutor;
+    protected final long slotBudgetNanos;
+
+    /**
+     * Guards the tasks and the state.
+     */
+    protected final Object lock = new Object();
+
+    /**
+     * The tasks that are waiting to run, by priority. Background tasks are only waiting until the
+     * first resume.
+     */
+    protected final List<Entry> mainTasks = new LinkedList<Entry>();
+    protected final List<Entry> backgroundTasks = new LinkedList<Entry>();
+
+    protected boolean released;
+    protected boolean slotRequested;
+
+    /**
+     * Receives the execution times of the tasks, or null.
+     */
+    protected volatile OnDeferredTaskRun taskListener;
+
+    /**
+     * Runs an idle slot. This is created once, so it can be cancelled.
+     */
+    protected final Runnable slotTask = new Runnable() {
+        @Override
+        public void run() {
+            runSlot();
+        }
+    };
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates an initializer that runs main thread tasks when the main thread is idle, with the
+     * default slot budget, and background tasks on a single background thread. Must be created on
+     * the main thread.
+     */
+    public DeferredInitializer() {
+        this(new MessageQueueIdleSource(),
+                DaemonExecutors.newSingleThreadExecutor("DeferredInitializer"),
+                DEFAULT_SLOT_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param idleSource         Signals when the main thread is idle.
+     * @param backgroundExecutor The executor for background tasks.
+     * @param slotBudgetMillis   The time budget of an idle slot in milliseconds.
+     * @throws NullPointerException     when the idle source or executor is null.
+     * @throws IllegalArgumentException when the slot budget is negative.
+     */
+    public DeferredInitializer(IdleSource idleSource, Executor backgroundExecutor,
+                               long slotBudgetMillis) {
+        checkArgument(slotBudgetMillis >= 0, "Slot budget can not be negative");
+
+        this.idleSource = checkNotNull(idleSource, "Idle source can not be null");
+        this.backgroundExecutor = checkNotNull(backgroundExecutor,
+                "Background executor can not be null");
+        this.slotBudgetNanos = TimeUnit.MILLISECONDS.toNanos(slotBudgetMillis);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Submits a task that runs on the main thread, with the default priority.
+     *
+     * @param task The task to run.
+     * @throws NullPointerException when the task is null.
+     * @see #submit(Runnable, int)
+     */
+    public void submit(Runnable task) {
+        submit(task, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Submits a task that runs on the main thread, in an idle slot after the first resume.
+     *
+     * @param task     The task to run.
+     * @param priority The priority of the task: higher priorities run first.
+     * @throws NullPointerException when the task is null.
+     */
+    public void submit(Runnable task, int priority) {
+        enqueue(task, priority, false);
+    }
+
+    /**
+     * Submits a task that runs on the background executor, with the default priority.
+     *
+     * @param task The task to run.
+     * @throws NullPointerException when the task is null.
+     * @see #submitBackground(Runnable, int)
+     */
+    public void submitBackground(Runnable task) {
+        submitBackground(task, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Submits a task that is passed to the background executor after the first resume. Held tasks
+     * are passed to the executor by priority.
+     *
+     * @param task     The task to run.
+     * @param priority The priority of the task: higher priorities are passed first.
+     * @throws NullPointerException when the task is null.
+     */
+    public void submitBackground(Runnable task, int priority) {
+        enqueue(task, priority, true);
+    }
+
+    /**
+     * @param listener The listener for the execution times of the tasks, or null to remove it.
+     */
+    public void setTaskListener(OnDeferredTaskRun listener) {
+        this.taskListener = listener;
+    }
+
+    /**
+     * @return Whether the app was resumed, so the tasks are running.
+     */
+    public boolean isReleased() {
+        synchronized (lock) {
+            return released;
+        }
+    }
+
+    /**
+     * @return The number of tasks that are waiting to run on the main thread or to be passed to the
+     * background executor.
+     */
+    public int getPendingTaskCount() {
+        synchronized (lock) {
+            return mainTasks.size() + backgroundTasks.size();
+        }
+    }
+
+    /**
+     * Removes all tasks that are waiting, and cancels the next idle slot.
+     */
+    public void dispose() {
+        synchronized (lock) {
+            mainTasks.clear();
+            backgroundTasks.clear();
+
+            if (slotRequested) {
+                slotRequested = false;
+                idleSource.cancel(slotTask);
+            }
+        }
+    }
+
+    @Override
+    public void onAppResumed(Class<?> origin) {
+        final List<Entry> background;
+
+        synchronized (lock) {
+            if (released) {
+                return;
+            }
+
+            released = true;
+            background = new ArrayList<Entry>(backgroundTasks);
+            backgroundTasks.clear();
+
+            if (!mainTasks.isEmpty()) {
+                requestSlot();
+            }
+        }
+
+        // outside the lock: the executor may run the task on this thread
+        for (Entry entry : background) {
+            backgroundExecutor.execute(entry);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Adds the task to the waiting tasks, or passes a background task to the executor when the
+     * app was already resumed.
+     *
+     * @param task       The task to run.
+     * @param priority   The priority of the task.
+     * @param background Whether the task runs on the background executor.
+     */
+    protected void enqueue(Runnable task, int priority, boolean background) {
+        checkNotNull(task, "Task can not be null");
+
+        final Entry entry = new Entry(task, priority, background);
+        final boolean executeNow;
+
+        synchronized (lock) {
+            executeNow = released && background;
+
+            if (!executeNow) {
+                insert(background ? backgroundTasks : mainTasks, entry);
+
+                if (released) {
+                    requestSlot();
+                }
+            }
+        }
+
+        if (executeNow) {
+            backgroundExecutor.execute(entry);
+        }
+    }
+
+    /**
+     * Requests an idle slot, unless one was already requested. Must be called while holding the
+     * lock.
+     */
+    protected void requestSlot() {
+        if (!slotRequested) {
+            slotRequested = true;
+            idleSource.runWhenIdle(slotTask);
+        }
+    }
+
+    /**
+     * Runs main thread tasks until the slot budget is used, and requests the next slot when tasks
+     * are left.
+     */
+    protected void runSlot() {
+        final long deadline = currentTimeNanos() + slotBudgetNanos;
+
+        try {
+            do {
+                final Entry entry;
+
+                synchronized (lock) {
+                    entry = mainTasks.isEmpty() ? null : mainTasks.remove(0);
+                }
+
+                if (entry == null) {
+                    return;
+                }
+
+                runTask(entry.task, false);
+            } while (currentTimeNanos() - deadline < 0);
+        } finally {
+            synchronized (lock) {
+                slotRequested = false;
+
+                if (!mainTasks.isEmpty()) {
+                    requestSlot();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the task and reports its execution time.
+     *
+     * @param task       The task to run.
+     * @param background Whether the task runs on the background executor.
+     */
+    protected void runTask(Runnable task, boolean background) {
+        final long start = currentTimeNanos();
+
+        task.run();
+
+        final long duration = currentTimeNanos() - start;
+        final OnDeferredTaskRun listener = taskListener;
+
+        if (listener != null) {
+            listener.onDeferredTaskRun(task, background, duration);
+        }
+    }
+
+    /**
+     * Returns the current time of the monotonic clock that the slot budget and the execution times
+     * are measured with.
+     *
+     * @return The current time in nanoseconds.
+     */
+    protected long currentTimeNanos() {
+        return System.nanoTime();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Inserts the entry after the entries with the same or a higher priority.
+     *
+     * @param entries The entries, by priority.
+     * @param entry   The entry to insert.
+     */
+    static void insert(List<Entry> entries, Entry entry) {
+        final ListIterator<Entry> iterator = entries.listIterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().priority < entry.priority) {
+                iterator.previous();
+                break;
+            }
+        }
+
+        iterator.add(entry);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INNER CLASS: Entry
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * A submitted task with its priority. Runs the task on the background executor.
+     */
+    protected final class Entry implements Runnable {
+
+        final Runnable task;
+        final int priority;
+        final boolean background;
+
+        Entry(Runnable task, int priority, boolean background) {
+            this.task = task;
+            this.priority = priority;
+            this.background = background;
+        }
+
+        @Override
+        public void run() {
+            runTask(task, background);
+        }
+
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.cookingfox.android.app_lifecycle.impl.executor;
+
+import com.cookingfox.android.app_lifecycle.api.executor.DeferrableTask;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStarted;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Executor that scales a thread pool with the foreground state of the app: when the app is
+ * stopped, the core pool size is reduced to the background core size, and tasks that implement
+ * {@link DeferrableTask} are held until the app is started again, when the original core pool size
+ * is restored.
+ * <p>
+ * Threads above the background core size are terminated once they have been idle for the keep
+ * alive time of the pool. Other tasks are executed as usual in background, on the remaining
+ * threads.
+ * <p>
+ * Register the executor with the app lifecycle manager; it is a persistent listener, so it keeps
+ * working after the app is finished and created again. Tasks can be submitted from any thread.
+ * <p>
+ * For a {@link java.util.concurrent.ScheduledThreadPoolExecutor}, only the core pool size is
+ * scaled: its queue holds wrapped tasks, which are never deferred.
+ */
+public class LifecycleAwareExecutor implements Executor, PersistentAppLifecycleEventListener,
+        OnAppStarted, OnAppStopped {
+
+    protected final ThreadPoolExecutor delegate;
+    protected final int backgroundCorePoolSize;
+
+    /**
+     * Guards the background state and the paused tasks.
+     */
+    protected final Object lock = new Object();
+
+    /**
+     * The deferrable tasks that were submitted or queued while the app was in background.
+     */
+    protected final List<Runnable> pausedTasks = new LinkedList<Runnable>();
+
+    protected boolean inBackground;
+    protected int foregroundCorePoolSize;
+    protected long totalPausedCount;
+    protected int backgroundCount;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param delegate               The thread pool that executes the tasks.
+     * @param backgroundCorePoolSize The core pool size while the app is in background.
+     * @throws NullPointerException     when the thread pool is null.
+     * @throws IllegalArgumentException when the background core pool size is negative.
+     */
+    public LifecycleAwareExecutor(ThreadPoolExecutor delegate, int backgroundCorePoolSize) {
+        checkArgument(backgroundCorePoolSize >= 0, "Background core pool size can not be negative");
+
+        this.delegate = checkNotNull(delegate, "Thread pool can not be null");
+        this.backgroundCorePoolSize = backgroundCorePoolSize;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Executes the task on the thread pool, or holds it until the app is started if it is a
+     * {@link DeferrableTask} and the app is in background.
+     *
+     * @param command The task to execute.
+     * @throws NullPointerException when the task is null.
+     */
+    @Override
+    public void execute(Runnable command) {
+        checkNotNull(command, "Task can not be null");
+
+        if (command instanceof DeferrableTask) {
+            synchronized (lock) {
+                if (inBackground) {
+                    pausedTasks.add(command);
+                    totalPausedCount++;
+                    return;
+                }
+            }
+        }
+
+        delegate.execute(command);
+    }
+
+    @Override
+    public void onAppStopped(Class<?> origin) {
+        synchronized (lock) {
+            if (inBackground) {
+                return;
+            }
+
+            inBackground = true;
+            backgroundCount++;
+            foregroundCorePoolSize = delegate.getCorePoolSize();
+
+            if (backgroundCorePoolSize < foregroundCorePoolSize) {
+                delegate.setCorePoolSize(backgroundCorePoolSize);
+            }
+
+            pauseQueuedTasks();
+        }
+    }
+
+    @Override
+    public void onAppStarted(Class<?> origin) {
+        final List<Runnable> resumed;
+
+        synchronized (lock) {
+            if (!inBackground) {
+                return;
+            }
+
+            inBackground = false;
+
+            if (delegate.getCorePoolSize() < foregroundCorePoolSize) {
+                delegate.setCorePoolSize(foregroundCorePoolSize);
+            }
+
+            resumed = new ArrayList<Runnable>(pausedTasks);
+            pausedTasks.clear();
+        }
+
+        // outside the lock: the rejection handler of the pool may run the task on this thread
+        for (Runnable task : resumed) {
+            delegate.execute(task);
+        }
+    }
+
+    /**
+     * @return The thread pool that executes the tasks.
+     */
+    public ThreadPoolExecutor getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return Whether the app is in background, so deferrable tasks are held.
+     */
+    public boolean isInBackground() {
+        synchronized (lock) {
+            return inBackground;
+        }
+    }
+
+    /**
+     * @return The number of deferrable tasks that are currently held.
+     */
+    public int getPausedTaskCount() {
+        synchronized (lock) {
+            return pausedTasks.size();
+        }
+    }
+
+    /**
+     * @return The total number of deferrable tasks that were held while the app was in background.
+     */
+    public long getTotalPausedTaskCount() {
+        synchronized (lock) {
+            return totalPausedCount;
+        }
+    }
+
+    /**
+     * @return The number of times the app was moved to background.
+     */
+    public int getBackgroundCount() {
+        synchronized (lock) {
+            return backgroundCount;
+        }
+    }
+
+    /**
+     * @return The number of tasks that are waiting in the queue of the thread pool.
+     */
+    public int getQueuedTaskCount() {
+        return delegate.getQueue().size();
+    }
+
+    /**
+     * @return The current number of threads in the pool.
+     */
+    public int getPoolSize() {
+        return delegate.getPoolSize();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Moves the deferrable tasks that are waiting in the queue of the thread pool to the paused
+     * tasks, keeping their order. Must be called while holding the lock.
+     */
+    protected void pauseQueuedTasks() {
+        final BlockingQueue<Runnable> queue = delegate.getQueue();
+
+        for (Object task : queue.toArray()) {
+            if (task instanceof DeferrableTask && queue.remove(task)) {
+                pausedTasks.add((Runnable) task);
+                totalPausedCount++;
+            }
+        }
+    }
+
+}
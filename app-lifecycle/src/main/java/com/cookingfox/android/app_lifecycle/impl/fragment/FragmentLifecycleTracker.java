@@ -0,0 +1,271 @@
+package com.cookingfox.android.app_lifecycle.impl.fragment;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.app.FragmentManager;
+import android.support.v4.app.FragmentManager.FragmentLifecycleCallbacks;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListenable;
+import com.cookingfox.android.app_lifecycle.api.listener.PrioritizedAppLifecycleListenable;
+import com.cookingfox.android.app_lifecycle.api.listener.WeakAppLifecycleListenable;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.impl.manager.LifecycleEventDispatcher;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Tracks the lifecycle of the (support library) fragments of an activity, to provide screen level
+ * lifecycle events in apps with a single activity and many fragments.
+ * <p>
+ * Listeners are added to the tracker instead of the app lifecycle manager, and receive the same
+ * events with the fragment class as origin: for example, {@code onAppResumed(origin)} is called
+ * when a fragment is resumed. A fragment is finished when it is destroyed. Since multiple
+ * fragments can be resumed at the same time, the events are not validated: listeners receive the
+ * events of every tracked fragment. The events are dispatched by a
+ * {@link LifecycleEventDispatcher}, so listeners can be asynchronous, weakly referenced or
+ * prioritized, and dispatching does not allocate.
+ * <p>
+ * A fragment that is destroyed because its activity is recreated for a configuration change (e.g.
+ * rotation) is not finished, and the creation of its replacement is not dispatched either.
+ * <p>
+ * Unlike the app lifecycle manager, the tracker does not remove the non-persistent listeners when
+ * a fragment is finished: other fragments are still tracked, so the listeners are kept until they
+ * are removed or the tracker is disposed.
+ * <p>
+ * Register the tracker in {@link FragmentActivity#onCreate(Bundle)}, before calling the super
+ * method, so the events of restored fragments are tracked too:
+ * <pre>
+ * protected void onCreate(Bundle savedInstanceState) {
+ *     fragmentTracker.register(this);
+ *     super.onCreate(savedInstanceState);
+ * }
+ * </pre>
+ */
+public class FragmentLifecycleTracker extends FragmentLifecycleCallbacks
+        implements PrioritizedAppLifecycleListenable, WeakAppLifecycleListenable {
+
+    /**
+     * Dispatches the fragment lifecycle events to the listeners.
+     */
+    protected final LifecycleEventDispatcher dispatcher;
+
+    /**
+     * The number of fragments per class that were destroyed for a configuration change, and whose
+     * replacement has not been created yet. Only accessed on the main thread.
+     */
+    protected final Map<Class<?>, Integer> recreatedFragments = new HashMap<Class<?>, Integer>();
+
+    /**
+     * Whether configuration changes can be detected: requires Honeycomb (API 11).
+     */
+    protected boolean detectConfigurationChanges =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a tracker that calls asynchronous listeners on a single background thread.
+     */
+    public FragmentLifecycleTracker() {
+        this(new LifecycleEventDispatcher());
+    }
+
+    /**
+     * @param dispatcher The dispatcher for the fragment lifecycle events.
+     * @throws NullPointerException when the dispatcher is null.
+     */
+    public FragmentLifecycleTracker(LifecycleEventDispatcher dispatcher) {
+        this.dispatcher = checkNotNull(dispatcher, "Dispatcher can not be null");
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Tracks the fragments of the activity, including nested fragments.
+     *
+     * @param activity The activity to track the fragments of.
+     * @throws NullPointerException when the activity is null.
+     */
+    public void register(FragmentActivity activity) {
+        checkNotNull(activity, "Activity can not be null");
+
+        activity.getSupportFragmentManager().registerFragmentLifecycleCallbacks(this, true);
+    }
+
+    /**
+     * Stops tracking the fragments of the activity.
+     *
+     * @param activity The activity to stop tracking the fragments of.
+     * @throws NullPointerException when the activity is null.
+     */
+    public void unregister(FragmentActivity activity) {
+        checkNotNull(activity, "Activity can not be null");
+
+        activity.getSupportFragmentManager().unregisterFragmentLifecycleCallbacks(this);
+    }
+
+    @Override
+    public AppLifecycleListenable addListener(AppLifecycleEventListener listener) {
+        dispatcher.addListener(listener);
+
+        return this;
+    }
+
+    @Override
+    public PrioritizedAppLifecycleListenable addListener(AppLifecycleEventListener listener,
+                                                         int priority) {
+        dispatcher.addListener(listener, priority);
+
+        return this;
+    }
+
+    @Override
+    public WeakAppLifecycleListenable addWeakListener(AppLifecycleEventListener listener) {
+        dispatcher.addWeakListener(listener);
+
+        return this;
+    }
+
+    @Override
+    public WeakAppLifecycleListenable addWeakListener(AppLifecycleEventListener listener,
+                                                      int priority) {
+        dispatcher.addWeakListener(listener, priority);
+
+        return this;
+    }
+
+    @Override
+    public AppLifecycleListenable removeListener(AppLifecycleEventListener listener) {
+        dispatcher.removeListener(listener);
+
+        return this;
+    }
+
+    /**
+     * Removes all listeners.
+     */
+    public void dispose() {
+        dispatcher.dispose();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: FragmentLifecycleCallbacks
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public void onFragmentCreated(FragmentManager fm, Fragment f, Bundle savedInstanceState) {
+        // the replacement of a fragment that was destroyed for a configuration change
+        if (savedInstanceState != null && consumeRecreated(f.getClass())) {
+            return;
+        }
+
+        dispatch(AppLifecycleEvent.CREATE, f);
+    }
+
+    @Override
+    public void onFragmentStarted(FragmentManager fm, Fragment f) {
+        dispatch(AppLifecycleEvent.START, f);
+    }
+
+    @Override
+    public void onFragmentResumed(FragmentManager fm, Fragment f) {
+        dispatch(AppLifecycleEvent.RESUME, f);
+    }
+
+    @Override
+    public void onFragmentPaused(FragmentManager fm, Fragment f) {
+        dispatch(AppLifecycleEvent.PAUSE, f);
+    }
+
+    @Override
+    public void onFragmentStopped(FragmentManager fm, Fragment f) {
+        dispatch(AppLifecycleEvent.STOP, f);
+    }
+
+    @Override
+    public void onFragmentDestroyed(FragmentManager fm, Fragment f) {
+        // the fragment will be recreated immediately: not finished
+        if (isChangingConfigurations(f)) {
+            final Integer count = recreatedFragments.get(f.getClass());
+            recreatedFragments.put(f.getClass(), count == null ? 1 : count + 1);
+            return;
+        }
+
+        dispatch(AppLifecycleEvent.FINISH, f);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns whether the events of the fragment are dispatched. Override to ignore fragments
+     * that are not screens, e.g. fragments without a view.
+     *
+     * @param fragment The fragment that triggered the event.
+     * @return Whether the fragment is tracked: true by default.
+     */
+    protected boolean isTracked(Fragment fragment) {
+        return true;
+    }
+
+    /**
+     * Returns whether the fragment is being destroyed because its activity is recreated with a new
+     * configuration.
+     *
+     * @param fragment The fragment that triggered the event.
+     * @return Whether the activity of the fragment is changing configurations.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    protected boolean isChangingConfigurations(Fragment fragment) {
+        final FragmentActivity activity = fragment.getActivity();
+
+        return detectConfigurationChanges && activity != null &&
+                activity.isChangingConfigurations();
+    }
+
+    /**
+     * Consumes a fragment of the class that was destroyed for a configuration change, if any.
+     *
+     * @param fragmentClass The class of the created fragment.
+     * @return Whether the created fragment replaces a fragment that was destroyed for a
+     * configuration change.
+     */
+    protected boolean consumeRecreated(Class<?> fragmentClass) {
+        final Integer count = recreatedFragments.get(fragmentClass);
+
+        if (count == null) {
+            return false;
+        } else if (count == 1) {
+            recreatedFragments.remove(fragmentClass);
+        } else {
+            recreatedFragments.put(fragmentClass, count - 1);
+        }
+
+        return true;
+    }
+
+    /**
+     * Dispatches the event with the fragment class as origin, if the fragment is tracked.
+     *
+     * @param event    The event to dispatch.
+     * @param fragment The fragment that triggered the event.
+     */
+    protected void dispatch(AppLifecycleEvent event, Fragment fragment) {
+        if (isTracked(fragment)) {
+            dispatcher.dispatch(event, fragment.getClass());
+        }
+    }
+
+}
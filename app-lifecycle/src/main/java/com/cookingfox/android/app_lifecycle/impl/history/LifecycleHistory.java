@@ -0,0 +1,355 @@
+package com.cookingfox.android.app_lifecycle.impl.history;
+
+import com.cookingfox.android.app_lifecycle.api.history.LifecycleTransition;
+import com.cookingfox.android.app_lifecycle.api.history.PreviousExit;
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Persistent history of app lifecycle transitions, which survives the death of the process. On
+ * the next start of the process, it tells in what state the previous run ended, so a crash in
+ * foreground can be told apart from the system killing the app in background.
+ * <p>
+ * The transitions are written to a small memory-mapped file with a fixed size: a header, followed
+ * by a ring of fixed-size entries with one spare entry more than the capacity. Every transition
+ * is written to the spare entry and then counted in the header, which makes the oldest entry the
+ * new spare one. The entry that is being written is never read, so a transition that was
+ * interrupted by the death of the process is ignored and does not damage the others. The file is
+ * not synced: the operating system writes it back after the process has
+ * died, so only a power loss or kernel crash can lose the last transitions. Recording a transition
+ * does not allocate any objects.
+ * <p>
+ * When it is created, the history reads the transitions of the previous run from the file and
+ * starts a new run. Add it to the manager as early as possible:
+ * <pre>
+ * final LifecycleHistory history = new LifecycleHistory(new File(getFilesDir(), "lifecycle"));
+ * AppLifecycleProvider.getManager().addListener(history);
+ *
+ * if (history.getPreviousExit() == PreviousExit.DIED_IN_FOREGROUND) {
+ *     report(history.getPreviousTransitions());
+ * }
+ * </pre>
+ */
+public class LifecycleHistory implements PersistentAppLifecycleEventListener,
+        AppLifecycleListener {
+
+    /**
+     * The default number of transitions that are kept, so the file fits in a 4 KB page.
+     */
+    public static final int DEFAULT_CAPACITY = 62;
+
+    /**
+     * The maximum number of transitions that are kept.
+     */
+    public static final int MAX_CAPACITY = 1 << 16;
+
+    /**
+     * The maximum number of characters of the origin class name that is stored. Longer names are
+     * truncated at the start.
+     */
+    public static final int MAX_ORIGIN_LENGTH = 54;
+
+    /**
+     * Identifies the file format, followed by the format version.
+     */
+    static final int MAGIC = 0x4c464c48;
+    static final int VERSION = 2;
+
+    /**
+     * File layout, in bytes. Header: magic (int), version (int), capacity (int), entry count
+     * (long). Entry: time (long), event ordinal (byte), origin length (byte), origin (ASCII). The
+     * file has capacity + 1 entries.
+     */
+    static final int HEADER_SIZE = 64;
+    static final int ENTRY_SIZE = 64;
+    static final int VERSION_OFFSET = 4;
+    static final int CAPACITY_OFFSET = 8;
+    static final int COUNT_OFFSET = 16;
+    static final int EVENT_OFFSET = 8;
+    static final int ORIGIN_LENGTH_OFFSET = 9;
+    static final int ORIGIN_OFFSET = 10;
+
+    static final AppLifecycleEvent[] EVENTS = AppLifecycleEvent.values();
+
+    protected final File file;
+    protected final int capacity;
+    protected final List<LifecycleTransition> previousTransitions;
+    protected final PreviousExit previousExit;
+
+    /**
+     * The mapped file and the number of transitions recorded in this run.
+     */
+    protected final MappedByteBuffer buffer;
+    protected long count;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a history that keeps the {@link #DEFAULT_CAPACITY default} number of transitions.
+     *
+     * @param file The file to keep the history in. It is created if it does not exist.
+     * @throws NullPointerException when the file is null.
+     * @throws IOException          when the file can not be read, written or mapped.
+     */
+    public LifecycleHistory(File file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param file     The file to keep the history in. It is created if it does not exist.
+     * @param capacity The number of transitions that are kept. The history of the previous run
+     *                 is also read when it was written with another capacity.
+     * @throws NullPointerException     when the file is null.
+     * @throws IllegalArgumentException when the capacity is not positive or exceeds
+     *                                  {@link #MAX_CAPACITY}.
+     * @throws IOException              when the file can not be read, written or mapped.
+     */
+    public LifecycleHistory(File file, int capacity) throws IOException {
+        checkNotNull(file, "File can not be null");
+        checkArgument(capacity > 0 && capacity <= MAX_CAPACITY,
+                "Capacity must be between 1 and " + MAX_CAPACITY);
+
+        this.file = file;
+        this.capacity = capacity;
+
+        final int size = fileSize(capacity);
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+        try {
+            previousTransitions = readTransitions(randomAccessFile);
+            randomAccessFile.setLength(size);
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            // the mapping stays valid after the file is closed
+            randomAccessFile.close();
+        }
+
+        previousExit = classify(previousTransitions);
+
+        // start a new run: the count is reset first, so the old entries are never read again
+        buffer.putLong(COUNT_OFFSET, 0);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @return The file that the history is kept in.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The number of transitions that are kept.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return How the previous run of the app ended.
+     */
+    public PreviousExit getPreviousExit() {
+        return previousExit;
+    }
+
+    /**
+     * @return The last transitions of the previous run, oldest first. Empty when there is no
+     * history of a previous run.
+     */
+    public List<LifecycleTransition> getPreviousTransitions() {
+        return previousTransitions;
+    }
+
+    /**
+     * @return The number of transitions that were recorded in this run, including overwritten
+     * transitions.
+     */
+    public synchronized long getRecordedCount() {
+        return count;
+    }
+
+    @Override
+    public void onAppCreated(Class<?> origin) {
+        record(AppLifecycleEvent.CREATE, origin);
+    }
+
+    @Override
+    public void onAppStarted(Class<?> origin) {
+        record(AppLifecycleEvent.START, origin);
+    }
+
+    @Override
+    public void onAppResumed(Class<?> origin) {
+        record(AppLifecycleEvent.RESUME, origin);
+    }
+
+    @Override
+    public void onAppPaused(Class<?> origin) {
+        record(AppLifecycleEvent.PAUSE, origin);
+    }
+
+    @Override
+    public void onAppStopped(Class<?> origin) {
+        record(AppLifecycleEvent.STOP, origin);
+    }
+
+    @Override
+    public void onAppFinished(Class<?> origin) {
+        record(AppLifecycleEvent.FINISH, origin);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Writes the transition to the spare entry, then counts it in the header: the entry only
+     * becomes readable when it is complete.
+     *
+     * @param event  The lifecycle event.
+     * @param origin The class of the activity that triggered the event.
+     */
+    protected synchronized void record(AppLifecycleEvent event, Class<?> origin) {
+        final int position = entryPosition(count, capacity);
+        final String name = origin == null ? "" : origin.getName();
+        final int length = Math.min(name.length(), MAX_ORIGIN_LENGTH);
+        final int start = name.length() - length;
+
+        buffer.putLong(position, currentTimeMillis());
+        buffer.put(position + EVENT_OFFSET, (byte) event.ordinal());
+        buffer.put(position + ORIGIN_LENGTH_OFFSET, (byte) length);
+
+        for (int i = 0; i < length; i++) {
+            final char c = name.charAt(start + i);
+
+            buffer.put(position + ORIGIN_OFFSET + i, (byte) (c < 0x80 ? c : '?'));
+        }
+
+        count++;
+        buffer.putLong(COUNT_OFFSET, count);
+    }
+
+    /**
+     * @return The current wall clock time in milliseconds, which can be compared between runs.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param capacity The number of transitions that are kept.
+     * @return The size of the file, with the spare entry.
+     */
+    static int fileSize(int capacity) {
+        return HEADER_SIZE + (capacity + 1) * ENTRY_SIZE;
+    }
+
+    /**
+     * @param index    The number of the transition in the run.
+     * @param capacity The number of transitions that are kept.
+     * @return The position of the entry of the transition in the file.
+     */
+    static int entryPosition(long index, int capacity) {
+        return HEADER_SIZE + (int) (index % (capacity + 1)) * ENTRY_SIZE;
+    }
+
+    /**
+     * Classifies the exit of a run by its last transition.
+     *
+     * @param transitions The transitions of the run, oldest first.
+     * @return How the run ended.
+     */
+    static PreviousExit classify(List<LifecycleTransition> transitions) {
+        if (transitions.isEmpty()) {
+            return PreviousExit.NONE;
+        }
+
+        final AppLifecycleEvent last = transitions.get(transitions.size() - 1).getEvent();
+
+        if (last == AppLifecycleEvent.FINISH) {
+            return PreviousExit.FINISHED;
+        } else if (last == AppLifecycleEvent.STOP) {
+            return PreviousExit.KILLED_IN_BACKGROUND;
+        }
+
+        return PreviousExit.DIED_IN_FOREGROUND;
+    }
+
+    /**
+     * Reads the transitions of the previous run. An empty, unknown or corrupt file has no
+     * transitions.
+     */
+    static List<LifecycleTransition> readTransitions(RandomAccessFile file) throws IOException {
+        final long length = file.length();
+
+        if (length < HEADER_SIZE || length > fileSize(MAX_CAPACITY)) {
+            return Collections.emptyList();
+        }
+
+        final byte[] bytes = new byte[(int) length];
+        file.seek(0);
+        file.readFully(bytes);
+
+        final ByteBuffer data = ByteBuffer.wrap(bytes);
+        final int capacity = data.getInt(CAPACITY_OFFSET);
+        final long count = data.getLong(COUNT_OFFSET);
+
+        if (data.getInt(0) != MAGIC || data.getInt(VERSION_OFFSET) != VERSION ||
+                capacity <= 0 || capacity > MAX_CAPACITY || length != fileSize(capacity) ||
+                count < 0) {
+            return Collections.emptyList();
+        }
+
+        final int size = (int) Math.min(count, capacity);
+        final List<LifecycleTransition> transitions = new ArrayList<LifecycleTransition>(size);
+
+        for (long i = count - size; i < count; i++) {
+            final int position = entryPosition(i, capacity);
+            final int ordinal = data.get(position + EVENT_OFFSET);
+            final int originLength = data.get(position + ORIGIN_LENGTH_OFFSET);
+
+            if (ordinal < 0 || ordinal >= EVENTS.length ||
+                    originLength < 0 || originLength > MAX_ORIGIN_LENGTH) {
+                return Collections.emptyList();
+            }
+
+            final char[] origin = new char[originLength];
+
+            for (int j = 0; j < originLength; j++) {
+                origin[j] = (char) (data.get(position + ORIGIN_OFFSET + j) & 0x7f);
+            }
+
+            transitions.add(new LifecycleTransition(EVENTS[ordinal], new String(origin),
+                    data.getLong(position)));
+        }
+
+        return Collections.unmodifiableList(transitions);
+    }
+
+}
@@ -0,0 +1,386 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import android.app.Activity;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Tracks which activity instances are started and resumed, to determine whether the app is in
+ * foreground, independent of the order in which activities report their lifecycle events.
+ * <p>
+ * Instances are identified by identity and referenced weakly, so an activity that is destroyed
+ * without being reported (e.g. by the system) does not leak: when it is garbage collected, it is
+ * purged and no longer counted. Looking up, marking and counting instances is O(1) and does not
+ * allocate; only the first event of a new instance allocates its entry.
+ * <p>
+ * Not thread-safe: lifecycle events are expected to be triggered from the main thread.
+ */
+public final class ActivityInstances {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ReferenceQueue<Activity> queue = new ReferenceQueue<Activity>();
+    private Entry[] table = new Entry[INITIAL_CAPACITY];
+    private int size;
+    private int startedCount;
+    private int resumedCount;
+
+    /**
+     * The instance that brought the started count to zero, or null when an instance was started
+     * since.
+     */
+    private Entry lastStopped;
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @return The number of tracked instances.
+     */
+    public int size() {
+        purge();
+
+        return size;
+    }
+
+    /**
+     * @return The number of started instances.
+     */
+    public int getStartedCount() {
+        purge();
+
+        return startedCount;
+    }
+
+    /**
+     * @return The number of resumed instances.
+     */
+    public int getResumedCount() {
+        purge();
+
+        return resumedCount;
+    }
+
+    /**
+     * @param activity The activity instance.
+     * @return Whether the instance is tracked.
+     */
+    public boolean contains(Activity activity) {
+        return get(activity) != null;
+    }
+
+    /**
+     * @param activity The activity instance.
+     * @return Whether the instance is started.
+     */
+    public boolean isStarted(Activity activity) {
+        final Entry entry = get(activity);
+
+        return entry != null && entry.started;
+    }
+
+    /**
+     * @param activity The activity instance.
+     * @return Whether the instance is resumed.
+     */
+    public boolean isResumed(Activity activity) {
+        final Entry entry = get(activity);
+
+        return entry != null && entry.resumed;
+    }
+
+    /**
+     * Returns whether the instance is the one that brought the started count to zero, and no
+     * instance was started since: it was the last visible activity.
+     *
+     * @param activity The activity instance.
+     * @return Whether the instance was stopped last.
+     */
+    public boolean isLastStopped(Activity activity) {
+        purge();
+
+        return lastStopped != null && lastStopped.get() == activity;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PACKAGE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Starts tracking the instance.
+     *
+     * @param activity The activity instance.
+     * @return Whether the instance was added: false if it was already tracked.
+     */
+    boolean add(Activity activity) {
+        purge();
+
+        if (find(activity) != null) {
+            return false;
+        }
+
+        insert(activity);
+
+        return true;
+    }
+
+    /**
+     * Marks the instance as started, and starts tracking it if needed.
+     *
+     * @param activity The activity instance.
+     * @return Whether the instance was not started before.
+     */
+    boolean markStarted(Activity activity) {
+        purge();
+
+        Entry entry = find(activity);
+
+        if (entry == null) {
+            entry = insert(activity);
+        } else if (entry.started) {
+            return false;
+        }
+
+        entry.started = true;
+        startedCount++;
+        lastStopped = null;
+
+        return true;
+    }
+
+    /**
+     * Marks the instance as stopped.
+     *
+     * @param activity The activity instance.
+     * @return Whether the instance was started before.
+     */
+    boolean markStopped(Activity activity) {
+        purge();
+
+        final Entry entry = find(activity);
+
+        if (entry == null || !entry.started) {
+            return false;
+        }
+
+        entry.started = false;
+
+        if (--startedCount == 0) {
+            lastStopped = entry;
+        }
+
+        return true;
+    }
+
+    /**
+     * Marks the instance as resumed, and starts tracking it if needed.
+     *
+     * @param activity The activity instance.
+     * @return Whether the instance was not resumed before.
+     */
+    boolean markResumed(Activity activity) {
+        purge();
+
+        Entry entry = find(activity);
+
+        if (entry == null) {
+            entry = insert(activity);
+        } else if (entry.resumed) {
+            return false;
+        }
+
+        entry.resumed = true;
+        resumedCount++;
+
+        return true;
+    }
+
+    /**
+     * Marks the instance as paused.
+     *
+     * @param activity The activity instance.
+     * @return Whether the instance was resumed before.
+     */
+    boolean markPaused(Activity activity) {
+        purge();
+
+        final Entry entry = find(activity);
+
+        if (entry == null || !entry.resumed) {
+            return false;
+        }
+
+        entry.resumed = false;
+        resumedCount--;
+
+        return true;
+    }
+
+    /**
+     * Stops tracking the instance. If it was still started or resumed, it is no longer counted.
+     *
+     * @param activity The activity instance.
+     * @return Whether the instance was tracked.
+     */
+    boolean remove(Activity activity) {
+        purge();
+
+        final Entry entry = find(activity);
+
+        if (entry == null) {
+            return false;
+        }
+
+        unlink(entry);
+
+        return true;
+    }
+
+    /**
+     * Stops tracking all instances.
+     */
+    void clear() {
+        while (queue.poll() != null) {
+            // drop stale references
+        }
+
+        table = new Entry[INITIAL_CAPACITY];
+        size = 0;
+        startedCount = 0;
+        resumedCount = 0;
+        lastStopped = null;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private Entry get(Activity activity) {
+        purge();
+
+        return find(activity);
+    }
+
+    private Entry find(Activity activity) {
+        final int hash = System.identityHashCode(activity);
+
+        for (Entry entry = table[hash & (table.length - 1)]; entry != null; entry = entry.next) {
+            if (entry.hash == hash && entry.get() == activity) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private Entry insert(Activity activity) {
+        if (size >= table.length * 3 / 4) {
+            resize();
+        }
+
+        final int hash = System.identityHashCode(activity);
+        final int index = hash & (table.length - 1);
+        final Entry entry = new Entry(activity, queue, hash, table[index]);
+
+        table[index] = entry;
+        size++;
+
+        return entry;
+    }
+
+    /**
+     * Removes the entry from the table and no longer counts it.
+     */
+    private void unlink(Entry entry) {
+        final int index = entry.hash & (table.length - 1);
+        Entry previous = null;
+
+        for (Entry current = table[index]; current != null; current = current.next) {
+            if (current == entry) {
+                if (previous == null) {
+                    table[index] = current.next;
+                } else {
+                    previous.next = current.next;
+                }
+
+                size--;
+
+                if (entry.started) {
+                    startedCount--;
+                }
+
+                if (entry.resumed) {
+                    resumedCount--;
+                }
+
+                if (lastStopped == entry) {
+                    lastStopped = null;
+                }
+
+                // do not count the entry again when it is polled from the queue
+                entry.started = false;
+                entry.resumed = false;
+
+                return;
+            }
+
+            previous = current;
+        }
+    }
+
+    private void resize() {
+        final Entry[] oldTable = table;
+        final Entry[] newTable = new Entry[oldTable.length * 2];
+
+        for (Entry head : oldTable) {
+            Entry entry = head;
+
+            while (entry != null) {
+                final Entry next = entry.next;
+                final int index = entry.hash & (newTable.length - 1);
+
+                entry.next = newTable[index];
+                newTable[index] = entry;
+                entry = next;
+            }
+        }
+
+        table = newTable;
+    }
+
+    /**
+     * Removes the entries of instances that were garbage collected.
+     */
+    private void purge() {
+        Object stale;
+
+        while ((stale = queue.poll()) != null) {
+            unlink((Entry) stale);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INNER CLASS: Entry
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Weak reference to a tracked instance, with its state.
+     */
+    static final class Entry extends WeakReference<Activity> {
+
+        final int hash;
+        Entry next;
+        boolean started;
+        boolean resumed;
+
+        Entry(Activity activity, ReferenceQueue<Activity> queue, int hash, Entry next) {
+            super(activity, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+
+    }
+
+}
@@ -0,0 +1,248 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppLowMemory;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppTrimMemory;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+import com.cookingfox.android.app_lifecycle.api.memory.MemoryPressure;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Dispatch target for an asynchronous listener: queues the events it receives and delivers them to
+ * the listener on an executor.
+ * <p>
+ * The events are kept in a ring buffer and delivered by a single drain task, which is only
+ * submitted to the executor when it is not already scheduled. This guarantees that the listener
+ * receives the events in order and never concurrently, even when the executor uses multiple
+ * threads. Queueing an event does not allocate, unless the buffer needs to grow.
+ */
+final class AsyncListenerDispatcher implements AppLifecycleListener, OnAppTrimMemory,
+        OnAppLowMemory, Runnable {
+
+    /**
+     * Initial capacity of the event buffer.
+     */
+    static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * The listener that receives the events.
+     */
+    final AppLifecycleEventListener listener;
+
+    /**
+     * The executor that calls the listener.
+     */
+    final Executor executor;
+
+    /**
+     * Ring buffer of queued events and their arguments: a lifecycle event with its origin class,
+     * or a memory event with its memory pressure.
+     */
+    private Object[] events = new Object[INITIAL_CAPACITY];
+    private Object[] arguments = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Index of the first queued event and the number of queued events.
+     */
+    private int head;
+    private int size;
+
+    /**
+     * Whether the drain task was submitted to the executor.
+     */
+    private boolean scheduled;
+
+    /**
+     * The number of events that were dropped because the executor rejected the drain task.
+     */
+    private int droppedEventCount;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    AsyncListenerDispatcher(AppLifecycleEventListener listener, Executor executor) {
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: AppLifecycleListener
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public void onAppCreated(Class<?> origin) {
+        enqueue(AppLifecycleEvent.CREATE, origin);
+    }
+
+    @Override
+    public void onAppStarted(Class<?> origin) {
+        enqueue(AppLifecycleEvent.START, origin);
+    }
+
+    @Override
+    public void onAppResumed(Class<?> origin) {
+        enqueue(AppLifecycleEvent.RESUME, origin);
+    }
+
+    @Override
+    public void onAppPaused(Class<?> origin) {
+        enqueue(AppLifecycleEvent.PAUSE, origin);
+    }
+
+    @Override
+    public void onAppStopped(Class<?> origin) {
+        enqueue(AppLifecycleEvent.STOP, origin);
+    }
+
+    @Override
+    public void onAppFinished(Class<?> origin) {
+        enqueue(AppLifecycleEvent.FINISH, origin);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: OnAppTrimMemory, OnAppLowMemory
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public void onAppTrimMemory(MemoryPressure pressure) {
+        enqueue(AppMemoryEvent.TRIM_MEMORY, pressure);
+    }
+
+    @Override
+    public void onAppLowMemory(MemoryPressure pressure) {
+        enqueue(AppMemoryEvent.LOW_MEMORY, pressure);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: Runnable
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Drains the queue: delivers the queued events to the listener, in order.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            final Object event;
+            final Object argument;
+
+            synchronized (this) {
+                if (size == 0) {
+                    scheduled = false;
+                    return;
+                }
+
+                event = events[head];
+                argument = arguments[head];
+                events[head] = null;
+                arguments[head] = null;
+                head = (head + 1) % events.length;
+                size--;
+            }
+
+            boolean delivered = false;
+
+            try {
+                if (event instanceof AppLifecycleEvent) {
+                    ((AppLifecycleEvent) event).dispatch(listener, (Class<?>) argument);
+                } else {
+                    ((AppMemoryEvent) event).dispatch(listener, (MemoryPressure) argument);
+                }
+
+                delivered = true;
+            } finally {
+                if (!delivered) {
+                    // the listener threw (an exception or an error): make sure the remaining
+                    // events are still delivered, and that new events schedule the drain task
+                    synchronized (this) {
+                        if (size > 0) {
+                            schedule();
+                        } else {
+                            scheduled = false;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PACKAGE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Adds the lifecycle or memory event to the queue and schedules the drain task if necessary.
+     */
+    synchronized void enqueue(Object event, Object argument) {
+        if (size == events.length) {
+            grow();
+        }
+
+        final int tail = (head + size) % events.length;
+        events[tail] = event;
+        arguments[tail] = argument;
+        size++;
+
+        if (!scheduled) {
+            schedule();
+        }
+    }
+
+    /**
+     * @return The number of events that were dropped because the executor rejected the drain task.
+     */
+    synchronized int getDroppedEventCount() {
+        return droppedEventCount;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Submits the drain task to the executor. When the executor rejects it (e.g. because it was
+     * shut down), the queued events are dropped and counted: the rejection must not propagate into
+     * the dispatch loop of the manager, and an executor that keeps rejecting must not make the queue
+     * grow without bounds. Must be called while holding the lock.
+     */
+    private void schedule() {
+        scheduled = true;
+
+        try {
+            executor.execute(this);
+        } catch (RuntimeException e) {
+            scheduled = false;
+            droppedEventCount += size;
+
+            for (int i = 0; i < size; i++) {
+                events[(head + i) % events.length] = null;
+                arguments[(head + i) % arguments.length] = null;
+            }
+
+            head = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * Doubles the capacity of the ring buffer, moving the queued events to the start.
+     */
+    private void grow() {
+        final Object[] nextEvents = new Object[events.length * 2];
+        final Object[] nextArguments = new Object[arguments.length * 2];
+
+        for (int i = 0; i < size; i++) {
+            nextEvents[i] = events[(head + i) % events.length];
+            nextArguments[i] = arguments[(head + i) % arguments.length];
+        }
+
+        events = nextEvents;
+        arguments = nextArguments;
+        head = 0;
+    }
+
+}
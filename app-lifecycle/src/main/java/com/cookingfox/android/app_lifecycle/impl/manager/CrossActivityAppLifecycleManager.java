@@ -1,44 +1,218 @@
 package com.cookingfox.android.app_lifecycle.impl.manager;
 
+import android.annotation.TargetApi;
 import android.app.Activity;
+import android.os.Build;
 
 import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
 import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListenable;
-import com.cookingfox.android.app_lifecycle.api.listener.OnAppCreated;
-import com.cookingfox.android.app_lifecycle.api.listener.OnAppFinished;
-import com.cookingfox.android.app_lifecycle.api.listener.OnAppPaused;
-import com.cookingfox.android.app_lifecycle.api.listener.OnAppResumed;
-import com.cookingfox.android.app_lifecycle.api.listener.OnAppStarted;
-import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
-import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.AsyncAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.PrioritizedAppLifecycleListenable;
+import com.cookingfox.android.app_lifecycle.api.listener.StickyAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.WeakAppLifecycleListenable;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
 import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleManager;
-
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
-
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryManager;
+import com.cookingfox.android.app_lifecycle.api.manager.AppStateQueryable;
+import com.cookingfox.android.app_lifecycle.api.memory.MemoryPressure;
+import com.cookingfox.android.app_lifecycle.api.time.Scheduler;
+import com.cookingfox.android.app_lifecycle.impl.executor.DaemonExecutors;
+import com.cookingfox.android.app_lifecycle.impl.metrics.ListenerMetrics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
 
 /**
  * App lifecycle manager implementation that supports tracking the Android lifecycle across
  * activities.
+ * <p>
+ * The app is started and resumed as long as at least one activity instance is started or resumed.
+ * Instances are tracked by identity, so multiple instances of the same activity class (e.g. in the
+ * back stack or in multi-window mode) and events that are reported out of order are supported. The
+ * app is finished when the activity that moved it to background is finished.
+ * <p>
+ * Lifecycle events are expected to be triggered from the main thread, but listeners can be added
+ * and removed from any thread: the listener registry is lock-free, so registering a listener never
+ * blocks the dispatch of an event, and the lifecycle state is safely published to other threads.
+ * The current app state can be queried from any thread without locking.
  */
-public class CrossActivityAppLifecycleManager implements AppLifecycleManager {
+public class CrossActivityAppLifecycleManager implements AppLifecycleManager, AppMemoryManager,
+        AppStateQueryable, PrioritizedAppLifecycleListenable, WeakAppLifecycleListenable {
+
+    /**
+     * The events that are replayed to a sticky listener per app state, indexed by the ordinal of
+     * the last notified event. Transient events are not replayed: a paused app is started, and a
+     * stopped app is only created.
+     */
+    static final AppLifecycleEvent[][] REPLAY_EVENTS = {
+            /* CREATE */ {AppLifecycleEvent.CREATE},
+            /* START */ {AppLifecycleEvent.CREATE, AppLifecycleEvent.START},
+            /* RESUME */ {AppLifecycleEvent.CREATE, AppLifecycleEvent.START,
+                    AppLifecycleEvent.RESUME},
+            /* PAUSE */ {AppLifecycleEvent.CREATE, AppLifecycleEvent.START},
+            /* STOP */ {AppLifecycleEvent.CREATE},
+            /* FINISH */ {}
+    };
 
     /**
-     * The class of activity that last triggered a lifecycle event.
+     * The number of low bits of the notified state that hold the event: its ordinal plus one, or
+     * zero when the app is not created.
      */
-    protected Class<? extends Activity> currentOrigin;
+    static final int STATE_BITS = 3;
+    static final long STATE_MASK = (1L << STATE_BITS) - 1;
+
+    /**
+     * The app lifecycle events, indexed by ordinal: {@link AppLifecycleEvent#values()} allocates a
+     * copy per call.
+     */
+    static final AppLifecycleEvent[] EVENTS = AppLifecycleEvent.values();
+
+    /**
+     * The maximum number of collected weak listeners that are purged per dispatched event.
+     */
+    static final int PURGE_BATCH_SIZE = LifecycleEventDispatcher.PURGE_BATCH_SIZE;
+
+    /**
+     * The class of activity that last triggered an app lifecycle event.
+     */
+    protected volatile Class<? extends Activity> currentOrigin;
 
     /**
      * The last lifecycle event that was triggered, to control and validate subsequent events.
      */
-    protected AppLifecycleEvent lastEvent;
+    protected volatile AppLifecycleEvent lastEvent;
 
     /**
-     * A set of app lifecycle event listeners.
+     * The event that listeners were last notified of and the time of the notification, packed in
+     * one word so both can be read from any thread without locking or allocating. The event is
+     * stored in the low {@link #STATE_BITS} bits, the time in nanoseconds in the other bits.
      */
-    protected final List<AppLifecycleEventListener> listeners = new LinkedList<AppLifecycleEventListener>();
+    protected volatile long notifiedState;
+
+    /**
+     * The origin of the event that listeners were last notified of. This is written before the
+     * notified state, but is read separately: a reader on another thread can observe the origin of
+     * the next transition. When coalescing drops a resume or start together with the held pause or
+     * stop it cancels out, the state stays the same but the origin is updated to the activity that
+     * was resumed or started.
+     */
+    protected volatile Class<?> notifiedOrigin;
+
+    /**
+     * Whether the pause or stop of the current origin was not notified, because the activity was
+     * being recreated for a configuration change (e.g. rotation). The matching resume or start of
+     * the recreated activity is then not notified either.
+     */
+    protected boolean suppressedPause;
+    protected boolean suppressedStop;
+
+    /**
+     * Whether configuration changes can be detected: requires Honeycomb (API 11).
+     */
+    protected boolean detectConfigurationChanges =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+
+    /**
+     * The allowed transitions between app lifecycle events.
+     */
+    protected final TransitionTable transitions;
+
+    /**
+     * The started and resumed activity instances, which determine the app lifecycle events.
+     */
+    protected final ActivityInstances instances = new ActivityInstances();
+
+    /**
+     * Registers the app lifecycle event listeners and dispatches the events to them.
+     */
+    protected final LifecycleEventDispatcher dispatcher;
+
+    /**
+     * The registered app lifecycle event listeners: the registry of the dispatcher.
+     */
+    protected final ListenerRegistry listeners;
+
+    /**
+     * Records the history of validated lifecycle events, for diagnostics.
+     */
+    protected final FlightRecorder flightRecorder =
+            new FlightRecorder(FlightRecorder.DEFAULT_CAPACITY);
+
+    /**
+     * Schedules held pause and stop notifications, or null when coalescing is disabled.
+     */
+    protected Scheduler coalesceScheduler;
+
+    /**
+     * How long pause and stop notifications are held when coalescing is enabled.
+     */
+    protected long coalesceWindowMillis;
+
+    /**
+     * The origins of the held pause and stop notifications, or null when not held.
+     */
+    protected Class<?> pendingPauseOrigin;
+    protected Class<?> pendingStopOrigin;
+
+    /**
+     * Tasks that deliver the held notifications when the coalescing window has passed. These are
+     * created once, so holding a notification does not allocate.
+     */
+    protected final Runnable flushPauseTask = new Runnable() {
+        @Override
+        public void run() {
+            flushPendingPause();
+        }
+    };
+
+    protected final Runnable flushStopTask = new Runnable() {
+        @Override
+        public void run() {
+            flushPendingStop();
+        }
+    };
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a manager that calls asynchronous listeners on a single background thread, which is
+     * only started when needed.
+     */
+    public CrossActivityAppLifecycleManager() {
+        this(DaemonExecutors.newSingleThreadExecutor(LifecycleEventDispatcher.ASYNC_THREAD_NAME));
+    }
+
+    /**
+     * Creates a manager that calls asynchronous listeners on the provided executor.
+     *
+     * @param asyncExecutor The executor for asynchronous listeners.
+     * @throws NullPointerException when the executor is null.
+     * @see AsyncAppLifecycleEventListener
+     */
+    public CrossActivityAppLifecycleManager(Executor asyncExecutor) {
+        this(asyncExecutor, TransitionTable.DEFAULT);
+    }
+
+    /**
+     * Creates a manager that calls asynchronous listeners on the provided executor and validates
+     * the app lifecycle events with the provided transition table.
+     *
+     * @param asyncExecutor The executor for asynchronous listeners.
+     * @param transitions   The allowed transitions between app lifecycle events.
+     * @throws NullPointerException when the executor or transition table is null.
+     * @see TransitionTable#DEFAULT
+     */
+    public CrossActivityAppLifecycleManager(Executor asyncExecutor, TransitionTable transitions) {
+        this.dispatcher = new LifecycleEventDispatcher(asyncExecutor);
+        this.listeners = dispatcher.listeners;
+        this.transitions = checkNotNull(transitions, "Transition table can not be null");
+    }
 
     //----------------------------------------------------------------------------------------------
     // PUBLIC METHODS
@@ -46,80 +220,229 @@ public class CrossActivityAppLifecycleManager implements AppLifecycleManager {
 
     @Override
     public AppLifecycleListenable addListener(AppLifecycleEventListener listener) {
-        if (listeners.contains(checkNotNull(listener, "Listener can not be null"))) {
-            throw new IllegalStateException("Listener was already added: " + listener);
+        return addListener(listener, ListenerRegistry.DEFAULT_PRIORITY);
+    }
+
+    @Override
+    public PrioritizedAppLifecycleListenable addListener(AppLifecycleEventListener listener,
+                                                         int priority) {
+        final AppLifecycleEventListener target = dispatcher.register(listener, priority);
+
+        if (listener instanceof StickyAppLifecycleEventListener) {
+            replayState(listener, target);
         }
 
-        listeners.add(listener);
+        return this;
+    }
+
+    @Override
+    public WeakAppLifecycleListenable addWeakListener(AppLifecycleEventListener listener) {
+        return addWeakListener(listener, ListenerRegistry.DEFAULT_PRIORITY);
+    }
+
+    @Override
+    public WeakAppLifecycleListenable addWeakListener(AppLifecycleEventListener listener,
+                                                      int priority) {
+        final AppLifecycleEventListener target = dispatcher.registerWeak(listener, priority);
+
+        if (listener instanceof StickyAppLifecycleEventListener) {
+            replayState(listener, target);
+        }
 
         return this;
     }
 
     @Override
     public AppLifecycleListenable removeListener(AppLifecycleEventListener listener) {
-        if (!listeners.contains(checkNotNull(listener, "Listener can not be null"))) {
-            throw new IllegalStateException("Listener not found: " + listener);
+        dispatcher.unregister(listener);
+
+        return this;
+    }
+
+    /**
+     * Enables measuring the execution time of every listener invocation. For asynchronous
+     * listeners this is the time it takes to queue the event, since that is what delays the
+     * dispatching thread.
+     *
+     * @param metrics The metrics to record the execution times to, or null to disable measuring.
+     * @see LifecycleEventDispatcher#setListenerMetrics(ListenerMetrics)
+     */
+    public void setListenerMetrics(ListenerMetrics metrics) {
+        dispatcher.setListenerMetrics(metrics);
+    }
+
+    /**
+     * @return The metrics that listener execution times are recorded to, or null when measuring
+     * is disabled.
+     */
+    public ListenerMetrics getListenerMetrics() {
+        return dispatcher.getListenerMetrics();
+    }
+
+    /**
+     * @return The total number of weakly referenced listeners that were removed because they were
+     * garbage collected.
+     * @see #addWeakListener(AppLifecycleEventListener)
+     */
+    public long getPurgedListenerCount() {
+        return listeners.getPurgedCount();
+    }
+
+    /**
+     * Returns the flight recorder, which keeps the last lifecycle events that reached validation,
+     * with their origin, time and whether they were accepted. Dump it when a lifecycle problem is
+     * reported, e.g. with a crash or bug report.
+     *
+     * @return The flight recorder of this manager.
+     */
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    /**
+     * @return The allowed transitions between app lifecycle events.
+     */
+    public TransitionTable getTransitionTable() {
+        return transitions;
+    }
+
+    /**
+     * Enables coalescing of rapid transitions: pause and stop notifications are held for the
+     * window, and are dropped together with the matching resume or start notification when that
+     * arrives within the window. For example, quickly navigating between activities or showing a
+     * dialog-themed activity will then not notify listeners at all. Held notifications are
+     * delivered in order when the window has passed, or before any other notification.
+     * <p>
+     * Must be called on the thread that triggers the lifecycle events.
+     *
+     * @param scheduler    The scheduler for delivering held notifications, which must run its
+     *                     tasks on the thread that triggers the lifecycle events.
+     * @param windowMillis How long pause and stop notifications are held.
+     * @throws NullPointerException     when the scheduler is null.
+     * @throws IllegalArgumentException when the window is negative.
+     */
+    public void enableCoalescing(Scheduler scheduler, long windowMillis) {
+        checkNotNull(scheduler, "Scheduler can not be null");
+        checkArgument(windowMillis >= 0, "Coalescing window can not be negative");
+
+        disableCoalescing();
+
+        coalesceScheduler = scheduler;
+        coalesceWindowMillis = windowMillis;
+    }
+
+    /**
+     * Disables coalescing of rapid transitions. Held notifications are delivered immediately.
+     * <p>
+     * Must be called on the thread that triggers the lifecycle events.
+     */
+    public void disableCoalescing() {
+        if (coalesceScheduler != null) {
+            flushPending();
+            coalesceScheduler = null;
         }
+    }
+
+    @Override
+    public AppLifecycleEvent getCurrentState() {
+        return getNotifiedState();
+    }
+
+    @Override
+    public Class<?> getCurrentOrigin() {
+        return notifiedOrigin;
+    }
+
+    @Override
+    public boolean isInForeground() {
+        final AppLifecycleEvent state = getNotifiedState();
 
-        // do not remove persistent listeners
-        if (!(listener instanceof PersistentAppLifecycleEventListener)) {
-            listeners.remove(listener);
+        return state == AppLifecycleEvent.START ||
+                state == AppLifecycleEvent.RESUME ||
+                state == AppLifecycleEvent.PAUSE;
+    }
+
+    @Override
+    public long getTimeSinceLastTransition() {
+        final long state = notifiedState;
+
+        if (state == 0) {
+            return -1;
         }
 
-        return this;
+        // subtracting the shifted times is correct when the nanosecond time overflows
+        final long now = currentTimeNanos() << STATE_BITS;
+        final long elapsedNanos = (now - (state & ~STATE_MASK)) >> STATE_BITS;
+
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
     }
 
     @Override
     public void dispose() {
+        // drop held notifications
+        if (coalesceScheduler != null) {
+            coalesceScheduler.cancel(flushPauseTask);
+            coalesceScheduler.cancel(flushStopTask);
+            pendingPauseOrigin = null;
+            pendingStopOrigin = null;
+        }
+
         // clear listeners and reset state
         listeners.clear();
+        instances.clear();
         currentOrigin = null;
         lastEvent = null;
+        suppressedPause = false;
+        suppressedStop = false;
+        notifiedOrigin = null;
+        notifiedState = 0;
+        flightRecorder.clear();
     }
 
     @Override
     public void onCreate(Activity origin) {
-        // initially the last event is null
-        if (!isValid(origin, new AppLifecycleEvent[]{null})) {
+        checkNotNull(origin, "Origin activity can not be null");
+
+        instances.add(origin);
+
+        // only the first activity creates the app: initially the last event is null
+        if (!isValid(origin, AppLifecycleEvent.CREATE)) {
             return;
         }
 
         currentOrigin = origin.getClass();
 
-        notifyListeners(new ListenerNotifier() {
-            @Override
-            public void call(AppLifecycleEventListener listener) {
-                if (listener instanceof OnAppCreated) {
-                    ((OnAppCreated) listener).onAppCreated(currentOrigin);
-                }
-            }
-        });
+        publish(AppLifecycleEvent.CREATE);
 
         lastEvent = AppLifecycleEvent.CREATE;
     }
 
     @Override
     public void onStart(Activity origin) {
-        // START can be called after CREATE, PAUSE, or STOP
-        if (!isValid(origin, AppLifecycleEvent.CREATE, AppLifecycleEvent.PAUSE, AppLifecycleEvent.STOP)) {
+        checkNotNull(origin, "Origin activity can not be null");
+
+        // app not created yet: ignore
+        if (lastEvent == null) {
             return;
         }
 
-        final Class<? extends Activity> originClass = origin.getClass();
+        // the app is started when the first instance is started
+        if (!instances.markStarted(origin) || instances.getStartedCount() != 1) {
+            return;
+        }
 
-        if (originClass.equals(currentOrigin)) {
-            // after create or stop: notify listeners
-            notifyListeners(new ListenerNotifier() {
-                @Override
-                public void call(AppLifecycleEventListener listener) {
-                    if (listener instanceof OnAppStarted) {
-                        ((OnAppStarted) listener).onAppStarted(currentOrigin);
-                    }
-                }
-            });
-        } else if (currentOrigin != null) {
-            // after pause: don't notify listeners, only change current origin
-            currentOrigin = originClass;
+        // START can be called after CREATE, PAUSE or STOP
+        if (!isValid(origin, AppLifecycleEvent.START)) {
+            return;
+        }
+
+        currentOrigin = origin.getClass();
+
+        // not notified if the stop was suppressed for a configuration change
+        if (suppressedStop) {
+            suppressedStop = false;
+        } else {
+            publish(AppLifecycleEvent.START);
         }
 
         lastEvent = AppLifecycleEvent.START;
@@ -127,155 +450,387 @@ public class CrossActivityAppLifecycleManager implements AppLifecycleManager {
 
     @Override
     public void onResume(Activity origin) {
+        checkNotNull(origin, "Origin activity can not be null");
+
+        // app not created yet: ignore
+        if (lastEvent == null) {
+            return;
+        }
+
+        // out of order: a resumed activity is always started
+        if (!instances.isStarted(origin)) {
+            onStart(origin);
+        }
+
+        // the app is resumed when the first instance is resumed
+        if (!instances.markResumed(origin) || instances.getResumedCount() != 1) {
+            return;
+        }
+
         // RESUME can be called after START or PAUSE
-        if (!isValid(origin, AppLifecycleEvent.START, AppLifecycleEvent.PAUSE)) {
+        if (!isValid(origin, AppLifecycleEvent.RESUME)) {
             return;
         }
 
-        if (origin.getClass().equals(currentOrigin)) {
-            notifyListeners(new ListenerNotifier() {
-                @Override
-                public void call(AppLifecycleEventListener listener) {
-                    if (listener instanceof OnAppResumed) {
-                        ((OnAppResumed) listener).onAppResumed(currentOrigin);
-                    }
-                }
-            });
+        currentOrigin = origin.getClass();
 
-            lastEvent = AppLifecycleEvent.RESUME;
+        // not notified if the pause was suppressed for a configuration change
+        if (suppressedPause) {
+            suppressedPause = false;
+        } else {
+            publish(AppLifecycleEvent.RESUME);
         }
+
+        lastEvent = AppLifecycleEvent.RESUME;
     }
 
     @Override
     public void onPause(Activity origin) {
+        checkNotNull(origin, "Origin activity can not be null");
+
+        // the app is paused when the last resumed instance is paused
+        if (!instances.markPaused(origin) || instances.getResumedCount() != 0) {
+            return;
+        }
+
         // PAUSE can be called after RESUME
-        if (!isValid(origin, AppLifecycleEvent.RESUME)) {
+        if (!isValid(origin, AppLifecycleEvent.PAUSE)) {
             return;
         }
 
-        if (origin.getClass().equals(currentOrigin)) {
-            notifyListeners(new ListenerNotifier() {
-                @Override
-                public void call(AppLifecycleEventListener listener) {
-                    if (listener instanceof OnAppPaused) {
-                        ((OnAppPaused) listener).onAppPaused(currentOrigin);
-                    }
-                }
-            });
+        currentOrigin = origin.getClass();
 
-            lastEvent = AppLifecycleEvent.PAUSE;
+        // the activity will be recreated immediately: not an app level event
+        if (isChangingConfigurations(origin)) {
+            suppressedPause = true;
+        } else {
+            publish(AppLifecycleEvent.PAUSE);
         }
+
+        lastEvent = AppLifecycleEvent.PAUSE;
     }
 
     @Override
     public void onStop(Activity origin) {
-        // STOP can be called after PAUSE
-        if (!isValid(origin, AppLifecycleEvent.PAUSE)) {
+        checkNotNull(origin, "Origin activity can not be null");
+
+        // out of order: a stopped activity is always paused
+        if (instances.isResumed(origin)) {
+            onPause(origin);
+        }
+
+        // the app is stopped when the last started instance is stopped
+        if (!instances.markStopped(origin) || instances.getStartedCount() != 0) {
             return;
         }
 
-        if (origin.getClass().equals(currentOrigin)) {
-            notifyListeners(new ListenerNotifier() {
-                @Override
-                public void call(AppLifecycleEventListener listener) {
-                    if (listener instanceof OnAppStopped) {
-                        ((OnAppStopped) listener).onAppStopped(currentOrigin);
-                    }
-                }
-            });
+        // STOP can be called after START or PAUSE
+        if (!isValid(origin, AppLifecycleEvent.STOP)) {
+            return;
+        }
+
+        currentOrigin = origin.getClass();
 
-            lastEvent = AppLifecycleEvent.STOP;
+        // the activity will be recreated immediately: not an app level event
+        if (isChangingConfigurations(origin)) {
+            suppressedStop = true;
+        } else {
+            publish(AppLifecycleEvent.STOP);
         }
+
+        lastEvent = AppLifecycleEvent.STOP;
     }
 
     @Override
     public void onFinish(Activity origin) {
-        // FINISH can be called after STOP
-        if (!isValid(origin, AppLifecycleEvent.STOP)) {
+        checkNotNull(origin, "Origin activity can not be null");
+
+        // out of order: a finished activity is always stopped
+        if (instances.isStarted(origin)) {
+            onStop(origin);
+        }
+
+        // the app is finished when the activity that moved it to background is finished
+        final boolean lastStopped = instances.isLastStopped(origin);
+
+        if (!instances.remove(origin) || !lastStopped) {
             return;
         }
 
-        // different origin: ignore
-        if (!origin.getClass().equals(currentOrigin)) {
+        // FINISH can be called after STOP
+        if (!isValid(origin, AppLifecycleEvent.FINISH)) {
             return;
         }
 
-        notifyListeners(new ListenerNotifier() {
-            @Override
-            public void call(AppLifecycleEventListener listener) {
-                if (listener instanceof OnAppFinished) {
-                    ((OnAppFinished) listener).onAppFinished(currentOrigin);
-                }
-            }
-        });
+        currentOrigin = origin.getClass();
+
+        publish(AppLifecycleEvent.FINISH);
 
         // reset state
         currentOrigin = null;
         lastEvent = null;
+        suppressedPause = false;
+        suppressedStop = false;
 
-        for (AppLifecycleEventListener listener : listeners) {
-            removeListener(listener);
-        }
+        // remove all listeners, except persistent listeners
+        listeners.retainPersistent();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        notifyListeners(AppMemoryEvent.TRIM_MEMORY, level, false);
+    }
+
+    @Override
+    public void onLowMemory() {
+        notifyListeners(AppMemoryEvent.LOW_MEMORY, MemoryPressure.TRIM_MEMORY_COMPLETE, true);
     }
 
     //----------------------------------------------------------------------------------------------
-    // PUBLIC METHODS
+    // PROTECTED METHODS
     //----------------------------------------------------------------------------------------------
 
     /**
-     * Validates the origin activity and allowed last events. For example, PAUSE can only be called
-     * after RESUME.
+     * Returns the last event that listeners were notified of. This differs from the last event
+     * when a pause or stop is held for coalescing, or was suppressed for a configuration change:
+     * listeners still consider the app resumed or started. After the app is finished, this is
+     * {@link AppLifecycleEvent#FINISH} until the app is created again.
+     *
+     * @return The last notified event, or null when the app has not been created.
+     */
+    protected AppLifecycleEvent getNotifiedState() {
+        final int code = (int) (notifiedState & STATE_MASK);
+
+        return code == 0 ? null : EVENTS[code - 1];
+    }
+
+    /**
+     * Records the event that listeners are notified of, as the current app state.
+     *
+     * @param event  The event that listeners are notified of.
+     * @param origin The class of the activity that triggered the event.
+     */
+    protected void recordNotifiedState(AppLifecycleEvent event, Class<?> origin) {
+        notifiedOrigin = origin;
+        notifiedState = (currentTimeNanos() << STATE_BITS) | (event.ordinal() + 1);
+    }
+
+    /**
+     * Returns the current time of the monotonic clock that the time since the last transition is
+     * measured with.
+     *
+     * @return The current time in nanoseconds.
+     */
+    protected long currentTimeNanos() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Replays the events that lead to the current app state to a sticky listener, through its
+     * dispatch target: asynchronous listeners receive the replayed events in order with later
+     * events. The replay runs on the calling thread; add sticky listeners from the main thread to
+     * make sure no event is dispatched while replaying.
+     *
+     * @param listener The sticky listener: determines the subscribed events.
+     * @param target   The object that receives the replayed events.
+     */
+    protected void replayState(AppLifecycleEventListener listener, AppLifecycleEventListener target) {
+        final AppLifecycleEvent state = getNotifiedState();
+        final Class<?> origin = notifiedOrigin;
+
+        if (state == null || origin == null) {
+            return;
+        }
+
+        for (AppLifecycleEvent event : REPLAY_EVENTS[state.ordinal()]) {
+            if (event.isSubscribed(listener)) {
+                event.dispatch(target, origin);
+            }
+        }
+    }
+
+    /**
+     * Validates the origin activity and whether the event is allowed after the last event,
+     * according to the transition table. For example, PAUSE can only be called after RESUME. The
+     * result is recorded in the flight recorder.
+     *
+     * @param origin The activity that triggered the event.
+     * @param event  The event to validate.
+     * @return Whether this event is allowed to be triggered.
+     */
+    protected boolean isValid(Activity origin, AppLifecycleEvent event) {
+        checkNotNull(origin, "Origin activity can not be null");
+
+        final boolean valid = transitions.isAllowed(lastEvent, event);
+
+        flightRecorder.record(event, origin.getClass(), valid, currentTimeNanos());
+
+        return valid;
+    }
+
+    /**
+     * Validates the origin activity and allowed last events.
      *
      * @param origin            The activity that triggered the event.
      * @param allowedLastEvents The events after which this event is allowed to be triggered.
      * @return Whether this event is allowed to be triggered.
+     * @deprecated Allocates a varargs array per call: use the {@link TransitionTable} through
+     * {@link #isValid(Activity, AppLifecycleEvent)} instead.
      */
+    @Deprecated
     protected boolean isValid(Activity origin, AppLifecycleEvent... allowedLastEvents) {
         checkNotNull(origin, "Origin activity can not be null");
 
-        return Arrays.asList(allowedLastEvents).contains(lastEvent);
+        for (AppLifecycleEvent allowedLastEvent : allowedLastEvents) {
+            if (allowedLastEvent == lastEvent) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     /**
-     * Use the listener notifier to call a specific event method on all listeners.
+     * Returns whether the activity is being destroyed to be recreated with a new configuration.
      *
-     * @param notifier Utility for calling the correct lifecycle event methods.
-     */
-    protected void notifyListeners(ListenerNotifier notifier) {
-        final List<AppLifecycleEventListener> calledListeners = new LinkedList<AppLifecycleEventListener>();
-        final int numListeners = listeners.size();
-
-        /**
-         * Call listeners in reverse order (added first, called last). Calling listeners this way
-         * will prevent a concurrent modification exception, but requires keeping track of called
-         * listeners.
-         */
-        for (int i = numListeners - 1; i >= 0; i--) {
-            final AppLifecycleEventListener listener = listeners.get(i);
-
-            if (!calledListeners.contains(listener)) {
-                notifier.call(listener);
-                calledListeners.add(listener);
-            }
+     * @param origin The activity that triggered the event.
+     * @return Whether the activity is changing configurations.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    protected boolean isChangingConfigurations(Activity origin) {
+        return detectConfigurationChanges && origin.isChangingConfigurations();
+    }
+
+    /**
+     * Notifies the listeners of the event, or holds or drops the notification when coalescing is
+     * enabled.
+     *
+     * @param event The event to publish.
+     */
+    protected void publish(AppLifecycleEvent event) {
+        if (coalesceScheduler == null) {
+            notifyListeners(event);
+        } else {
+            coalesce(event);
         }
     }
 
-    //----------------------------------------------------------------------------------------------
-    // INTERFACE: listener notifier
-    //----------------------------------------------------------------------------------------------
+    /**
+     * Holds pause and stop notifications, and drops a resume or start notification together with
+     * the held notification it cancels out: only the current origin is updated then. Other
+     * notifications are delivered after the held ones.
+     *
+     * @param event The event to publish.
+     */
+    protected void coalesce(AppLifecycleEvent event) {
+        switch (event) {
+            case PAUSE:
+                pendingPauseOrigin = currentOrigin;
+                coalesceScheduler.schedule(flushPauseTask, coalesceWindowMillis);
+                return;
+
+            case STOP:
+                pendingStopOrigin = currentOrigin;
+                coalesceScheduler.schedule(flushStopTask, coalesceWindowMillis);
+                return;
+
+            case RESUME:
+                if (pendingPauseOrigin != null) {
+                    coalesceScheduler.cancel(flushPauseTask);
+                    pendingPauseOrigin = null;
+                    notifiedOrigin = currentOrigin;
+                    return;
+                }
+                break;
+
+            case START:
+                if (pendingStopOrigin != null) {
+                    coalesceScheduler.cancel(flushStopTask);
+                    pendingStopOrigin = null;
+                    notifiedOrigin = currentOrigin;
+                    return;
+                }
+                break;
+
+            default:
+                break;
+        }
+
+        flushPending();
+        notifyListeners(event);
+    }
+
+    /**
+     * Delivers all held notifications, in order.
+     */
+    protected void flushPending() {
+        // the pause notification is always delivered first
+        flushPendingStop();
+    }
+
+    /**
+     * Delivers the held pause notification, if any.
+     */
+    protected void flushPendingPause() {
+        final Class<?> origin = pendingPauseOrigin;
+
+        if (origin != null) {
+            pendingPauseOrigin = null;
+            coalesceScheduler.cancel(flushPauseTask);
+            notifyListeners(AppLifecycleEvent.PAUSE, origin);
+        }
+    }
+
+    /**
+     * Delivers the held stop notification, if any, after the held pause notification.
+     */
+    protected void flushPendingStop() {
+        flushPendingPause();
+
+        final Class<?> origin = pendingStopOrigin;
+
+        if (origin != null) {
+            pendingStopOrigin = null;
+            coalesceScheduler.cancel(flushStopTask);
+            notifyListeners(AppLifecycleEvent.STOP, origin);
+        }
+    }
 
     /**
-     * Utility for calling the correct lifecycle event methods.
+     * Calls the event method on all listeners that are subscribed to the event, with the current
+     * origin.
+     *
+     * @param event The event to dispatch.
+     * @see #notifyListeners(AppLifecycleEvent, Class)
      */
-    protected interface ListenerNotifier {
+    protected void notifyListeners(AppLifecycleEvent event) {
+        notifyListeners(event, currentOrigin);
+    }
 
-        /**
-         * Call a certain listener method.
-         *
-         * @param listener The listener instance.
-         */
-        void call(AppLifecycleEventListener listener);
+    /**
+     * Records the event as the notified state and dispatches it to all listeners that are
+     * subscribed to the event.
+     *
+     * @param event  The event to dispatch.
+     * @param origin The class of the activity that triggered the event.
+     * @see LifecycleEventDispatcher#dispatch(AppLifecycleEvent, Class)
+     */
+    protected void notifyListeners(AppLifecycleEvent event, Class<?> origin) {
+        recordNotifiedState(event, origin);
+        dispatcher.dispatch(event, origin);
+    }
 
+    /**
+     * Calls the event method on all listeners that are subscribed to the memory event, with the
+     * memory pressure correlated to the app state that listeners were notified of. Memory events
+     * do not change the app state and are not validated or coalesced.
+     *
+     * @param event     The memory event to dispatch.
+     * @param level     The trim level.
+     * @param lowMemory Whether this is a low memory signal.
+     */
+    protected void notifyListeners(AppMemoryEvent event, int level, boolean lowMemory) {
+        dispatcher.dispatch(event, level, getNotifiedState(), lowMemory);
     }
 
 }
@@ -0,0 +1,274 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Fixed-size history of the lifecycle events that were validated by the manager, to diagnose
+ * lifecycle problems after the fact (e.g. "the app did not resume properly").
+ * <p>
+ * Every entry holds the event, the origin activity class, the time in nanoseconds and whether the
+ * event was accepted or rejected. The entries are stored in primitive ring buffers: when the
+ * recorder is full, the oldest entry is overwritten. Origin classes are stored once, in a table
+ * that the entries refer to by index. Recording an event does not allocate, except the first time
+ * an origin class is recorded.
+ * <p>
+ * The history can be dumped as text with {@link #dump()}, or in a compact binary format with
+ * {@link #writeTo(OutputStream)}. All methods can be called from any thread.
+ */
+public final class FlightRecorder {
+
+    /**
+     * The default number of entries that are kept.
+     */
+    public static final int DEFAULT_CAPACITY = 128;
+
+    /**
+     * Identifies the binary format, followed by the format version.
+     */
+    public static final int MAGIC = 0x4c464c52;
+    public static final int VERSION = 1;
+
+    /**
+     * Flag in the event code of an accepted event: the other bits hold the event ordinal.
+     */
+    static final int ACCEPTED = 0x80;
+    static final int ORDINAL_MASK = 0x7f;
+
+    /**
+     * The origin index of an entry without origin, or with an origin that did not fit the table.
+     */
+    static final short NO_ORIGIN = -1;
+
+    static final AppLifecycleEvent[] EVENTS = AppLifecycleEvent.values();
+
+    private final long[] timestamps;
+    private final byte[] codes;
+    private final short[] origins;
+
+    private Class<?>[] originClasses = new Class<?>[8];
+    private int originCount;
+
+    /**
+     * The position of the next entry and the total number of recorded entries.
+     */
+    private int next;
+    private long recordedCount;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param capacity The number of entries that are kept.
+     * @throws IllegalArgumentException when the capacity is not positive.
+     */
+    public FlightRecorder(int capacity) {
+        checkArgument(capacity > 0, "Capacity must be positive");
+
+        timestamps = new long[capacity];
+        codes = new byte[capacity];
+        origins = new short[capacity];
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Records an event, overwriting the oldest entry when the recorder is full.
+     *
+     * @param event     The lifecycle event.
+     * @param origin    The class of the activity that triggered the event, or null.
+     * @param accepted  Whether the event was accepted by the validation.
+     * @param timeNanos The time of the event in nanoseconds.
+     * @throws NullPointerException when the event is null.
+     */
+    public synchronized void record(AppLifecycleEvent event, Class<?> origin, boolean accepted,
+                                    long timeNanos) {
+        checkNotNull(event, "Event can not be null");
+
+        timestamps[next] = timeNanos;
+        codes[next] = (byte) (event.ordinal() | (accepted ? ACCEPTED : 0));
+        origins[next] = indexOf(origin);
+
+        next = (next + 1) % codes.length;
+        recordedCount++;
+    }
+
+    /**
+     * @return The maximum number of entries that are kept.
+     */
+    public int getCapacity() {
+        return codes.length;
+    }
+
+    /**
+     * @return The number of entries that are currently kept.
+     */
+    public synchronized int size() {
+        return (int) Math.min(recordedCount, codes.length);
+    }
+
+    /**
+     * @return The total number of recorded entries, including overwritten entries.
+     */
+    public synchronized long getRecordedCount() {
+        return recordedCount;
+    }
+
+    /**
+     * Removes all entries and origin classes.
+     */
+    public synchronized void clear() {
+        next = 0;
+        recordedCount = 0;
+        originClasses = new Class<?>[8];
+        originCount = 0;
+    }
+
+    /**
+     * Returns the entries as text, oldest first: one line per entry with the time since the oldest
+     * entry, the event, the simple name of the origin class and whether the event was rejected.
+     * For example:
+     * <pre>
+     * FlightRecorder: 3 of 3 events
+     * +0.000ms CREATE MainActivity
+     * +12.500ms START MainActivity
+     * +12.700ms PAUSE MainActivity REJECTED
+     * </pre>
+     *
+     * @return The text dump.
+     */
+    public synchronized String dump() {
+        final int size = size();
+        final int first = first();
+        final StringBuilder builder = new StringBuilder(32 + size * 32);
+
+        builder.append("FlightRecorder: ").append(size).append(" of ").append(recordedCount)
+                .append(" events\n");
+
+        for (int i = 0; i < size; i++) {
+            final int position = (first + i) % codes.length;
+            final long micros = (timestamps[position] - timestamps[first]) / 1000;
+            final int code = codes[position];
+            final short origin = origins[position];
+
+            builder.append('+').append(micros / 1000).append('.');
+            appendPadded(builder, micros % 1000);
+            builder.append("ms ").append(EVENTS[code & ORDINAL_MASK].name()).append(' ')
+                    .append(origin == NO_ORIGIN ? "?" : originClasses[origin].getSimpleName());
+
+            if ((code & ACCEPTED) == 0) {
+                builder.append(" REJECTED");
+            }
+
+            builder.append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Writes the entries in a compact binary format, oldest first. All values are big-endian:
+     * <ul>
+     * <li>int: {@link #MAGIC}, byte: {@link #VERSION}</li>
+     * <li>long: the total number of recorded entries, int: the number of entries that follow</li>
+     * <li>short: the number of origin classes, followed by their names (modified UTF-8)</li>
+     * <li>per entry: long: the time in nanoseconds, byte: the event ordinal, with bit 7 set if
+     * the event was accepted, short: the index of the origin class, or -1</li>
+     * </ul>
+     *
+     * @param out The stream to write to. It is not closed.
+     * @throws IOException when writing fails.
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        checkNotNull(out, "Output stream can not be null");
+
+        final DataOutputStream data = new DataOutputStream(out);
+        final int size = size();
+        final int first = first();
+
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeLong(recordedCount);
+        data.writeInt(size);
+        data.writeShort(originCount);
+
+        for (int i = 0; i < originCount; i++) {
+            data.writeUTF(originClasses[i].getName());
+        }
+
+        for (int i = 0; i < size; i++) {
+            final int position = (first + i) % codes.length;
+
+            data.writeLong(timestamps[position]);
+            data.writeByte(codes[position]);
+            data.writeShort(origins[position]);
+        }
+
+        data.flush();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the position of the oldest entry.
+     */
+    private int first() {
+        return recordedCount > codes.length ? next : 0;
+    }
+
+    /**
+     * Returns the index of the origin class in the table, adding it if necessary.
+     */
+    private short indexOf(Class<?> origin) {
+        if (origin == null) {
+            return NO_ORIGIN;
+        }
+
+        for (int i = 0; i < originCount; i++) {
+            if (originClasses[i] == origin) {
+                return (short) i;
+            }
+        }
+
+        if (originCount == Short.MAX_VALUE) {
+            return NO_ORIGIN;
+        }
+
+        if (originCount == originClasses.length) {
+            final Class<?>[] grown = new Class<?>[originCount * 2];
+            System.arraycopy(originClasses, 0, grown, 0, originCount);
+            originClasses = grown;
+        }
+
+        originClasses[originCount] = origin;
+
+        return (short) originCount++;
+    }
+
+    /**
+     * Appends the value with leading zeros to three digits.
+     */
+    private static void appendPadded(StringBuilder builder, long value) {
+        if (value < 100) {
+            builder.append('0');
+        }
+
+        if (value < 10) {
+            builder.append('0');
+        }
+
+        builder.append(value);
+    }
+
+}
@@ -0,0 +1,361 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListenable;
+import com.cookingfox.android.app_lifecycle.api.listener.AsyncAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.PrioritizedAppLifecycleListenable;
+import com.cookingfox.android.app_lifecycle.api.listener.WeakAppLifecycleListenable;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+import com.cookingfox.android.app_lifecycle.api.memory.MemoryPressure;
+import com.cookingfox.android.app_lifecycle.impl.executor.DaemonExecutors;
+import com.cookingfox.android.app_lifecycle.impl.metrics.ListenerMetrics;
+
+import java.util.concurrent.Executor;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Dispatches lifecycle events to listeners, which are kept in a lock-free registry: they are
+ * called by priority, can be asynchronous, persistent or weakly referenced, and dispatching an
+ * event does not allocate any objects. The execution time of every listener invocation can be
+ * measured.
+ * <p>
+ * {@link CrossActivityAppLifecycleManager} registers its listeners and dispatches its events
+ * through a dispatcher. A dispatcher can also be used on its own, for events from a source other
+ * than the app itself, e.g. the screens of the app. It does not validate or track the events then:
+ * the source determines their order. Sticky listeners are not replayed any state, since the
+ * dispatcher has no state.
+ */
+public class LifecycleEventDispatcher implements PrioritizedAppLifecycleListenable,
+        WeakAppLifecycleListenable {
+
+    /**
+     * The maximum number of collected weak listeners that are purged per dispatched event, so
+     * purging never delays an event by much.
+     */
+    static final int PURGE_BATCH_SIZE = 8;
+
+    /**
+     * The name of the default thread for asynchronous listeners.
+     */
+    static final String ASYNC_THREAD_NAME = "AppLifecycleAsync";
+
+    /**
+     * The registered lifecycle event listeners.
+     */
+    protected final ListenerRegistry listeners = new ListenerRegistry();
+
+    /**
+     * Executor for calling listeners that implement {@link AsyncAppLifecycleEventListener}.
+     */
+    protected final Executor asyncExecutor;
+
+    /**
+     * Collects the execution times of listeners, or null when measuring is disabled.
+     */
+    protected volatile ListenerMetrics metrics;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a dispatcher that calls asynchronous listeners on a single background thread, which
+     * is only started when needed.
+     */
+    public LifecycleEventDispatcher() {
+        this(DaemonExecutors.newSingleThreadExecutor(ASYNC_THREAD_NAME));
+    }
+
+    /**
+     * Creates a dispatcher that calls asynchronous listeners on the provided executor.
+     *
+     * @param asyncExecutor The executor for asynchronous listeners.
+     * @throws NullPointerException when the executor is null.
+     */
+    public LifecycleEventDispatcher(Executor asyncExecutor) {
+        this.asyncExecutor = checkNotNull(asyncExecutor, "Async executor can not be null");
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public AppLifecycleListenable addListener(AppLifecycleEventListener listener) {
+        return addListener(listener, ListenerRegistry.DEFAULT_PRIORITY);
+    }
+
+    @Override
+    public PrioritizedAppLifecycleListenable addListener(AppLifecycleEventListener listener,
+                                                         int priority) {
+        register(listener, priority);
+
+        return this;
+    }
+
+    @Override
+    public WeakAppLifecycleListenable addWeakListener(AppLifecycleEventListener listener) {
+        return addWeakListener(listener, ListenerRegistry.DEFAULT_PRIORITY);
+    }
+
+    @Override
+    public WeakAppLifecycleListenable addWeakListener(AppLifecycleEventListener listener,
+                                                      int priority) {
+        registerWeak(listener, priority);
+
+        return this;
+    }
+
+    @Override
+    public AppLifecycleListenable removeListener(AppLifecycleEventListener listener) {
+        unregister(listener);
+
+        return this;
+    }
+
+    /**
+     * Enables measuring the execution time of every listener invocation. For asynchronous
+     * listeners this is the time it takes to queue the event, since that is what delays the
+     * dispatching thread.
+     *
+     * @param metrics The metrics to record the execution times to, or null to disable measuring.
+     */
+    public void setListenerMetrics(ListenerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The metrics that listener execution times are recorded to, or null when measuring
+     * is disabled.
+     */
+    public ListenerMetrics getListenerMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Calls the event method on all listeners that are subscribed to the event. Asynchronous
+     * listeners are not called directly, but the event is queued for them. A limited number of
+     * collected weak listeners is purged first. This does not allocate any objects, unless a
+     * collected listener is purged.
+     *
+     * @param event  The event to dispatch.
+     * @param origin The class of the object that triggered the event.
+     * @throws NullPointerException when the event is null.
+     */
+    public void dispatch(AppLifecycleEvent event, Class<?> origin) {
+        checkNotNull(event, "Event can not be null");
+
+        listeners.purgeCleared(PURGE_BATCH_SIZE);
+
+        /**
+         * Listeners are stored in reverse order (added first, called last). The array is never
+         * modified in place, so listeners that add or remove other listeners while being called
+         * will not affect this loop.
+         */
+        final AppLifecycleEventListener[] subscribed = listeners.get(event);
+        final ListenerMetrics currentMetrics = metrics;
+
+        if (currentMetrics == null) {
+            for (AppLifecycleEventListener listener : subscribed) {
+                event.dispatch(listener, origin);
+            }
+        } else {
+            dispatchMeasured(event, origin, subscribed, currentMetrics);
+        }
+    }
+
+    /**
+     * Removes all listeners, including persistent listeners.
+     */
+    public void dispose() {
+        listeners.clear();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Calls the event method on the listeners and records the execution time of every invocation.
+     * Weak listeners that were collected are skipped.
+     *
+     * @param event      The event to dispatch.
+     * @param origin     The class of the object that triggered the event.
+     * @param subscribed The dispatch targets of the subscribed listeners.
+     * @param metrics    The metrics to record the execution times to.
+     */
+    protected void dispatchMeasured(AppLifecycleEvent event, Class<?> origin,
+                                    AppLifecycleEventListener[] subscribed,
+                                    ListenerMetrics metrics) {
+        for (AppLifecycleEventListener target : subscribed) {
+            // also keeps a weak listener reachable while it is called
+            final AppLifecycleEventListener listener = getMeasuredListener(target);
+
+            if (listener == null) {
+                continue;
+            }
+
+            final long start = System.nanoTime();
+
+            event.dispatch(target, origin);
+
+            final long duration = System.nanoTime() - start;
+
+            metrics.record(listener, event, duration);
+        }
+    }
+
+    /**
+     * Calls the memory event method on the listeners and records the execution time of every
+     * invocation. Weak listeners that were collected are skipped.
+     *
+     * @param event      The memory event to dispatch.
+     * @param pressure   The memory pressure signal.
+     * @param subscribed The dispatch targets of the subscribed listeners.
+     * @param metrics    The metrics to record the execution times to.
+     */
+    protected void dispatchMeasured(AppMemoryEvent event, MemoryPressure pressure,
+                                    AppLifecycleEventListener[] subscribed,
+                                    ListenerMetrics metrics) {
+        for (AppLifecycleEventListener target : subscribed) {
+            // also keeps a weak listener reachable while it is called
+            final AppLifecycleEventListener listener = getMeasuredListener(target);
+
+            if (listener == null) {
+                continue;
+            }
+
+            final long start = System.nanoTime();
+
+            event.dispatch(target, pressure);
+
+            final long duration = System.nanoTime() - start;
+
+            metrics.record(listener, event, duration);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PACKAGE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Adds the listener. Asynchronous listeners receive their events through a dispatcher with a
+     * queue.
+     *
+     * @param listener The listener to add.
+     * @param priority The priority of the listener: higher is called first.
+     * @return The dispatch target of the listener.
+     * @throws NullPointerException  when the listener is null.
+     * @throws IllegalStateException when the listener was already added.
+     */
+    AppLifecycleEventListener register(AppLifecycleEventListener listener, int priority) {
+        checkNotNull(listener, "Listener can not be null");
+
+        final AppLifecycleEventListener target = listener instanceof AsyncAppLifecycleEventListener ?
+                new AsyncListenerDispatcher(listener, asyncExecutor) : listener;
+
+        if (!listeners.add(listener, target, priority)) {
+            throw new IllegalStateException("Listener was already added: " + listener);
+        }
+
+        return target;
+    }
+
+    /**
+     * Adds the listener with a weak reference: the registry only references the entry, which
+     * references the listener weakly.
+     *
+     * @param listener The listener to add.
+     * @param priority The priority of the listener: higher is called first.
+     * @return The dispatch target of the listener.
+     * @throws NullPointerException  when the listener is null.
+     * @throws IllegalStateException when the listener was already added.
+     */
+    AppLifecycleEventListener registerWeak(AppLifecycleEventListener listener, int priority) {
+        checkNotNull(listener, "Listener can not be null");
+
+        final WeakListenerDispatcher entry = listeners.createWeakEntry(listener);
+        final AppLifecycleEventListener target = listener instanceof AsyncAppLifecycleEventListener ?
+                new AsyncListenerDispatcher(entry, asyncExecutor) : entry;
+
+        if (!listeners.addWeak(entry, target, priority)) {
+            throw new IllegalStateException("Listener was already added: " + listener);
+        }
+
+        return target;
+    }
+
+    /**
+     * Removes the listener, unless it is persistent.
+     *
+     * @param listener The listener to remove.
+     * @throws NullPointerException  when the listener is null.
+     * @throws IllegalStateException when the listener was not added.
+     */
+    void unregister(AppLifecycleEventListener listener) {
+        checkNotNull(listener, "Listener can not be null");
+
+        // do not remove persistent listeners
+        final boolean found = listener instanceof PersistentAppLifecycleEventListener ?
+                listeners.contains(listener) : listeners.remove(listener);
+
+        if (!found) {
+            throw new IllegalStateException("Listener not found: " + listener);
+        }
+    }
+
+    /**
+     * Calls the event method on all listeners that are subscribed to the memory event. A limited
+     * number of collected weak listeners is purged first. The memory pressure signal is only
+     * created when listeners are subscribed.
+     *
+     * @param event     The memory event to dispatch.
+     * @param level     The trim level.
+     * @param appState  The app state to correlate the memory pressure with, or null.
+     * @param lowMemory Whether this is a low memory signal.
+     */
+    void dispatch(AppMemoryEvent event, int level, AppLifecycleEvent appState, boolean lowMemory) {
+        listeners.purgeCleared(PURGE_BATCH_SIZE);
+
+        final AppLifecycleEventListener[] subscribed = listeners.get(event);
+
+        if (subscribed.length == 0) {
+            return;
+        }
+
+        final MemoryPressure pressure = new MemoryPressure(level, appState, lowMemory);
+        final ListenerMetrics currentMetrics = metrics;
+
+        if (currentMetrics == null) {
+            for (AppLifecycleEventListener listener : subscribed) {
+                event.dispatch(listener, pressure);
+            }
+        } else {
+            dispatchMeasured(event, pressure, subscribed, currentMetrics);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the listener to record the execution time for: the listener that was added, not its
+     * asynchronous or weak dispatcher.
+     *
+     * @param target The dispatch target of a listener.
+     * @return The listener, or null when it is a weak listener that was collected.
+     */
+    protected static AppLifecycleEventListener getMeasuredListener(AppLifecycleEventListener target) {
+        final AppLifecycleEventListener listener = target instanceof AsyncListenerDispatcher ?
+                ((AsyncListenerDispatcher) target).listener : target;
+
+        return listener instanceof WeakListenerDispatcher ?
+                ((WeakListenerDispatcher) listener).get() : listener;
+    }
+
+}
@@ -0,0 +1,808 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+
+/**
+ * Lock-free, copy-on-write registry of app lifecycle event listeners.
+ * <p>
+ * Membership is tracked by an identity hash index, so checking, adding and removing a listener
+ * does not scan the registered listeners. The listeners are also kept in snapshot arrays: one with
+ * all listeners and one per lifecycle and memory event, in the order they should be called. The
+ * arrays are sorted when a listener is added: listeners with a higher priority are called first,
+ * and listeners with the same priority are called in reverse order of adding (added first, called
+ * last). Dispatching an event therefore never sorts.
+ * <p>
+ * The per-event arrays contain dispatch targets, which are usually the listeners themselves, but
+ * can also be objects that forward events to a listener in a different way (e.g. asynchronously).
+ * <p>
+ * The index and arrays form an immutable snapshot, which is replaced atomically on every mutation.
+ * Listeners can therefore be added and removed from any thread, also while another thread is
+ * iterating a snapshot to dispatch an event, without either of them blocking.
+ * <p>
+ * Weakly referenced listeners are registered through a {@link WeakListenerDispatcher}, which is
+ * both their key in the index and their dispatch target, so the registry does not hold them
+ * strongly. A second index maps the identity hash codes of these listeners to their entries, so
+ * they are looked up without scanning either. When such a listener is garbage collected, its entry
+ * is enqueued on a reference queue; {@link #purgeCleared(int)} removes a limited number of these
+ * entries from both indexes, without scanning the registered listeners.
+ */
+public final class ListenerRegistry {
+
+    /**
+     * Shared empty snapshot array.
+     */
+    static final AppLifecycleEventListener[] NO_LISTENERS = new AppLifecycleEventListener[0];
+    static final int[] NO_PRIORITIES = new int[0];
+
+    /**
+     * The priority of listeners that are added without a priority.
+     */
+    static final int DEFAULT_PRIORITY = 0;
+
+    /**
+     * Cached event values, to prevent copying the values array on every mutation.
+     */
+    static final AppLifecycleEvent[] EVENTS = AppLifecycleEvent.values();
+    static final AppMemoryEvent[] MEMORY_EVENTS = AppMemoryEvent.values();
+
+    /**
+     * Shared empty snapshot.
+     */
+    static final Snapshot EMPTY = new Snapshot();
+
+    /**
+     * The current snapshot of registered listeners.
+     */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(EMPTY);
+
+    /**
+     * Receives the entries of weakly referenced listeners that were garbage collected.
+     */
+    private final ReferenceQueue<AppLifecycleEventListener> clearedQueue =
+            new ReferenceQueue<AppLifecycleEventListener>();
+
+    /**
+     * The total number of entries that were removed because their listener was collected.
+     */
+    private final AtomicLong purgedCount = new AtomicLong();
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns whether the listener is registered.
+     *
+     * @param listener The listener to check.
+     * @return Whether the listener is registered.
+     */
+    public boolean contains(AppLifecycleEventListener listener) {
+        return snapshot.get().keyOf(listener) != null;
+    }
+
+    /**
+     * @return Whether no listeners are registered.
+     */
+    public boolean isEmpty() {
+        return snapshot.get().all.length == 0;
+    }
+
+    /**
+     * @return The number of registered listeners, including weakly referenced listeners that were
+     * collected but not purged yet.
+     */
+    public int size() {
+        return snapshot.get().all.length;
+    }
+
+    /**
+     * Returns a snapshot of all registered listeners, in the order they are called. Weakly
+     * referenced listeners that were collected are left out.
+     *
+     * @return A copy of the registered listeners.
+     */
+    public AppLifecycleEventListener[] toArray() {
+        final AppLifecycleEventListener[] all = snapshot.get().all;
+        final AppLifecycleEventListener[] result = new AppLifecycleEventListener[all.length];
+        int size = 0;
+
+        for (AppLifecycleEventListener entry : all) {
+            final AppLifecycleEventListener listener = entry instanceof WeakListenerDispatcher ?
+                    ((WeakListenerDispatcher) entry).get() : entry;
+
+            if (listener != null) {
+                result[size++] = listener;
+            }
+        }
+
+        return size == all.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @return The total number of weakly referenced listeners that were removed because they were
+     * garbage collected.
+     */
+    public long getPurgedCount() {
+        return purgedCount.get();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PACKAGE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Adds the listener with the default priority, so it is called before all previously added
+     * listeners with the same priority.
+     *
+     * @param listener The listener to add.
+     * @return Whether the listener was added: false if it was already registered.
+     */
+    boolean add(AppLifecycleEventListener listener) {
+        return add(listener, listener, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Adds the listener with the default priority. Events for the listener are dispatched to the
+     * target, which can be the listener itself or an object that forwards the events to the
+     * listener.
+     *
+     * @param listener The listener to add: determines the subscribed events.
+     * @param target   The object that receives the subscribed events.
+     * @return Whether the listener was added: false if it was already registered.
+     */
+    boolean add(AppLifecycleEventListener listener, AppLifecycleEventListener target) {
+        return add(listener, target, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Adds the listener, so it is called after all listeners with a higher priority and before all
+     * other listeners, including previously added listeners with the same priority. Events for the
+     * listener are dispatched to the target.
+     *
+     * @param listener The listener to add: determines the subscribed events.
+     * @param target   The object that receives the subscribed events.
+     * @param priority The priority of the listener: higher is called first.
+     * @return Whether the listener was added: false if it was already registered.
+     */
+    boolean add(AppLifecycleEventListener listener, AppLifecycleEventListener target, int priority) {
+        while (true) {
+            final Snapshot current = snapshot.get();
+
+            if (current.keyOf(listener) != null) {
+                return false;
+            }
+
+            if (snapshot.compareAndSet(current, current.plus(listener, target, priority))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Creates the registry entry for a weakly referenced listener, to be added with
+     * {@link #addWeak(WeakListenerDispatcher, AppLifecycleEventListener, int)}.
+     *
+     * @param listener The listener to reference weakly.
+     * @return The entry, which is also the dispatch target of the listener.
+     */
+    WeakListenerDispatcher createWeakEntry(AppLifecycleEventListener listener) {
+        return new WeakListenerDispatcher(listener, clearedQueue);
+    }
+
+    /**
+     * Adds a weakly referenced listener, so it is called after all listeners with a higher
+     * priority and before all other listeners. Events for the listener are dispatched to the
+     * target, which is the entry itself or an object that forwards the events to the entry.
+     *
+     * @param entry    The entry of the listener, created by {@link #createWeakEntry}.
+     * @param target   The object that receives the subscribed events.
+     * @param priority The priority of the listener: higher is called first.
+     * @return Whether the listener was added: false if it was already registered or collected.
+     */
+    boolean addWeak(WeakListenerDispatcher entry, AppLifecycleEventListener target, int priority) {
+        while (true) {
+            final Snapshot current = snapshot.get();
+            final AppLifecycleEventListener listener = entry.get();
+
+            if (listener == null || current.keyOf(listener) != null) {
+                return false;
+            }
+
+            if (snapshot.compareAndSet(current, current.plus(entry, target, priority))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the priority of the listener.
+     *
+     * @param listener The listener.
+     * @return The priority the listener was added with.
+     * @throws IllegalArgumentException when the listener is not registered.
+     */
+    int getPriority(AppLifecycleEventListener listener) {
+        final Snapshot current = snapshot.get();
+        final int position = indexOf(current.all, current.keyOf(listener));
+
+        checkArgument(position >= 0, "Listener is not registered");
+
+        return current.priorities[position];
+    }
+
+    /**
+     * Removes the listener.
+     *
+     * @param listener The listener to remove.
+     * @return Whether the listener was removed: false if it was not registered.
+     */
+    boolean remove(AppLifecycleEventListener listener) {
+        while (true) {
+            final Snapshot current = snapshot.get();
+            final AppLifecycleEventListener key = current.keyOf(listener);
+
+            if (key == null) {
+                return false;
+            }
+
+            if (snapshot.compareAndSet(current, current.minus(key))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the entries of at most the given number of weakly referenced listeners that were
+     * garbage collected. Does not allocate when no listener was collected.
+     *
+     * @param maxCount The maximum number of collected entries to process.
+     * @return The number of entries that were removed.
+     */
+    int purgeCleared(int maxCount) {
+        int purged = 0;
+
+        for (int i = 0; i < maxCount; i++) {
+            final Object entry = clearedQueue.poll();
+
+            if (entry == null) {
+                break;
+            }
+
+            if (removeEntry((AppLifecycleEventListener) entry)) {
+                purged++;
+            }
+        }
+
+        if (purged > 0) {
+            purgedCount.addAndGet(purged);
+        }
+
+        return purged;
+    }
+
+    /**
+     * Removes the entry by its key in the index.
+     *
+     * @param key The listener, or the entry of a weakly referenced listener.
+     * @return Whether the entry was removed: false if it was not registered.
+     */
+    boolean removeEntry(AppLifecycleEventListener key) {
+        while (true) {
+            final Snapshot current = snapshot.get();
+
+            if (!current.index.containsKey(key)) {
+                return false;
+            }
+
+            if (snapshot.compareAndSet(current, current.minus(key))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes all listeners that do not implement {@link PersistentAppLifecycleEventListener}, in
+     * a single pass over the registered listeners.
+     */
+    void retainPersistent() {
+        while (true) {
+            final Snapshot current = snapshot.get();
+
+            if (snapshot.compareAndSet(current, current.persistentOnly())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all listeners.
+     */
+    void clear() {
+        snapshot.set(EMPTY);
+    }
+
+    /**
+     * Returns the snapshot of dispatch targets for the listeners that are subscribed to the event.
+     * The returned array must not be modified.
+     *
+     * @param event The lifecycle event.
+     * @return The dispatch targets of the subscribed listeners, in the order they should be called.
+     */
+    AppLifecycleEventListener[] get(AppLifecycleEvent event) {
+        return snapshot.get().byEvent[event.ordinal()];
+    }
+
+    /**
+     * Returns the snapshot of dispatch targets for the listeners that are subscribed to the memory
+     * event. The returned array must not be modified.
+     *
+     * @param event The memory event.
+     * @return The dispatch targets of the subscribed listeners, in the order they should be called.
+     */
+    AppLifecycleEventListener[] get(AppMemoryEvent event) {
+        return snapshot.get().byMemoryEvent[event.ordinal()];
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns whether the registry entry is subscribed to the lifecycle event.
+     */
+    static boolean isSubscribed(AppLifecycleEvent event, AppLifecycleEventListener entry) {
+        return entry instanceof WeakListenerDispatcher ?
+                ((WeakListenerDispatcher) entry).isSubscribed(event) : event.isSubscribed(entry);
+    }
+
+    /**
+     * Returns whether the registry entry is subscribed to the memory event.
+     */
+    static boolean isSubscribed(AppMemoryEvent event, AppLifecycleEventListener entry) {
+        return entry instanceof WeakListenerDispatcher ?
+                ((WeakListenerDispatcher) entry).isSubscribed(event) : event.isSubscribed(entry);
+    }
+
+    /**
+     * Returns whether the registry entry is a persistent listener.
+     */
+    static boolean isPersistent(AppLifecycleEventListener entry) {
+        return entry instanceof WeakListenerDispatcher ?
+                ((WeakListenerDispatcher) entry).persistent :
+                entry instanceof PersistentAppLifecycleEventListener;
+    }
+
+    /**
+     * Returns a copy of the array with the listener inserted at the position.
+     */
+    static AppLifecycleEventListener[] insert(AppLifecycleEventListener[] listeners, int position,
+                                              AppLifecycleEventListener listener) {
+        final AppLifecycleEventListener[] result = new AppLifecycleEventListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, result, 0, position);
+        result[position] = listener;
+        System.arraycopy(listeners, position, result, position + 1, listeners.length - position);
+
+        return result;
+    }
+
+    /**
+     * Returns a copy of the array with the priority inserted at the position.
+     */
+    static int[] insert(int[] priorities, int position, int priority) {
+        final int[] result = new int[priorities.length + 1];
+        System.arraycopy(priorities, 0, result, 0, position);
+        result[position] = priority;
+        System.arraycopy(priorities, position, result, position + 1, priorities.length - position);
+
+        return result;
+    }
+
+    /**
+     * Returns a copy of the array without the element at the position.
+     */
+    static int[] remove(int[] priorities, int position) {
+        final int[] result = new int[priorities.length - 1];
+        System.arraycopy(priorities, 0, result, 0, position);
+        System.arraycopy(priorities, position + 1, result, position, result.length - position);
+
+        return result;
+    }
+
+    /**
+     * Returns the position of the listener in the array, or -1 if it does not contain the
+     * listener.
+     */
+    static int indexOf(AppLifecycleEventListener[] listeners, AppLifecycleEventListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the position at which a listener with the priority is inserted into the priorities,
+     * which are sorted from high to low: before all equal and lower priorities.
+     */
+    static int insertionPoint(int[] priorities, int priority) {
+        int low = 0;
+        int high = priorities.length;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (priorities[middle] > priority) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns a copy of the array without the listener, or the same array if it does not contain
+     * the listener.
+     */
+    static AppLifecycleEventListener[] without(AppLifecycleEventListener[] listeners,
+                                               AppLifecycleEventListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                if (listeners.length == 1) {
+                    return NO_LISTENERS;
+                }
+
+                final AppLifecycleEventListener[] result = new AppLifecycleEventListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, result, 0, i);
+                System.arraycopy(listeners, i + 1, result, i, listeners.length - i - 1);
+
+                return result;
+            }
+        }
+
+        return listeners;
+    }
+
+    /**
+     * Returns a copy of the array that only contains the persistent listeners.
+     */
+    static AppLifecycleEventListener[] filterPersistent(AppLifecycleEventListener[] listeners) {
+        final AppLifecycleEventListener[] result = new AppLifecycleEventListener[listeners.length];
+        int size = 0;
+
+        for (AppLifecycleEventListener listener : listeners) {
+            if (isPersistent(listener)) {
+                result[size++] = listener;
+            }
+        }
+
+        return size == 0 ? NO_LISTENERS : Arrays.copyOf(result, size);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INNER CLASS: Snapshot
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Immutable state of the registry. Mutations create a new snapshot; the index and arrays of a
+     * published snapshot are never modified.
+     */
+    static final class Snapshot {
+
+        /**
+         * Identity index of the registered listeners, mapped to their dispatch targets.
+         */
+        final IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener> index;
+
+        /**
+         * All listeners, in the order they should be called.
+         */
+        final AppLifecycleEventListener[] all;
+
+        /**
+         * The priorities of all listeners, at the same position, from high to low.
+         */
+        final int[] priorities;
+
+        /**
+         * The dispatch targets of the subscribed listeners per lifecycle event, indexed by event
+         * ordinal.
+         */
+        final AppLifecycleEventListener[][] byEvent;
+
+        /**
+         * The dispatch targets of the subscribed listeners per memory event, indexed by event
+         * ordinal.
+         */
+        final AppLifecycleEventListener[][] byMemoryEvent;
+
+        /**
+         * The entries of the weakly referenced listeners, by the identity hash code of their
+         * listener. Keying by hash code keeps the listeners weakly referenced; the entries with the
+         * same hash code share an array.
+         */
+        final Map<Integer, WeakListenerDispatcher[]> weakIndex;
+
+        Snapshot() {
+            this(new IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener>(),
+                    NO_LISTENERS, NO_PRIORITIES, emptyByEvent(EVENTS.length),
+                    emptyByEvent(MEMORY_EVENTS.length));
+        }
+
+        Snapshot(IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener> index,
+                 AppLifecycleEventListener[] all,
+                 int[] priorities,
+                 AppLifecycleEventListener[][] byEvent,
+                 AppLifecycleEventListener[][] byMemoryEvent) {
+            this.index = index;
+            this.all = all;
+            this.priorities = priorities;
+            this.byEvent = byEvent;
+            this.byMemoryEvent = byMemoryEvent;
+            this.weakIndex = buildWeakIndex(all);
+        }
+
+        /**
+         * Returns the key of the listener in the index: the listener itself, or the entry of a
+         * weakly referenced listener, which is looked up by the identity hash code of the listener.
+         *
+         * @return The key, or null if the listener is not registered.
+         */
+        AppLifecycleEventListener keyOf(AppLifecycleEventListener listener) {
+            if (index.containsKey(listener)) {
+                return listener;
+            }
+
+            if (listener != null && !weakIndex.isEmpty()) {
+                final WeakListenerDispatcher[] entries =
+                        weakIndex.get(System.identityHashCode(listener));
+
+                if (entries != null) {
+                    for (WeakListenerDispatcher entry : entries) {
+                        if (entry.get() == listener) {
+                            return entry;
+                        }
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Returns a new snapshot that also contains the listener, at the position for its
+         * priority. The position in the per-event arrays is the number of listeners before that
+         * position that are subscribed to the event, so the per-event arrays keep the order of
+         * all listeners.
+         */
+        @SuppressWarnings("unchecked")
+        Snapshot plus(AppLifecycleEventListener listener, AppLifecycleEventListener target,
+                      int priority) {
+            final IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener> nextIndex =
+                    (IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener>) index.clone();
+            nextIndex.put(listener, target);
+
+            final int position = insertionPoint(priorities, priority);
+            final AppLifecycleEventListener[][] nextByEvent = byEvent.clone();
+            final AppLifecycleEventListener[][] nextByMemoryEvent = byMemoryEvent.clone();
+
+            for (AppLifecycleEvent event : EVENTS) {
+                if (isSubscribed(event, listener)) {
+                    final int eventPosition = countSubscribed(event, position);
+                    nextByEvent[event.ordinal()] = insert(byEvent[event.ordinal()], eventPosition, target);
+                }
+            }
+
+            for (AppMemoryEvent event : MEMORY_EVENTS) {
+                if (isSubscribed(event, listener)) {
+                    final int eventPosition = countSubscribed(event, position);
+                    nextByMemoryEvent[event.ordinal()] =
+                            insert(byMemoryEvent[event.ordinal()], eventPosition, target);
+                }
+            }
+
+            return new Snapshot(nextIndex, insert(all, position, listener),
+                    insert(priorities, position, priority), nextByEvent, nextByMemoryEvent);
+        }
+
+        /**
+         * Returns a new snapshot without the listener.
+         */
+        @SuppressWarnings("unchecked")
+        Snapshot minus(AppLifecycleEventListener listener) {
+            if (all.length == 1) {
+                return EMPTY;
+            }
+
+            final IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener> nextIndex =
+                    (IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener>) index.clone();
+            final AppLifecycleEventListener target = nextIndex.remove(listener);
+            final int position = indexOf(all, listener);
+
+            final AppLifecycleEventListener[][] nextByEvent = byEvent.clone();
+            final AppLifecycleEventListener[][] nextByMemoryEvent = byMemoryEvent.clone();
+
+            for (AppLifecycleEvent event : EVENTS) {
+                if (isSubscribed(event, listener)) {
+                    nextByEvent[event.ordinal()] = without(byEvent[event.ordinal()], target);
+                }
+            }
+
+            for (AppMemoryEvent event : MEMORY_EVENTS) {
+                if (isSubscribed(event, listener)) {
+                    nextByMemoryEvent[event.ordinal()] = without(byMemoryEvent[event.ordinal()], target);
+                }
+            }
+
+            return new Snapshot(nextIndex, without(all, listener), remove(priorities, position),
+                    nextByEvent, nextByMemoryEvent);
+        }
+
+        /**
+         * Returns a new snapshot that only contains the persistent listeners.
+         */
+        Snapshot persistentOnly() {
+            final AppLifecycleEventListener[] nextAll = filterPersistent(all);
+
+            if (nextAll.length == 0) {
+                return EMPTY;
+            }
+
+            final IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener> nextIndex =
+                    new IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener>();
+            final int[] nextPriorities = new int[nextAll.length];
+            int size = 0;
+
+            for (int i = 0; i < all.length; i++) {
+                if (isPersistent(all[i])) {
+                    nextIndex.put(all[i], index.get(all[i]));
+                    nextPriorities[size++] = priorities[i];
+                }
+            }
+
+            return new Snapshot(nextIndex, nextAll, nextPriorities, buildByEvent(nextAll, nextIndex),
+                    buildByMemoryEvent(nextAll, nextIndex));
+        }
+
+        /**
+         * Returns the number of listeners before the position that are subscribed to the event.
+         */
+        int countSubscribed(AppLifecycleEvent event, int position) {
+            int count = 0;
+
+            for (int i = 0; i < position; i++) {
+                if (isSubscribed(event, all[i])) {
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        /**
+         * Returns the number of listeners before the position that are subscribed to the memory
+         * event.
+         */
+        int countSubscribed(AppMemoryEvent event, int position) {
+            int count = 0;
+
+            for (int i = 0; i < position; i++) {
+                if (isSubscribed(event, all[i])) {
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        /**
+         * Creates the dispatch arrays per event for the listeners, keeping their order.
+         */
+        static AppLifecycleEventListener[][] buildByEvent(
+                AppLifecycleEventListener[] listeners,
+                IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener> index) {
+            final AppLifecycleEventListener[][] byEvent = emptyByEvent(EVENTS.length);
+            final AppLifecycleEventListener[] buffer = new AppLifecycleEventListener[listeners.length];
+
+            for (AppLifecycleEvent event : EVENTS) {
+                int size = 0;
+
+                for (AppLifecycleEventListener listener : listeners) {
+                    if (isSubscribed(event, listener)) {
+                        buffer[size++] = index.get(listener);
+                    }
+                }
+
+                if (size > 0) {
+                    byEvent[event.ordinal()] = Arrays.copyOf(buffer, size);
+                }
+            }
+
+            return byEvent;
+        }
+
+        /**
+         * Creates the dispatch arrays per memory event for the listeners, keeping their order.
+         */
+        static AppLifecycleEventListener[][] buildByMemoryEvent(
+                AppLifecycleEventListener[] listeners,
+                IdentityHashMap<AppLifecycleEventListener, AppLifecycleEventListener> index) {
+            final AppLifecycleEventListener[][] byEvent = emptyByEvent(MEMORY_EVENTS.length);
+            final AppLifecycleEventListener[] buffer = new AppLifecycleEventListener[listeners.length];
+
+            for (AppMemoryEvent event : MEMORY_EVENTS) {
+                int size = 0;
+
+                for (AppLifecycleEventListener listener : listeners) {
+                    if (isSubscribed(event, listener)) {
+                        buffer[size++] = index.get(listener);
+                    }
+                }
+
+                if (size > 0) {
+                    byEvent[event.ordinal()] = Arrays.copyOf(buffer, size);
+                }
+            }
+
+            return byEvent;
+        }
+
+        /**
+         * Creates the index of the weakly referenced listeners, by the identity hash code of their
+         * listener.
+         */
+        static Map<Integer, WeakListenerDispatcher[]> buildWeakIndex(
+                AppLifecycleEventListener[] listeners) {
+            Map<Integer, WeakListenerDispatcher[]> weakIndex = null;
+
+            for (AppLifecycleEventListener listener : listeners) {
+                if (listener instanceof WeakListenerDispatcher) {
+                    final WeakListenerDispatcher entry = (WeakListenerDispatcher) listener;
+
+                    if (weakIndex == null) {
+                        weakIndex = new HashMap<Integer, WeakListenerDispatcher[]>();
+                    }
+
+                    final WeakListenerDispatcher[] entries = weakIndex.get(entry.referentHash);
+
+                    if (entries == null) {
+                        weakIndex.put(entry.referentHash, new WeakListenerDispatcher[]{entry});
+                    } else {
+                        final WeakListenerDispatcher[] next = Arrays.copyOf(entries, entries.length + 1);
+                        next[entries.length] = entry;
+                        weakIndex.put(entry.referentHash, next);
+                    }
+                }
+            }
+
+            return weakIndex == null ?
+                    Collections.<Integer, WeakListenerDispatcher[]>emptyMap() : weakIndex;
+        }
+
+        static AppLifecycleEventListener[][] emptyByEvent(int numEvents) {
+            final AppLifecycleEventListener[][] byEvent = new AppLifecycleEventListener[numEvents][];
+            Arrays.fill(byEvent, NO_LISTENERS);
+
+            return byEvent;
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+
+import java.util.EnumSet;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Immutable table of the allowed app lifecycle transitions: which event may follow the last event.
+ * The initial state, before CREATE and after FINISH, is represented by a null last event.
+ * <p>
+ * The allowed events are stored as a bitmask per state, packed in a single value, so validating
+ * a transition is a single bit test that does not allocate. Custom tables can be derived from
+ * {@link #DEFAULT} with {@link #with} and {@link #without}, and passed to a manager.
+ */
+public final class TransitionTable {
+
+    /**
+     * The transitions of the Android activity lifecycle, applied to the app:
+     * <ul>
+     * <li>CREATE after the initial state</li>
+     * <li>START after CREATE, PAUSE or STOP</li>
+     * <li>RESUME after START or PAUSE</li>
+     * <li>PAUSE after RESUME</li>
+     * <li>STOP after START or PAUSE</li>
+     * <li>FINISH after STOP</li>
+     * </ul>
+     */
+    public static final TransitionTable DEFAULT = new TransitionTable(0L)
+            .with(null, AppLifecycleEvent.CREATE)
+            .with(AppLifecycleEvent.CREATE, AppLifecycleEvent.START)
+            .with(AppLifecycleEvent.PAUSE, AppLifecycleEvent.START)
+            .with(AppLifecycleEvent.STOP, AppLifecycleEvent.START)
+            .with(AppLifecycleEvent.START, AppLifecycleEvent.RESUME)
+            .with(AppLifecycleEvent.PAUSE, AppLifecycleEvent.RESUME)
+            .with(AppLifecycleEvent.RESUME, AppLifecycleEvent.PAUSE)
+            .with(AppLifecycleEvent.START, AppLifecycleEvent.STOP)
+            .with(AppLifecycleEvent.PAUSE, AppLifecycleEvent.STOP)
+            .with(AppLifecycleEvent.STOP, AppLifecycleEvent.FINISH);
+
+    /**
+     * The number of bits per state: one bit per event ordinal.
+     */
+    static final int STATE_BITS = 8;
+
+    /**
+     * The allowed next events per state, packed in a single value so that a lookup is a shift and
+     * a mask. Each state has {@link #STATE_BITS} bits, one per event ordinal; the state offset is
+     * the ordinal of the last event plus one, with offset 0 for the initial state.
+     */
+    private final long allowed;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    private TransitionTable(long allowed) {
+        this.allowed = allowed;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns whether the event is allowed to follow the last event.
+     *
+     * @param lastEvent The last event, or null for the initial state.
+     * @param nextEvent The next event.
+     * @return Whether the transition is allowed.
+     */
+    public boolean isAllowed(AppLifecycleEvent lastEvent, AppLifecycleEvent nextEvent) {
+        return (allowed >>> shift(lastEvent, nextEvent) & 1L) != 0;
+    }
+
+    /**
+     * Returns the events that are allowed to follow the last event.
+     *
+     * @param lastEvent The last event, or null for the initial state.
+     * @return A new set of the allowed next events.
+     */
+    public EnumSet<AppLifecycleEvent> getAllowedNext(AppLifecycleEvent lastEvent) {
+        final EnumSet<AppLifecycleEvent> result = EnumSet.noneOf(AppLifecycleEvent.class);
+        for (AppLifecycleEvent event : AppLifecycleEvent.values()) {
+            if (isAllowed(lastEvent, event)) {
+                result.add(event);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns whether the event is allowed to follow the initial state (no last event).
+     *
+     * @param nextEvent The next event.
+     * @return Whether the event is allowed in the initial state.
+     */
+    public boolean isAllowedInitially(AppLifecycleEvent nextEvent) {
+        return isAllowed(null, nextEvent);
+    }
+
+    /**
+     * Returns a copy of this table that also allows the transition.
+     *
+     * @param lastEvent The last event, or null for the initial state.
+     * @param nextEvent The next event.
+     * @return The new table.
+     * @throws NullPointerException when the next event is null.
+     */
+    public TransitionTable with(AppLifecycleEvent lastEvent, AppLifecycleEvent nextEvent) {
+        checkNotNull(nextEvent, "Next event can not be null");
+
+        return new TransitionTable(allowed | 1L << shift(lastEvent, nextEvent));
+    }
+
+    /**
+     * Returns a copy of this table that does not allow the transition.
+     *
+     * @param lastEvent The last event, or null for the initial state.
+     * @param nextEvent The next event.
+     * @return The new table.
+     * @throws NullPointerException when the next event is null.
+     */
+    public TransitionTable without(AppLifecycleEvent lastEvent, AppLifecycleEvent nextEvent) {
+        checkNotNull(nextEvent, "Next event can not be null");
+
+        return new TransitionTable(allowed & ~(1L << shift(lastEvent, nextEvent)));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof TransitionTable &&
+                allowed == ((TransitionTable) o).allowed;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (allowed ^ allowed >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("TransitionTable{");
+
+        builder.append("null=").append(getAllowedNext(null));
+
+        for (AppLifecycleEvent event : AppLifecycleEvent.values()) {
+            builder.append(", ").append(event).append('=').append(getAllowedNext(event));
+        }
+
+        return builder.append('}').toString();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the position of the bit for the transition.
+     */
+    private static int shift(AppLifecycleEvent lastEvent, AppLifecycleEvent nextEvent) {
+        return (lastEvent == null ? 0 : (lastEvent.ordinal() + 1) * STATE_BITS) + nextEvent.ordinal();
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppLowMemory;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppTrimMemory;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+import com.cookingfox.android.app_lifecycle.api.memory.MemoryPressure;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Registry entry and dispatch target for a weakly referenced listener: forwards the events it
+ * receives to the listener, as long as the listener has not been garbage collected.
+ * <p>
+ * The subscribed events and whether the listener is persistent are determined when the entry is
+ * created, since the registry can not inspect the listener after it is collected. When the
+ * listener is collected, the entry is enqueued on the reference queue of the registry, which
+ * removes it on a later dispatch.
+ */
+final class WeakListenerDispatcher extends WeakReference<AppLifecycleEventListener>
+        implements AppLifecycleListener, OnAppTrimMemory, OnAppLowMemory {
+
+    /**
+     * Bit masks of the subscribed lifecycle and memory events, by event ordinal.
+     */
+    final int lifecycleEvents;
+    final int memoryEvents;
+
+    /**
+     * Whether the listener implements {@link PersistentAppLifecycleEventListener}.
+     */
+    final boolean persistent;
+
+    /**
+     * The identity hash code of the listener, so the registry can look up the entry by its listener
+     * without referencing the listener strongly.
+     */
+    final int referentHash;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    WeakListenerDispatcher(AppLifecycleEventListener listener,
+                           ReferenceQueue<? super AppLifecycleEventListener> queue) {
+        super(listener, queue);
+
+        int lifecycleMask = 0;
+        int memoryMask = 0;
+
+        for (AppLifecycleEvent event : ListenerRegistry.EVENTS) {
+            if (event.isSubscribed(listener)) {
+                lifecycleMask |= 1 << event.ordinal();
+            }
+        }
+
+        for (AppMemoryEvent event : ListenerRegistry.MEMORY_EVENTS) {
+            if (event.isSubscribed(listener)) {
+                memoryMask |= 1 << event.ordinal();
+            }
+        }
+
+        this.lifecycleEvents = lifecycleMask;
+        this.memoryEvents = memoryMask;
+        this.persistent = listener instanceof PersistentAppLifecycleEventListener;
+        this.referentHash = System.identityHashCode(listener);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: AppLifecycleListener
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public void onAppCreated(Class<?> origin) {
+        dispatch(AppLifecycleEvent.CREATE, origin);
+    }
+
+    @Override
+    public void onAppStarted(Class<?> origin) {
+        dispatch(AppLifecycleEvent.START, origin);
+    }
+
+    @Override
+    public void onAppResumed(Class<?> origin) {
+        dispatch(AppLifecycleEvent.RESUME, origin);
+    }
+
+    @Override
+    public void onAppPaused(Class<?> origin) {
+        dispatch(AppLifecycleEvent.PAUSE, origin);
+    }
+
+    @Override
+    public void onAppStopped(Class<?> origin) {
+        dispatch(AppLifecycleEvent.STOP, origin);
+    }
+
+    @Override
+    public void onAppFinished(Class<?> origin) {
+        dispatch(AppLifecycleEvent.FINISH, origin);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: OnAppTrimMemory, OnAppLowMemory
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public void onAppTrimMemory(MemoryPressure pressure) {
+        dispatch(AppMemoryEvent.TRIM_MEMORY, pressure);
+    }
+
+    @Override
+    public void onAppLowMemory(MemoryPressure pressure) {
+        dispatch(AppMemoryEvent.LOW_MEMORY, pressure);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public String toString() {
+        return "WeakListenerDispatcher{" + get() + "}";
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PACKAGE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @return Whether the listener is subscribed to the lifecycle event.
+     */
+    boolean isSubscribed(AppLifecycleEvent event) {
+        return (lifecycleEvents & (1 << event.ordinal())) != 0;
+    }
+
+    /**
+     * @return Whether the listener is subscribed to the memory event.
+     */
+    boolean isSubscribed(AppMemoryEvent event) {
+        return (memoryEvents & (1 << event.ordinal())) != 0;
+    }
+
+    /**
+     * Forwards the lifecycle event to the listener, unless it was collected.
+     */
+    void dispatch(AppLifecycleEvent event, Class<?> origin) {
+        final AppLifecycleEventListener listener = get();
+
+        if (listener != null) {
+            event.dispatch(listener, origin);
+        }
+    }
+
+    /**
+     * Forwards the memory event to the listener, unless it was collected.
+     */
+    void dispatch(AppMemoryEvent event, MemoryPressure pressure) {
+        final AppLifecycleEventListener listener = get();
+
+        if (listener != null) {
+            event.dispatch(listener, pressure);
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+package com.cookingfox.android.app_lifecycle.impl.metrics;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+import com.cookingfox.android.app_lifecycle.api.metrics.OnSlowListener;
+import com.cookingfox.android.app_lifecycle.api.metrics.OnSlowMemoryListener;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+
+/**
+ * Collects the execution times of app lifecycle listeners, per listener and lifecycle or memory
+ * event.
+ * <p>
+ * Every listener gets a fixed-size histogram with exponential buckets per event, which is
+ * allocated the first time the listener is measured, so recording a measurement does not
+ * allocate. Listeners that exceed the time budget are reported to an optional callback; slow
+ * memory listeners only when the callback also implements {@link OnSlowMemoryListener}.
+ * <p>
+ * Note that this keeps a reference to every measured listener, until {@link #reset()} is called.
+ */
+public final class ListenerMetrics {
+
+    /**
+     * The default time budget: one frame at 60 frames per second.
+     */
+    public static final long DEFAULT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    /**
+     * The number of histogram buckets.
+     */
+    public static final int NUM_BUCKETS = 20;
+
+    /**
+     * The upper bound of the first histogram bucket, as a power of two: 2^10 ns, about 1 microsecond.
+     */
+    static final int FIRST_BUCKET_SHIFT = 10;
+
+    private static final AppLifecycleEvent[] EVENTS = AppLifecycleEvent.values();
+    private static final AppMemoryEvent[] MEMORY_EVENTS = AppMemoryEvent.values();
+
+    /**
+     * The number of measured events: the stats of a memory event are stored after the lifecycle
+     * events.
+     */
+    private static final int NUM_EVENTS = EVENTS.length + MEMORY_EVENTS.length;
+
+    private final long budgetNanos;
+    private final OnSlowListener onSlowListener;
+    private final Map<AppLifecycleEventListener, Stats> stats =
+            new IdentityHashMap<AppLifecycleEventListener, Stats>();
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates metrics without a slow listener callback.
+     */
+    public ListenerMetrics() {
+        this(DEFAULT_BUDGET_NANOS, null);
+    }
+
+    /**
+     * Creates metrics that report listeners that exceed the budget.
+     *
+     * @param budgetNanos    The time budget for a single listener invocation, in nanoseconds.
+     * @param onSlowListener Called when a listener exceeds the budget, or null.
+     * @throws IllegalArgumentException when the budget is negative.
+     */
+    public ListenerMetrics(long budgetNanos, OnSlowListener onSlowListener) {
+        checkArgument(budgetNanos >= 0, "Budget can not be negative");
+
+        this.budgetNanos = budgetNanos;
+        this.onSlowListener = onSlowListener;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Records a single listener invocation.
+     *
+     * @param listener      The listener that was called.
+     * @param event         The event the listener handled.
+     * @param durationNanos The time the listener took, in nanoseconds.
+     */
+    public void record(AppLifecycleEventListener listener, AppLifecycleEvent event, long durationNanos) {
+        record(listener, event.ordinal(), durationNanos);
+
+        if (onSlowListener != null && durationNanos > budgetNanos) {
+            onSlowListener.onSlowListener(listener, event, durationNanos);
+        }
+    }
+
+    /**
+     * Records a single memory listener invocation.
+     *
+     * @param listener      The listener that was called.
+     * @param event         The memory event the listener handled.
+     * @param durationNanos The time the listener took, in nanoseconds.
+     */
+    public void record(AppLifecycleEventListener listener, AppMemoryEvent event, long durationNanos) {
+        record(listener, EVENTS.length + event.ordinal(), durationNanos);
+
+        if (onSlowListener instanceof OnSlowMemoryListener && durationNanos > budgetNanos) {
+            ((OnSlowMemoryListener) onSlowListener).onSlowMemoryListener(listener, event,
+                    durationNanos);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the current metrics: one entry per listener and event that was
+     * measured at least once.
+     *
+     * @return The listener timings.
+     */
+    public List<ListenerTimings> snapshot() {
+        final List<ListenerTimings> result = new ArrayList<ListenerTimings>();
+
+        synchronized (stats) {
+            for (Map.Entry<AppLifecycleEventListener, Stats> entry : stats.entrySet()) {
+                final Stats listenerStats = entry.getValue();
+
+                for (AppLifecycleEvent event : EVENTS) {
+                    final int i = event.ordinal();
+
+                    if (listenerStats.count[i] > 0) {
+                        result.add(new ListenerTimings(entry.getKey(), event,
+                                listenerStats.count[i], listenerStats.totalNanos[i],
+                                listenerStats.maxNanos[i], listenerStats.histogram[i].clone()));
+                    }
+                }
+
+                for (AppMemoryEvent event : MEMORY_EVENTS) {
+                    final int i = EVENTS.length + event.ordinal();
+
+                    if (listenerStats.count[i] > 0) {
+                        result.add(new ListenerTimings(entry.getKey(), event,
+                                listenerStats.count[i], listenerStats.totalNanos[i],
+                                listenerStats.maxNanos[i], listenerStats.histogram[i].clone()));
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes all measurements and listener references.
+     */
+    public void reset() {
+        synchronized (stats) {
+            stats.clear();
+        }
+    }
+
+    /**
+     * @return The time budget for a single listener invocation, in nanoseconds.
+     */
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Records a single invocation to the stats of the listener, which are created on its first
+     * invocation.
+     *
+     * @param listener      The listener that was called.
+     * @param event         The index of the event in the stats.
+     * @param durationNanos The time the listener took, in nanoseconds.
+     */
+    private void record(AppLifecycleEventListener listener, int event, long durationNanos) {
+        synchronized (stats) {
+            Stats listenerStats = stats.get(listener);
+
+            if (listenerStats == null) {
+                listenerStats = new Stats();
+                stats.put(listener, listenerStats);
+            }
+
+            listenerStats.record(event, durationNanos);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the histogram bucket for the duration.
+     *
+     * @param durationNanos The duration in nanoseconds.
+     * @return The bucket index.
+     */
+    static int getBucket(long durationNanos) {
+        final int bucket = 64 - Long.numberOfLeadingZeros(durationNanos >> FIRST_BUCKET_SHIFT);
+
+        return Math.min(bucket, NUM_BUCKETS - 1);
+    }
+
+    /**
+     * Returns the (exclusive) upper bound of a histogram bucket. The last bucket has no upper
+     * bound.
+     *
+     * @param bucket The bucket index.
+     * @return The upper bound in nanoseconds, or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long getBucketUpperBoundNanos(int bucket) {
+        return bucket >= NUM_BUCKETS - 1 ? Long.MAX_VALUE : 1L << (FIRST_BUCKET_SHIFT + bucket);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INNER CLASS: Stats
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Mutable measurements of a single listener, indexed by lifecycle event ordinal, followed by
+     * the memory event ordinals.
+     */
+    static final class Stats {
+
+        final long[] count = new long[NUM_EVENTS];
+        final long[] totalNanos = new long[NUM_EVENTS];
+        final long[] maxNanos = new long[NUM_EVENTS];
+        final long[][] histogram = new long[NUM_EVENTS][NUM_BUCKETS];
+
+        void record(int event, long durationNanos) {
+            count[event]++;
+            totalNanos[event] += durationNanos;
+            maxNanos[event] = Math.max(maxNanos[event], durationNanos);
+            histogram[event][getBucket(durationNanos)]++;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.cookingfox.android.app_lifecycle.impl.metrics;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+
+/**
+ * Immutable snapshot of the measured execution times of a listener for a single lifecycle or
+ * memory event.
+ */
+public final class ListenerTimings {
+
+    private final AppLifecycleEventListener listener;
+    private final AppLifecycleEvent event;
+    private final AppMemoryEvent memoryEvent;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] histogram;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    ListenerTimings(AppLifecycleEventListener listener, AppLifecycleEvent event, long count,
+                    long totalNanos, long maxNanos, long[] histogram) {
+        this(listener, event, null, count, totalNanos, maxNanos, histogram);
+    }
+
+    ListenerTimings(AppLifecycleEventListener listener, AppMemoryEvent memoryEvent, long count,
+                    long totalNanos, long maxNanos, long[] histogram) {
+        this(listener, null, memoryEvent, count, totalNanos, maxNanos, histogram);
+    }
+
+    private ListenerTimings(AppLifecycleEventListener listener, AppLifecycleEvent event,
+                            AppMemoryEvent memoryEvent, long count, long totalNanos, long maxNanos,
+                            long[] histogram) {
+        this.listener = listener;
+        this.event = event;
+        this.memoryEvent = memoryEvent;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.histogram = histogram;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @return The measured listener.
+     */
+    public AppLifecycleEventListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return The lifecycle event the listener handled, or null for a memory event.
+     */
+    public AppLifecycleEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * @return The memory event the listener handled, or null for a lifecycle event.
+     */
+    public AppMemoryEvent getMemoryEvent() {
+        return memoryEvent;
+    }
+
+    /**
+     * @return The number of measured invocations.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The total time of all measured invocations, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return The mean time of the measured invocations, in nanoseconds.
+     */
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * @return The longest measured invocation, in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Returns the number of invocations per histogram bucket. Bucket 0 counts invocations shorter
+     * than {@link ListenerMetrics#getBucketUpperBoundNanos(int)} for index 0, every next bucket
+     * doubles the upper bound, and the last bucket counts all longer invocations.
+     *
+     * @return A copy of the histogram.
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Returns an estimate of the given percentile, based on the histogram: the upper bound of the
+     * bucket that contains the percentile, limited to the longest measured invocation.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The estimated percentile, in nanoseconds.
+     */
+    public long getPercentileNanos(double percentile) {
+        final double threshold = count * percentile / 100;
+        long cumulative = 0;
+
+        for (int i = 0; i < histogram.length; i++) {
+            cumulative += histogram[i];
+
+            if (cumulative >= threshold && cumulative > 0) {
+                return Math.min(ListenerMetrics.getBucketUpperBoundNanos(i), maxNanos);
+            }
+        }
+
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerTimings{" +
+                "listener=" + listener +
+                ", event=" + (event != null ? event : memoryEvent) +
+                ", count=" + count +
+                ", meanNanos=" + getMeanNanos() +
+                ", maxNanos=" + maxNanos +
+                '}';
+    }
+
+}
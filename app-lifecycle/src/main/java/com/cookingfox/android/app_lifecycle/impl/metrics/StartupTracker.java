@@ -0,0 +1,210 @@
+package com.cookingfox.android.app_lifecycle.impl.metrics;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Process;
+
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppCreated;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppResumed;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStarted;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.metrics.OnAppStartup;
+import com.cookingfox.android.app_lifecycle.api.metrics.StartupTiming;
+import com.cookingfox.android.app_lifecycle.api.metrics.StartupType;
+import com.cookingfox.android.app_lifecycle.api.time.Clock;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Measures app launches: the time from the start of a launch until the first activity of the
+ * launch is resumed, classified as cold, warm or hot.
+ * <p>
+ * The tracker is a persistent app lifecycle listener, so it keeps measuring after the app is
+ * finished. Lifecycle events are expected on the main thread; startup listeners can be added and
+ * removed from any thread.
+ *
+ * @see StartupType
+ */
+public class StartupTracker implements PersistentAppLifecycleEventListener, OnAppCreated,
+        OnAppStarted, OnAppResumed, OnAppStopped {
+
+    protected final Clock clock;
+    protected final long processStartMillis;
+    protected final long applicationInitMillis;
+    protected final CopyOnWriteArrayList<OnAppStartup> listeners = new CopyOnWriteArrayList<OnAppStartup>();
+
+    /**
+     * The type of the launch that is in progress, or null when no launch is in progress.
+     */
+    protected StartupType pendingType;
+    protected long pendingCreateMillis = StartupTiming.UNKNOWN;
+    protected long pendingLaunchMillis = StartupTiming.UNKNOWN;
+
+    /**
+     * Whether the app was launched before in this process.
+     */
+    protected boolean launched;
+
+    /**
+     * Whether the app was stopped (moved to background) since the last event.
+     */
+    protected boolean stopped;
+
+    /**
+     * The timing of the last completed launch.
+     */
+    protected volatile StartupTiming lastStartup;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a tracker that uses the system clock and the process start time of the platform. The
+     * current time is used as the Application initialization time.
+     */
+    public StartupTracker() {
+        this(Clock.SYSTEM, readProcessStartMillis());
+    }
+
+    /**
+     * Creates a tracker that uses the current time of the clock as the Application initialization
+     * time.
+     *
+     * @param clock              The clock to get the current time from.
+     * @param processStartMillis When the process was started, or {@link StartupTiming#UNKNOWN}.
+     * @throws NullPointerException when the clock is null.
+     */
+    public StartupTracker(Clock clock, long processStartMillis) {
+        this.clock = checkNotNull(clock, "Clock can not be null");
+        this.processStartMillis = processStartMillis;
+        this.applicationInitMillis = clock.elapsedRealtime();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Adds a listener that is called when a launch is completed.
+     *
+     * @param listener The listener to add.
+     * @throws NullPointerException when the listener is null.
+     */
+    public void addListener(OnAppStartup listener) {
+        listeners.addIfAbsent(checkNotNull(listener, "Listener can not be null"));
+    }
+
+    /**
+     * Removes a startup listener.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeListener(OnAppStartup listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return The timing of the last completed launch, or null if the app was not launched yet.
+     */
+    public StartupTiming getLastStartup() {
+        return lastStartup;
+    }
+
+    /**
+     * @return When the process was started, or {@link StartupTiming#UNKNOWN}.
+     */
+    public long getProcessStartMillis() {
+        return processStartMillis;
+    }
+
+    /**
+     * @return When this tracker was created, which is used as the Application initialization time.
+     */
+    public long getApplicationInitMillis() {
+        return applicationInitMillis;
+    }
+
+    @Override
+    public void onAppCreated(Class<?> origin) {
+        final long now = clock.elapsedRealtime();
+
+        stopped = false;
+        pendingCreateMillis = now;
+
+        if (launched) {
+            pendingType = StartupType.WARM;
+            pendingLaunchMillis = now;
+        } else {
+            pendingType = StartupType.COLD;
+            pendingLaunchMillis = processStartMillis == StartupTiming.UNKNOWN ?
+                    applicationInitMillis : processStartMillis;
+        }
+    }
+
+    @Override
+    public void onAppStarted(Class<?> origin) {
+        // started after create: part of the pending launch
+        if (!stopped) {
+            return;
+        }
+
+        stopped = false;
+        pendingType = StartupType.HOT;
+        pendingCreateMillis = StartupTiming.UNKNOWN;
+        pendingLaunchMillis = clock.elapsedRealtime();
+    }
+
+    @Override
+    public void onAppResumed(Class<?> origin) {
+        // resumed after pause: not a launch
+        if (pendingType == null) {
+            return;
+        }
+
+        final StartupTiming timing = new StartupTiming(pendingType, processStartMillis,
+                applicationInitMillis, pendingCreateMillis, pendingLaunchMillis,
+                clock.elapsedRealtime());
+
+        pendingType = null;
+        launched = true;
+        lastStartup = timing;
+
+        for (OnAppStartup listener : listeners) {
+            listener.onAppStartup(timing);
+        }
+    }
+
+    @Override
+    public void onAppStopped(Class<?> origin) {
+        // a launch that was stopped before it was resumed is abandoned
+        pendingType = null;
+        stopped = true;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STATIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the process start time, if the platform provides it.
+     *
+     * @return When the process was started, or {@link StartupTiming#UNKNOWN} before Android N.
+     */
+    public static long readProcessStartMillis() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return readProcessStartMillisN();
+        }
+
+        return StartupTiming.UNKNOWN;
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    static long readProcessStartMillisN() {
+        return Process.getStartElapsedRealtime();
+    }
+
+}
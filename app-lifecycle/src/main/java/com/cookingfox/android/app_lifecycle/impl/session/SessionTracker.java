@@ -0,0 +1,285 @@
+package com.cookingfox.android.app_lifecycle.impl.session;
+
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStarted;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.session.SessionListener;
+import com.cookingfox.android.app_lifecycle.api.time.Clock;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Tracks foreground sessions of the app, based on the app start and stop events.
+ * <p>
+ * A session starts when the app is started, and continues when the app is started again within
+ * the session timeout after it was stopped. Otherwise, the previous session is ended and a new
+ * session with the next ID is started. Session IDs are unique within the process and start at 1.
+ * <p>
+ * A session is over as soon as the app has been in background for longer than the session
+ * timeout: from then on, the getters report that there is no current session. The session
+ * listeners are notified that the session ended when the app is started again, directly before
+ * the next session is started.
+ * <p>
+ * Time in foreground and background is measured with the monotonic {@link Clock}. Lifecycle events
+ * are expected on the main thread. Each event publishes the session state as one immutable
+ * snapshot, so the state can be read from any thread without locking, and reading it does not
+ * allocate.
+ */
+public class SessionTracker implements PersistentAppLifecycleEventListener, OnAppStarted,
+        OnAppStopped {
+
+    /**
+     * The default session timeout: 30 minutes.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * Session ID when no session was started yet.
+     */
+    public static final long NO_SESSION = 0;
+
+    private static final SessionListener[] NO_LISTENERS = new SessionListener[0];
+
+    protected final Clock clock;
+    protected final long timeoutMillis;
+
+    /**
+     * Session listeners, replaced on every change, so they can be iterated without allocating.
+     */
+    protected volatile SessionListener[] listeners = NO_LISTENERS;
+
+    /**
+     * The session state, replaced on every start and stop.
+     */
+    protected volatile State state = State.NONE;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a tracker with the system clock and the default session timeout.
+     */
+    public SessionTracker() {
+        this(Clock.SYSTEM, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param clock         The clock to measure time with.
+     * @param timeoutMillis The time in background after which the session ends.
+     * @throws NullPointerException     when the clock is null.
+     * @throws IllegalArgumentException when the timeout is negative.
+     */
+    public SessionTracker(Clock clock, long timeoutMillis) {
+        checkArgument(timeoutMillis >= 0, "Session timeout can not be negative");
+
+        this.clock = checkNotNull(clock, "Clock can not be null");
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Adds a session listener.
+     *
+     * @param listener The listener to add.
+     * @throws NullPointerException when the listener is null.
+     */
+    public synchronized void addListener(SessionListener listener) {
+        checkNotNull(listener, "Listener can not be null");
+
+        final SessionListener[] current = listeners;
+        final SessionListener[] next = new SessionListener[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = listener;
+
+        listeners = next;
+    }
+
+    /**
+     * Removes a session listener.
+     *
+     * @param listener The listener to remove.
+     */
+    public synchronized void removeListener(SessionListener listener) {
+        final SessionListener[] current = listeners;
+
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                final SessionListener[] next = new SessionListener[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+
+                listeners = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The ID of the current session, or {@link #NO_SESSION} when no session was started
+     * yet or the last session timed out.
+     */
+    public long getSessionId() {
+        final State current = state;
+
+        return isExpired(current, clock.elapsedRealtime()) ? NO_SESSION : current.sessionId;
+    }
+
+    /**
+     * @return Whether the app is currently in foreground.
+     */
+    public boolean isInForeground() {
+        return state.inForeground;
+    }
+
+    /**
+     * @return When the current session was started, in {@link Clock#elapsedRealtime()} time, or 0
+     * when there is no current session.
+     */
+    public long getSessionStartMillis() {
+        final State current = state;
+
+        return isExpired(current, clock.elapsedRealtime()) ? 0 : current.sessionStartMillis;
+    }
+
+    /**
+     * @return The time the app was in foreground during the current session, up to now, or 0 when
+     * there is no current session.
+     */
+    public long getForegroundMillis() {
+        final State current = state;
+        final long now = clock.elapsedRealtime();
+
+        if (isExpired(current, now)) {
+            return 0;
+        }
+
+        return current.inForeground ?
+                current.foregroundMillis + now - current.lastTransitionMillis :
+                current.foregroundMillis;
+    }
+
+    /**
+     * @return The time the app was in background during the current session, up to now, or 0 when
+     * there is no current session.
+     */
+    public long getBackgroundMillis() {
+        final State current = state;
+        final long now = clock.elapsedRealtime();
+
+        if (current.inForeground) {
+            return current.backgroundMillis;
+        } else if (current.sessionId == NO_SESSION || isExpired(current, now)) {
+            return 0;
+        }
+
+        return current.backgroundMillis + now - current.lastTransitionMillis;
+    }
+
+    /**
+     * @return The session timeout in milliseconds.
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public void onAppStarted(Class<?> origin) {
+        final State current = state;
+
+        if (current.inForeground) {
+            return;
+        }
+
+        final long now = clock.elapsedRealtime();
+
+        if (current.sessionId != NO_SESSION && !isExpired(current, now)) {
+            // continue session
+            state = new State(current.sessionId, true, current.sessionStartMillis, now,
+                    current.foregroundMillis,
+                    current.backgroundMillis + now - current.lastTransitionMillis);
+            return;
+        }
+
+        if (current.sessionId != NO_SESSION) {
+            for (SessionListener listener : listeners) {
+                listener.onSessionEnded(current.sessionId, current.foregroundMillis,
+                        current.backgroundMillis);
+            }
+        }
+
+        final long sessionId = current.sessionId + 1;
+        state = new State(sessionId, true, now, now, 0, 0);
+
+        for (SessionListener listener : listeners) {
+            listener.onSessionStarted(sessionId);
+        }
+    }
+
+    @Override
+    public void onAppStopped(Class<?> origin) {
+        final State current = state;
+
+        if (!current.inForeground) {
+            return;
+        }
+
+        final long now = clock.elapsedRealtime();
+
+        state = new State(current.sessionId, false, current.sessionStartMillis, now,
+                current.foregroundMillis + now - current.lastTransitionMillis,
+                current.backgroundMillis);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param current The session state.
+     * @param now     The current time.
+     * @return Whether the session has timed out: the app has been in background for longer than
+     * the session timeout.
+     */
+    protected boolean isExpired(State current, long now) {
+        return current.sessionId != NO_SESSION && !current.inForeground &&
+                now - current.lastTransitionMillis > timeoutMillis;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INNER CLASS: State
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Immutable session state, so it can be published with a single volatile write.
+     */
+    protected static final class State {
+
+        static final State NONE = new State(NO_SESSION, false, 0, 0, 0, 0);
+
+        final long sessionId;
+        final boolean inForeground;
+        final long sessionStartMillis;
+        final long lastTransitionMillis;
+        final long foregroundMillis;
+        final long backgroundMillis;
+
+        State(long sessionId, boolean inForeground, long sessionStartMillis,
+              long lastTransitionMillis, long foregroundMillis, long backgroundMillis) {
+            this.sessionId = sessionId;
+            this.inForeground = inForeground;
+            this.sessionStartMillis = sessionStartMillis;
+            this.lastTransitionMillis = lastTransitionMillis;
+            this.foregroundMillis = foregroundMillis;
+            this.backgroundMillis = backgroundMillis;
+        }
+
+    }
+
+}
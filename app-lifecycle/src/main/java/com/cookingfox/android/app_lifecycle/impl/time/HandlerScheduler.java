@@ -0,0 +1,42 @@
+package com.cookingfox.android.app_lifecycle.impl.time;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.cookingfox.android.app_lifecycle.api.time.Scheduler;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Scheduler that runs tasks on the thread of a {@link Looper}, using a {@link Handler}.
+ */
+public class HandlerScheduler implements Scheduler {
+
+    protected final Handler handler;
+
+    /**
+     * Creates a scheduler that runs tasks on the main thread.
+     */
+    public HandlerScheduler() {
+        this(new Handler(Looper.getMainLooper()));
+    }
+
+    /**
+     * @param handler The handler to post the tasks to.
+     * @throws NullPointerException when the handler is null.
+     */
+    public HandlerScheduler(Handler handler) {
+        this.handler = checkNotNull(handler, "Handler can not be null");
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMillis) {
+        handler.postDelayed(task, delayMillis);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        handler.removeCallbacks(task);
+    }
+
+}
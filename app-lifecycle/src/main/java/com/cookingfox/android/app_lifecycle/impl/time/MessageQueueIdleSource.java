@@ -0,0 +1,120 @@
+package com.cookingfox.android.app_lifecycle.impl.time;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import com.cookingfox.android.app_lifecycle.api.time.IdleSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Idle source that runs tasks when the {@link MessageQueue} of a looper thread has no messages to
+ * handle, using an {@link MessageQueue.IdleHandler}. The idle handler is only registered while
+ * tasks are pending.
+ */
+public class MessageQueueIdleSource implements IdleSource, MessageQueue.IdleHandler {
+
+    protected final MessageQueue queue;
+
+    /**
+     * The tasks that run on the next idle signal, in order of request.
+     */
+    protected final List<Runnable> tasks = new ArrayList<Runnable>();
+
+    protected boolean registered;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates an idle source for the message queue of the current thread, which must be a looper
+     * thread: usually the main thread.
+     */
+    public MessageQueueIdleSource() {
+        this(Looper.myQueue());
+    }
+
+    /**
+     * @param queue The message queue to watch for idle time.
+     * @throws NullPointerException when the queue is null.
+     */
+    public MessageQueueIdleSource(MessageQueue queue) {
+        this.queue = checkNotNull(queue, "Message queue can not be null");
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public synchronized void runWhenIdle(Runnable task) {
+        checkNotNull(task, "Task can not be null");
+
+        tasks.add(task);
+
+        if (!registered) {
+            registered = true;
+            queue.addIdleHandler(this);
+        }
+    }
+
+    @Override
+    public synchronized void cancel(Runnable task) {
+        while (tasks.remove(task)) {
+            // remove all pending runs
+        }
+
+        if (registered && tasks.isEmpty()) {
+            registered = false;
+            queue.removeIdleHandler(this);
+        }
+    }
+
+    /**
+     * Runs the pending tasks. Tasks that are requested while running, run on the next idle signal.
+     * When a task throws, the tasks that did not run are kept.
+     *
+     * @return Whether the idle handler should stay registered: true when tasks are pending.
+     */
+    @Override
+    public boolean queueIdle() {
+        final Runnable[] due;
+
+        synchronized (this) {
+            due = tasks.toArray(new Runnable[tasks.size()]);
+            tasks.clear();
+        }
+
+        int next = 0;
+        boolean completed = false;
+
+        try {
+            while (next < due.length) {
+                due[next++].run();
+            }
+
+            completed = true;
+        } finally {
+            synchronized (this) {
+                if (!completed) {
+                    tasks.addAll(0, Arrays.asList(due).subList(next, due.length));
+
+                    // the message queue removes an idle handler that throws
+                    if (!tasks.isEmpty()) {
+                        queue.addIdleHandler(this);
+                    }
+                }
+
+                registered = !tasks.isEmpty();
+            }
+        }
+
+        return registered;
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.cookingfox.android.app_lifecycle.fixture;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Counts the bytes that the current thread allocates while running a task, for tests that prove an
+ * event path does not allocate.
+ */
+public final class AllocationCounter {
+
+    /**
+     * The number of runs before measuring, so one-time allocations (e.g. class loading, compiling
+     * the task) are not counted.
+     */
+    static final int WARM_UP_RUNS = 10000;
+
+    /**
+     * The number of measurements: the lowest is used, so an allocation of the JVM that happens to
+     * fall in a measurement (e.g. when a method is recompiled) is not counted.
+     */
+    static final int ATTEMPTS = 5;
+
+    private AllocationCounter() {
+    }
+
+    /**
+     * Warms up the task and returns the number of bytes the current thread allocates while running
+     * it. Skips the test when the JVM can not count allocations.
+     *
+     * @param runs The number of runs to measure.
+     * @param task The task to run.
+     * @return The lowest number of allocated bytes of a few measurements.
+     */
+    public static long countAllocatedBytes(int runs, Runnable task) {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        assumeTrue(bean instanceof ThreadMXBean);
+
+        final ThreadMXBean threadBean = (ThreadMXBean) bean;
+        final long threadId = Thread.currentThread().getId();
+
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        run(task, WARM_UP_RUNS);
+
+        long lowest = Long.MAX_VALUE;
+
+        for (int attempt = 0; attempt < ATTEMPTS && lowest > 0; attempt++) {
+            final long before = threadBean.getThreadAllocatedBytes(threadId);
+            run(task, runs);
+            final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            lowest = Math.min(lowest, allocated);
+        }
+
+        return lowest;
+    }
+
+    private static void run(Runnable task, int times) {
+        for (int i = 0; i < times; i++) {
+            task.run();
+        }
+    }
+
+}
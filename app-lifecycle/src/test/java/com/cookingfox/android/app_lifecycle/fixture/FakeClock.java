@@ -0,0 +1,25 @@
+package com.cookingfox.android.app_lifecycle.fixture;
+
+import com.cookingfox.android.app_lifecycle.api.time.Clock;
+
+/**
+ * Clock with a manually controlled time.
+ */
+public class FakeClock implements Clock {
+
+    public long now;
+
+    public FakeClock(long now) {
+        this.now = now;
+    }
+
+    public void advance(long millis) {
+        now += millis;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return now;
+    }
+
+}
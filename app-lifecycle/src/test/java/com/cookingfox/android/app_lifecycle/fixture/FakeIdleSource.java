@@ -0,0 +1,52 @@
+package com.cookingfox.android.app_lifecycle.fixture;
+
+import com.cookingfox.android.app_lifecycle.api.time.IdleSource;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Idle source with manually controlled idle signals: pending tasks are run by {@link #idle()}.
+ */
+public class FakeIdleSource implements IdleSource {
+
+    final List<Runnable> tasks = new LinkedList<Runnable>();
+
+    /**
+     * Signals that the thread is idle: runs the pending tasks. Tasks that are requested while
+     * running, run on the next signal.
+     *
+     * @return The number of tasks that were run.
+     */
+    public int idle() {
+        final List<Runnable> due = new ArrayList<Runnable>(tasks);
+        tasks.clear();
+
+        for (Runnable task : due) {
+            task.run();
+        }
+
+        return due.size();
+    }
+
+    /**
+     * @return The number of pending tasks.
+     */
+    public int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public void runWhenIdle(Runnable task) {
+        tasks.add(task);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        while (tasks.remove(task)) {
+            // remove all pending runs
+        }
+    }
+
+}
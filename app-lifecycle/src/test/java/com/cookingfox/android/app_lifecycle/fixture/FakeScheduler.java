@@ -0,0 +1,82 @@
+package com.cookingfox.android.app_lifecycle.fixture;
+
+import com.cookingfox.android.app_lifecycle.api.time.Scheduler;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Scheduler with a manually controlled time: tasks are run by {@link #advance(long)}.
+ */
+public class FakeScheduler implements Scheduler {
+
+    public long now;
+
+    final List<ScheduledTask> tasks = new LinkedList<ScheduledTask>();
+
+    /**
+     * Advances the time and runs the tasks that are due, in order of their due time.
+     *
+     * @param millis The time to advance.
+     */
+    public void advance(long millis) {
+        final long target = now + millis;
+
+        while (true) {
+            ScheduledTask next = null;
+
+            for (ScheduledTask task : tasks) {
+                if (task.dueMillis <= target && (next == null || task.dueMillis < next.dueMillis)) {
+                    next = task;
+                }
+            }
+
+            if (next == null) {
+                break;
+            }
+
+            tasks.remove(next);
+            now = next.dueMillis;
+            next.task.run();
+        }
+
+        now = target;
+    }
+
+    /**
+     * @return The number of scheduled tasks.
+     */
+    public int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMillis) {
+        tasks.add(new ScheduledTask(task, now + delayMillis));
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        final Iterator<ScheduledTask> iterator = tasks.iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().task == task) {
+                iterator.remove();
+            }
+        }
+    }
+
+    static final class ScheduledTask {
+
+        final Runnable task;
+        final long dueMillis;
+
+        ScheduledTask(Runnable task, long dueMillis) {
+            this.task = task;
+            this.dueMillis = dueMillis;
+        }
+
+    }
+
+}
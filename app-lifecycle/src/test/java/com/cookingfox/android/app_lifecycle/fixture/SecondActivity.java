@@ -3,4 +3,25 @@ package com.cookingfox.android.app_lifecycle.fixture;
 import com.cookingfox.android.app_lifecycle.impl.activity.AppLifecycleActivity;
 
 public class SecondActivity extends AppLifecycleActivity {
+
+    /**
+     * Set to simulate that the activity is finishing.
+     */
+    public boolean finishing;
+
+    /**
+     * Set to simulate that the activity is being recreated for a configuration change.
+     */
+    public boolean changingConfigurations;
+
+    @Override
+    public boolean isFinishing() {
+        return finishing;
+    }
+
+    @Override
+    public boolean isChangingConfigurations() {
+        return changingConfigurations;
+    }
+
 }
@@ -1,8 +1,13 @@
 package com.cookingfox.android.app_lifecycle.impl;
 
 import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleManager;
+import com.cookingfox.android.app_lifecycle.api.metrics.StartupTiming;
+import com.cookingfox.android.app_lifecycle.api.time.Clock;
+import com.cookingfox.android.app_lifecycle.fixture.FakeClock;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
 import com.cookingfox.android.app_lifecycle.fixture.FirstApp;
 import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+import com.cookingfox.android.app_lifecycle.impl.metrics.StartupTracker;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -11,6 +16,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -18,6 +24,8 @@ import static org.junit.Assert.assertTrue;
  */
 public class AppLifecycleProviderTest {
 
+    private final FakeClock clock = new FakeClock(1000);
+
     //----------------------------------------------------------------------------------------------
     // SETUP
     //----------------------------------------------------------------------------------------------
@@ -25,6 +33,7 @@ public class AppLifecycleProviderTest {
     @Before
     public void setUp() throws Exception {
         AppLifecycleProvider.manager = null;
+        AppLifecycleProvider.startupTracker = null;
     }
 
     //----------------------------------------------------------------------------------------------
@@ -55,13 +64,14 @@ public class AppLifecycleProviderTest {
 
     @Test
     public void dispose_should_unset_manager() throws Exception {
-        AppLifecycleProvider.initialize(new FirstApp());
+        initializeWithFakeClock(new FirstApp());
 
         assertNotNull(AppLifecycleProvider.manager);
 
         AppLifecycleProvider.dispose();
 
         assertNull(AppLifecycleProvider.manager);
+        assertNull(AppLifecycleProvider.startupTracker);
     }
 
     //----------------------------------------------------------------------------------------------
@@ -75,13 +85,46 @@ public class AppLifecycleProviderTest {
 
     @Test
     public void getManager_should_return_manager() throws Exception {
-        AppLifecycleProvider.initialize(new FirstApp());
+        initializeWithFakeClock(new FirstApp());
 
         AppLifecycleManager manager = AppLifecycleProvider.getManager();
 
         assertNotNull(manager);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // TESTS: getStartupTracker
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void getStartupTracker_should_throw_if_not_created() throws Exception {
+        AppLifecycleProvider.getStartupTracker();
+    }
+
+    @Test
+    public void getStartupTracker_should_return_default_tracker() throws Exception {
+        initializeWithFakeClock(new FirstApp());
+
+        assertNotNull(AppLifecycleProvider.getStartupTracker());
+    }
+
+    @Test
+    public void getStartupTracker_should_return_tracker_listening_to_manager() throws Exception {
+        final CrossActivityAppLifecycleManager customManager = new CrossActivityAppLifecycleManager();
+        final StartupTracker customTracker = new StartupTracker(new FakeClock(1000),
+                StartupTiming.UNKNOWN);
+
+        AppLifecycleProvider.initialize(new FirstApp(), customManager, customTracker);
+
+        final FirstActivity activity = new FirstActivity();
+        customManager.onCreate(activity);
+        customManager.onStart(activity);
+        customManager.onResume(activity);
+
+        assertSame(customTracker, AppLifecycleProvider.getStartupTracker());
+        assertNotNull(customTracker.getLastStartup());
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: initialize
     //----------------------------------------------------------------------------------------------
@@ -95,15 +138,54 @@ public class AppLifecycleProviderTest {
     public void initialize_should_throw_if_already_initialized() throws Exception {
         FirstApp app = new FirstApp();
 
-        AppLifecycleProvider.initialize(app);
-        AppLifecycleProvider.initialize(app);
+        initializeWithFakeClock(app);
+        initializeWithFakeClock(app);
     }
 
     @Test
     public void initialize_should_return_manager() throws Exception {
-        AppLifecycleManager manager = AppLifecycleProvider.initialize(new FirstApp());
+        AppLifecycleManager manager = initializeWithFakeClock(new FirstApp());
 
         assertNotNull(manager);
     }
 
+    @Test(expected = NullPointerException.class)
+    public void initialize_should_throw_if_custom_manager_null() throws Exception {
+        AppLifecycleProvider.initialize(new FirstApp(), null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void initialize_should_throw_if_custom_tracker_null() throws Exception {
+        AppLifecycleProvider.initialize(new FirstApp(), new CrossActivityAppLifecycleManager(),
+                (StartupTracker) null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void initialize_should_throw_if_clock_null() throws Exception {
+        AppLifecycleProvider.initialize(new FirstApp(), new CrossActivityAppLifecycleManager(),
+                (Clock) null);
+    }
+
+    @Test
+    public void initialize_should_use_custom_manager() throws Exception {
+        final AppLifecycleManager customManager = new CrossActivityAppLifecycleManager();
+
+        AppLifecycleProvider.initialize(new FirstApp(), customManager, clock);
+
+        assertSame(customManager, AppLifecycleProvider.getManager());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Initializes the provider with a default manager and tracker, like
+     * {@link AppLifecycleProvider#initialize(android.app.Application)}, but with a fake clock:
+     * the system clock is not available in unit tests.
+     */
+    private AppLifecycleManager initializeWithFakeClock(FirstApp app) {
+        return AppLifecycleProvider.initialize(app, new CrossActivityAppLifecycleManager(), clock);
+    }
+
 }
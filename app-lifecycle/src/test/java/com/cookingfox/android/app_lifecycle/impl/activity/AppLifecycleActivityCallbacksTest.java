@@ -2,15 +2,23 @@ package com.cookingfox.android.app_lifecycle.impl.activity;
 
 import android.annotation.TargetApi;
 import android.app.Application;
+import android.content.ComponentCallbacks2;
 import android.os.Build;
 
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleManager;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
 import com.cookingfox.android.app_lifecycle.fixture.FirstApp;
+import com.cookingfox.android.app_lifecycle.impl.listener.DefaultAppLifecycleListener;
 import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
 
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 /**
  * Unit tests for {@link AppLifecycleActivityCallbacks}.
@@ -46,6 +54,7 @@ public class AppLifecycleActivityCallbacksTest {
         subject.dispose();
 
         verify(mockApp).unregisterActivityLifecycleCallbacks(subject);
+        verify(mockApp).unregisterComponentCallbacks(subject);
     }
 
     //----------------------------------------------------------------------------------------------
@@ -62,6 +71,102 @@ public class AppLifecycleActivityCallbacksTest {
         subject.initialize();
 
         verify(mockApp).registerActivityLifecycleCallbacks(subject);
+        verify(mockApp).registerComponentCallbacks(subject);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: memory events
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void onTrimMemory_should_forward_to_manager() throws Exception {
+        CrossActivityAppLifecycleManager mockManager = mock(CrossActivityAppLifecycleManager.class);
+
+        AppLifecycleActivityCallbacks subject =
+                new AppLifecycleActivityCallbacks(new FirstApp(), mockManager);
+
+        subject.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        verify(mockManager).onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+    }
+
+    @Test
+    public void onLowMemory_should_forward_to_manager() throws Exception {
+        CrossActivityAppLifecycleManager mockManager = mock(CrossActivityAppLifecycleManager.class);
+
+        AppLifecycleActivityCallbacks subject =
+                new AppLifecycleActivityCallbacks(new FirstApp(), mockManager);
+
+        subject.onLowMemory();
+
+        verify(mockManager).onLowMemory();
+    }
+
+    @Test
+    public void memory_events_should_be_ignored_if_manager_has_no_memory_support() throws Exception {
+        AppLifecycleManager mockManager = mock(AppLifecycleManager.class);
+
+        AppLifecycleActivityCallbacks subject =
+                new AppLifecycleActivityCallbacks(new FirstApp(), mockManager);
+
+        subject.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        subject.onLowMemory();
+
+        verifyZeroInteractions(mockManager);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: configuration changes
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void rotation_should_not_notify_listeners() throws Exception {
+        final CrossActivityAppLifecycleManager manager = new CrossActivityAppLifecycleManager() {{
+            detectConfigurationChanges = true;
+        }};
+        final AppLifecycleActivityCallbacks subject = new AppLifecycleActivityCallbacks(new FirstApp(), manager);
+        final AtomicInteger notified = new AtomicInteger();
+
+        manager.addListener(new DefaultAppLifecycleListener() {
+            @Override
+            public void onAppStarted(Class<?> origin) {
+                notified.incrementAndGet();
+            }
+
+            @Override
+            public void onAppStopped(Class<?> origin) {
+                notified.incrementAndGet();
+            }
+
+            @Override
+            public void onAppFinished(Class<?> origin) {
+                notified.incrementAndGet();
+            }
+        });
+
+        final FirstActivity activity = new FirstActivity();
+        subject.onActivityCreated(activity, null);
+        subject.onActivityStarted(activity);
+        subject.onActivityResumed(activity);
+
+        // rotate
+        final FirstActivity recreated = new FirstActivity();
+        activity.changingConfigurations = true;
+        subject.onActivityPaused(activity);
+        subject.onActivityStopped(activity);
+        subject.onActivityDestroyed(activity);
+        subject.onActivityCreated(recreated, null);
+        subject.onActivityStarted(recreated);
+        subject.onActivityResumed(recreated);
+
+        assertEquals(1, notified.get());
+
+        // exit
+        recreated.finishing = true;
+        subject.onActivityPaused(recreated);
+        subject.onActivityStopped(recreated);
+
+        assertEquals(3, notified.get());
     }
 
 }
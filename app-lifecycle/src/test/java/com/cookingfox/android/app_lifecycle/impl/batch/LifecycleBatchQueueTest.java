@@ -0,0 +1,465 @@
+package com.cookingfox.android.app_lifecycle.impl.batch;
+
+import android.app.Activity;
+
+import com.cookingfox.android.app_lifecycle.api.batch.BatchSink;
+import com.cookingfox.android.app_lifecycle.fixture.FakeScheduler;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.impl.executor.DaemonExecutors;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link LifecycleBatchQueue}.
+ */
+public class LifecycleBatchQueueTest {
+
+    private static final int MAX_BATCH_SIZE = 3;
+    private static final long MAX_DELAY_MILLIS = 1000;
+
+    private final Activity activity = new FirstActivity();
+    private final FakeScheduler scheduler = new FakeScheduler();
+    private final FakeSink sink = new FakeSink();
+
+    private LifecycleBatchQueue<String> queue;
+    private CrossActivityAppLifecycleManager manager;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        queue = createQueue(sink, new DirectExecutor());
+        manager = new CrossActivityAppLifecycleManager();
+        manager.addListener(queue);
+
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        manager.onResume(activity);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_sink_null() throws Exception {
+        new LifecycleBatchQueue<String>(null, scheduler, new DirectExecutor(), MAX_BATCH_SIZE,
+                MAX_DELAY_MILLIS);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_scheduler_null() throws Exception {
+        new LifecycleBatchQueue<String>(sink, null, new DirectExecutor(), MAX_BATCH_SIZE,
+                MAX_DELAY_MILLIS);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_executor_null() throws Exception {
+        new LifecycleBatchQueue<String>(sink, scheduler, null, MAX_BATCH_SIZE, MAX_DELAY_MILLIS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_batch_size_not_positive() throws Exception {
+        new LifecycleBatchQueue<String>(sink, scheduler, new DirectExecutor(), 0, MAX_DELAY_MILLIS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_delay_negative() throws Exception {
+        new LifecycleBatchQueue<String>(sink, scheduler, new DirectExecutor(), MAX_BATCH_SIZE, -1);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: submit
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void submit_should_throw_if_item_null() throws Exception {
+        queue.submit(null);
+    }
+
+    @Test
+    public void submit_should_send_immediately_in_foreground() throws Exception {
+        queue.submit("a");
+        queue.submit("b");
+
+        assertEquals(Arrays.asList(Collections.singletonList("a"), Collections.singletonList("b")),
+                sink.batches);
+        assertEquals(0, scheduler.size());
+        assertFalse(queue.isInBackground());
+    }
+
+    @Test
+    public void submit_should_buffer_in_background_until_batch_full() throws Exception {
+        stop();
+
+        queue.submit("a");
+        queue.submit("b");
+
+        assertTrue(sink.batches.isEmpty());
+        assertEquals(2, queue.getBufferedCount());
+
+        queue.submit("c");
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b", "c")), sink.batches);
+        assertEquals(0, queue.getBufferedCount());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void submit_should_send_buffered_items_after_max_delay() throws Exception {
+        stop();
+
+        queue.submit("a");
+        scheduler.advance(MAX_DELAY_MILLIS / 2);
+        queue.submit("b");
+        scheduler.advance(MAX_DELAY_MILLIS / 2 - 1);
+
+        assertTrue(sink.batches.isEmpty());
+
+        scheduler.advance(1);
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), sink.batches);
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void submit_should_buffer_before_app_started() throws Exception {
+        final LifecycleBatchQueue<String> notAdded = createQueue(sink, new DirectExecutor());
+
+        notAdded.submit("a");
+
+        assertTrue(notAdded.isInBackground());
+        assertEquals(1, notAdded.getBufferedCount());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: lifecycle
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void start_should_send_buffered_items() throws Exception {
+        stop();
+
+        queue.submit("a");
+        queue.submit("b");
+        manager.onStart(activity);
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), sink.batches);
+        assertEquals(0, scheduler.size());
+
+        queue.submit("c");
+
+        assertEquals(2, sink.batches.size());
+    }
+
+    @Test
+    public void finish_should_send_buffered_items() throws Exception {
+        stop();
+
+        queue.submit("a");
+        manager.onFinish(activity);
+
+        assertEquals(Collections.singletonList(Collections.singletonList("a")), sink.batches);
+        assertEquals(0, scheduler.size());
+
+        // persistent: still registered after the app is finished
+        queue.submit("b");
+        manager.onCreate(activity);
+        manager.onStart(activity);
+
+        assertEquals(2, sink.batches.size());
+    }
+
+    @Test
+    public void added_after_start_should_send_immediately() throws Exception {
+        final LifecycleBatchQueue<String> lateQueue = createQueue(sink, new DirectExecutor());
+
+        manager.addListener(lateQueue);
+        lateQueue.submit("a");
+
+        assertFalse(lateQueue.isInBackground());
+        assertEquals(1, sink.batches.size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: counts
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void counts_should_include_all_sent_batches() throws Exception {
+        queue.submit("a");
+        stop();
+        queue.submit("b");
+        queue.submit("c");
+        queue.flush();
+
+        assertEquals(2, queue.getSentBatchCount());
+        assertEquals(3, queue.getSentItemCount());
+    }
+
+    @Test
+    public void sink_failure_should_drop_batch() throws Exception {
+        final LifecycleBatchQueue<String> failingQueue = createQueue(new BatchSink<String>() {
+            @Override
+            public void send(List<String> batch) {
+                throw new IllegalStateException("offline");
+            }
+        }, new DirectExecutor());
+
+        failingQueue.submit("a");
+
+        try {
+            failingQueue.flush();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(0, failingQueue.getBufferedCount());
+        assertEquals(0, failingQueue.getSentBatchCount());
+        assertEquals(0, failingQueue.getSentItemCount());
+        assertEquals(1, failingQueue.getDroppedItemCount());
+    }
+
+    @Test
+    public void sink_failure_should_send_remaining_batches() throws Exception {
+        final QueueingExecutor executor = new QueueingExecutor();
+        final LifecycleBatchQueue<String> failingQueue = createQueue(new BatchSink<String>() {
+            @Override
+            public void send(List<String> batch) {
+                if (batch.contains("d")) {
+                    throw new IllegalStateException("offline");
+                }
+
+                sink.send(batch);
+            }
+        }, executor);
+
+        for (String item : Arrays.asList("a", "b", "c", "d", "e", "f", "g")) {
+            failingQueue.submit(item);
+        }
+
+        failingQueue.flush();
+
+        // one send task for all batches
+        assertEquals(1, executor.tasks.size());
+        assertEquals(7, failingQueue.getBufferedCount());
+
+        try {
+            executor.runNext();
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b", "c")), sink.batches);
+        assertEquals(3, failingQueue.getDroppedItemCount());
+        assertEquals(1, failingQueue.getBufferedCount());
+        assertEquals(1, executor.tasks.size());
+
+        executor.runNext();
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Collections.singletonList("g")),
+                sink.batches);
+        assertEquals(2, failingQueue.getSentBatchCount());
+        assertEquals(4, failingQueue.getSentItemCount());
+        assertEquals(0, failingQueue.getBufferedCount());
+    }
+
+    @Test
+    public void executor_rejection_should_drop_batches() throws Exception {
+        final LifecycleBatchQueue<String> rejectingQueue = createQueue(sink, new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                throw new RejectedExecutionException();
+            }
+        });
+
+        rejectingQueue.submit("a");
+        rejectingQueue.flush();
+
+        assertTrue(sink.batches.isEmpty());
+        assertEquals(0, rejectingQueue.getBufferedCount());
+        assertEquals(1, rejectingQueue.getDroppedItemCount());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: send executor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(timeout = 5000)
+    public void blocking_sink_should_not_block_start() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch sent = new CountDownLatch(2);
+        final LifecycleBatchQueue<String> blockingQueue = createQueue(new BatchSink<String>() {
+            @Override
+            public void send(List<String> batch) {
+                sending.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+
+                sink.send(batch);
+                sent.countDown();
+            }
+        }, DaemonExecutors.newSingleThreadExecutor("Test"));
+
+        manager.addListener(blockingQueue);
+        stop();
+
+        blockingQueue.submit("a");
+        blockingQueue.submit("b");
+        blockingQueue.submit("c");
+        sending.await();
+
+        // the sink is blocked on the send thread
+        blockingQueue.submit("d");
+        manager.onStart(activity);
+
+        // the start only handed the buffered item to the blocked send thread
+        assertEquals(0, blockingQueue.getSentBatchCount());
+        assertEquals(1, blockingQueue.getBufferedCount());
+
+        release.countDown();
+        sent.await();
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Collections.singletonList("d")),
+                sink.batches);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: concurrency
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void concurrent_submit_should_send_every_item_once_in_order() throws Exception {
+        final int numThreads = 4;
+        final int numItems = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        stop();
+
+        for (int t = 0; t < numThreads; t++) {
+            final String prefix = t + ":";
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < numItems; i++) {
+                        queue.submit(prefix + i);
+                    }
+                }
+            });
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        queue.flush();
+
+        final int[] next = new int[numThreads];
+
+        for (List<String> batch : sink.batches) {
+            assertTrue(batch.size() <= MAX_BATCH_SIZE);
+
+            for (String item : batch) {
+                final String[] parts = item.split(":");
+                final int thread = Integer.parseInt(parts[0]);
+
+                assertEquals(next[thread]++, Integer.parseInt(parts[1]));
+            }
+        }
+
+        for (int count : next) {
+            assertEquals(numItems, count);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private void stop() {
+        manager.onPause(activity);
+        manager.onStop(activity);
+    }
+
+    private LifecycleBatchQueue<String> createQueue(BatchSink<String> batchSink, Executor executor) {
+        return new LifecycleBatchQueue<String>(batchSink, scheduler, executor, MAX_BATCH_SIZE,
+                MAX_DELAY_MILLIS);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: FakeSink
+    //----------------------------------------------------------------------------------------------
+
+    static final class FakeSink implements BatchSink<String> {
+        final List<List<String>> batches = new ArrayList<List<String>>();
+
+        @Override
+        public synchronized void send(List<String> batch) {
+            batches.add(batch);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: DirectExecutor
+    //----------------------------------------------------------------------------------------------
+
+    static final class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: QueueingExecutor
+    //----------------------------------------------------------------------------------------------
+
+    static final class QueueingExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            tasks.add(runnable);
+        }
+
+        void runNext() {
+            tasks.remove(0).run();
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.cookingfox.android.app_lifecycle.impl.cache;
+
+import android.app.Activity;
+
+import com.cookingfox.android.app_lifecycle.api.cache.EvictionPolicy;
+import com.cookingfox.android.app_lifecycle.api.cache.TrimmableCache;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CacheRegistry} and {@link EvictionPolicy}.
+ */
+public class CacheRegistryTest {
+
+    private final Activity activity = new FirstActivity();
+
+    private CrossActivityAppLifecycleManager manager;
+    private CacheRegistry registry;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new CrossActivityAppLifecycleManager();
+        registry = new CacheRegistry();
+        manager.addListener(registry);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: EvictionPolicy
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void policy_none_should_not_evict() throws Exception {
+        for (AppLifecycleEvent event : AppLifecycleEvent.values()) {
+            assertFalse(EvictionPolicy.NONE.evictsOn(event));
+            assertEquals(1f, EvictionPolicy.NONE.getRetainFraction(event), 0f);
+        }
+    }
+
+    @Test
+    public void policy_default_should_trim_on_stop_and_clear_on_finish() throws Exception {
+        assertEquals(0.25f, EvictionPolicy.DEFAULT.getRetainFraction(AppLifecycleEvent.STOP), 0f);
+        assertEquals(0f, EvictionPolicy.DEFAULT.getRetainFraction(AppLifecycleEvent.FINISH), 0f);
+        assertFalse(EvictionPolicy.DEFAULT.evictsOn(AppLifecycleEvent.PAUSE));
+        final EvictionPolicy expected = EvictionPolicy.NONE
+                .trimOn(AppLifecycleEvent.STOP, 0.25f)
+                .clearOn(AppLifecycleEvent.FINISH);
+
+        assertEquals(expected, EvictionPolicy.DEFAULT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void policy_trimOn_should_throw_if_fraction_too_large() throws Exception {
+        EvictionPolicy.NONE.trimOn(AppLifecycleEvent.STOP, 1.5f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void policy_trimOn_should_throw_if_fraction_negative() throws Exception {
+        EvictionPolicy.NONE.trimOn(AppLifecycleEvent.STOP, -0.5f);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void policy_trimOn_should_throw_if_event_null() throws Exception {
+        EvictionPolicy.NONE.trimOn(null, 0.5f);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: register / unregister
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void register_should_throw_if_cache_null() throws Exception {
+        registry.register(null, EvictionPolicy.DEFAULT);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void register_should_throw_if_policy_null() throws Exception {
+        registry.register(new RecordingCache(), null);
+    }
+
+    @Test
+    public void register_should_replace_policy() throws Exception {
+        final RecordingCache cache = new RecordingCache();
+
+        registry.register(cache, EvictionPolicy.NONE);
+        registry.register(cache, EvictionPolicy.DEFAULT);
+
+        assertEquals(1, registry.size());
+        assertSame(EvictionPolicy.DEFAULT, registry.getPolicy(cache));
+    }
+
+    @Test
+    public void unregister_should_remove_cache() throws Exception {
+        final RecordingCache cache = new RecordingCache();
+        registry.register(cache, EvictionPolicy.DEFAULT);
+
+        assertTrue(registry.unregister(cache));
+        assertFalse(registry.unregister(cache));
+        assertFalse(registry.isRegistered(cache));
+        assertNull(registry.getPolicy(cache));
+
+        runFullCycle();
+
+        assertTrue(cache.trims.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: eviction
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void lifecycle_should_trim_caches_according_to_policy() throws Exception {
+        final RecordingCache defaultCache = new RecordingCache();
+        final RecordingCache pauseCache = new RecordingCache();
+
+        registry.register(defaultCache, EvictionPolicy.DEFAULT);
+        registry.register(pauseCache, EvictionPolicy.NONE.trimOn(AppLifecycleEvent.PAUSE, 0.5f));
+
+        runFullCycle();
+
+        assertEquals(2, defaultCache.trims.size());
+        assertEquals(0.25f, defaultCache.trims.get(0), 0f);
+        assertEquals(0f, defaultCache.trims.get(1), 0f);
+
+        assertEquals(1, pauseCache.trims.size());
+        assertEquals(0.5f, pauseCache.trims.get(0), 0f);
+    }
+
+    @Test
+    public void lifecycle_should_trim_after_app_recreated() throws Exception {
+        final RecordingCache cache = new RecordingCache();
+        registry.register(cache, EvictionPolicy.DEFAULT);
+
+        runFullCycle();
+        runFullCycle();
+
+        assertEquals(4, cache.trims.size());
+    }
+
+    @Test
+    public void lifecycle_should_trim_lru_cache() throws Exception {
+        final LruCache<String, String> cache = new LruCache<String, String>(100);
+        registry.register(cache, EvictionPolicy.DEFAULT);
+
+        for (int i = 0; i < 8; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        manager.onResume(activity);
+        manager.onPause(activity);
+        manager.onStop(activity);
+
+        // most recently used entries are retained
+        assertEquals(2, cache.size());
+        assertEquals("value7", cache.get("key7"));
+        assertEquals("value6", cache.get("key6"));
+
+        manager.onFinish(activity);
+
+        assertEquals(0, cache.size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private void runFullCycle() {
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        manager.onResume(activity);
+        manager.onPause(activity);
+        manager.onStop(activity);
+        manager.onFinish(activity);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASSES
+    //----------------------------------------------------------------------------------------------
+
+    static class RecordingCache implements TrimmableCache {
+        final List<Float> trims = new LinkedList<Float>();
+
+        @Override
+        public void trim(float retainFraction) {
+            trims.add(retainFraction);
+        }
+    }
+
+}
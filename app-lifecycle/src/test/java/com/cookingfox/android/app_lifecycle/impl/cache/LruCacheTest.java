@@ -0,0 +1,161 @@
+package com.cookingfox.android.app_lifecycle.impl.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link LruCache}.
+ */
+public class LruCacheTest {
+
+    private final List<String> evicted = new LinkedList<String>();
+
+    private LruCache<String, String> cache;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new LruCache<String, String>(3) {
+            @Override
+            protected void entryEvicted(String key, String value) {
+                evicted.add(key);
+            }
+        };
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_max_size_not_positive() throws Exception {
+        new LruCache<String, String>(0);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: get / put / remove
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void put_should_throw_if_value_null() throws Exception {
+        cache.put("a", null);
+    }
+
+    @Test
+    public void put_should_evict_least_recently_used() throws Exception {
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        cache.get("a");
+        cache.put("d", "D");
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals(1, cache.evictionCount());
+        assertEquals("[b]", evicted.toString());
+    }
+
+    @Test
+    public void put_should_replace_value_without_eviction() throws Exception {
+        cache.put("a", "A");
+
+        assertEquals("A", cache.put("a", "A2"));
+        assertEquals(1, cache.size());
+        assertEquals("A2", cache.get("a"));
+        assertEquals(0, evicted.size());
+    }
+
+    @Test
+    public void remove_should_update_size_without_eviction() throws Exception {
+        cache.put("a", "A");
+        cache.put("b", "B");
+
+        assertEquals("A", cache.remove("a"));
+        assertNull(cache.remove("a"));
+        assertEquals(1, cache.size());
+        assertEquals(0, evicted.size());
+    }
+
+    @Test
+    public void get_should_count_hits_and_misses() throws Exception {
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: sizeOf
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void sizeOf_should_determine_total_size() throws Exception {
+        final LruCache<String, String> sized = new LruCache<String, String>(10) {
+            @Override
+            protected int sizeOf(String key, String value) {
+                return value.length();
+            }
+        };
+
+        sized.put("a", "1234");
+        sized.put("b", "1234");
+        sized.put("c", "1234");
+
+        assertEquals(8, sized.size());
+        assertNull(sized.get("a"));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: trim
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void trim_should_retain_fraction_of_most_recently_used() throws Exception {
+        final LruCache<Integer, String> large = new LruCache<Integer, String>(100);
+
+        for (int i = 0; i < 100; i++) {
+            large.put(i, "value");
+        }
+
+        large.trim(0.25f);
+
+        assertEquals(25, large.size());
+        assertNull(large.get(74));
+        assertEquals("value", large.get(75));
+        assertEquals(75, large.evictionCount());
+    }
+
+    @Test
+    public void trim_zero_should_evict_all() throws Exception {
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.trim(0f);
+
+        assertEquals(0, cache.size());
+        assertEquals("[a, b]", evicted.toString());
+    }
+
+    @Test
+    public void trim_one_should_keep_all() throws Exception {
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.trim(1f);
+
+        assertEquals(2, cache.size());
+        assertEquals(0, evicted.size());
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.cookingfox.android.app_lifecycle.impl.executor;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link DaemonExecutors}.
+ */
+public class DaemonExecutorsTest {
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: newSingleThreadExecutor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void newSingleThreadExecutor_should_throw_if_thread_name_null() throws Exception {
+        DaemonExecutors.newSingleThreadExecutor(null);
+    }
+
+    @Test
+    public void newSingleThreadExecutor_should_run_tasks_on_named_daemon_thread() throws Exception {
+        final Executor executor = DaemonExecutors.newSingleThreadExecutor("Test");
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                thread.set(Thread.currentThread());
+                ran.countDown();
+            }
+        });
+
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        assertEquals("Test", thread.get().getName());
+        assertTrue(thread.get().isDaemon());
+    }
+
+}
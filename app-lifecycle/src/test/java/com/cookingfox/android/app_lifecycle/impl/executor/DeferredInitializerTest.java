@@ -0,0 +1,349 @@
+package com.cookingfox.android.app_lifecycle.impl.executor;
+
+import android.app.Activity;
+
+import com.cookingfox.android.app_lifecycle.api.metrics.OnDeferredTaskRun;
+import com.cookingfox.android.app_lifecycle.fixture.FakeIdleSource;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link DeferredInitializer}.
+ */
+public class DeferredInitializerTest {
+
+    private static final long BUDGET_MILLIS = 4;
+
+    private final Activity activity = new FirstActivity();
+    private final List<String> ran = new LinkedList<String>();
+    private final List<Runnable> queued = new LinkedList<Runnable>();
+    private final FakeIdleSource idleSource = new FakeIdleSource();
+
+    private long nowNanos;
+    private CrossActivityAppLifecycleManager manager;
+    private DeferredInitializer initializer;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new CrossActivityAppLifecycleManager();
+        initializer = new DeferredInitializer(idleSource, new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                queued.add(runnable);
+            }
+        }, BUDGET_MILLIS) {
+            @Override
+            protected long currentTimeNanos() {
+                return nowNanos;
+            }
+        };
+
+        manager.addListener(initializer);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_idle_source_null() throws Exception {
+        new DeferredInitializer(null, new DirectExecutor(), BUDGET_MILLIS);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_executor_null() throws Exception {
+        new DeferredInitializer(idleSource, null, BUDGET_MILLIS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_budget_negative() throws Exception {
+        new DeferredInitializer(idleSource, new DirectExecutor(), -1);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: submit
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void submit_should_throw_if_task_null() throws Exception {
+        initializer.submit(null);
+    }
+
+    @Test
+    public void submit_should_hold_tasks_until_first_resume() throws Exception {
+        initializer.submit(task("a", 1));
+        initializer.submitBackground(task("b", 1));
+
+        manager.onCreate(activity);
+        manager.onStart(activity);
+
+        assertFalse(initializer.isReleased());
+        assertEquals(2, initializer.getPendingTaskCount());
+        assertEquals(0, idleSource.size());
+        assertTrue(queued.isEmpty());
+
+        manager.onResume(activity);
+
+        assertTrue(initializer.isReleased());
+        assertEquals(1, idleSource.size());
+        assertEquals(1, queued.size());
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    public void submit_should_run_tasks_by_priority() throws Exception {
+        initializer.submit(task("default 1", 0));
+        initializer.submit(task("high", 0), 5);
+        initializer.submit(task("default 2", 0));
+        initializer.submit(task("low", 0), -1);
+
+        launch();
+        idleSource.idle();
+
+        assertEquals(Arrays.asList("high", "default 1", "default 2", "low"), ran);
+    }
+
+    @Test
+    public void submit_should_schedule_slot_after_first_resume() throws Exception {
+        launch();
+
+        assertEquals(0, idleSource.size());
+
+        initializer.submit(task("a", 1));
+        initializer.submit(task("b", 1));
+
+        assertEquals(1, idleSource.size());
+
+        idleSource.idle();
+
+        assertEquals(Arrays.asList("a", "b"), ran);
+    }
+
+    @Test
+    public void submitBackground_should_pass_tasks_by_priority_after_first_resume() throws Exception {
+        initializer.submitBackground(task("default", 0));
+        initializer.submitBackground(task("high", 0), 1);
+
+        launch();
+
+        for (Runnable runnable : queued) {
+            runnable.run();
+        }
+
+        assertEquals(Arrays.asList("high", "default"), ran);
+        assertEquals(0, idleSource.size());
+    }
+
+    @Test
+    public void submitBackground_should_pass_task_directly_after_first_resume() throws Exception {
+        launch();
+
+        initializer.submitBackground(task("a", 0));
+
+        assertEquals(1, queued.size());
+        assertEquals(0, initializer.getPendingTaskCount());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: idle slots
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void slot_should_run_tasks_within_budget() throws Exception {
+        initializer.submit(task("a", 3));
+        initializer.submit(task("b", 3));
+        initializer.submit(task("c", 3));
+
+        launch();
+        idleSource.idle();
+
+        // the budget is used after the second task
+        assertEquals(Arrays.asList("a", "b"), ran);
+        assertEquals(1, idleSource.size());
+
+        idleSource.idle();
+
+        assertEquals(Arrays.asList("a", "b", "c"), ran);
+        assertEquals(0, idleSource.size());
+    }
+
+    @Test
+    public void slot_should_run_at_least_one_task() throws Exception {
+        initializer.submit(task("a", 10));
+        initializer.submit(task("b", 10));
+
+        launch();
+        idleSource.idle();
+
+        assertEquals(Arrays.asList("a"), ran);
+
+        idleSource.idle();
+
+        assertEquals(Arrays.asList("a", "b"), ran);
+    }
+
+    @Test
+    public void slot_should_request_next_slot_if_task_throws() throws Exception {
+        initializer.submit(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("init failed");
+            }
+        });
+        initializer.submit(task("b", 1));
+
+        launch();
+
+        try {
+            idleSource.idle();
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(1, idleSource.size());
+
+        idleSource.idle();
+
+        assertEquals(Arrays.asList("b"), ran);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: task listener
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void taskListener_should_receive_execution_times() throws Exception {
+        final List<String> reported = new LinkedList<String>();
+
+        initializer.setTaskListener(new OnDeferredTaskRun() {
+            @Override
+            public void onDeferredTaskRun(Runnable task, boolean background, long durationNanos) {
+                reported.add(task + " " + background + " " +
+                        TimeUnit.NANOSECONDS.toMillis(durationNanos));
+            }
+        });
+
+        initializer.submit(task("a", 2));
+        initializer.submitBackground(task("b", 7));
+
+        launch();
+        idleSource.idle();
+        queued.remove(0).run();
+
+        assertEquals(Arrays.asList("a false 2", "b true 7"), reported);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: lifecycle
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void initializer_should_be_released_if_added_after_resume() throws Exception {
+        final DeferredInitializer late = new DeferredInitializer(idleSource, new DirectExecutor(),
+                BUDGET_MILLIS);
+        late.submit(task("a", 1));
+
+        launch();
+        manager.addListener(late);
+
+        assertTrue(late.isReleased());
+        assertEquals(1, idleSource.size());
+    }
+
+    @Test
+    public void initializer_should_release_once() throws Exception {
+        launch();
+        manager.onPause(activity);
+        manager.onResume(activity);
+
+        assertEquals(0, idleSource.size());
+    }
+
+    @Test
+    public void dispose_should_remove_tasks_and_cancel_slot() throws Exception {
+        initializer.submit(task("a", 1));
+        launch();
+
+        initializer.dispose();
+
+        assertEquals(0, initializer.getPendingTaskCount());
+        assertEquals(0, idleSource.size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: insert
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void insert_should_keep_submission_order_for_same_priority() throws Exception {
+        final List<DeferredInitializer.Entry> entries = new LinkedList<DeferredInitializer.Entry>();
+        final DeferredInitializer.Entry first = initializer.new Entry(task("1", 0), 1, false);
+        final DeferredInitializer.Entry second = initializer.new Entry(task("2", 0), 1, false);
+        final DeferredInitializer.Entry high = initializer.new Entry(task("3", 0), 2, false);
+
+        DeferredInitializer.insert(entries, first);
+        DeferredInitializer.insert(entries, second);
+        DeferredInitializer.insert(entries, high);
+
+        assertEquals(Arrays.asList(high, first, second), entries);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private void launch() {
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        manager.onResume(activity);
+    }
+
+    /**
+     * Creates a task that records its name and advances the time by its duration.
+     */
+    private Runnable task(final String name, final long durationMillis) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+                nowNanos += TimeUnit.MILLISECONDS.toNanos(durationMillis);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: DirectExecutor
+    //----------------------------------------------------------------------------------------------
+
+    static final class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    }
+
+}
@@ -0,0 +1,284 @@
+package com.cookingfox.android.app_lifecycle.impl.executor;
+
+import android.app.Activity;
+
+import com.cookingfox.android.app_lifecycle.api.executor.DeferrableTask;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link LifecycleAwareExecutor}.
+ */
+public class LifecycleAwareExecutorTest {
+
+    private static final int CORE_POOL_SIZE = 4;
+
+    private final Activity activity = new FirstActivity();
+    private final List<String> executed = new CopyOnWriteArrayList<String>();
+
+    private ThreadPoolExecutor pool;
+    private LifecycleAwareExecutor executor;
+    private CrossActivityAppLifecycleManager manager;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new ThreadPoolExecutor(CORE_POOL_SIZE, CORE_POOL_SIZE, 10, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor = new LifecycleAwareExecutor(pool, 1);
+        manager = new CrossActivityAppLifecycleManager();
+        manager.addListener(executor);
+
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        manager.onResume(activity);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.shutdownNow();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_pool_null() throws Exception {
+        new LifecycleAwareExecutor(null, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_background_core_size_negative() throws Exception {
+        new LifecycleAwareExecutor(pool, -1);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: core pool size
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void stop_should_shrink_and_start_should_restore_core_pool_size() throws Exception {
+        // start all core threads
+        awaitAll(CORE_POOL_SIZE);
+        assertEquals(CORE_POOL_SIZE, executor.getPoolSize());
+
+        moveToBackground();
+
+        assertTrue(executor.isInBackground());
+        assertEquals(1, pool.getCorePoolSize());
+        assertEquals(1, executor.getBackgroundCount());
+
+        // idle threads above the core size are terminated after the keep alive time
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        while (executor.getPoolSize() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, executor.getPoolSize());
+
+        moveToForeground();
+
+        assertFalse(executor.isInBackground());
+        assertEquals(CORE_POOL_SIZE, pool.getCorePoolSize());
+    }
+
+    @Test
+    public void stop_should_not_grow_smaller_pool() throws Exception {
+        final ThreadPoolExecutor smallPool = new ThreadPoolExecutor(1, 1, 10, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        manager = new CrossActivityAppLifecycleManager();
+        manager.addListener(new LifecycleAwareExecutor(smallPool, 2));
+        manager.onCreate(activity);
+        manager.onStart(activity);
+
+        moveToBackground();
+
+        assertEquals(1, smallPool.getCorePoolSize());
+
+        moveToForeground();
+
+        assertEquals(1, smallPool.getCorePoolSize());
+
+        smallPool.shutdownNow();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: deferrable tasks
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void deferrable_task_should_be_paused_in_background() throws Exception {
+        moveToBackground();
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new Deferrable("deferred", latch));
+
+        assertEquals(1, executor.getPausedTaskCount());
+        assertEquals(1, executor.getTotalPausedTaskCount());
+        assertFalse(latch.await(50, TimeUnit.MILLISECONDS));
+
+        moveToForeground();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getPausedTaskCount());
+        assertEquals(1, executor.getTotalPausedTaskCount());
+    }
+
+    @Test
+    public void other_task_should_be_executed_in_background() throws Exception {
+        moveToBackground();
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new Task("regular", latch));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getPausedTaskCount());
+    }
+
+    @Test
+    public void deferrable_task_should_be_executed_in_foreground() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new Deferrable("deferrable", latch));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getTotalPausedTaskCount());
+    }
+
+    @Test
+    public void stop_should_pause_queued_deferrable_tasks_in_order() throws Exception {
+        // occupy all threads, so the next tasks are queued
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch running = new CountDownLatch(CORE_POOL_SIZE);
+
+        for (int i = 0; i < CORE_POOL_SIZE; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    running.countDown();
+                    await(release);
+                }
+            });
+        }
+
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        final CountDownLatch done = new CountDownLatch(3);
+        executor.execute(new Deferrable("first", done));
+        executor.execute(new Task("regular", done));
+        executor.execute(new Deferrable("second", done));
+
+        assertEquals(3, executor.getQueuedTaskCount());
+
+        moveToBackground();
+
+        assertEquals(1, executor.getQueuedTaskCount());
+        assertEquals(2, executor.getPausedTaskCount());
+
+        release.countDown();
+        moveToForeground();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, executed.size());
+        assertTrue(executed.indexOf("first") < executed.indexOf("second"));
+    }
+
+    @Test
+    public void finish_should_keep_executor_registered() throws Exception {
+        moveToBackground();
+        manager.onFinish(activity);
+
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        moveToBackground();
+
+        assertEquals(2, executor.getBackgroundCount());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private void moveToBackground() {
+        manager.onPause(activity);
+        manager.onStop(activity);
+    }
+
+    private void moveToForeground() {
+        manager.onStart(activity);
+        manager.onResume(activity);
+    }
+
+    /**
+     * Executes tasks that wait for each other, so each runs on a separate thread.
+     */
+    private void awaitAll(int numTasks) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(numTasks);
+
+        for (int i = 0; i < numTasks; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                    await(latch);
+                }
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASSES
+    //----------------------------------------------------------------------------------------------
+
+    class Task implements Runnable {
+        final String name;
+        final CountDownLatch latch;
+
+        Task(String name, CountDownLatch latch) {
+            this.name = name;
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            executed.add(name);
+            latch.countDown();
+        }
+    }
+
+    class Deferrable extends Task implements DeferrableTask {
+        Deferrable(String name, CountDownLatch latch) {
+            super(name, latch);
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+package com.cookingfox.android.app_lifecycle.impl.fragment;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.app.FragmentManager;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppResumed;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link FragmentLifecycleTracker}.
+ */
+public class FragmentLifecycleTrackerTest {
+
+    private final List<String> events = new LinkedList<String>();
+    private final FragmentManager fragmentManager = mock(FragmentManager.class);
+    private final Fragment listFragment = new ListFragment();
+    private final Fragment detailFragment = new DetailFragment();
+
+    private FragmentLifecycleTracker tracker;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        tracker = new FragmentLifecycleTracker();
+        tracker.addListener(new RecordingListener(events));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_dispatcher_null() throws Exception {
+        new FragmentLifecycleTracker(null);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: register
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void register_should_register_recursive_callbacks() throws Exception {
+        final FragmentActivity activity = mockActivity();
+
+        tracker.register(activity);
+
+        verify(fragmentManager).registerFragmentLifecycleCallbacks(tracker, true);
+    }
+
+    @Test
+    public void unregister_should_unregister_callbacks() throws Exception {
+        final FragmentActivity activity = mockActivity();
+
+        tracker.unregister(activity);
+
+        verify(fragmentManager).unregisterFragmentLifecycleCallbacks(tracker);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void register_should_throw_if_activity_null() throws Exception {
+        tracker.register(null);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: listeners
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void addListener_should_return_tracker() throws Exception {
+        assertSame(tracker, tracker.addListener(new RecordingListener(events), 1));
+        assertSame(tracker, tracker.addWeakListener(new RecordingListener(events)));
+    }
+
+    @Test
+    public void removeListener_should_remove_listener() throws Exception {
+        final RecordingListener listener = new RecordingListener(events);
+        tracker.dispose();
+        tracker.addListener(listener);
+
+        tracker.removeListener(listener);
+        tracker.onFragmentResumed(fragmentManager, listFragment);
+
+        assertTrue(events.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: fragment events
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void fragment_events_should_be_dispatched_with_fragment_origin() throws Exception {
+        tracker.onFragmentCreated(fragmentManager, listFragment, null);
+        tracker.onFragmentStarted(fragmentManager, listFragment);
+        tracker.onFragmentResumed(fragmentManager, listFragment);
+        tracker.onFragmentPaused(fragmentManager, listFragment);
+        tracker.onFragmentStopped(fragmentManager, listFragment);
+        tracker.onFragmentDestroyed(fragmentManager, listFragment);
+
+        assertEquals(Arrays.asList("CREATE ListFragment", "START ListFragment",
+                "RESUME ListFragment", "PAUSE ListFragment", "STOP ListFragment",
+                "FINISH ListFragment"), events);
+    }
+
+    @Test
+    public void fragment_events_should_be_dispatched_per_fragment() throws Exception {
+        tracker.onFragmentResumed(fragmentManager, listFragment);
+        tracker.onFragmentResumed(fragmentManager, detailFragment);
+        tracker.onFragmentPaused(fragmentManager, listFragment);
+
+        assertEquals(Arrays.asList("RESUME ListFragment", "RESUME DetailFragment",
+                "PAUSE ListFragment"), events);
+    }
+
+    @Test
+    public void fragment_events_should_not_be_dispatched_if_not_tracked() throws Exception {
+        final FragmentLifecycleTracker filtering = new FragmentLifecycleTracker() {
+            @Override
+            protected boolean isTracked(Fragment fragment) {
+                return fragment instanceof DetailFragment;
+            }
+        };
+
+        filtering.addListener(new OnAppResumed() {
+            @Override
+            public void onAppResumed(Class<?> origin) {
+                events.add("filtered " + origin.getSimpleName());
+            }
+        });
+
+        filtering.onFragmentResumed(fragmentManager, listFragment);
+        filtering.onFragmentResumed(fragmentManager, detailFragment);
+
+        assertEquals(Arrays.asList("filtered DetailFragment"), events);
+    }
+
+    @Test
+    public void finish_should_not_remove_listeners() throws Exception {
+        tracker.onFragmentDestroyed(fragmentManager, listFragment);
+        tracker.onFragmentResumed(fragmentManager, detailFragment);
+
+        assertEquals(Arrays.asList("FINISH ListFragment", "RESUME DetailFragment"), events);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: configuration changes
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void configuration_change_should_not_finish_or_create_fragment() throws Exception {
+        final RotatingTracker rotating = new RotatingTracker();
+        rotating.addListener(new RecordingListener(events));
+
+        rotating.onFragmentCreated(fragmentManager, listFragment, null);
+        rotating.changingConfigurations = true;
+        rotating.onFragmentDestroyed(fragmentManager, listFragment);
+        rotating.changingConfigurations = false;
+        rotating.onFragmentCreated(fragmentManager, new ListFragment(), new Bundle());
+        rotating.onFragmentDestroyed(fragmentManager, listFragment);
+
+        assertEquals(Arrays.asList("CREATE ListFragment", "FINISH ListFragment"), events);
+        assertTrue(rotating.recreatedFragments.isEmpty());
+    }
+
+    @Test
+    public void restored_fragment_should_be_created_without_configuration_change() throws Exception {
+        tracker.onFragmentCreated(fragmentManager, listFragment, new Bundle());
+
+        assertEquals(Arrays.asList("CREATE ListFragment"), events);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private FragmentActivity mockActivity() {
+        final FragmentActivity activity = mock(FragmentActivity.class);
+        when(activity.getSupportFragmentManager()).thenReturn(fragmentManager);
+
+        return activity;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: RotatingTracker
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Simulates the configuration change of the fragments' activity.
+     */
+    static class RotatingTracker extends FragmentLifecycleTracker {
+        boolean changingConfigurations;
+
+        @Override
+        protected boolean isChangingConfigurations(Fragment fragment) {
+            return changingConfigurations;
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: RecordingListener
+    //----------------------------------------------------------------------------------------------
+
+    static class RecordingListener implements AppLifecycleListener {
+        final List<String> events;
+
+        RecordingListener(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onAppCreated(Class<?> origin) {
+            events.add("CREATE " + origin.getSimpleName());
+        }
+
+        @Override
+        public void onAppStarted(Class<?> origin) {
+            events.add("START " + origin.getSimpleName());
+        }
+
+        @Override
+        public void onAppResumed(Class<?> origin) {
+            events.add("RESUME " + origin.getSimpleName());
+        }
+
+        @Override
+        public void onAppPaused(Class<?> origin) {
+            events.add("PAUSE " + origin.getSimpleName());
+        }
+
+        @Override
+        public void onAppStopped(Class<?> origin) {
+            events.add("STOP " + origin.getSimpleName());
+        }
+
+        @Override
+        public void onAppFinished(Class<?> origin) {
+            events.add("FINISH " + origin.getSimpleName());
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: fragments
+    //----------------------------------------------------------------------------------------------
+
+    public static class ListFragment extends Fragment {
+    }
+
+    public static class DetailFragment extends Fragment {
+    }
+
+}
@@ -0,0 +1,375 @@
+package com.cookingfox.android.app_lifecycle.impl.history;
+
+import android.app.Activity;
+
+import com.cookingfox.android.app_lifecycle.api.history.LifecycleTransition;
+import com.cookingfox.android.app_lifecycle.api.history.PreviousExit;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.fixture.AllocationCounter;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.fixture.SecondActivity;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link LifecycleHistory}.
+ */
+public class LifecycleHistoryTest {
+
+    private static final String FIRST = stored(FirstActivity.class);
+    private static final String SECOND = stored(SecondActivity.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Activity firstActivity = new FirstActivity();
+    private final Activity secondActivity = new SecondActivity();
+
+    private File file;
+    private CrossActivityAppLifecycleManager manager;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "lifecycle");
+        manager = new CrossActivityAppLifecycleManager();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_file_null() throws Exception {
+        new LifecycleHistory(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_capacity_not_positive() throws Exception {
+        new LifecycleHistory(file, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_capacity_too_large() throws Exception {
+        new LifecycleHistory(file, LifecycleHistory.MAX_CAPACITY + 1);
+    }
+
+    @Test
+    public void constructor_should_create_file_with_fixed_size() throws Exception {
+        new LifecycleHistory(file);
+
+        assertEquals(4096, file.length());
+    }
+
+    @Test
+    public void constructor_should_not_have_previous_run_for_new_file() throws Exception {
+        final LifecycleHistory history = new LifecycleHistory(file);
+
+        assertEquals(PreviousExit.NONE, history.getPreviousExit());
+        assertTrue(history.getPreviousTransitions().isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: previous run
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void previous_run_should_have_recorded_transitions() throws Exception {
+        final FakeTimeHistory history = new FakeTimeHistory(file, 8);
+        manager.addListener(history);
+
+        history.now = 1000;
+        manager.onCreate(firstActivity);
+        history.now = 1001;
+        manager.onStart(firstActivity);
+        history.now = 1002;
+        manager.onResume(firstActivity);
+
+        assertEquals(3, history.getRecordedCount());
+
+        final LifecycleHistory next = new LifecycleHistory(file, 8);
+
+        assertEquals(Arrays.asList(
+                new LifecycleTransition(AppLifecycleEvent.CREATE, FIRST, 1000),
+                new LifecycleTransition(AppLifecycleEvent.START, FIRST, 1001),
+                new LifecycleTransition(AppLifecycleEvent.RESUME, FIRST, 1002)
+        ), next.getPreviousTransitions());
+        assertEquals(0, next.getRecordedCount());
+    }
+
+    @Test
+    public void previous_exit_should_be_finished_if_app_finished() throws Exception {
+        manager.addListener(new LifecycleHistory(file));
+
+        launch(firstActivity);
+        manager.onPause(firstActivity);
+        manager.onStop(firstActivity);
+        manager.onFinish(firstActivity);
+
+        assertEquals(PreviousExit.FINISHED, new LifecycleHistory(file).getPreviousExit());
+    }
+
+    @Test
+    public void previous_exit_should_be_killed_in_background_if_app_stopped() throws Exception {
+        manager.addListener(new LifecycleHistory(file));
+
+        launch(firstActivity);
+        manager.onPause(firstActivity);
+        manager.onStop(firstActivity);
+
+        assertEquals(PreviousExit.KILLED_IN_BACKGROUND, new LifecycleHistory(file).getPreviousExit());
+    }
+
+    @Test
+    public void previous_exit_should_be_died_in_foreground_if_app_resumed() throws Exception {
+        manager.addListener(new LifecycleHistory(file));
+
+        launch(firstActivity);
+
+        assertEquals(PreviousExit.DIED_IN_FOREGROUND, new LifecycleHistory(file).getPreviousExit());
+    }
+
+    @Test
+    public void previous_exit_should_be_died_in_foreground_if_app_paused() throws Exception {
+        manager.addListener(new LifecycleHistory(file));
+
+        launch(firstActivity);
+        manager.onPause(firstActivity);
+
+        assertEquals(PreviousExit.DIED_IN_FOREGROUND, new LifecycleHistory(file).getPreviousExit());
+    }
+
+    @Test
+    public void previous_exit_should_be_none_if_previous_run_recorded_nothing() throws Exception {
+        manager.addListener(new LifecycleHistory(file));
+        launch(firstActivity);
+
+        // a run without activities, e.g. a background service
+        new LifecycleHistory(file);
+
+        assertEquals(PreviousExit.NONE, new LifecycleHistory(file).getPreviousExit());
+    }
+
+    @Test
+    public void previous_run_should_keep_last_transitions_when_full() throws Exception {
+        final FakeTimeHistory history = new FakeTimeHistory(file, 2);
+        manager.addListener(history);
+
+        history.now = 1;
+        manager.onCreate(firstActivity);
+        history.now = 2;
+        manager.onStart(firstActivity);
+        history.now = 3;
+        manager.onResume(firstActivity);
+        history.now = 4;
+        manager.onPause(firstActivity);
+        history.now = 5;
+        manager.onStop(firstActivity);
+
+        final LifecycleHistory next = new LifecycleHistory(file, 2);
+
+        assertEquals(Arrays.asList(
+                new LifecycleTransition(AppLifecycleEvent.PAUSE, FIRST, 4),
+                new LifecycleTransition(AppLifecycleEvent.STOP, FIRST, 5)
+        ), next.getPreviousTransitions());
+        assertEquals(PreviousExit.KILLED_IN_BACKGROUND, next.getPreviousExit());
+        assertEquals(5, history.getRecordedCount());
+    }
+
+    @Test
+    public void previous_run_should_ignore_interrupted_write_when_full() throws Exception {
+        final FakeTimeHistory history = new FakeTimeHistory(file, 2);
+        manager.addListener(history);
+
+        history.now = 1;
+        launch(firstActivity);
+        history.now = 2;
+        manager.onPause(firstActivity);
+
+        // the process dies while the next transition is written: only the spare entry is damaged
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(LifecycleHistory.entryPosition(history.getRecordedCount(), 2) +
+                LifecycleHistory.EVENT_OFFSET);
+        randomAccessFile.write(100);
+        randomAccessFile.close();
+
+        final LifecycleHistory next = new LifecycleHistory(file, 2);
+
+        assertEquals(Arrays.asList(
+                new LifecycleTransition(AppLifecycleEvent.RESUME, FIRST, 1),
+                new LifecycleTransition(AppLifecycleEvent.PAUSE, FIRST, 2)
+        ), next.getPreviousTransitions());
+        assertEquals(PreviousExit.DIED_IN_FOREGROUND, next.getPreviousExit());
+    }
+
+    @Test
+    public void previous_run_should_be_read_with_other_capacity() throws Exception {
+        manager.addListener(new LifecycleHistory(file, 4));
+
+        launch(firstActivity);
+
+        final LifecycleHistory next = new LifecycleHistory(file, 16);
+
+        assertEquals(3, next.getPreviousTransitions().size());
+        assertEquals(PreviousExit.DIED_IN_FOREGROUND, next.getPreviousExit());
+        assertEquals(LifecycleHistory.fileSize(16), file.length());
+    }
+
+    @Test
+    public void previous_run_should_record_origin_of_each_transition() throws Exception {
+        manager.addListener(new LifecycleHistory(file));
+
+        launch(firstActivity);
+        manager.onPause(firstActivity);
+        manager.onCreate(secondActivity);
+        manager.onStart(secondActivity);
+        manager.onResume(secondActivity);
+
+        final List<LifecycleTransition> transitions =
+                new LifecycleHistory(file).getPreviousTransitions();
+
+        assertEquals(FIRST, transitions.get(3).getOriginName());
+        assertEquals(SECOND, transitions.get(4).getOriginName());
+    }
+
+    @Test
+    public void previous_run_should_truncate_long_origin_at_start() throws Exception {
+        final LifecycleHistory history = new LifecycleHistory(file);
+        history.onAppCreated(AVeryLongActivityNameThatDoesNotFitInTheHistoryEntryAtAll.class);
+
+        final String name = AVeryLongActivityNameThatDoesNotFitInTheHistoryEntryAtAll.class.getName();
+        final String origin = new LifecycleHistory(file).getPreviousTransitions().get(0).getOriginName();
+
+        assertEquals(LifecycleHistory.MAX_ORIGIN_LENGTH, origin.length());
+        assertTrue(name.endsWith(origin));
+    }
+
+    @Test
+    public void previous_run_should_be_ignored_if_file_unknown() throws Exception {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.write(new byte[4096]);
+        randomAccessFile.close();
+
+        final LifecycleHistory history = new LifecycleHistory(file);
+
+        assertEquals(PreviousExit.NONE, history.getPreviousExit());
+        assertEquals(4096, file.length());
+    }
+
+    @Test
+    public void previous_run_should_be_ignored_if_entry_corrupt() throws Exception {
+        manager.addListener(new LifecycleHistory(file));
+        launch(firstActivity);
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(LifecycleHistory.HEADER_SIZE + LifecycleHistory.EVENT_OFFSET);
+        randomAccessFile.write(100);
+        randomAccessFile.close();
+
+        assertEquals(PreviousExit.NONE, new LifecycleHistory(file).getPreviousExit());
+    }
+
+    @Test
+    public void previous_run_should_be_ignored_if_truncated() throws Exception {
+        manager.addListener(new LifecycleHistory(file));
+        launch(firstActivity);
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(100);
+        randomAccessFile.close();
+
+        assertEquals(PreviousExit.NONE, new LifecycleHistory(file).getPreviousExit());
+    }
+
+    @Test
+    public void history_should_be_persistent_listener() throws Exception {
+        final LifecycleHistory history = new LifecycleHistory(file);
+        manager.addListener(history);
+
+        manager.removeListener(history);
+        launch(firstActivity);
+
+        assertEquals(3, new LifecycleHistory(file).getPreviousTransitions().size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: allocation
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void record_should_not_allocate() throws Exception {
+        final LifecycleHistory history = new LifecycleHistory(file);
+
+        final long allocated = AllocationCounter.countAllocatedBytes(1000, new Runnable() {
+            @Override
+            public void run() {
+                history.onAppStarted(FirstActivity.class);
+                history.onAppStopped(FirstActivity.class);
+            }
+        });
+
+        assertEquals(0, allocated);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private void launch(Activity activity) {
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        manager.onResume(activity);
+    }
+
+    /**
+     * Returns the end of the class name that fits in a history entry.
+     */
+    private static String stored(Class<?> origin) {
+        final String name = origin.getName();
+
+        return name.substring(Math.max(0, name.length() - LifecycleHistory.MAX_ORIGIN_LENGTH));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: FakeTimeHistory
+    //----------------------------------------------------------------------------------------------
+
+    static class FakeTimeHistory extends LifecycleHistory {
+
+        long now;
+
+        FakeTimeHistory(File file, int capacity) throws IOException {
+            super(file, capacity);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: AVeryLongActivityNameThatDoesNotFitInTheHistoryEntryAtAll
+    //----------------------------------------------------------------------------------------------
+
+    static class AVeryLongActivityNameThatDoesNotFitInTheHistoryEntryAtAll extends Activity {
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import android.app.Activity;
+
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.fixture.SecondActivity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Unit tests for {@link ActivityInstances}.
+ */
+public class ActivityInstancesTest {
+
+    private ActivityInstances instances;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        instances = new ActivityInstances();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: add
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void add_should_use_identity() throws Exception {
+        final FirstActivity activity = new FirstActivity();
+
+        assertTrue(instances.add(activity));
+        assertFalse(instances.add(activity));
+        assertTrue(instances.add(new FirstActivity()));
+        assertEquals(2, instances.size());
+    }
+
+    @Test
+    public void add_should_support_many_instances() throws Exception {
+        final Activity[] activities = new Activity[100];
+
+        for (int i = 0; i < activities.length; i++) {
+            activities[i] = i % 2 == 0 ? new FirstActivity() : new SecondActivity();
+            instances.markStarted(activities[i]);
+        }
+
+        assertEquals(100, instances.size());
+        assertEquals(100, instances.getStartedCount());
+
+        for (Activity activity : activities) {
+            assertTrue(instances.isStarted(activity));
+            assertTrue(instances.remove(activity));
+        }
+
+        assertEquals(0, instances.size());
+        assertEquals(0, instances.getStartedCount());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: started / resumed
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void markStarted_should_count_each_instance_once() throws Exception {
+        final FirstActivity first = new FirstActivity();
+        final FirstActivity second = new FirstActivity();
+
+        assertTrue(instances.markStarted(first));
+        assertFalse(instances.markStarted(first));
+        assertTrue(instances.markStarted(second));
+        assertEquals(2, instances.getStartedCount());
+
+        assertTrue(instances.markStopped(first));
+        assertFalse(instances.markStopped(first));
+        assertEquals(1, instances.getStartedCount());
+    }
+
+    @Test
+    public void markResumed_should_count_each_instance_once() throws Exception {
+        final FirstActivity activity = new FirstActivity();
+
+        assertTrue(instances.markResumed(activity));
+        assertFalse(instances.markResumed(activity));
+        assertEquals(1, instances.getResumedCount());
+
+        assertTrue(instances.markPaused(activity));
+        assertFalse(instances.markPaused(activity));
+        assertEquals(0, instances.getResumedCount());
+    }
+
+    @Test
+    public void markStopped_should_ignore_unknown_instance() throws Exception {
+        assertFalse(instances.markStopped(new FirstActivity()));
+        assertFalse(instances.markPaused(new FirstActivity()));
+        assertEquals(0, instances.size());
+    }
+
+    @Test
+    public void isLastStopped_should_be_instance_that_stopped_last() throws Exception {
+        final FirstActivity first = new FirstActivity();
+        final SecondActivity second = new SecondActivity();
+
+        instances.markStarted(first);
+        instances.markStarted(second);
+        instances.markStopped(first);
+
+        assertFalse(instances.isLastStopped(first));
+
+        instances.markStopped(second);
+
+        assertTrue(instances.isLastStopped(second));
+
+        instances.markStarted(first);
+
+        assertFalse(instances.isLastStopped(second));
+    }
+
+    @Test
+    public void remove_should_no_longer_count_instance() throws Exception {
+        final FirstActivity activity = new FirstActivity();
+
+        instances.markStarted(activity);
+        instances.markResumed(activity);
+        instances.remove(activity);
+
+        assertEquals(0, instances.getStartedCount());
+        assertEquals(0, instances.getResumedCount());
+        assertFalse(instances.contains(activity));
+        assertFalse(instances.remove(activity));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: weak references
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void instances_should_not_be_leaked() throws Exception {
+        Activity activity = new FirstActivity();
+        final WeakReference<Activity> reference = new WeakReference<Activity>(activity);
+
+        instances.markStarted(activity);
+        instances.markResumed(activity);
+        instances.markPaused(activity);
+        instances.markStopped(activity);
+
+        assertTrue(instances.isLastStopped(activity));
+
+        //noinspection UnusedAssignment
+        activity = null;
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assumeTrue(reference.get() == null);
+
+        // the reference queue is processed asynchronously by the garbage collector
+        for (int i = 0; i < 50 && instances.size() > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, instances.size());
+    }
+
+    @Test
+    public void collected_instance_should_no_longer_be_counted() throws Exception {
+        final FirstActivity kept = new FirstActivity();
+        Activity collected = new FirstActivity();
+        final WeakReference<Activity> reference = new WeakReference<Activity>(collected);
+
+        instances.markStarted(kept);
+        instances.markStarted(collected);
+
+        //noinspection UnusedAssignment
+        collected = null;
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assumeTrue(reference.get() == null);
+
+        for (int i = 0; i < 50 && instances.getStartedCount() > 1; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, instances.getStartedCount());
+        assertTrue(instances.isStarted(kept));
+    }
+
+}
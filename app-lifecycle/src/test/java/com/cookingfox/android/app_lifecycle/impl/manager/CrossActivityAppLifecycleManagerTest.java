@@ -5,26 +5,53 @@ import android.app.Activity;
 import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
 import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListenable;
 import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.api.listener.AsyncAppLifecycleEventListener;
 import com.cookingfox.android.app_lifecycle.api.listener.OnAppCreated;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppLowMemory;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppPaused;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStarted;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppTrimMemory;
+import com.cookingfox.android.app_lifecycle.api.listener.PersistentAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.StickyAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+import com.cookingfox.android.app_lifecycle.api.memory.MemoryPressure;
+import com.cookingfox.android.app_lifecycle.api.metrics.OnSlowListener;
+import com.cookingfox.android.app_lifecycle.fixture.AllocationCounter;
+import com.cookingfox.android.app_lifecycle.fixture.FakeScheduler;
 import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
 import com.cookingfox.android.app_lifecycle.fixture.SecondActivity;
 import com.cookingfox.android.app_lifecycle.impl.listener.DefaultAppLifecycleListener;
 import com.cookingfox.android.app_lifecycle.impl.listener.PersistentAppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.impl.metrics.ListenerMetrics;
+import com.cookingfox.android.app_lifecycle.impl.metrics.ListenerTimings;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Unit tests for {@link CrossActivityAppLifecycleManager}.
@@ -129,6 +156,28 @@ public class CrossActivityAppLifecycleManagerTest {
         appLifecycleManager.onCreate(new FirstActivity());
     }
 
+    @Test
+    public void addListener_should_only_dispatch_to_subscribed_events() throws Exception {
+        final OnAppPaused listener = new OnAppPaused() {
+            @Override
+            public void onAppPaused(Class<?> origin) {
+                // no-op
+            }
+        };
+
+        appLifecycleManager.addListener(listener);
+
+        for (AppLifecycleEvent event : AppLifecycleEvent.values()) {
+            final AppLifecycleEventListener[] subscribed = appLifecycleManager.listeners.get(event);
+
+            if (event == AppLifecycleEvent.PAUSE) {
+                assertArrayEquals(new AppLifecycleEventListener[]{listener}, subscribed);
+            } else {
+                assertEquals(0, subscribed.length);
+            }
+        }
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: removeListener
     //----------------------------------------------------------------------------------------------
@@ -461,80 +510,292 @@ public class CrossActivityAppLifecycleManagerTest {
         assertNull(appLifecycleManager.lastEvent);
     }
 
+    @Test
+    public void onFinish_should_only_keep_persistent_listeners() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final PersistentAppLifecycleListener persistent = new PersistentAppLifecycleListener();
+
+        appLifecycleManager.addListener(new DefaultAppLifecycleListener());
+        appLifecycleManager.addListener(persistent);
+        appLifecycleManager.addListener(new DefaultAppLifecycleListener());
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.onStop(targetOrigin);
+        appLifecycleManager.onFinish(targetOrigin);
+
+        assertEquals(1, appLifecycleManager.listeners.size());
+        assertTrue(appLifecycleManager.listeners.contains(persistent));
+        assertArrayEquals(new AppLifecycleEventListener[]{persistent},
+                appLifecycleManager.listeners.get(AppLifecycleEvent.CREATE));
+    }
+
     //----------------------------------------------------------------------------------------------
-    // FUNCTIONAL TESTS
+    // TESTS: notifyListeners
     //----------------------------------------------------------------------------------------------
 
     @Test
-    public void functional_navigating_between_activities() throws Exception {
-        final List<TestOriginEvent> actualEvents = createTestListener();
+    public void notifyListeners_should_not_allocate() throws Exception {
+        final AtomicInteger counter = new AtomicInteger(0);
+        final Activity targetOrigin = new FirstActivity();
 
-        final FirstActivity firstActivity = new FirstActivity();
-        final SecondActivity secondActivity = new SecondActivity();
+        for (int i = 0; i < 10; i++) {
+            appLifecycleManager.addListener(new DefaultAppLifecycleListener() {
+                @Override
+                public void onAppResumed(Class<?> origin) {
+                    counter.incrementAndGet();
+                }
 
-        // launch: start first activity
-        appLifecycleManager.onCreate(firstActivity); // NOTIFY: create
-        appLifecycleManager.onStart(firstActivity); // NOTIFY: start
-        appLifecycleManager.onResume(firstActivity); // NOTIFY: resume
+                @Override
+                public void onAppPaused(Class<?> origin) {
+                    counter.incrementAndGet();
+                }
+            });
+        }
 
-        // start second activity
-        appLifecycleManager.onPause(firstActivity); // NOTIFY: pause
-        appLifecycleManager.onCreate(secondActivity);
-        appLifecycleManager.onStart(secondActivity);
-        appLifecycleManager.onResume(secondActivity); // NOTIFY: resume
-        appLifecycleManager.onStop(firstActivity);
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
 
-        // go back to first activity
-        appLifecycleManager.onPause(secondActivity); // NOTIFY: pause
-        appLifecycleManager.onCreate(firstActivity);
-        appLifecycleManager.onStart(firstActivity);
-        appLifecycleManager.onResume(firstActivity); // NOTIFY: resume
-        appLifecycleManager.onStop(secondActivity);
-        appLifecycleManager.onFinish(secondActivity);
+        final long allocated = AllocationCounter.countAllocatedBytes(1000, new Runnable() {
+            @Override
+            public void run() {
+                appLifecycleManager.onPause(targetOrigin);
+                appLifecycleManager.onResume(targetOrigin);
+            }
+        });
 
-        // go back to home screen (exit)
-        appLifecycleManager.onPause(firstActivity); // NOTIFY: pause
-        appLifecycleManager.onStop(firstActivity); // NOTIFY: stop
-        appLifecycleManager.onFinish(firstActivity); // NOTIFY: finish
+        assertEquals(0, allocated);
+        assertTrue(counter.get() >= 2 * 1000 * 10);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: async listeners
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_async_executor_null() throws Exception {
+        new CrossActivityAppLifecycleManager(null);
+    }
+
+    @Test
+    public void async_listener_should_be_called_on_executor_in_order() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final Activity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> asyncEvents = new LinkedList<TestOriginEvent>();
+        final List<TestOriginEvent> inlineEvents = createTestListener();
+
+        appLifecycleManager = new CrossActivityAppLifecycleManager(executor);
+        appLifecycleManager.addListener(new TestAsyncListener(asyncEvents));
+        appLifecycleManager.addListener(new TestEventListener(inlineEvents));
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.onStop(targetOrigin);
+
+        // inline listener is called immediately, async listener is not called yet
+        assertEquals(5, inlineEvents.size());
+        assertTrue(asyncEvents.isEmpty());
+
+        // the drain task is only scheduled once
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+
+        assertEquals(inlineEvents, asyncEvents);
+    }
+
+    @Test
+    public void async_listener_should_schedule_again_after_drained() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final Activity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> asyncEvents = new LinkedList<TestOriginEvent>();
+
+        appLifecycleManager = new CrossActivityAppLifecycleManager(executor);
+        appLifecycleManager.addListener(new TestAsyncListener(asyncEvents));
+
+        appLifecycleManager.onCreate(targetOrigin);
+        executor.runAll();
+
+        appLifecycleManager.onStart(targetOrigin);
+
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+
+        assertEquals(2, asyncEvents.size());
+        assertEquals(AppLifecycleEvent.START, asyncEvents.get(1).event);
+    }
+
+    @Test
+    public void async_listener_should_be_removable() throws Exception {
+        final TestAsyncListener listener = new TestAsyncListener(new LinkedList<TestOriginEvent>());
+        final QueueExecutor executor = new QueueExecutor();
+
+        appLifecycleManager = new CrossActivityAppLifecycleManager(executor);
+        appLifecycleManager.addListener(listener);
+        appLifecycleManager.removeListener(listener);
+
+        appLifecycleManager.onCreate(new FirstActivity());
+
+        assertFalse(appLifecycleManager.listeners.contains(listener));
+        assertTrue(executor.tasks.isEmpty());
+    }
+
+    @Test
+    public void async_listener_should_receive_remaining_events_after_error() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final List<TestOriginEvent> asyncEvents = new LinkedList<TestOriginEvent>();
+        final AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(
+                new TestEventListener(asyncEvents) {
+                    @Override
+                    public void onAppCreated(Class<?> origin) {
+                        throw new AssertionError("Listener failed");
+                    }
+                }, executor);
+
+        dispatcher.onAppCreated(FirstActivity.class);
+        dispatcher.onAppStarted(FirstActivity.class);
+
+        try {
+            executor.runAll();
+            fail("Expected error");
+        } catch (AssertionError e) {
+            // expected
+        }
+
+        // the drain task was scheduled again for the remaining event
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        dispatcher.onAppResumed(FirstActivity.class);
+        executor.runAll();
+
+        assertEquals(2, asyncEvents.size());
+        assertEquals(AppLifecycleEvent.START, asyncEvents.get(0).event);
+        assertEquals(AppLifecycleEvent.RESUME, asyncEvents.get(1).event);
+    }
+
+    @Test
+    public void async_listener_should_drop_events_rejected_by_executor() throws Exception {
+        final AtomicBoolean rejecting = new AtomicBoolean(true);
+        final QueueExecutor queue = new QueueExecutor();
+        final List<TestOriginEvent> inlineEvents = createTestListener();
+        final List<TestOriginEvent> asyncEvents = new LinkedList<TestOriginEvent>();
+        final Activity targetOrigin = new FirstActivity();
+
+        appLifecycleManager = new CrossActivityAppLifecycleManager(new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                if (rejecting.get()) {
+                    throw new RejectedExecutionException("Executor is shut down");
+                }
+
+                queue.execute(task);
+            }
+        });
+        appLifecycleManager.addListener(new TestAsyncListener(asyncEvents));
+        appLifecycleManager.addListener(new TestEventListener(inlineEvents));
+
+        // the rejection does not propagate, and the other listeners are still notified
+        appLifecycleManager.onCreate(targetOrigin);
+
+        assertEquals(1, inlineEvents.size());
+
+        rejecting.set(false);
+        appLifecycleManager.onStart(targetOrigin);
+        queue.runAll();
+
+        assertEquals(1, asyncEvents.size());
+        assertEquals(AppLifecycleEvent.START, asyncEvents.get(0).event);
+    }
+
+    @Test
+    public void async_dispatcher_should_count_dropped_events() throws Exception {
+        final AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(
+                new TestAsyncListener(new LinkedList<TestOriginEvent>()), new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+        });
+
+        dispatcher.onAppCreated(FirstActivity.class);
+        dispatcher.onAppStarted(FirstActivity.class);
+
+        assertEquals(2, dispatcher.getDroppedEventCount());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: activity instances
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void instances_of_same_class_should_be_tracked_separately() throws Exception {
+        final List<TestOriginEvent> actualEvents = createTestListener();
+        final FirstActivity bottom = new FirstActivity();
+        final FirstActivity top = new FirstActivity();
+
+        launch(bottom);
+
+        // open a second instance of the same activity
+        appLifecycleManager.onPause(bottom);
+        appLifecycleManager.onCreate(top);
+        appLifecycleManager.onStart(top);
+        appLifecycleManager.onResume(top);
+        appLifecycleManager.onStop(bottom);
+
+        // go back to the first instance
+        appLifecycleManager.onPause(top);
+        appLifecycleManager.onStart(bottom);
+        appLifecycleManager.onResume(bottom);
+        appLifecycleManager.onStop(top);
+        appLifecycleManager.onFinish(top);
 
         final List<TestOriginEvent> expectedEvents = new LinkedList<TestOriginEvent>();
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.CREATE));
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.START));
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME));
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE));
-        expectedEvents.add(new TestOriginEvent(SecondActivity.class, AppLifecycleEvent.RESUME));
-        expectedEvents.add(new TestOriginEvent(SecondActivity.class, AppLifecycleEvent.PAUSE));
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME));
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE));
-        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.STOP));
-        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.FINISH));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME));
 
         assertEquals(expectedEvents, actualEvents);
+        assertEquals(1, appLifecycleManager.instances.getStartedCount());
     }
 
     @Test
-    public void functional_bringing_app_to_background_and_foreground() throws Exception {
+    public void instances_should_support_multiple_resumed_activities() throws Exception {
         final List<TestOriginEvent> actualEvents = createTestListener();
-
         final FirstActivity firstActivity = new FirstActivity();
+        final SecondActivity secondActivity = new SecondActivity();
 
-        // launch: start first activity
-        appLifecycleManager.onCreate(firstActivity);
-        appLifecycleManager.onStart(firstActivity);
+        // multi-window: both activities are resumed, one is paused and resumed again
+        launch(firstActivity);
+        launch(secondActivity);
+        appLifecycleManager.onPause(firstActivity);
         appLifecycleManager.onResume(firstActivity);
 
-        // go back to home screen (to background)
-        appLifecycleManager.onPause(firstActivity);
-        appLifecycleManager.onStop(firstActivity);
+        assertEquals(3, actualEvents.size());
+        assertEquals(2, appLifecycleManager.instances.getResumedCount());
+    }
 
-        // go back to app (to foreground)
-        appLifecycleManager.onStart(firstActivity);
-        appLifecycleManager.onResume(firstActivity);
+    @Test
+    public void instances_should_support_out_of_order_events() throws Exception {
+        final List<TestOriginEvent> actualEvents = createTestListener();
+        final FirstActivity targetOrigin = new FirstActivity();
 
-        // go back to home screen (exit)
-        appLifecycleManager.onPause(firstActivity);
-        appLifecycleManager.onStop(firstActivity);
-        appLifecycleManager.onFinish(firstActivity);
+        // resume without start, stop without pause, finish without stop
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.onStop(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onFinish(targetOrigin);
 
         final List<TestOriginEvent> expectedEvents = new LinkedList<TestOriginEvent>();
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.CREATE));
@@ -543,87 +804,1876 @@ public class CrossActivityAppLifecycleManagerTest {
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE));
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.STOP));
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.START));
-        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME));
-        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE));
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.STOP));
         expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.FINISH));
 
         assertEquals(expectedEvents, actualEvents);
+        assertEquals(0, appLifecycleManager.instances.size());
     }
 
-    //----------------------------------------------------------------------------------------------
-    // HELPER METHODS
-    //----------------------------------------------------------------------------------------------
-
-    private List<TestOriginEvent> createTestListener() {
-        final List<TestOriginEvent> actualEvents = new LinkedList<TestOriginEvent>();
+    @Test
+    public void instances_should_match_random_activity_sequences() throws Exception {
+        final Random random = new Random(42);
 
-        appLifecycleManager.addListener(new AppLifecycleListener() {
-            @Override
-            public void onAppCreated(Class<?> origin) {
-                actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.CREATE));
-            }
+        for (int run = 0; run < 200; run++) {
+            appLifecycleManager = new CrossActivityAppLifecycleManager();
+            appLifecycleManager.detectConfigurationChanges = true;
 
-            @Override
-            public void onAppStarted(Class<?> origin) {
-                actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.START));
-            }
+            final ActivityStackSimulator simulator = new ActivityStackSimulator(appLifecycleManager, random);
+            final StateCheckingListener listener = new StateCheckingListener();
 
-            @Override
-            public void onAppResumed(Class<?> origin) {
-                actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.RESUME));
-            }
+            appLifecycleManager.addListener(listener);
 
-            @Override
-            public void onAppPaused(Class<?> origin) {
-                actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.PAUSE));
-            }
+            for (int step = 0; step < 50; step++) {
+                simulator.step();
 
-            @Override
-            public void onAppStopped(Class<?> origin) {
-                actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.STOP));
-            }
+                final String message = "run " + run + ", step " + step + ": " + simulator.log;
 
-            @Override
-            public void onAppFinished(Class<?> origin) {
-                actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.FINISH));
+                assertEquals(message, simulator.isAnyStarted(), listener.started);
+                assertEquals(message, simulator.isAnyResumed(), listener.resumed);
+                assertEquals(message, !simulator.stack.isEmpty(), listener.created);
             }
-        });
-
-        return actualEvents;
+        }
     }
 
     //----------------------------------------------------------------------------------------------
-    // HELPER CLASS: TestOriginEvent
+    // TESTS: configuration changes
     //----------------------------------------------------------------------------------------------
 
-    static final class TestOriginEvent {
-        final Class<?> origin;
-        final AppLifecycleEvent event;
+    @Test
+    public void configuration_change_should_not_notify_listeners() throws Exception {
+        final List<TestOriginEvent> actualEvents = createTestListener();
+        final FirstActivity firstActivity = new FirstActivity();
 
-        public TestOriginEvent(Class<?> origin, AppLifecycleEvent event) {
-            this.origin = checkNotNull(origin);
-            this.event = checkNotNull(event);
-        }
+        appLifecycleManager.detectConfigurationChanges = true;
+        launch(firstActivity);
 
-        @Override
-        public boolean equals(Object o) {
-            return o instanceof TestOriginEvent && o.hashCode() == hashCode();
-        }
+        rotate(firstActivity);
 
-        @Override
-        public int hashCode() {
-            int result = origin.hashCode();
-            result = 31 * result + event.hashCode();
-            return result;
-        }
+        assertEquals(3, actualEvents.size());
+        assertEquals(AppLifecycleEvent.RESUME, appLifecycleManager.lastEvent);
+        assertFalse(appLifecycleManager.suppressedPause);
+        assertFalse(appLifecycleManager.suppressedStop);
+    }
 
-        @Override
-        public String toString() {
-            return "TestOriginEvent{" +
-                    "origin=" + origin.getSimpleName() +
-                    ", event=" + event +
-                    '}';
+    @Test
+    public void configuration_change_should_not_affect_later_events() throws Exception {
+        final List<TestOriginEvent> actualEvents = createTestListener();
+        final FirstActivity firstActivity = new FirstActivity();
+
+        appLifecycleManager.detectConfigurationChanges = true;
+        launch(firstActivity);
+
+        final FirstActivity rotatedActivity = rotate(firstActivity);
+        final FirstActivity rotatedAgain = rotate(rotatedActivity);
+
+        // go back to home screen (exit)
+        appLifecycleManager.onPause(rotatedAgain);
+        appLifecycleManager.onStop(rotatedAgain);
+        appLifecycleManager.onFinish(rotatedAgain);
+
+        final List<TestOriginEvent> expectedEvents = new LinkedList<TestOriginEvent>();
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.CREATE));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.START));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.STOP));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.FINISH));
+
+        assertEquals(expectedEvents, actualEvents);
+    }
+
+    @Test
+    public void configuration_change_of_other_activity_should_be_ignored() throws Exception {
+        final List<TestOriginEvent> actualEvents = createTestListener();
+        final FirstActivity firstActivity = new FirstActivity();
+        final SecondActivity secondActivity = new SecondActivity();
+
+        appLifecycleManager.detectConfigurationChanges = true;
+        launch(secondActivity);
+
+        // a stopped activity in the back stack is recreated: different origin, no events
+        firstActivity.changingConfigurations = true;
+        appLifecycleManager.onStop(firstActivity);
+        appLifecycleManager.onCreate(new FirstActivity());
+
+        assertEquals(3, actualEvents.size());
+        assertFalse(appLifecycleManager.suppressedStop);
+    }
+
+    @Test
+    public void configuration_change_should_notify_if_detection_not_supported() throws Exception {
+        final List<TestOriginEvent> actualEvents = createTestListener();
+        final FirstActivity firstActivity = new FirstActivity();
+
+        appLifecycleManager.detectConfigurationChanges = false;
+        launch(firstActivity);
+
+        rotate(firstActivity);
+
+        assertEquals(7, actualEvents.size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: listener metrics
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void metrics_should_record_every_listener_invocation() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final TestEventListener listener = new TestEventListener(new LinkedList<TestOriginEvent>());
+        final ListenerMetrics metrics = new ListenerMetrics();
+
+        appLifecycleManager.setListenerMetrics(metrics);
+        appLifecycleManager.addListener(listener);
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        pauseAndResume(targetOrigin, 3);
+
+        final List<ListenerTimings> timings = metrics.snapshot();
+
+        assertEquals(4, timings.size());
+
+        for (ListenerTimings timing : timings) {
+            assertSame(listener, timing.getListener());
+
+            final int expectedCount = timing.getEvent() == AppLifecycleEvent.RESUME ? 4 :
+                    timing.getEvent() == AppLifecycleEvent.PAUSE ? 3 : 1;
+
+            assertEquals(expectedCount, timing.getCount());
+        }
+    }
+
+    @Test
+    public void metrics_should_report_slow_listener() throws Exception {
+        final AtomicReference<AppLifecycleEventListener> slowListener =
+                new AtomicReference<AppLifecycleEventListener>();
+        final AtomicReference<AppLifecycleEvent> slowEvent = new AtomicReference<AppLifecycleEvent>();
+        final long budgetNanos = TimeUnit.MILLISECONDS.toNanos(5);
+
+        final OnAppCreated fastListener = new OnAppCreated() {
+            @Override
+            public void onAppCreated(Class<?> origin) {
+            }
+        };
+
+        final OnAppCreated sleepingListener = new OnAppCreated() {
+            @Override
+            public void onAppCreated(Class<?> origin) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        appLifecycleManager.setListenerMetrics(new ListenerMetrics(budgetNanos, new OnSlowListener() {
+            @Override
+            public void onSlowListener(AppLifecycleEventListener listener, AppLifecycleEvent event, long durationNanos) {
+                assertTrue(durationNanos > budgetNanos);
+                assertNull(slowListener.getAndSet(listener));
+                slowEvent.set(event);
+            }
+        }));
+
+        appLifecycleManager.addListener(fastListener);
+        appLifecycleManager.addListener(sleepingListener);
+        appLifecycleManager.onCreate(new FirstActivity());
+
+        assertSame(sleepingListener, slowListener.get());
+        assertSame(AppLifecycleEvent.CREATE, slowEvent.get());
+    }
+
+    @Test
+    public void metrics_should_record_async_listener_instead_of_dispatcher() throws Exception {
+        final TestAsyncListener listener = new TestAsyncListener(new LinkedList<TestOriginEvent>());
+        final ListenerMetrics metrics = new ListenerMetrics();
+
+        appLifecycleManager = new CrossActivityAppLifecycleManager(new QueueExecutor());
+        appLifecycleManager.setListenerMetrics(metrics);
+        appLifecycleManager.addListener(listener);
+        appLifecycleManager.onCreate(new FirstActivity());
+
+        final List<ListenerTimings> timings = metrics.snapshot();
+
+        assertEquals(1, timings.size());
+        assertSame(listener, timings.get(0).getListener());
+    }
+
+    @Test
+    public void metrics_should_not_record_when_disabled() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final ListenerMetrics metrics = new ListenerMetrics();
+
+        appLifecycleManager.setListenerMetrics(metrics);
+        appLifecycleManager.setListenerMetrics(null);
+        createTestListener();
+
+        appLifecycleManager.onCreate(targetOrigin);
+
+        assertNull(appLifecycleManager.getListenerMetrics());
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: coalescing
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void enableCoalescing_should_throw_if_scheduler_null() throws Exception {
+        appLifecycleManager.enableCoalescing(null, 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void enableCoalescing_should_throw_if_window_negative() throws Exception {
+        appLifecycleManager.enableCoalescing(new FakeScheduler(), -1);
+    }
+
+    @Test
+    public void coalescing_should_drop_pause_and_resume_within_window() throws Exception {
+        final FakeScheduler scheduler = new FakeScheduler();
+        final FirstActivity firstActivity = new FirstActivity();
+        final SecondActivity secondActivity = new SecondActivity();
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.enableCoalescing(scheduler, 100);
+        launch(firstActivity);
+
+        // start dialog-themed activity and go back
+        appLifecycleManager.onPause(firstActivity);
+        appLifecycleManager.onCreate(secondActivity);
+        appLifecycleManager.onStart(secondActivity);
+        appLifecycleManager.onResume(secondActivity);
+        scheduler.advance(50);
+        appLifecycleManager.onPause(secondActivity);
+        appLifecycleManager.onStart(firstActivity);
+        appLifecycleManager.onResume(firstActivity);
+        appLifecycleManager.onStop(secondActivity);
+        appLifecycleManager.onFinish(secondActivity);
+        scheduler.advance(1000);
+
+        assertEquals(3, actualEvents.size());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void coalescing_should_update_origin_when_dropping_resume() throws Exception {
+        final FakeScheduler scheduler = new FakeScheduler();
+        final FirstActivity firstActivity = new FirstActivity();
+        final SecondActivity secondActivity = new SecondActivity();
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.enableCoalescing(scheduler, 100);
+        launch(firstActivity);
+
+        appLifecycleManager.onPause(firstActivity);
+        appLifecycleManager.onCreate(secondActivity);
+        appLifecycleManager.onStart(secondActivity);
+        appLifecycleManager.onResume(secondActivity);
+        scheduler.advance(1000);
+
+        assertEquals(3, actualEvents.size());
+        assertEquals(AppLifecycleEvent.RESUME, appLifecycleManager.getCurrentState());
+        assertSame(SecondActivity.class, appLifecycleManager.getCurrentOrigin());
+    }
+
+    @Test
+    public void coalescing_should_deliver_pause_after_window() throws Exception {
+        final FakeScheduler scheduler = new FakeScheduler();
+        final FirstActivity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.enableCoalescing(scheduler, 100);
+        launch(targetOrigin);
+
+        appLifecycleManager.onPause(targetOrigin);
+        scheduler.advance(99);
+
+        assertEquals(3, actualEvents.size());
+
+        scheduler.advance(1);
+
+        assertEquals(4, actualEvents.size());
+        assertEquals(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE), actualEvents.get(3));
+
+        // the pause was delivered, so the resume must be delivered too
+        appLifecycleManager.onResume(targetOrigin);
+
+        assertEquals(5, actualEvents.size());
+        assertEquals(AppLifecycleEvent.RESUME, actualEvents.get(4).event);
+    }
+
+    @Test
+    public void coalescing_should_drop_quick_background_and_foreground() throws Exception {
+        final FakeScheduler scheduler = new FakeScheduler();
+        final FirstActivity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.enableCoalescing(scheduler, 100);
+        launch(targetOrigin);
+
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.onStop(targetOrigin);
+        scheduler.advance(50);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        scheduler.advance(1000);
+
+        assertEquals(3, actualEvents.size());
+    }
+
+    @Test
+    public void coalescing_should_deliver_held_events_in_order() throws Exception {
+        final FakeScheduler scheduler = new FakeScheduler();
+        final FirstActivity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.enableCoalescing(scheduler, 100);
+        launch(targetOrigin);
+
+        appLifecycleManager.onPause(targetOrigin);
+        scheduler.advance(50);
+        appLifecycleManager.onStop(targetOrigin);
+        scheduler.advance(75);
+
+        // only the pause window has passed
+        assertEquals(4, actualEvents.size());
+        assertEquals(AppLifecycleEvent.PAUSE, actualEvents.get(3).event);
+
+        // stop is still held: start cancels it, resume is delivered
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+
+        assertEquals(5, actualEvents.size());
+        assertEquals(AppLifecycleEvent.RESUME, actualEvents.get(4).event);
+    }
+
+    @Test
+    public void coalescing_should_deliver_held_events_before_finish() throws Exception {
+        final FakeScheduler scheduler = new FakeScheduler();
+        final FirstActivity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.enableCoalescing(scheduler, 100);
+        launch(targetOrigin);
+
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.onStop(targetOrigin);
+        appLifecycleManager.onFinish(targetOrigin);
+
+        assertEquals(6, actualEvents.size());
+        assertEquals(AppLifecycleEvent.PAUSE, actualEvents.get(3).event);
+        assertEquals(AppLifecycleEvent.STOP, actualEvents.get(4).event);
+        assertEquals(AppLifecycleEvent.FINISH, actualEvents.get(5).event);
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void disableCoalescing_should_deliver_held_events() throws Exception {
+        final FakeScheduler scheduler = new FakeScheduler();
+        final FirstActivity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.enableCoalescing(scheduler, 100);
+        launch(targetOrigin);
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.disableCoalescing();
+
+        assertEquals(4, actualEvents.size());
+        assertEquals(0, scheduler.size());
+
+        // events are delivered directly again
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.onPause(targetOrigin);
+
+        assertEquals(6, actualEvents.size());
+    }
+
+    @Test
+    public void dispose_should_drop_held_events() throws Exception {
+        final FakeScheduler scheduler = new FakeScheduler();
+        final FirstActivity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.enableCoalescing(scheduler, 100);
+        launch(targetOrigin);
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.dispose();
+        scheduler.advance(1000);
+
+        assertEquals(3, actualEvents.size());
+        assertEquals(0, scheduler.size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: memory events
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void onTrimMemory_should_correlate_with_foreground_state() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final List<MemoryPressure> pressures = addMemoryListener();
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.onTrimMemory(MemoryPressure.TRIM_MEMORY_RUNNING_LOW);
+
+        assertEquals(1, pressures.size());
+        assertEquals(MemoryPressure.TRIM_MEMORY_RUNNING_LOW, pressures.get(0).getLevel());
+        assertEquals(AppLifecycleEvent.RESUME, pressures.get(0).getAppState());
+        assertTrue(pressures.get(0).isForegroundPressure());
+        assertFalse(pressures.get(0).isUiHidden());
+        assertFalse(pressures.get(0).isLowMemory());
+    }
+
+    @Test
+    public void onTrimMemory_should_correlate_with_background_state() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final List<MemoryPressure> pressures = addMemoryListener();
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.onStop(targetOrigin);
+        appLifecycleManager.onTrimMemory(MemoryPressure.TRIM_MEMORY_UI_HIDDEN);
+
+        assertEquals(1, pressures.size());
+        assertEquals(AppLifecycleEvent.STOP, pressures.get(0).getAppState());
+        assertTrue(pressures.get(0).isUiHidden());
+        assertFalse(pressures.get(0).isForegroundPressure());
+        assertFalse(pressures.get(0).isCritical());
+    }
+
+    @Test
+    public void onLowMemory_should_notify_low_memory_listeners() throws Exception {
+        final List<MemoryPressure> pressures = addMemoryListener();
+
+        appLifecycleManager.onLowMemory();
+
+        assertEquals(1, pressures.size());
+        assertTrue(pressures.get(0).isLowMemory());
+        assertTrue(pressures.get(0).isCritical());
+        assertNull(pressures.get(0).getAppState());
+    }
+
+    @Test
+    public void onTrimMemory_should_correlate_with_notified_state_while_pause_is_held()
+            throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final List<MemoryPressure> pressures = addMemoryListener();
+
+        appLifecycleManager.enableCoalescing(new FakeScheduler(), 100);
+        launch(targetOrigin);
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.onTrimMemory(MemoryPressure.TRIM_MEMORY_RUNNING_LOW);
+
+        // the pause is held, so listeners still consider the app resumed
+        assertEquals(AppLifecycleEvent.RESUME, pressures.get(0).getAppState());
+        assertTrue(pressures.get(0).isForegroundPressure());
+    }
+
+    @Test
+    public void memory_events_should_be_recorded_to_metrics() throws Exception {
+        final ListenerMetrics metrics = new ListenerMetrics();
+
+        appLifecycleManager.setListenerMetrics(metrics);
+        addMemoryListener();
+
+        appLifecycleManager.onTrimMemory(MemoryPressure.TRIM_MEMORY_RUNNING_LOW);
+        appLifecycleManager.onLowMemory();
+
+        final List<ListenerTimings> timings = metrics.snapshot();
+
+        assertEquals(2, timings.size());
+        assertNull(timings.get(0).getEvent());
+        assertSame(AppMemoryEvent.TRIM_MEMORY, timings.get(0).getMemoryEvent());
+        assertSame(AppMemoryEvent.LOW_MEMORY, timings.get(1).getMemoryEvent());
+        assertEquals(1, timings.get(1).getCount());
+    }
+
+    @Test
+    public void memory_events_should_not_change_app_state() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onTrimMemory(MemoryPressure.TRIM_MEMORY_COMPLETE);
+        appLifecycleManager.onLowMemory();
+        appLifecycleManager.onStart(targetOrigin);
+
+        assertEquals(2, actualEvents.size());
+        assertEquals(AppLifecycleEvent.START, appLifecycleManager.lastEvent);
+    }
+
+    @Test
+    public void memory_events_should_be_queued_for_async_listener_in_order() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final Activity targetOrigin = new FirstActivity();
+        final List<String> asyncEvents = new LinkedList<String>();
+
+        appLifecycleManager = new CrossActivityAppLifecycleManager(executor);
+        appLifecycleManager.addListener(new AsyncMemoryListener(asyncEvents));
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onTrimMemory(MemoryPressure.TRIM_MEMORY_RUNNING_MODERATE);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onLowMemory();
+
+        assertTrue(asyncEvents.isEmpty());
+
+        executor.runAll();
+
+        assertEquals("[created, trim 5, started, low memory]", asyncEvents.toString());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: listener priority
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void addListener_with_priority_should_throw_if_null() throws Exception {
+        appLifecycleManager.addListener(null, 1);
+    }
+
+    @Test
+    public void addListener_with_priority_should_call_higher_priority_first() throws Exception {
+        final List<String> called = new LinkedList<String>();
+
+        appLifecycleManager.addListener(new NamedStopListener("analytics", called));
+        appLifecycleManager.addListener(new NamedStopListener("db closer", called), 10);
+        appLifecycleManager.addListener(new NamedStopListener("logger", called), -10);
+        appLifecycleManager.addListener(new NamedStopListener("crash reporter", called), 100);
+        appLifecycleManager.addListener(new NamedStopListener("ui", called));
+
+        final Activity targetOrigin = new FirstActivity();
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onStop(targetOrigin);
+
+        assertEquals("[crash reporter, db closer, ui, analytics, logger]", called.toString());
+    }
+
+    @Test
+    public void addListener_concurrently_should_never_dispatch_out_of_priority_order() throws Exception {
+        final int numThreads = 3;
+        final int numListeners = 100;
+        final Activity targetOrigin = new FirstActivity();
+        final List<Integer> called = new ArrayList<Integer>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new LinkedList<Thread>();
+
+        launch(targetOrigin);
+
+        for (int t = 0; t < numThreads; t++) {
+            final Random random = new Random(t);
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < numListeners; i++) {
+                        final int priority = random.nextInt(10);
+
+                        appLifecycleManager.addListener(new OnAppPaused() {
+                            @Override
+                            public void onAppPaused(Class<?> origin) {
+                                called.add(priority);
+                            }
+                        }, priority);
+                    }
+                }
+            });
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+
+        boolean adding = true;
+
+        while (adding) {
+            adding = false;
+
+            for (Thread thread : threads) {
+                adding |= thread.isAlive();
+            }
+
+            called.clear();
+            appLifecycleManager.onPause(targetOrigin);
+            appLifecycleManager.onResume(targetOrigin);
+
+            for (int i = 1; i < called.size(); i++) {
+                assertTrue(called.get(i - 1) >= called.get(i));
+            }
+        }
+
+        assertEquals(numThreads * numListeners, called.size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: flight recorder
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void flightRecorder_should_record_accepted_and_rejected_events() throws Exception {
+        final FakeNanoTimeManager manager = new FakeNanoTimeManager(0);
+        final FirstActivity firstActivity = new FirstActivity();
+        final SecondActivity secondActivity = new SecondActivity();
+
+        manager.onCreate(firstActivity);
+        manager.nanos += TimeUnit.MILLISECONDS.toNanos(5);
+        manager.onStart(firstActivity);
+        manager.nanos += TimeUnit.MILLISECONDS.toNanos(5);
+        manager.onResume(firstActivity);
+
+        manager.nanos += TimeUnit.MILLISECONDS.toNanos(1);
+
+        // the app was already created
+        manager.onCreate(secondActivity);
+
+        assertEquals("FlightRecorder: 4 of 4 events\n" +
+                "+0.000ms CREATE FirstActivity\n" +
+                "+5.000ms START FirstActivity\n" +
+                "+10.000ms RESUME FirstActivity\n" +
+                "+11.000ms CREATE SecondActivity REJECTED\n", manager.getFlightRecorder().dump());
+    }
+
+    @Test
+    public void flightRecorder_should_be_cleared_by_dispose() throws Exception {
+        launch(new FirstActivity());
+
+        appLifecycleManager.dispose();
+
+        assertEquals(0, appLifecycleManager.getFlightRecorder().size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: weak listeners
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void addWeakListener_should_throw_if_null() throws Exception {
+        appLifecycleManager.addWeakListener(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addWeakListener_should_throw_if_already_added() throws Exception {
+        final DefaultAppLifecycleListener listener = new DefaultAppLifecycleListener();
+
+        appLifecycleManager.addListener(listener);
+        appLifecycleManager.addWeakListener(listener);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addListener_should_throw_if_already_added_weakly() throws Exception {
+        final DefaultAppLifecycleListener listener = new DefaultAppLifecycleListener();
+
+        appLifecycleManager.addWeakListener(listener);
+        appLifecycleManager.addListener(listener);
+    }
+
+    @Test
+    public void addWeakListener_should_call_listener() throws Exception {
+        final List<TestOriginEvent> actualEvents = new LinkedList<TestOriginEvent>();
+        final TestEventListener listener = new TestEventListener(actualEvents);
+
+        appLifecycleManager.addWeakListener(listener);
+        launch(new FirstActivity());
+
+        assertEquals(3, actualEvents.size());
+        assertEquals(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME), actualEvents.get(2));
+        assertArrayEquals(new AppLifecycleEventListener[]{listener}, appLifecycleManager.listeners.toArray());
+    }
+
+    @Test
+    public void addWeakListener_should_respect_priority_and_subscribed_events() throws Exception {
+        final List<String> called = new LinkedList<String>();
+        final NamedStopListener weakHigh = new NamedStopListener("weak high", called);
+        final NamedStopListener weakLow = new NamedStopListener("weak low", called);
+        final Activity targetOrigin = new FirstActivity();
+
+        appLifecycleManager.addWeakListener(weakLow, -1);
+        appLifecycleManager.addListener(new NamedStopListener("strong", called));
+        appLifecycleManager.addWeakListener(weakHigh, 1);
+
+        assertEquals(0, appLifecycleManager.listeners.get(AppLifecycleEvent.START).length);
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onStop(targetOrigin);
+
+        assertEquals("[weak high, strong, weak low]", called.toString());
+    }
+
+    @Test
+    public void removeListener_should_remove_weak_listener() throws Exception {
+        final List<TestOriginEvent> actualEvents = new LinkedList<TestOriginEvent>();
+        final TestEventListener listener = new TestEventListener(actualEvents);
+
+        appLifecycleManager.addWeakListener(listener);
+        appLifecycleManager.removeListener(listener);
+        launch(new FirstActivity());
+
+        assertTrue(actualEvents.isEmpty());
+        assertTrue(appLifecycleManager.listeners.isEmpty());
+        assertEquals(0, appLifecycleManager.getPurgedListenerCount());
+    }
+
+    @Test
+    public void weak_persistent_listener_should_survive_finish() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final PersistentAppLifecycleListener listener = new PersistentAppLifecycleListener() {
+            @Override
+            public void onAppCreated(Class<?> origin) {
+                created.incrementAndGet();
+            }
+        };
+        final FirstActivity firstActivity = new FirstActivity();
+
+        appLifecycleManager.addWeakListener(listener);
+        appLifecycleManager.addWeakListener(new DefaultAppLifecycleListener());
+        launch(firstActivity);
+        appLifecycleManager.onPause(firstActivity);
+        appLifecycleManager.onStop(firstActivity);
+        appLifecycleManager.onFinish(firstActivity);
+        appLifecycleManager.onCreate(firstActivity);
+
+        assertEquals(2, created.get());
+        assertEquals(1, appLifecycleManager.listeners.size());
+    }
+
+    @Test
+    public void weak_async_listener_should_receive_events_on_executor() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final List<TestOriginEvent> actualEvents = new LinkedList<TestOriginEvent>();
+        final TestAsyncListener listener = new TestAsyncListener(actualEvents);
+
+        appLifecycleManager = new CrossActivityAppLifecycleManager(executor);
+        appLifecycleManager.addWeakListener(listener);
+        launch(new FirstActivity());
+
+        assertTrue(actualEvents.isEmpty());
+
+        executor.runAll();
+
+        assertEquals(3, actualEvents.size());
+    }
+
+    @Test
+    public void weak_listener_should_not_prevent_garbage_collection() throws Exception {
+        final FirstActivity targetOrigin = new FirstActivity();
+        final WeakReference<?>[] references = addLeakingListener(true);
+
+        launch(targetOrigin);
+        awaitCollected(references);
+
+        // the collected listener is purged on a next dispatch
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        while (appLifecycleManager.getPurgedListenerCount() == 0 &&
+                System.currentTimeMillis() < deadline) {
+            appLifecycleManager.onPause(targetOrigin);
+            appLifecycleManager.onResume(targetOrigin);
+            Thread.sleep(1);
+        }
+
+        assertEquals(1, appLifecycleManager.getPurgedListenerCount());
+        assertTrue(appLifecycleManager.listeners.isEmpty());
+        assertEquals(0, appLifecycleManager.listeners.get(AppLifecycleEvent.PAUSE).length);
+    }
+
+    @Test
+    public void strong_listener_should_keep_captured_activity() throws Exception {
+        final WeakReference<?>[] references = addLeakingListener(false);
+
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+
+        assertNotNull(references[0].get());
+        assertNotNull(references[1].get());
+    }
+
+    @Test
+    public void purge_should_be_incremental() throws Exception {
+        final int numListeners = CrossActivityAppLifecycleManager.PURGE_BATCH_SIZE * 2 + 1;
+        final FirstActivity targetOrigin = new FirstActivity();
+
+        launch(targetOrigin);
+
+        for (int i = 0; i < numListeners; i++) {
+            appLifecycleManager.addWeakListener(new DefaultAppLifecycleListener());
+        }
+
+        // simulate collection of all listeners
+        for (AppLifecycleEventListener entry : appLifecycleManager.listeners.get(AppLifecycleEvent.PAUSE)) {
+            ((WeakListenerDispatcher) entry).clear();
+            ((WeakListenerDispatcher) entry).enqueue();
+        }
+
+        appLifecycleManager.onPause(targetOrigin);
+
+        assertEquals(CrossActivityAppLifecycleManager.PURGE_BATCH_SIZE,
+                appLifecycleManager.getPurgedListenerCount());
+        assertEquals(numListeners - CrossActivityAppLifecycleManager.PURGE_BATCH_SIZE,
+                appLifecycleManager.listeners.size());
+
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.onTrimMemory(MemoryPressure.TRIM_MEMORY_RUNNING_LOW);
+
+        assertEquals(numListeners, appLifecycleManager.getPurgedListenerCount());
+        assertTrue(appLifecycleManager.listeners.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: app state queries
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void getCurrentState_should_return_null_before_create() throws Exception {
+        assertNull(appLifecycleManager.getCurrentState());
+        assertNull(appLifecycleManager.getCurrentOrigin());
+        assertFalse(appLifecycleManager.isInForeground());
+        assertEquals(-1, appLifecycleManager.getTimeSinceLastTransition());
+    }
+
+    @Test
+    public void getCurrentState_should_return_notified_events() throws Exception {
+        final FirstActivity firstActivity = new FirstActivity();
+        final SecondActivity secondActivity = new SecondActivity();
+
+        appLifecycleManager.onCreate(firstActivity);
+
+        assertEquals(AppLifecycleEvent.CREATE, appLifecycleManager.getCurrentState());
+        assertEquals(FirstActivity.class, appLifecycleManager.getCurrentOrigin());
+        assertFalse(appLifecycleManager.isInForeground());
+
+        appLifecycleManager.onStart(firstActivity);
+        appLifecycleManager.onResume(firstActivity);
+
+        assertEquals(AppLifecycleEvent.RESUME, appLifecycleManager.getCurrentState());
+        assertTrue(appLifecycleManager.isInForeground());
+
+        // navigate to second activity and press home
+        appLifecycleManager.onPause(firstActivity);
+        appLifecycleManager.onCreate(secondActivity);
+        appLifecycleManager.onStart(secondActivity);
+        appLifecycleManager.onResume(secondActivity);
+
+        assertEquals(SecondActivity.class, appLifecycleManager.getCurrentOrigin());
+
+        appLifecycleManager.onStop(firstActivity);
+        appLifecycleManager.onPause(secondActivity);
+        appLifecycleManager.onStop(secondActivity);
+
+        assertEquals(AppLifecycleEvent.STOP, appLifecycleManager.getCurrentState());
+        assertFalse(appLifecycleManager.isInForeground());
+
+        appLifecycleManager.onFinish(secondActivity);
+
+        assertEquals(AppLifecycleEvent.FINISH, appLifecycleManager.getCurrentState());
+        assertEquals(SecondActivity.class, appLifecycleManager.getCurrentOrigin());
+    }
+
+    @Test
+    public void getCurrentState_should_be_visible_to_listeners() throws Exception {
+        final AtomicReference<AppLifecycleEvent> observed = new AtomicReference<AppLifecycleEvent>();
+
+        appLifecycleManager.addListener(new OnAppStarted() {
+            @Override
+            public void onAppStarted(Class<?> origin) {
+                observed.set(appLifecycleManager.getCurrentState());
+            }
+        });
+
+        appLifecycleManager.onCreate(new FirstActivity());
+        appLifecycleManager.onStart(new FirstActivity());
+
+        assertEquals(AppLifecycleEvent.START, observed.get());
+    }
+
+    @Test
+    public void getCurrentState_should_ignore_suppressed_and_held_events() throws Exception {
+        final FakeScheduler scheduler = new FakeScheduler();
+        final FirstActivity firstActivity = new FirstActivity();
+
+        appLifecycleManager.detectConfigurationChanges = true;
+        appLifecycleManager.enableCoalescing(scheduler, 100);
+        launch(firstActivity);
+
+        final FirstActivity rotatedActivity = rotate(firstActivity);
+
+        assertEquals(AppLifecycleEvent.RESUME, appLifecycleManager.getCurrentState());
+
+        appLifecycleManager.onPause(rotatedActivity);
+
+        assertEquals(AppLifecycleEvent.RESUME, appLifecycleManager.getCurrentState());
+
+        scheduler.advance(100);
+
+        assertEquals(AppLifecycleEvent.PAUSE, appLifecycleManager.getCurrentState());
+        assertTrue(appLifecycleManager.isInForeground());
+    }
+
+    @Test
+    public void getCurrentState_should_be_reset_by_dispose() throws Exception {
+        launch(new FirstActivity());
+
+        appLifecycleManager.dispose();
+
+        assertNull(appLifecycleManager.getCurrentState());
+        assertNull(appLifecycleManager.getCurrentOrigin());
+        assertEquals(-1, appLifecycleManager.getTimeSinceLastTransition());
+    }
+
+    @Test
+    public void getTimeSinceLastTransition_should_measure_since_notification() throws Exception {
+        final FakeNanoTimeManager manager = new FakeNanoTimeManager(0);
+        final FirstActivity firstActivity = new FirstActivity();
+
+        manager.onCreate(firstActivity);
+        manager.nanos += TimeUnit.MILLISECONDS.toNanos(250);
+
+        assertEquals(250, manager.getTimeSinceLastTransition());
+
+        manager.onStart(firstActivity);
+        manager.nanos += TimeUnit.MILLISECONDS.toNanos(40);
+
+        assertEquals(40, manager.getTimeSinceLastTransition());
+    }
+
+    @Test
+    public void getTimeSinceLastTransition_should_support_overflowing_time() throws Exception {
+        final FakeNanoTimeManager manager = new FakeNanoTimeManager(Long.MAX_VALUE - 1000);
+
+        manager.onCreate(new FirstActivity());
+        manager.nanos += TimeUnit.SECONDS.toNanos(3);
+
+        assertEquals(3000, manager.getTimeSinceLastTransition());
+    }
+
+    @Test
+    public void getCurrentState_should_be_consistent_across_threads() throws Exception {
+        final FirstActivity firstActivity = new FirstActivity();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        launch(firstActivity);
+
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (done.getCount() > 0) {
+                        final AppLifecycleEvent state = appLifecycleManager.getCurrentState();
+
+                        assertTrue(state == AppLifecycleEvent.RESUME ||
+                                state == AppLifecycleEvent.PAUSE);
+                        assertTrue(appLifecycleManager.isInForeground());
+                        assertTrue(appLifecycleManager.getTimeSinceLastTransition() >= 0);
+                    }
+                } catch (Throwable error) {
+                    failure.set(error);
+                }
+            }
+        });
+
+        reader.start();
+
+        for (int i = 0; i < 10000; i++) {
+            appLifecycleManager.onPause(firstActivity);
+            appLifecycleManager.onResume(firstActivity);
+        }
+
+        done.countDown();
+        reader.join();
+
+        assertNull(failure.get());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: sticky listeners
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void sticky_listener_should_receive_current_state_when_added() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = new LinkedList<TestOriginEvent>();
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.addListener(new TestStickyListener(actualEvents));
+
+        assertEquals(3, actualEvents.size());
+        assertEquals(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.CREATE), actualEvents.get(0));
+        assertEquals(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.START), actualEvents.get(1));
+        assertEquals(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME), actualEvents.get(2));
+
+        // subsequent events are received as usual
+        appLifecycleManager.onPause(targetOrigin);
+
+        assertEquals(4, actualEvents.size());
+    }
+
+    @Test
+    public void sticky_listener_should_not_receive_transient_events() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> pausedEvents = new LinkedList<TestOriginEvent>();
+        final List<TestOriginEvent> stoppedEvents = new LinkedList<TestOriginEvent>();
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.addListener(new TestStickyListener(pausedEvents));
+        appLifecycleManager.onStop(targetOrigin);
+        appLifecycleManager.addListener(new TestStickyListener(stoppedEvents));
+
+        assertEquals(3, pausedEvents.size());
+        assertEquals(AppLifecycleEvent.START, pausedEvents.get(1).event);
+        assertEquals(AppLifecycleEvent.STOP, pausedEvents.get(2).event);
+        assertEquals(1, stoppedEvents.size());
+        assertEquals(AppLifecycleEvent.CREATE, stoppedEvents.get(0).event);
+    }
+
+    @Test
+    public void sticky_listener_should_not_receive_events_before_create() throws Exception {
+        final List<TestOriginEvent> actualEvents = new LinkedList<TestOriginEvent>();
+
+        appLifecycleManager.addListener(new TestStickyListener(actualEvents));
+
+        assertTrue(actualEvents.isEmpty());
+    }
+
+    @Test
+    public void sticky_listener_should_only_receive_subscribed_events() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+        final AtomicInteger counter = new AtomicInteger();
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.addListener(new StickyStartedListener(counter));
+
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void non_sticky_listener_should_not_receive_current_state() throws Exception {
+        final Activity targetOrigin = new FirstActivity();
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        assertTrue(actualEvents.isEmpty());
+    }
+
+    @Test
+    public void sticky_listener_should_receive_notified_state_during_rotation() throws Exception {
+        final FirstActivity firstActivity = new FirstActivity();
+        final FirstActivity recreated = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = new LinkedList<TestOriginEvent>();
+
+        appLifecycleManager.detectConfigurationChanges = true;
+        launch(firstActivity);
+
+        // pause and stop are suppressed: listeners still consider the app resumed
+        firstActivity.changingConfigurations = true;
+        appLifecycleManager.onPause(firstActivity);
+        appLifecycleManager.onStop(firstActivity);
+        appLifecycleManager.addListener(new TestStickyListener(actualEvents));
+
+        assertEquals(3, actualEvents.size());
+        assertEquals(AppLifecycleEvent.RESUME, actualEvents.get(2).event);
+
+        appLifecycleManager.onCreate(recreated);
+        appLifecycleManager.onStart(recreated);
+        appLifecycleManager.onResume(recreated);
+
+        assertEquals(3, actualEvents.size());
+    }
+
+    @Test
+    public void sticky_async_listener_should_receive_replay_on_executor() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final Activity targetOrigin = new FirstActivity();
+        final List<TestOriginEvent> actualEvents = new LinkedList<TestOriginEvent>();
+
+        appLifecycleManager = new CrossActivityAppLifecycleManager(executor);
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.addListener(new TestStickyAsyncListener(actualEvents));
+        appLifecycleManager.onResume(targetOrigin);
+
+        assertTrue(actualEvents.isEmpty());
+
+        executor.runAll();
+
+        assertEquals(3, actualEvents.size());
+        assertEquals(AppLifecycleEvent.CREATE, actualEvents.get(0).event);
+        assertEquals(AppLifecycleEvent.START, actualEvents.get(1).event);
+        assertEquals(AppLifecycleEvent.RESUME, actualEvents.get(2).event);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: transition table
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_transition_table_null() throws Exception {
+        new CrossActivityAppLifecycleManager(new QueueExecutor(), null);
+    }
+
+    @Test
+    public void transition_table_should_be_default() throws Exception {
+        assertSame(TransitionTable.DEFAULT, appLifecycleManager.getTransitionTable());
+    }
+
+    @Test
+    public void transition_table_should_validate_events() throws Exception {
+        final TransitionTable transitions = TransitionTable.DEFAULT
+                .without(AppLifecycleEvent.PAUSE, AppLifecycleEvent.RESUME);
+        final Activity targetOrigin = new FirstActivity();
+
+        appLifecycleManager = new CrossActivityAppLifecycleManager(new QueueExecutor(), transitions);
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+        appLifecycleManager.onPause(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+
+        // resume after pause is not allowed by the custom table
+        assertSame(transitions, appLifecycleManager.getTransitionTable());
+        assertEquals(4, actualEvents.size());
+        assertEquals(AppLifecycleEvent.PAUSE, appLifecycleManager.lastEvent);
+    }
+
+    @Test
+    public void isValid_should_allow_start_after_create_pause_or_stop() throws Exception {
+        final Activity origin = new FirstActivity();
+
+        for (AppLifecycleEvent lastEvent : AppLifecycleEvent.values()) {
+            appLifecycleManager.lastEvent = lastEvent;
+
+            final boolean expected = lastEvent == AppLifecycleEvent.CREATE ||
+                    lastEvent == AppLifecycleEvent.PAUSE || lastEvent == AppLifecycleEvent.STOP;
+
+            assertEquals(lastEvent.name(), expected,
+                    appLifecycleManager.isValid(origin, AppLifecycleEvent.START));
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void isValid_should_throw_if_origin_null() throws Exception {
+        appLifecycleManager.isValid(null, AppLifecycleEvent.CREATE);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: concurrency
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void concurrency_should_support_adding_and_removing_listeners_while_dispatching() throws Exception {
+        final int numThreads = 8;
+        final int numListenersPerThread = 500;
+        final Activity targetOrigin = new FirstActivity();
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final List<Thread> threads = new LinkedList<Thread>();
+
+        appLifecycleManager.onCreate(targetOrigin);
+        appLifecycleManager.onStart(targetOrigin);
+        appLifecycleManager.onResume(targetOrigin);
+
+        for (int i = 0; i < numThreads; i++) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+
+                        for (int j = 0; j < numListenersPerThread; j++) {
+                            final AppLifecycleListener listener = new DefaultAppLifecycleListener();
+
+                            appLifecycleManager.addListener(listener);
+
+                            // remove every other listener
+                            if (j % 2 == 1) {
+                                appLifecycleManager.removeListener(listener);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+
+            thread.start();
+            threads.add(thread);
+        }
+
+        startSignal.countDown();
+
+        // dispatch events until all threads are done
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                pauseAndResume(targetOrigin, 1);
+            }
+
+            thread.join();
+        }
+
+        assertNull(error.get());
+
+        final int expectedSize = numThreads * numListenersPerThread / 2;
+        final AppLifecycleEventListener[] all = appLifecycleManager.listeners.toArray();
+
+        assertEquals(expectedSize, all.length);
+
+        for (AppLifecycleEvent event : AppLifecycleEvent.values()) {
+            assertEquals(expectedSize, appLifecycleManager.listeners.get(event).length);
+        }
+
+        for (AppLifecycleEventListener listener : all) {
+            assertTrue(appLifecycleManager.listeners.contains(listener));
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // FUNCTIONAL TESTS
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void functional_navigating_between_activities() throws Exception {
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        final FirstActivity firstActivity = new FirstActivity();
+        final SecondActivity secondActivity = new SecondActivity();
+
+        // launch: start first activity
+        appLifecycleManager.onCreate(firstActivity); // NOTIFY: create
+        appLifecycleManager.onStart(firstActivity); // NOTIFY: start
+        appLifecycleManager.onResume(firstActivity); // NOTIFY: resume
+
+        // start second activity
+        appLifecycleManager.onPause(firstActivity); // NOTIFY: pause
+        appLifecycleManager.onCreate(secondActivity);
+        appLifecycleManager.onStart(secondActivity);
+        appLifecycleManager.onResume(secondActivity); // NOTIFY: resume
+        appLifecycleManager.onStop(firstActivity);
+
+        // go back to first activity
+        appLifecycleManager.onPause(secondActivity); // NOTIFY: pause
+        appLifecycleManager.onCreate(firstActivity);
+        appLifecycleManager.onStart(firstActivity);
+        appLifecycleManager.onResume(firstActivity); // NOTIFY: resume
+        appLifecycleManager.onStop(secondActivity);
+        appLifecycleManager.onFinish(secondActivity);
+
+        // go back to home screen (exit)
+        appLifecycleManager.onPause(firstActivity); // NOTIFY: pause
+        appLifecycleManager.onStop(firstActivity); // NOTIFY: stop
+        appLifecycleManager.onFinish(firstActivity); // NOTIFY: finish
+
+        final List<TestOriginEvent> expectedEvents = new LinkedList<TestOriginEvent>();
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.CREATE));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.START));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE));
+        expectedEvents.add(new TestOriginEvent(SecondActivity.class, AppLifecycleEvent.RESUME));
+        expectedEvents.add(new TestOriginEvent(SecondActivity.class, AppLifecycleEvent.PAUSE));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.STOP));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.FINISH));
+
+        assertEquals(expectedEvents, actualEvents);
+    }
+
+    @Test
+    public void functional_bringing_app_to_background_and_foreground() throws Exception {
+        final List<TestOriginEvent> actualEvents = createTestListener();
+
+        final FirstActivity firstActivity = new FirstActivity();
+
+        // launch: start first activity
+        appLifecycleManager.onCreate(firstActivity);
+        appLifecycleManager.onStart(firstActivity);
+        appLifecycleManager.onResume(firstActivity);
+
+        // go back to home screen (to background)
+        appLifecycleManager.onPause(firstActivity);
+        appLifecycleManager.onStop(firstActivity);
+
+        // go back to app (to foreground)
+        appLifecycleManager.onStart(firstActivity);
+        appLifecycleManager.onResume(firstActivity);
+
+        // go back to home screen (exit)
+        appLifecycleManager.onPause(firstActivity);
+        appLifecycleManager.onStop(firstActivity);
+        appLifecycleManager.onFinish(firstActivity);
+
+        final List<TestOriginEvent> expectedEvents = new LinkedList<TestOriginEvent>();
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.CREATE));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.START));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.STOP));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.START));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.RESUME));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.PAUSE));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.STOP));
+        expectedEvents.add(new TestOriginEvent(FirstActivity.class, AppLifecycleEvent.FINISH));
+
+        assertEquals(expectedEvents, actualEvents);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private void pauseAndResume(Activity origin, int times) {
+        for (int i = 0; i < times; i++) {
+            appLifecycleManager.onPause(origin);
+            appLifecycleManager.onResume(origin);
+        }
+    }
+
+    private void launch(Activity origin) {
+        appLifecycleManager.onCreate(origin);
+        appLifecycleManager.onStart(origin);
+        appLifecycleManager.onResume(origin);
+    }
+
+    /**
+     * Simulates a rotation of the resumed activity: the activity is destroyed and a new instance
+     * of the same class is created and resumed.
+     */
+    private FirstActivity rotate(FirstActivity activity) {
+        final FirstActivity recreated = new FirstActivity();
+
+        activity.changingConfigurations = true;
+        appLifecycleManager.onPause(activity);
+        appLifecycleManager.onStop(activity);
+        appLifecycleManager.onCreate(recreated);
+        appLifecycleManager.onStart(recreated);
+        appLifecycleManager.onResume(recreated);
+
+        return recreated;
+    }
+
+    private List<MemoryPressure> addMemoryListener() {
+        final List<MemoryPressure> pressures = new LinkedList<MemoryPressure>();
+
+        appLifecycleManager.addListener(new MemoryListener() {
+            @Override
+            public void onAppTrimMemory(MemoryPressure pressure) {
+                pressures.add(pressure);
+            }
+
+            @Override
+            public void onAppLowMemory(MemoryPressure pressure) {
+                pressures.add(pressure);
+            }
+        });
+
+        return pressures;
+    }
+
+    private List<TestOriginEvent> createTestListener() {
+        final List<TestOriginEvent> actualEvents = new LinkedList<TestOriginEvent>();
+
+        appLifecycleManager.addListener(new TestEventListener(actualEvents));
+
+        return actualEvents;
+    }
+
+    /**
+     * Adds a listener that captures an activity, without keeping a reference to either.
+     *
+     * @param weak Whether to add the listener weakly.
+     * @return Weak references to the listener and the captured activity.
+     */
+    private WeakReference<?>[] addLeakingListener(boolean weak) {
+        final Activity capturedActivity = new FirstActivity();
+        final AppLifecycleListener listener = new DefaultAppLifecycleListener() {
+            @Override
+            public void onAppPaused(Class<?> origin) {
+                capturedActivity.isChangingConfigurations();
+            }
+        };
+
+        if (weak) {
+            appLifecycleManager.addWeakListener(listener);
+        } else {
+            appLifecycleManager.addListener(listener);
+        }
+
+        return new WeakReference<?>[]{new WeakReference<Object>(listener),
+                new WeakReference<Object>(capturedActivity)};
+    }
+
+    /**
+     * Requests garbage collection until all references are cleared, or fails after a timeout.
+     *
+     * @param references The references that should be cleared.
+     */
+    private static void awaitCollected(WeakReference<?>... references) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        for (WeakReference<?> reference : references) {
+            while (reference.get() != null) {
+                assertTrue("Not collected: " + reference.get(), System.currentTimeMillis() < deadline);
+
+                System.gc();
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: ActivityStackSimulator
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Simulates a user navigating an app with a random sequence of actions, and triggers the
+     * activity lifecycle events on the manager in the order Android would, with some randomness
+     * where the order is not guaranteed.
+     */
+    static final class ActivityStackSimulator {
+
+        final CrossActivityAppLifecycleManager manager;
+        final Random random;
+        final List<Activity> stack = new LinkedList<Activity>();
+        final List<Activity> started = new LinkedList<Activity>();
+        final List<Activity> resumed = new LinkedList<Activity>();
+        final StringBuilder log = new StringBuilder();
+        boolean foreground;
+
+        ActivityStackSimulator(CrossActivityAppLifecycleManager manager, Random random) {
+            this.manager = manager;
+            this.random = random;
+        }
+
+        boolean isAnyStarted() {
+            return !started.isEmpty();
+        }
+
+        boolean isAnyResumed() {
+            return !resumed.isEmpty();
+        }
+
+        void step() {
+            if (stack.isEmpty()) {
+                log.append("launch ");
+                final Activity activity = newActivity();
+                stack.add(activity);
+                create(activity);
+                start(activity);
+                resume(activity);
+                foreground = true;
+                return;
+            }
+
+            final Activity top = stack.get(stack.size() - 1);
+
+            if (!foreground) {
+                log.append("return ");
+                start(top);
+                resume(top);
+                foreground = true;
+                return;
+            }
+
+            switch (random.nextInt(4)) {
+                case 0: {
+                    log.append("open ");
+                    final Activity next = newActivity();
+                    stack.add(next);
+                    pause(top);
+                    create(next);
+
+                    // the previous activity may be stopped before or after the next is shown
+                    final boolean stopEarly = random.nextInt(4) == 0;
+
+                    if (stopEarly) {
+                        stop(top);
+                    }
+
+                    start(next);
+                    resume(next);
+
+                    if (!stopEarly) {
+                        stop(top);
+                    }
+                    break;
+                }
+
+                case 1: {
+                    log.append("back ");
+                    stack.remove(stack.size() - 1);
+                    pause(top);
+
+                    if (stack.isEmpty()) {
+                        stop(top);
+                        finish(top);
+                        foreground = false;
+                    } else {
+                        final Activity previous = stack.get(stack.size() - 1);
+                        start(previous);
+                        resume(previous);
+                        stop(top);
+                        finish(top);
+                    }
+                    break;
+                }
+
+                case 2: {
+                    log.append("home ");
+                    pause(top);
+                    stop(top);
+                    foreground = false;
+                    break;
+                }
+
+                default: {
+                    log.append("rotate ");
+                    final Activity recreated = newActivity(top.getClass());
+                    setChangingConfigurations(top, true);
+                    pause(top);
+                    stop(top);
+                    stack.set(stack.size() - 1, recreated);
+                    create(recreated);
+                    start(recreated);
+                    resume(recreated);
+                    break;
+                }
+            }
+        }
+
+        Activity newActivity() {
+            return newActivity(random.nextBoolean() ? FirstActivity.class : SecondActivity.class);
+        }
+
+        Activity newActivity(Class<?> type) {
+            return type == FirstActivity.class ? new FirstActivity() : new SecondActivity();
+        }
+
+        void setChangingConfigurations(Activity activity, boolean value) {
+            if (activity instanceof FirstActivity) {
+                ((FirstActivity) activity).changingConfigurations = value;
+            } else {
+                ((SecondActivity) activity).changingConfigurations = value;
+            }
+        }
+
+        void create(Activity activity) {
+            manager.onCreate(activity);
+        }
+
+        void start(Activity activity) {
+            started.add(activity);
+            manager.onStart(activity);
+        }
+
+        void resume(Activity activity) {
+            resumed.add(activity);
+            manager.onResume(activity);
+        }
+
+        void pause(Activity activity) {
+            resumed.remove(activity);
+            manager.onPause(activity);
+        }
+
+        void stop(Activity activity) {
+            started.remove(activity);
+            manager.onStop(activity);
+        }
+
+        void finish(Activity activity) {
+            manager.onFinish(activity);
+        }
+
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: StateCheckingListener
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Keeps the app state based on the received events, and fails on an invalid transition.
+     */
+    static final class StateCheckingListener implements AppLifecycleListener, PersistentAppLifecycleEventListener {
+
+        boolean created;
+        boolean started;
+        boolean resumed;
+
+        @Override
+        public void onAppCreated(Class<?> origin) {
+            assertFalse("created twice", created);
+            created = true;
+        }
+
+        @Override
+        public void onAppStarted(Class<?> origin) {
+            assertTrue("started before created", created);
+            assertFalse("started twice", started);
+            started = true;
+        }
+
+        @Override
+        public void onAppResumed(Class<?> origin) {
+            assertTrue("resumed before started", started);
+            assertFalse("resumed twice", resumed);
+            resumed = true;
+        }
+
+        @Override
+        public void onAppPaused(Class<?> origin) {
+            assertTrue("paused before resumed", resumed);
+            resumed = false;
+        }
+
+        @Override
+        public void onAppStopped(Class<?> origin) {
+            assertFalse("stopped before paused", resumed);
+            assertTrue("stopped before started", started);
+            started = false;
+        }
+
+        @Override
+        public void onAppFinished(Class<?> origin) {
+            assertFalse("finished before stopped", started);
+            assertTrue("finished twice", created);
+            created = false;
+        }
+
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: TestOriginEvent
+    //----------------------------------------------------------------------------------------------
+
+    static final class TestOriginEvent {
+        final Class<?> origin;
+        final AppLifecycleEvent event;
+
+        public TestOriginEvent(Class<?> origin, AppLifecycleEvent event) {
+            this.origin = checkNotNull(origin);
+            this.event = checkNotNull(event);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestOriginEvent && o.hashCode() == hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = origin.hashCode();
+            result = 31 * result + event.hashCode();
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "TestOriginEvent{" +
+                    "origin=" + origin.getSimpleName() +
+                    ", event=" + event +
+                    '}';
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: TestEventListener
+    //----------------------------------------------------------------------------------------------
+
+    static class TestEventListener implements AppLifecycleListener {
+        final List<TestOriginEvent> actualEvents;
+
+        TestEventListener(List<TestOriginEvent> actualEvents) {
+            this.actualEvents = actualEvents;
+        }
+
+        @Override
+        public void onAppCreated(Class<?> origin) {
+            actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.CREATE));
+        }
+
+        @Override
+        public void onAppStarted(Class<?> origin) {
+            actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.START));
+        }
+
+        @Override
+        public void onAppResumed(Class<?> origin) {
+            actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.RESUME));
+        }
+
+        @Override
+        public void onAppPaused(Class<?> origin) {
+            actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.PAUSE));
+        }
+
+        @Override
+        public void onAppStopped(Class<?> origin) {
+            actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.STOP));
+        }
+
+        @Override
+        public void onAppFinished(Class<?> origin) {
+            actualEvents.add(new TestOriginEvent(origin, AppLifecycleEvent.FINISH));
+        }
+    }
+
+    static final class TestAsyncListener extends TestEventListener
+            implements AsyncAppLifecycleEventListener {
+        TestAsyncListener(List<TestOriginEvent> actualEvents) {
+            super(actualEvents);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: MemoryListener
+    //----------------------------------------------------------------------------------------------
+
+    interface MemoryListener extends OnAppTrimMemory, OnAppLowMemory {
+    }
+
+    static final class AsyncMemoryListener implements OnAppCreated, OnAppStarted, MemoryListener,
+            AsyncAppLifecycleEventListener {
+        final List<String> events;
+
+        AsyncMemoryListener(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onAppCreated(Class<?> origin) {
+            events.add("created");
+        }
+
+        @Override
+        public void onAppStarted(Class<?> origin) {
+            events.add("started");
+        }
+
+        @Override
+        public void onAppTrimMemory(MemoryPressure pressure) {
+            events.add("trim " + pressure.getLevel());
+        }
+
+        @Override
+        public void onAppLowMemory(MemoryPressure pressure) {
+            events.add("low memory");
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: NamedStopListener
+    //----------------------------------------------------------------------------------------------
+
+    static final class NamedStopListener implements OnAppStopped {
+        final String name;
+        final List<String> called;
+
+        NamedStopListener(String name, List<String> called) {
+            this.name = name;
+            this.called = called;
+        }
+
+        @Override
+        public void onAppStopped(Class<?> origin) {
+            called.add(name);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: FakeNanoTimeManager
+    //----------------------------------------------------------------------------------------------
+
+    static final class FakeNanoTimeManager extends CrossActivityAppLifecycleManager {
+        long nanos;
+
+        FakeNanoTimeManager(long nanos) {
+            this.nanos = nanos;
+        }
+
+        @Override
+        protected long currentTimeNanos() {
+            return nanos;
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: sticky listeners
+    //----------------------------------------------------------------------------------------------
+
+    static final class TestStickyListener extends TestEventListener
+            implements StickyAppLifecycleEventListener {
+        TestStickyListener(List<TestOriginEvent> actualEvents) {
+            super(actualEvents);
+        }
+    }
+
+    static final class TestStickyAsyncListener extends TestEventListener
+            implements StickyAppLifecycleEventListener, AsyncAppLifecycleEventListener {
+        TestStickyAsyncListener(List<TestOriginEvent> actualEvents) {
+            super(actualEvents);
+        }
+    }
+
+    static final class StickyStartedListener implements OnAppStarted,
+            StickyAppLifecycleEventListener {
+        final AtomicInteger counter;
+
+        StickyStartedListener(AtomicInteger counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public void onAppStarted(Class<?> origin) {
+            counter.incrementAndGet();
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: QueueExecutor
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Deterministic executor: queues tasks until they are explicitly run.
+     */
+    static final class QueueExecutor implements Executor {
+        final List<Runnable> tasks = new LinkedList<Runnable>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
         }
     }
 
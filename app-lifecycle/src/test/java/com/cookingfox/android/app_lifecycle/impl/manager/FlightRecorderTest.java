@@ -0,0 +1,133 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.fixture.SecondActivity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link FlightRecorder}.
+ */
+public class FlightRecorderTest {
+
+    private static final long MILLIS = 1000000;
+
+    private FlightRecorder recorder;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        recorder = new FlightRecorder(4);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_capacity_not_positive() throws Exception {
+        new FlightRecorder(0);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: record
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void record_should_throw_if_event_null() throws Exception {
+        recorder.record(null, FirstActivity.class, true, 0);
+    }
+
+    @Test
+    public void record_should_keep_latest_entries() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            recorder.record(AppLifecycleEvent.values()[i], FirstActivity.class, true, i * MILLIS);
+        }
+
+        assertEquals(4, recorder.size());
+        assertEquals(6, recorder.getRecordedCount());
+        assertEquals("FlightRecorder: 4 of 6 events\n" +
+                "+0.000ms RESUME FirstActivity\n" +
+                "+1.000ms PAUSE FirstActivity\n" +
+                "+2.000ms STOP FirstActivity\n" +
+                "+3.000ms FINISH FirstActivity\n", recorder.dump());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: dump
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void dump_should_mark_rejected_events_and_unknown_origins() throws Exception {
+        recorder.record(AppLifecycleEvent.CREATE, FirstActivity.class, true, 5 * MILLIS);
+        recorder.record(AppLifecycleEvent.PAUSE, SecondActivity.class, false, 17 * MILLIS + 250000);
+        recorder.record(AppLifecycleEvent.START, null, true, 17 * MILLIS + 251000);
+
+        assertEquals("FlightRecorder: 3 of 3 events\n" +
+                "+0.000ms CREATE FirstActivity\n" +
+                "+12.250ms PAUSE SecondActivity REJECTED\n" +
+                "+12.251ms START ?\n", recorder.dump());
+    }
+
+    @Test
+    public void dump_should_return_header_if_empty() throws Exception {
+        assertEquals("FlightRecorder: 0 of 0 events\n", recorder.dump());
+    }
+
+    @Test
+    public void clear_should_remove_entries() throws Exception {
+        recorder.record(AppLifecycleEvent.CREATE, FirstActivity.class, true, 0);
+        recorder.clear();
+
+        assertEquals(0, recorder.size());
+        assertEquals(0, recorder.getRecordedCount());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: writeTo
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void writeTo_should_write_binary_trace() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            final Class<?> origin = i % 2 == 0 ? FirstActivity.class : SecondActivity.class;
+            recorder.record(AppLifecycleEvent.values()[i], origin, i != 3, i * MILLIS);
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorder.writeTo(out);
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(FlightRecorder.MAGIC, in.readInt());
+        assertEquals(FlightRecorder.VERSION, in.readByte());
+        assertEquals(5, in.readLong());
+        assertEquals(4, in.readInt());
+        assertEquals(2, in.readShort());
+        assertEquals(FirstActivity.class.getName(), in.readUTF());
+        assertEquals(SecondActivity.class.getName(), in.readUTF());
+
+        // the oldest entry was overwritten
+        for (int i = 1; i < 5; i++) {
+            final int accepted = i != 3 ? FlightRecorder.ACCEPTED : 0;
+
+            assertEquals(i * MILLIS, in.readLong());
+            assertEquals(i | accepted, in.readUnsignedByte());
+            assertEquals(i % 2, in.readShort());
+        }
+
+        assertEquals(-1, in.read());
+    }
+
+}
@@ -0,0 +1,287 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AsyncAppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppResumed;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.fixture.AllocationCounter;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.fixture.SecondActivity;
+import com.cookingfox.android.app_lifecycle.impl.listener.PersistentAppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.impl.metrics.ListenerMetrics;
+import com.cookingfox.android.app_lifecycle.impl.metrics.ListenerTimings;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link LifecycleEventDispatcher}.
+ */
+public class LifecycleEventDispatcherTest {
+
+    private final List<String> events = new LinkedList<String>();
+    private final List<Runnable> queued = new LinkedList<Runnable>();
+
+    private LifecycleEventDispatcher dispatcher;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        dispatcher = new LifecycleEventDispatcher(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                queued.add(runnable);
+            }
+        });
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_executor_null() throws Exception {
+        new LifecycleEventDispatcher(null);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: addListener
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void addListener_should_return_dispatcher() throws Exception {
+        assertSame(dispatcher, dispatcher.addListener(new RecordingListener("a", events)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addListener_should_throw_if_already_added() throws Exception {
+        final RecordingListener listener = new RecordingListener("a", events);
+
+        dispatcher.addListener(listener);
+        dispatcher.addWeakListener(listener);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: removeListener
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void removeListener_should_remove_listener() throws Exception {
+        final RecordingListener listener = new RecordingListener("a", events);
+
+        dispatcher.addListener(listener);
+        dispatcher.removeListener(listener);
+        dispatcher.dispatch(AppLifecycleEvent.RESUME, FirstActivity.class);
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void removeListener_should_not_remove_persistent_listener() throws Exception {
+        final PersistentAppLifecycleListener listener = new PersistentAppLifecycleListener();
+
+        dispatcher.addListener(listener);
+        dispatcher.removeListener(listener);
+
+        assertTrue(dispatcher.listeners.contains(listener));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removeListener_should_throw_if_not_added() throws Exception {
+        dispatcher.removeListener(new RecordingListener("a", events));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: dispatch
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void dispatch_should_throw_if_event_null() throws Exception {
+        dispatcher.dispatch(null, FirstActivity.class);
+    }
+
+    @Test
+    public void dispatch_should_call_subscribed_listeners_with_origin() throws Exception {
+        dispatcher.addListener(new RecordingListener("a", events));
+
+        dispatcher.dispatch(AppLifecycleEvent.RESUME, FirstActivity.class);
+        dispatcher.dispatch(AppLifecycleEvent.PAUSE, FirstActivity.class);
+        dispatcher.dispatch(AppLifecycleEvent.STOP, SecondActivity.class);
+
+        assertEquals(Arrays.asList("a RESUME FirstActivity", "a STOP SecondActivity"), events);
+    }
+
+    @Test
+    public void dispatch_should_not_validate_events() throws Exception {
+        dispatcher.addListener(new RecordingListener("a", events));
+
+        dispatcher.dispatch(AppLifecycleEvent.RESUME, FirstActivity.class);
+        dispatcher.dispatch(AppLifecycleEvent.RESUME, SecondActivity.class);
+
+        assertEquals(Arrays.asList("a RESUME FirstActivity", "a RESUME SecondActivity"), events);
+    }
+
+    @Test
+    public void dispatch_should_call_listeners_by_priority() throws Exception {
+        dispatcher.addListener(new RecordingListener("low", events), -1);
+        dispatcher.addListener(new RecordingListener("default", events));
+        dispatcher.addWeakListener(new RecordingListener("high", events), 1);
+
+        dispatcher.dispatch(AppLifecycleEvent.STOP, FirstActivity.class);
+
+        assertEquals(Arrays.asList("high STOP FirstActivity", "default STOP FirstActivity",
+                "low STOP FirstActivity"), events);
+    }
+
+    @Test
+    public void dispatch_should_queue_event_for_async_listener() throws Exception {
+        dispatcher.addListener(new AsyncRecordingListener("async", events));
+
+        dispatcher.dispatch(AppLifecycleEvent.RESUME, FirstActivity.class);
+
+        assertTrue(events.isEmpty());
+        assertEquals(1, queued.size());
+
+        queued.remove(0).run();
+
+        assertEquals(Arrays.asList("async RESUME FirstActivity"), events);
+    }
+
+    @Test
+    public void dispatch_should_not_allocate() throws Exception {
+        dispatcher.addListener(new OnAppResumed() {
+            @Override
+            public void onAppResumed(Class<?> origin) {
+            }
+        });
+
+        final long allocated = AllocationCounter.countAllocatedBytes(1000, new Runnable() {
+            @Override
+            public void run() {
+                dispatcher.dispatch(AppLifecycleEvent.RESUME, FirstActivity.class);
+            }
+        });
+
+        assertEquals(0, allocated);
+    }
+
+    @Test
+    public void dispatch_should_record_metrics() throws Exception {
+        final RecordingListener listener = new RecordingListener("a", events);
+        final ListenerMetrics metrics = new ListenerMetrics();
+
+        dispatcher.addListener(listener);
+        dispatcher.setListenerMetrics(metrics);
+
+        dispatcher.dispatch(AppLifecycleEvent.RESUME, FirstActivity.class);
+        dispatcher.dispatch(AppLifecycleEvent.STOP, FirstActivity.class);
+
+        final List<ListenerTimings> timings = metrics.snapshot();
+
+        assertEquals(Arrays.asList("a RESUME FirstActivity", "a STOP FirstActivity"), events);
+        assertEquals(2, timings.size());
+        assertSame(listener, timings.get(0).getListener());
+        assertSame(AppLifecycleEvent.RESUME, timings.get(0).getEvent());
+        assertSame(AppLifecycleEvent.STOP, timings.get(1).getEvent());
+    }
+
+    @Test
+    public void dispatch_should_record_metrics_for_weak_listeners() throws Exception {
+        final RecordingListener listener = new RecordingListener("weak", events);
+        final AsyncRecordingListener asyncListener = new AsyncRecordingListener("async", events);
+        final ListenerMetrics metrics = new ListenerMetrics();
+
+        dispatcher.addWeakListener(listener, 1);
+        dispatcher.addWeakListener(asyncListener);
+        dispatcher.setListenerMetrics(metrics);
+
+        dispatcher.dispatch(AppLifecycleEvent.RESUME, FirstActivity.class);
+
+        final Set<Object> measured = new HashSet<Object>();
+
+        for (ListenerTimings timing : metrics.snapshot()) {
+            measured.add(timing.getListener());
+        }
+
+        assertEquals(new HashSet<Object>(Arrays.asList(listener, asyncListener)), measured);
+    }
+
+    @Test
+    public void getMeasuredListener_should_unwrap_dispatchers() throws Exception {
+        final RecordingListener listener = new RecordingListener("a", events);
+        final WeakListenerDispatcher entry = dispatcher.listeners.createWeakEntry(listener);
+        final AsyncListenerDispatcher asyncEntry =
+                new AsyncListenerDispatcher(entry, dispatcher.asyncExecutor);
+
+        assertSame(listener, LifecycleEventDispatcher.getMeasuredListener(listener));
+        assertSame(listener, LifecycleEventDispatcher.getMeasuredListener(entry));
+        assertSame(listener, LifecycleEventDispatcher.getMeasuredListener(asyncEntry));
+
+        entry.clear();
+
+        assertNull(LifecycleEventDispatcher.getMeasuredListener(entry));
+        assertNull(LifecycleEventDispatcher.getMeasuredListener(asyncEntry));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: dispose
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void dispose_should_remove_all_listeners() throws Exception {
+        dispatcher.addListener(new RecordingListener("a", events));
+        dispatcher.addListener(new PersistentAppLifecycleListener());
+
+        dispatcher.dispose();
+
+        assertTrue(dispatcher.listeners.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: RecordingListener
+    //----------------------------------------------------------------------------------------------
+
+    static class RecordingListener implements OnAppResumed, OnAppStopped {
+        final String name;
+        final List<String> events;
+
+        RecordingListener(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        public void onAppResumed(Class<?> origin) {
+            events.add(name + " RESUME " + origin.getSimpleName());
+        }
+
+        @Override
+        public void onAppStopped(Class<?> origin) {
+            events.add(name + " STOP " + origin.getSimpleName());
+        }
+    }
+
+    static class AsyncRecordingListener extends RecordingListener
+            implements AsyncAppLifecycleEventListener {
+
+        AsyncRecordingListener(String name, List<String> events) {
+            super(name, events);
+        }
+    }
+
+}
@@ -0,0 +1,556 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppTrimMemory;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+import com.cookingfox.android.app_lifecycle.api.memory.MemoryPressure;
+import com.cookingfox.android.app_lifecycle.impl.listener.DefaultAppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.impl.listener.PersistentAppLifecycleListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ListenerRegistry}.
+ */
+public class ListenerRegistryTest {
+
+    private ListenerRegistry registry;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new ListenerRegistry();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: add
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void add_should_return_false_if_already_added() throws Exception {
+        final DefaultAppLifecycleListener listener = new DefaultAppLifecycleListener();
+
+        assertTrue(registry.add(listener));
+        assertFalse(registry.add(listener));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void add_should_use_identity_instead_of_equals() throws Exception {
+        registry.add(new EqualListener());
+        registry.add(new EqualListener());
+
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void add_should_replace_snapshot() throws Exception {
+        final AppLifecycleEventListener[] before = registry.get(AppLifecycleEvent.STOP);
+
+        registry.add(new DefaultAppLifecycleListener());
+
+        assertNotSame(before, registry.get(AppLifecycleEvent.STOP));
+        assertEquals(0, before.length);
+    }
+
+    @Test
+    public void add_should_only_add_to_subscribed_events() throws Exception {
+        final OnAppStopped listener = new OnAppStopped() {
+            @Override
+            public void onAppStopped(Class<?> origin) {
+                // no-op
+            }
+        };
+
+        registry.add(listener);
+
+        assertArrayEquals(new AppLifecycleEventListener[]{listener}, registry.get(AppLifecycleEvent.STOP));
+        assertEquals(0, registry.get(AppLifecycleEvent.START).length);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: remove
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void remove_should_return_false_if_not_added() throws Exception {
+        assertFalse(registry.remove(new DefaultAppLifecycleListener()));
+    }
+
+    @Test
+    public void remove_should_keep_order_of_other_listeners() throws Exception {
+        final DefaultAppLifecycleListener first = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener second = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener third = new DefaultAppLifecycleListener();
+
+        registry.add(first);
+        registry.add(second);
+        registry.add(third);
+
+        assertTrue(registry.remove(second));
+
+        assertArrayEquals(new AppLifecycleEventListener[]{third, first}, registry.toArray());
+        assertArrayEquals(new AppLifecycleEventListener[]{third, first}, registry.get(AppLifecycleEvent.PAUSE));
+        assertFalse(registry.contains(second));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: retainPersistent
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void retainPersistent_should_remove_other_listeners() throws Exception {
+        final DefaultAppLifecycleListener normal = new DefaultAppLifecycleListener();
+        final PersistentAppLifecycleListener persistent = new PersistentAppLifecycleListener();
+
+        registry.add(normal);
+        registry.add(persistent);
+
+        registry.retainPersistent();
+
+        assertArrayEquals(new AppLifecycleEventListener[]{persistent}, registry.toArray());
+        assertTrue(registry.contains(persistent));
+        assertFalse(registry.contains(normal));
+
+        for (AppLifecycleEvent event : AppLifecycleEvent.values()) {
+            assertArrayEquals(new AppLifecycleEventListener[]{persistent}, registry.get(event));
+        }
+    }
+
+    @Test
+    public void retainPersistent_should_share_empty_snapshot() throws Exception {
+        registry.add(new DefaultAppLifecycleListener());
+
+        registry.retainPersistent();
+
+        assertTrue(registry.isEmpty());
+        assertSame(ListenerRegistry.NO_LISTENERS, registry.get(AppLifecycleEvent.CREATE));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: memory events
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void add_should_only_add_to_subscribed_memory_events() throws Exception {
+        final TrimListener listener = new TrimListener();
+
+        registry.add(listener);
+        registry.add(new DefaultAppLifecycleListener());
+
+        assertArrayEquals(new AppLifecycleEventListener[]{listener},
+                registry.get(AppMemoryEvent.TRIM_MEMORY));
+        assertEquals(0, registry.get(AppMemoryEvent.LOW_MEMORY).length);
+        assertEquals(2, registry.get(AppLifecycleEvent.STOP).length);
+    }
+
+    @Test
+    public void remove_should_remove_from_memory_events() throws Exception {
+        final TrimListener listener = new TrimListener();
+
+        registry.add(listener);
+        registry.remove(listener);
+
+        assertEquals(0, registry.get(AppMemoryEvent.TRIM_MEMORY).length);
+    }
+
+    @Test
+    public void retainPersistent_should_keep_persistent_memory_listeners() throws Exception {
+        final PersistentTrimListener persistent = new PersistentTrimListener();
+
+        registry.add(new TrimListener());
+        registry.add(persistent);
+        registry.add(new TrimListener());
+        registry.retainPersistent();
+
+        assertArrayEquals(new AppLifecycleEventListener[]{persistent},
+                registry.get(AppMemoryEvent.TRIM_MEMORY));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: priority
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void add_should_sort_by_priority_and_reverse_order_of_adding() throws Exception {
+        final DefaultAppLifecycleListener normal = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener high = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener low = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener highLater = new DefaultAppLifecycleListener();
+
+        registry.add(normal);
+        registry.add(high, high, 10);
+        registry.add(low, low, -5);
+        registry.add(highLater, highLater, 10);
+
+        final AppLifecycleEventListener[] expected = {highLater, high, normal, low};
+
+        assertArrayEquals(expected, registry.toArray());
+        assertArrayEquals(expected, registry.get(AppLifecycleEvent.STOP));
+        assertEquals(10, registry.getPriority(high));
+        assertEquals(0, registry.getPriority(normal));
+    }
+
+    @Test
+    public void add_should_keep_priority_order_in_subscribed_events() throws Exception {
+        final DefaultAppLifecycleListener normal = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener high = new DefaultAppLifecycleListener();
+        final TrimListener trim = new TrimListener();
+        final TrimListener highTrim = new TrimListener();
+        final OnAppStopped stopOnly = new OnAppStopped() {
+            @Override
+            public void onAppStopped(Class<?> origin) {
+                // no-op
+            }
+        };
+
+        registry.add(normal);
+        registry.add(trim, trim, 1);
+        registry.add(high, high, 20);
+        registry.add(stopOnly, stopOnly, 5);
+        registry.add(highTrim, highTrim, 30);
+
+        assertArrayEquals(new AppLifecycleEventListener[]{highTrim, high, stopOnly, trim, normal},
+                registry.get(AppLifecycleEvent.STOP));
+        assertArrayEquals(new AppLifecycleEventListener[]{highTrim, high, trim, normal},
+                registry.get(AppLifecycleEvent.START));
+        assertArrayEquals(new AppLifecycleEventListener[]{highTrim, trim},
+                registry.get(AppMemoryEvent.TRIM_MEMORY));
+    }
+
+    @Test
+    public void add_should_insert_dispatch_target_at_priority() throws Exception {
+        final DefaultAppLifecycleListener normal = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener high = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener target = new DefaultAppLifecycleListener();
+
+        registry.add(normal);
+        registry.add(high, target, 1);
+
+        assertArrayEquals(new AppLifecycleEventListener[]{high, normal}, registry.toArray());
+        assertArrayEquals(new AppLifecycleEventListener[]{target, normal},
+                registry.get(AppLifecycleEvent.RESUME));
+    }
+
+    @Test
+    public void remove_should_keep_priorities_of_other_listeners() throws Exception {
+        final DefaultAppLifecycleListener first = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener second = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener third = new DefaultAppLifecycleListener();
+
+        registry.add(first, first, 5);
+        registry.add(second, second, 1);
+        registry.remove(first);
+        registry.add(third, third, 3);
+
+        assertArrayEquals(new AppLifecycleEventListener[]{third, second}, registry.toArray());
+        assertEquals(1, registry.getPriority(second));
+    }
+
+    @Test
+    public void retainPersistent_should_keep_priorities() throws Exception {
+        final PersistentAppLifecycleListener low = new PersistentAppLifecycleListener();
+        final PersistentAppLifecycleListener high = new PersistentAppLifecycleListener();
+        final DefaultAppLifecycleListener normal = new DefaultAppLifecycleListener();
+
+        registry.add(low, low, -1);
+        registry.add(normal, normal, 2);
+        registry.add(high, high, 1);
+        registry.retainPersistent();
+
+        assertEquals(-1, registry.getPriority(low));
+        assertEquals(1, registry.getPriority(high));
+
+        final DefaultAppLifecycleListener middle = new DefaultAppLifecycleListener();
+        registry.add(middle);
+
+        assertArrayEquals(new AppLifecycleEventListener[]{high, middle, low},
+                registry.get(AppLifecycleEvent.CREATE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getPriority_should_throw_if_not_added() throws Exception {
+        registry.getPriority(new DefaultAppLifecycleListener());
+    }
+
+    @Test
+    public void insertionPoint_should_return_position_before_equal_priorities() throws Exception {
+        final int[] priorities = {10, 5, 5, 0, -3};
+
+        assertEquals(0, ListenerRegistry.insertionPoint(priorities, 20));
+        assertEquals(0, ListenerRegistry.insertionPoint(priorities, 10));
+        assertEquals(1, ListenerRegistry.insertionPoint(priorities, 5));
+        assertEquals(3, ListenerRegistry.insertionPoint(priorities, 1));
+        assertEquals(5, ListenerRegistry.insertionPoint(priorities, -10));
+        assertEquals(0, ListenerRegistry.insertionPoint(ListenerRegistry.NO_PRIORITIES, 0));
+    }
+
+    @Test
+    public void concurrent_add_should_keep_priority_order() throws Exception {
+        final int numThreads = 4;
+        final int numListeners = 200;
+        final int numPriorities = 5;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<List<AppLifecycleEventListener>> added = new ArrayList<List<AppLifecycleEventListener>>();
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        for (int t = 0; t < numThreads; t++) {
+            final List<AppLifecycleEventListener> threadAdded = new ArrayList<AppLifecycleEventListener>();
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < numListeners; i++) {
+                        final AppLifecycleEventListener listener = i % 2 == 0 ?
+                                new DefaultAppLifecycleListener() : new TrimListener();
+
+                        registry.add(listener, listener, i % numPriorities);
+                        threadAdded.add(listener);
+                    }
+                }
+            });
+
+            added.add(threadAdded);
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final AppLifecycleEventListener[] all = registry.toArray();
+        final List<AppLifecycleEventListener> allList = Arrays.asList(all);
+
+        assertEquals(numThreads * numListeners, all.length);
+
+        // sorted from high to low priority
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(registry.getPriority(all[i - 1]) >= registry.getPriority(all[i]));
+        }
+
+        // per thread, listeners with the same priority are in reverse order of adding
+        for (List<AppLifecycleEventListener> threadAdded : added) {
+            for (int i = numPriorities; i < threadAdded.size(); i++) {
+                assertTrue(allList.indexOf(threadAdded.get(i)) <
+                        allList.indexOf(threadAdded.get(i - numPriorities)));
+            }
+        }
+
+        // the per-event arrays have the same order as all listeners
+        for (AppLifecycleEvent event : AppLifecycleEvent.values()) {
+            assertArrayEquals(all, registry.get(event));
+        }
+
+        final List<AppLifecycleEventListener> trimListeners = new ArrayList<AppLifecycleEventListener>();
+
+        for (AppLifecycleEventListener listener : all) {
+            if (listener instanceof TrimListener) {
+                trimListeners.add(listener);
+            }
+        }
+
+        assertArrayEquals(trimListeners.toArray(), registry.get(AppMemoryEvent.TRIM_MEMORY));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: weak listeners
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void addWeak_should_register_entry_for_listener() throws Exception {
+        final DefaultAppLifecycleListener listener = new DefaultAppLifecycleListener();
+        final WeakListenerDispatcher entry = registry.createWeakEntry(listener);
+
+        assertTrue(registry.addWeak(entry, entry, 3));
+        assertFalse(registry.addWeak(registry.createWeakEntry(listener), entry, 3));
+        assertFalse(registry.add(listener));
+
+        assertTrue(registry.contains(listener));
+        assertEquals(3, registry.getPriority(listener));
+        assertArrayEquals(new AppLifecycleEventListener[]{listener}, registry.toArray());
+        assertArrayEquals(new AppLifecycleEventListener[]{entry}, registry.get(AppLifecycleEvent.STOP));
+    }
+
+    @Test
+    public void addWeak_should_only_add_to_subscribed_events() throws Exception {
+        final TrimListener listener = new TrimListener();
+        final OnAppStopped stopOnly = new OnAppStopped() {
+            @Override
+            public void onAppStopped(Class<?> origin) {
+                // no-op
+            }
+        };
+        final WeakListenerDispatcher trimEntry = registry.createWeakEntry(listener);
+        final WeakListenerDispatcher stopEntry = registry.createWeakEntry(stopOnly);
+
+        registry.addWeak(trimEntry, trimEntry, 0);
+        registry.addWeak(stopEntry, stopEntry, 0);
+
+        assertArrayEquals(new AppLifecycleEventListener[]{trimEntry},
+                registry.get(AppMemoryEvent.TRIM_MEMORY));
+        assertArrayEquals(new AppLifecycleEventListener[]{trimEntry},
+                registry.get(AppLifecycleEvent.CREATE));
+        assertArrayEquals(new AppLifecycleEventListener[]{stopEntry, trimEntry},
+                registry.get(AppLifecycleEvent.STOP));
+    }
+
+    @Test
+    public void remove_should_remove_weak_listener() throws Exception {
+        final DefaultAppLifecycleListener listener = new DefaultAppLifecycleListener();
+        final WeakListenerDispatcher entry = registry.createWeakEntry(listener);
+
+        registry.add(new DefaultAppLifecycleListener());
+        registry.addWeak(entry, entry, 0);
+
+        assertTrue(registry.remove(listener));
+        assertFalse(registry.contains(listener));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void retainPersistent_should_keep_weak_persistent_listeners() throws Exception {
+        final PersistentAppLifecycleListener persistent = new PersistentAppLifecycleListener();
+        final DefaultAppLifecycleListener normal = new DefaultAppLifecycleListener();
+        final WeakListenerDispatcher persistentEntry = registry.createWeakEntry(persistent);
+        final WeakListenerDispatcher normalEntry = registry.createWeakEntry(normal);
+
+        registry.addWeak(persistentEntry, persistentEntry, 0);
+        registry.addWeak(normalEntry, normalEntry, 0);
+        registry.retainPersistent();
+
+        assertArrayEquals(new AppLifecycleEventListener[]{persistent}, registry.toArray());
+    }
+
+    @Test
+    public void purgeCleared_should_remove_collected_entries() throws Exception {
+        final DefaultAppLifecycleListener kept = new DefaultAppLifecycleListener();
+        final WeakListenerDispatcher keptEntry = registry.createWeakEntry(kept);
+        final WeakListenerDispatcher collected = registry.createWeakEntry(new DefaultAppLifecycleListener());
+        final WeakListenerDispatcher removed = registry.createWeakEntry(new DefaultAppLifecycleListener());
+
+        registry.addWeak(keptEntry, keptEntry, 0);
+        registry.addWeak(collected, collected, 0);
+        registry.addWeak(removed, removed, 0);
+        registry.removeEntry(removed);
+
+        assertEquals(0, registry.purgeCleared(10));
+
+        // simulate garbage collection
+        collected.clear();
+        collected.enqueue();
+        removed.clear();
+        removed.enqueue();
+
+        // collected but not purged yet: not called, but still counted
+        assertEquals(2, registry.size());
+        assertArrayEquals(new AppLifecycleEventListener[]{kept}, registry.toArray());
+
+        assertEquals(1, registry.purgeCleared(10));
+        assertEquals(1, registry.getPurgedCount());
+        assertArrayEquals(new AppLifecycleEventListener[]{keptEntry}, registry.get(AppLifecycleEvent.STOP));
+    }
+
+    @Test
+    public void snapshot_should_look_up_weak_entries_by_listener() throws Exception {
+        final DefaultAppLifecycleListener first = new DefaultAppLifecycleListener();
+        final DefaultAppLifecycleListener second = new DefaultAppLifecycleListener();
+        final WeakListenerDispatcher firstEntry = registry.createWeakEntry(first);
+        final WeakListenerDispatcher secondEntry = registry.createWeakEntry(second);
+
+        final ListenerRegistry.Snapshot both = ListenerRegistry.EMPTY
+                .plus(firstEntry, firstEntry, 0)
+                .plus(secondEntry, secondEntry, 0);
+
+        assertSame(firstEntry, both.keyOf(first));
+        assertSame(secondEntry, both.keyOf(second));
+        assertNull(both.keyOf(new DefaultAppLifecycleListener()));
+
+        // removing an entry (e.g. when purging) also removes it from the weak index
+        final ListenerRegistry.Snapshot secondOnly = both.minus(firstEntry);
+
+        assertNull(secondOnly.keyOf(first));
+        assertSame(secondEntry, secondOnly.keyOf(second));
+        assertArrayEquals(new WeakListenerDispatcher[]{secondEntry},
+                secondOnly.weakIndex.get(System.identityHashCode(second)));
+        assertTrue(ListenerRegistry.EMPTY.weakIndex.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: clear
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void clear_should_remove_all_listeners() throws Exception {
+        final PersistentAppLifecycleListener persistent = new PersistentAppLifecycleListener();
+
+        registry.add(persistent);
+        registry.clear();
+
+        assertTrue(registry.isEmpty());
+        assertFalse(registry.contains(persistent));
+        assertEquals(0, registry.get(AppLifecycleEvent.FINISH).length);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: TrimListener
+    //----------------------------------------------------------------------------------------------
+
+    static class TrimListener extends DefaultAppLifecycleListener implements OnAppTrimMemory {
+        @Override
+        public void onAppTrimMemory(MemoryPressure pressure) {
+            // no-op
+        }
+    }
+
+    static class PersistentTrimListener extends PersistentAppLifecycleListener
+            implements OnAppTrimMemory {
+        @Override
+        public void onAppTrimMemory(MemoryPressure pressure) {
+            // no-op
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: EqualListener
+    //----------------------------------------------------------------------------------------------
+
+    static final class EqualListener extends DefaultAppLifecycleListener {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EqualListener;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.cookingfox.android.app_lifecycle.impl.manager;
+
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link TransitionTable}.
+ */
+public class TransitionTableTest {
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: DEFAULT
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void default_should_allow_lifecycle_transitions() throws Exception {
+        final TransitionTable table = TransitionTable.DEFAULT;
+
+        assertEquals(EnumSet.of(AppLifecycleEvent.CREATE), table.getAllowedNext(null));
+        assertEquals(EnumSet.of(AppLifecycleEvent.START), table.getAllowedNext(AppLifecycleEvent.CREATE));
+        assertEquals(EnumSet.of(AppLifecycleEvent.RESUME, AppLifecycleEvent.STOP),
+                table.getAllowedNext(AppLifecycleEvent.START));
+        assertEquals(EnumSet.of(AppLifecycleEvent.PAUSE), table.getAllowedNext(AppLifecycleEvent.RESUME));
+        assertEquals(EnumSet.of(AppLifecycleEvent.START, AppLifecycleEvent.RESUME, AppLifecycleEvent.STOP),
+                table.getAllowedNext(AppLifecycleEvent.PAUSE));
+        assertEquals(EnumSet.of(AppLifecycleEvent.START, AppLifecycleEvent.FINISH),
+                table.getAllowedNext(AppLifecycleEvent.STOP));
+        assertEquals(EnumSet.noneOf(AppLifecycleEvent.class), table.getAllowedNext(AppLifecycleEvent.FINISH));
+    }
+
+    @Test
+    public void default_should_match_allowed_next() throws Exception {
+        final AppLifecycleEvent[] lastEvents = {null, AppLifecycleEvent.CREATE, AppLifecycleEvent.START,
+                AppLifecycleEvent.RESUME, AppLifecycleEvent.PAUSE, AppLifecycleEvent.STOP,
+                AppLifecycleEvent.FINISH};
+
+        for (AppLifecycleEvent lastEvent : lastEvents) {
+            final EnumSet<AppLifecycleEvent> allowedNext = TransitionTable.DEFAULT.getAllowedNext(lastEvent);
+
+            for (AppLifecycleEvent nextEvent : AppLifecycleEvent.values()) {
+                assertEquals(allowedNext.contains(nextEvent),
+                        TransitionTable.DEFAULT.isAllowed(lastEvent, nextEvent));
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: isAllowedInitially
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void isAllowedInitially_should_only_allow_create() throws Exception {
+        for (AppLifecycleEvent event : AppLifecycleEvent.values()) {
+            assertEquals(event == AppLifecycleEvent.CREATE, TransitionTable.DEFAULT.isAllowedInitially(event));
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: with / without
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void with_should_return_copy_with_transition() throws Exception {
+        final TransitionTable table = TransitionTable.DEFAULT.with(AppLifecycleEvent.STOP, AppLifecycleEvent.CREATE);
+
+        assertTrue(table.isAllowed(AppLifecycleEvent.STOP, AppLifecycleEvent.CREATE));
+        assertFalse(TransitionTable.DEFAULT.isAllowed(AppLifecycleEvent.STOP, AppLifecycleEvent.CREATE));
+        assertNotEquals(TransitionTable.DEFAULT, table);
+    }
+
+    @Test
+    public void without_should_return_copy_without_transition() throws Exception {
+        final TransitionTable table = TransitionTable.DEFAULT.without(null, AppLifecycleEvent.CREATE);
+
+        assertFalse(table.isAllowedInitially(AppLifecycleEvent.CREATE));
+        assertTrue(TransitionTable.DEFAULT.isAllowedInitially(AppLifecycleEvent.CREATE));
+    }
+
+    @Test
+    public void with_and_without_should_be_equal_to_original() throws Exception {
+        final TransitionTable table = TransitionTable.DEFAULT
+                .with(AppLifecycleEvent.RESUME, AppLifecycleEvent.STOP)
+                .without(AppLifecycleEvent.RESUME, AppLifecycleEvent.STOP);
+
+        assertEquals(TransitionTable.DEFAULT, table);
+        assertEquals(TransitionTable.DEFAULT.hashCode(), table.hashCode());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void with_should_throw_if_next_event_null() throws Exception {
+        TransitionTable.DEFAULT.with(AppLifecycleEvent.CREATE, null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void without_should_throw_if_next_event_null() throws Exception {
+        TransitionTable.DEFAULT.without(AppLifecycleEvent.CREATE, null);
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.cookingfox.android.app_lifecycle.impl.metrics;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.manager.AppMemoryEvent;
+import com.cookingfox.android.app_lifecycle.api.metrics.OnSlowListener;
+import com.cookingfox.android.app_lifecycle.api.metrics.OnSlowMemoryListener;
+import com.cookingfox.android.app_lifecycle.impl.listener.DefaultAppLifecycleListener;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link ListenerMetrics}.
+ */
+public class ListenerMetricsTest {
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_budget_negative() throws Exception {
+        new ListenerMetrics(-1, null);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: record
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void record_should_aggregate_per_listener_and_event() throws Exception {
+        final ListenerMetrics metrics = new ListenerMetrics();
+        final AppLifecycleEventListener listener = new DefaultAppLifecycleListener();
+
+        metrics.record(listener, AppLifecycleEvent.RESUME, 1000);
+        metrics.record(listener, AppLifecycleEvent.RESUME, 3000);
+        metrics.record(listener, AppLifecycleEvent.PAUSE, 500);
+
+        final List<ListenerTimings> timings = metrics.snapshot();
+
+        assertEquals(2, timings.size());
+
+        // the snapshot is ordered by event
+        final ListenerTimings resume = timings.get(0);
+
+        assertSame(listener, resume.getListener());
+        assertSame(AppLifecycleEvent.RESUME, resume.getEvent());
+        assertEquals(2, resume.getCount());
+        assertEquals(4000, resume.getTotalNanos());
+        assertEquals(2000, resume.getMeanNanos());
+        assertEquals(3000, resume.getMaxNanos());
+        assertSame(AppLifecycleEvent.PAUSE, timings.get(1).getEvent());
+    }
+
+    @Test
+    public void record_should_only_report_durations_over_budget() throws Exception {
+        final AtomicInteger reported = new AtomicInteger();
+        final ListenerMetrics metrics = new ListenerMetrics(1000, new OnSlowListener() {
+            @Override
+            public void onSlowListener(AppLifecycleEventListener listener, AppLifecycleEvent event, long durationNanos) {
+                reported.incrementAndGet();
+            }
+        });
+        final AppLifecycleEventListener listener = new DefaultAppLifecycleListener();
+
+        metrics.record(listener, AppLifecycleEvent.CREATE, 999);
+        metrics.record(listener, AppLifecycleEvent.CREATE, 1000);
+        metrics.record(listener, AppLifecycleEvent.CREATE, 1001);
+
+        assertEquals(1, reported.get());
+    }
+
+    @Test
+    public void record_should_report_slow_memory_listeners_to_memory_callback() throws Exception {
+        final List<AppMemoryEvent> reported = new LinkedList<AppMemoryEvent>();
+        final ListenerMetrics metrics = new ListenerMetrics(1000, new SlowMemoryListenerCallback() {
+            @Override
+            public void onSlowListener(AppLifecycleEventListener listener, AppLifecycleEvent event, long durationNanos) {
+                fail("Memory event reported as lifecycle event");
+            }
+
+            @Override
+            public void onSlowMemoryListener(AppLifecycleEventListener listener,
+                                             AppMemoryEvent event, long durationNanos) {
+                reported.add(event);
+            }
+        });
+        final AppLifecycleEventListener listener = new DefaultAppLifecycleListener();
+
+        metrics.record(listener, AppMemoryEvent.TRIM_MEMORY, 1000);
+        metrics.record(listener, AppMemoryEvent.LOW_MEMORY, 1001);
+
+        assertEquals(Arrays.asList(AppMemoryEvent.LOW_MEMORY), reported);
+    }
+
+    @Test
+    public void snapshot_should_contain_memory_events_after_lifecycle_events() throws Exception {
+        final ListenerMetrics metrics = new ListenerMetrics();
+        final AppLifecycleEventListener listener = new DefaultAppLifecycleListener();
+
+        metrics.record(listener, AppMemoryEvent.TRIM_MEMORY, 4000);
+        metrics.record(listener, AppLifecycleEvent.STOP, 1000);
+
+        final List<ListenerTimings> timings = metrics.snapshot();
+
+        assertEquals(2, timings.size());
+        assertSame(AppLifecycleEvent.STOP, timings.get(0).getEvent());
+        assertNull(timings.get(0).getMemoryEvent());
+        assertNull(timings.get(1).getEvent());
+        assertSame(AppMemoryEvent.TRIM_MEMORY, timings.get(1).getMemoryEvent());
+        assertEquals(4000, timings.get(1).getMaxNanos());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: histogram
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void getBucket_should_use_exponential_buckets() throws Exception {
+        assertEquals(0, ListenerMetrics.getBucket(0));
+        assertEquals(0, ListenerMetrics.getBucket(1023));
+        assertEquals(1, ListenerMetrics.getBucket(1024));
+        assertEquals(1, ListenerMetrics.getBucket(2047));
+        assertEquals(2, ListenerMetrics.getBucket(2048));
+        assertEquals(ListenerMetrics.NUM_BUCKETS - 1, ListenerMetrics.getBucket(Long.MAX_VALUE));
+
+        for (int i = 0; i < ListenerMetrics.NUM_BUCKETS - 1; i++) {
+            final long upperBound = ListenerMetrics.getBucketUpperBoundNanos(i);
+
+            assertEquals(i, ListenerMetrics.getBucket(upperBound - 1));
+            assertEquals(i + 1, ListenerMetrics.getBucket(upperBound));
+        }
+    }
+
+    @Test
+    public void getPercentileNanos_should_estimate_from_histogram() throws Exception {
+        final ListenerMetrics metrics = new ListenerMetrics();
+        final AppLifecycleEventListener listener = new DefaultAppLifecycleListener();
+
+        for (int i = 0; i < 99; i++) {
+            metrics.record(listener, AppLifecycleEvent.START, 100);
+        }
+
+        metrics.record(listener, AppLifecycleEvent.START, 50000);
+
+        final ListenerTimings timings = metrics.snapshot().get(0);
+
+        assertEquals(ListenerMetrics.getBucketUpperBoundNanos(0), timings.getPercentileNanos(50));
+        assertEquals(50000, timings.getPercentileNanos(100));
+        assertEquals(99, timings.getHistogram()[0]);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: reset
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void reset_should_remove_all_measurements() throws Exception {
+        final ListenerMetrics metrics = new ListenerMetrics();
+
+        metrics.record(new DefaultAppLifecycleListener(), AppLifecycleEvent.STOP, 1);
+        metrics.reset();
+
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASS: SlowMemoryListenerCallback
+    //----------------------------------------------------------------------------------------------
+
+    interface SlowMemoryListenerCallback extends OnSlowListener, OnSlowMemoryListener {
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.cookingfox.android.app_lifecycle.impl.metrics;
+
+import android.app.Activity;
+
+import com.cookingfox.android.app_lifecycle.api.metrics.OnAppStartup;
+import com.cookingfox.android.app_lifecycle.api.metrics.StartupTiming;
+import com.cookingfox.android.app_lifecycle.api.metrics.StartupType;
+import com.cookingfox.android.app_lifecycle.fixture.FakeClock;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.fixture.SecondActivity;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link StartupTracker}.
+ */
+public class StartupTrackerTest {
+
+    private static final long PROCESS_START = 1000;
+    private static final long APPLICATION_INIT = 1100;
+
+    private final Activity firstActivity = new FirstActivity();
+    private final Activity secondActivity = new SecondActivity();
+    private final List<StartupTiming> timings = new LinkedList<StartupTiming>();
+
+    private FakeClock clock;
+    private CrossActivityAppLifecycleManager manager;
+    private StartupTracker tracker;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new FakeClock(APPLICATION_INIT);
+        manager = new CrossActivityAppLifecycleManager();
+        tracker = new StartupTracker(clock, PROCESS_START);
+        tracker.addListener(new OnAppStartup() {
+            @Override
+            public void onAppStartup(StartupTiming timing) {
+                timings.add(timing);
+            }
+        });
+
+        manager.addListener(tracker);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_clock_null() throws Exception {
+        new StartupTracker(null, PROCESS_START);
+    }
+
+    @Test
+    public void constructor_should_use_current_time_as_application_init() throws Exception {
+        assertEquals(PROCESS_START, tracker.getProcessStartMillis());
+        assertEquals(APPLICATION_INIT, tracker.getApplicationInitMillis());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: launches
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void first_launch_should_be_cold_from_process_start() throws Exception {
+        launch(firstActivity);
+
+        assertEquals(1, timings.size());
+
+        final StartupTiming timing = timings.get(0);
+
+        assertSame(StartupType.COLD, timing.getType());
+        assertEquals(PROCESS_START, timing.getLaunchMillis());
+        assertEquals(APPLICATION_INIT + 10, timing.getActivityCreateMillis());
+        assertEquals(APPLICATION_INIT + 30, timing.getResumeMillis());
+        assertEquals(APPLICATION_INIT + 30 - PROCESS_START, timing.getDurationMillis());
+        assertSame(timing, tracker.getLastStartup());
+    }
+
+    @Test
+    public void cold_launch_should_use_application_init_if_process_start_unknown() throws Exception {
+        tracker = new StartupTracker(clock, StartupTiming.UNKNOWN);
+        manager.addListener(tracker);
+
+        launch(firstActivity);
+
+        assertEquals(APPLICATION_INIT, tracker.getLastStartup().getLaunchMillis());
+    }
+
+    @Test
+    public void launch_after_finish_should_be_warm() throws Exception {
+        launch(firstActivity);
+        finish(firstActivity);
+
+        final long createMillis = clock.now + 10;
+
+        launch(firstActivity);
+
+        assertEquals(2, timings.size());
+
+        final StartupTiming timing = timings.get(1);
+
+        assertSame(StartupType.WARM, timing.getType());
+        assertEquals(createMillis, timing.getLaunchMillis());
+        assertEquals(createMillis, timing.getActivityCreateMillis());
+        assertEquals(20, timing.getDurationMillis());
+    }
+
+    @Test
+    public void foreground_after_background_should_be_hot() throws Exception {
+        launch(firstActivity);
+
+        manager.onPause(firstActivity);
+        manager.onStop(firstActivity);
+
+        clock.now += 10;
+        manager.onStart(firstActivity);
+        clock.now += 5;
+        manager.onResume(firstActivity);
+
+        assertEquals(2, timings.size());
+
+        final StartupTiming timing = timings.get(1);
+
+        assertSame(StartupType.HOT, timing.getType());
+        assertEquals(StartupTiming.UNKNOWN, timing.getActivityCreateMillis());
+        assertEquals(5, timing.getDurationMillis());
+    }
+
+    @Test
+    public void navigating_between_activities_should_not_be_a_launch() throws Exception {
+        launch(firstActivity);
+
+        manager.onPause(firstActivity);
+        manager.onStart(secondActivity);
+        manager.onResume(secondActivity);
+        manager.onStop(firstActivity);
+        manager.onPause(secondActivity);
+        manager.onResume(firstActivity);
+
+        assertEquals(1, timings.size());
+    }
+
+    @Test
+    public void no_listener_should_be_called_before_first_resume() throws Exception {
+        manager.onCreate(firstActivity);
+        manager.onStart(firstActivity);
+
+        assertTrue(timings.isEmpty());
+        assertNull(tracker.getLastStartup());
+    }
+
+    @Test
+    public void removed_listener_should_not_be_called() throws Exception {
+        final List<StartupTiming> removedTimings = new LinkedList<StartupTiming>();
+        final OnAppStartup listener = new OnAppStartup() {
+            @Override
+            public void onAppStartup(StartupTiming timing) {
+                removedTimings.add(timing);
+            }
+        };
+
+        tracker.addListener(listener);
+        tracker.removeListener(listener);
+
+        launch(firstActivity);
+
+        assertTrue(removedTimings.isEmpty());
+        assertEquals(1, timings.size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private void launch(Activity activity) {
+        clock.now += 10;
+        manager.onCreate(activity);
+        clock.now += 10;
+        manager.onStart(activity);
+        clock.now += 10;
+        manager.onResume(activity);
+    }
+
+    private void finish(Activity activity) {
+        manager.onPause(activity);
+        manager.onStop(activity);
+        manager.onFinish(activity);
+    }
+
+}
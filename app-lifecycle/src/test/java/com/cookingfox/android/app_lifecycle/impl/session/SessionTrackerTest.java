@@ -0,0 +1,239 @@
+package com.cookingfox.android.app_lifecycle.impl.session;
+
+import android.app.Activity;
+
+import com.cookingfox.android.app_lifecycle.api.session.SessionListener;
+import com.cookingfox.android.app_lifecycle.fixture.AllocationCounter;
+import com.cookingfox.android.app_lifecycle.fixture.FakeClock;
+import com.cookingfox.android.app_lifecycle.fixture.FirstActivity;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link SessionTracker}.
+ */
+public class SessionTrackerTest {
+
+    private static final long TIMEOUT = 1000;
+
+    private final Activity activity = new FirstActivity();
+    private final List<String> sessionEvents = new LinkedList<String>();
+
+    private FakeClock clock;
+    private CrossActivityAppLifecycleManager manager;
+    private SessionTracker tracker;
+
+    //----------------------------------------------------------------------------------------------
+    // SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new FakeClock(5000);
+        manager = new CrossActivityAppLifecycleManager();
+        tracker = new SessionTracker(clock, TIMEOUT);
+        tracker.addListener(new SessionListener() {
+            @Override
+            public void onSessionStarted(long sessionId) {
+                sessionEvents.add("started " + sessionId);
+            }
+
+            @Override
+            public void onSessionEnded(long sessionId, long foregroundMillis, long backgroundMillis) {
+                sessionEvents.add("ended " + sessionId + " " + foregroundMillis + " " + backgroundMillis);
+            }
+        });
+
+        manager.addListener(tracker);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_clock_null() throws Exception {
+        new SessionTracker(null, TIMEOUT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_timeout_negative() throws Exception {
+        new SessionTracker(clock, -1);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: sessions
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void should_not_have_session_before_start() throws Exception {
+        assertEquals(SessionTracker.NO_SESSION, tracker.getSessionId());
+        assertFalse(tracker.isInForeground());
+        assertEquals(0, tracker.getForegroundMillis());
+        assertEquals(0, tracker.getBackgroundMillis());
+    }
+
+    @Test
+    public void start_should_start_first_session() throws Exception {
+        manager.onCreate(activity);
+        manager.onStart(activity);
+
+        assertEquals(1, tracker.getSessionId());
+        assertEquals(5000, tracker.getSessionStartMillis());
+        assertTrue(tracker.isInForeground());
+        assertEquals(1, sessionEvents.size());
+        assertEquals("started 1", sessionEvents.get(0));
+    }
+
+    @Test
+    public void start_within_timeout_should_continue_session() throws Exception {
+        launch();
+        clock.advance(100);
+        background();
+        clock.advance(TIMEOUT);
+        foreground();
+        clock.advance(50);
+
+        assertEquals(1, tracker.getSessionId());
+        assertEquals(150, tracker.getForegroundMillis());
+        assertEquals(TIMEOUT, tracker.getBackgroundMillis());
+        assertEquals(1, sessionEvents.size());
+    }
+
+    @Test
+    public void start_after_timeout_should_end_session_and_start_new_one() throws Exception {
+        launch();
+        clock.advance(100);
+        background();
+        clock.advance(200);
+        foreground();
+        clock.advance(300);
+        background();
+        clock.advance(TIMEOUT + 1);
+
+        // the session is over, but the listeners are only notified on the next start
+        assertEquals(SessionTracker.NO_SESSION, tracker.getSessionId());
+        assertEquals(0, tracker.getBackgroundMillis());
+        assertEquals(1, sessionEvents.size());
+
+        foreground();
+
+        assertEquals(2, tracker.getSessionId());
+        assertEquals(0, tracker.getForegroundMillis());
+        assertEquals(0, tracker.getBackgroundMillis());
+        assertEquals(3, sessionEvents.size());
+        assertEquals("ended 1 400 200", sessionEvents.get(1));
+        assertEquals("started 2", sessionEvents.get(2));
+    }
+
+    @Test
+    public void getters_should_report_no_session_after_timeout() throws Exception {
+        launch();
+        clock.advance(100);
+        background();
+        clock.advance(TIMEOUT);
+
+        assertEquals(1, tracker.getSessionId());
+        assertEquals(5000, tracker.getSessionStartMillis());
+        assertEquals(100, tracker.getForegroundMillis());
+        assertEquals(TIMEOUT, tracker.getBackgroundMillis());
+
+        clock.advance(1);
+
+        assertEquals(SessionTracker.NO_SESSION, tracker.getSessionId());
+        assertEquals(0, tracker.getSessionStartMillis());
+        assertEquals(0, tracker.getForegroundMillis());
+        assertEquals(0, tracker.getBackgroundMillis());
+        assertFalse(tracker.isInForeground());
+    }
+
+    @Test
+    public void session_should_continue_after_finish() throws Exception {
+        launch();
+        clock.advance(100);
+        manager.onPause(activity);
+        manager.onStop(activity);
+        manager.onFinish(activity);
+        clock.advance(100);
+        launch();
+
+        assertEquals(1, tracker.getSessionId());
+        assertEquals(100, tracker.getForegroundMillis());
+        assertEquals(100, tracker.getBackgroundMillis());
+    }
+
+    @Test
+    public void removed_listener_should_not_be_called() throws Exception {
+        final SessionListener listener = new SessionListener() {
+            @Override
+            public void onSessionStarted(long sessionId) {
+                throw new AssertionError("Removed listener was called");
+            }
+
+            @Override
+            public void onSessionEnded(long sessionId, long foregroundMillis, long backgroundMillis) {
+                throw new AssertionError("Removed listener was called");
+            }
+        };
+
+        tracker.addListener(listener);
+        tracker.removeListener(listener);
+
+        launch();
+
+        assertEquals(1, sessionEvents.size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: allocation
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void getters_should_not_allocate() throws Exception {
+        launch();
+        clock.advance(100);
+        background();
+
+        final long allocated = AllocationCounter.countAllocatedBytes(1000, new Runnable() {
+            @Override
+            public void run() {
+                clock.advance(1);
+                tracker.getSessionId();
+                tracker.getForegroundMillis();
+                tracker.getBackgroundMillis();
+            }
+        });
+
+        assertEquals(0, allocated);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private void launch() {
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        manager.onResume(activity);
+    }
+
+    private void background() {
+        manager.onPause(activity);
+        manager.onStop(activity);
+    }
+
+    private void foreground() {
+        manager.onStart(activity);
+        manager.onResume(activity);
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.cookingfox.android.app_lifecycle.benchmark;
+
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppResumed;
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.api.time.Clock;
+import com.cookingfox.android.app_lifecycle.impl.history.LifecycleHistory;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+import com.cookingfox.android.app_lifecycle.impl.manager.LifecycleEventDispatcher;
+import com.cookingfox.android.app_lifecycle.impl.session.SessionTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Covers the event paths that should not allocate once they are warmed up: notifying the manager's
+ * listeners, dispatching through a {@link LifecycleEventDispatcher}, querying the session state and
+ * recording the lifecycle history. Run with the GC profiler and check that `gc.alloc.rate.norm` is zero:
+ * <pre>
+ * ./gradlew :benchmark:jmhJar
+ * java -jar benchmark/build/libs/benchmark-jmh.jar AllocationBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class AllocationBenchmark {
+
+    private static final int NUM_LISTENERS = 10;
+
+    private final FirstActivity activity = new FirstActivity();
+    private final CountingListeners listeners = new CountingListeners();
+    private CrossActivityAppLifecycleManager manager;
+    private LifecycleEventDispatcher dispatcher;
+    private SessionTracker sessionTracker;
+    private LifecycleHistory history;
+    private File historyFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        manager = new CrossActivityAppLifecycleManager();
+
+        for (int i = 0; i < NUM_LISTENERS; i++) {
+            manager.addListener(listeners.createAllEvents());
+        }
+
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        manager.onResume(activity);
+
+        dispatcher = new LifecycleEventDispatcher();
+        dispatcher.addListener(new OnAppResumed() {
+            @Override
+            public void onAppResumed(Class<?> origin) {
+                listeners.count++;
+            }
+        });
+
+        // a session never times out between the benchmark calls
+        sessionTracker = new SessionTracker(Clock.SYSTEM, TimeUnit.HOURS.toMillis(1));
+        sessionTracker.onAppStarted(FirstActivity.class);
+        sessionTracker.onAppStopped(FirstActivity.class);
+
+        historyFile = File.createTempFile("lifecycle-history", null);
+        history = new LifecycleHistory(historyFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        historyFile.delete();
+    }
+
+    @Benchmark
+    public int managerPauseResume() {
+        manager.onPause(activity);
+        manager.onResume(activity);
+
+        return listeners.count;
+    }
+
+    @Benchmark
+    public int dispatcherResume() {
+        dispatcher.dispatch(AppLifecycleEvent.RESUME, FirstActivity.class);
+
+        return listeners.count;
+    }
+
+    @Benchmark
+    public long sessionQuery() {
+        return sessionTracker.getSessionId() + sessionTracker.getForegroundMillis() +
+                sessionTracker.getBackgroundMillis();
+    }
+
+    @Benchmark
+    public LifecycleHistory historyStartStop() {
+        history.onAppStarted(FirstActivity.class);
+        history.onAppStopped(FirstActivity.class);
+
+        return history;
+    }
+
+}
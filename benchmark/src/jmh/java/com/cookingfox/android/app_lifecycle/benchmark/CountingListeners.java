@@ -0,0 +1,157 @@
+package com.cookingfox.android.app_lifecycle.benchmark;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleListener;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppCreated;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppFinished;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppPaused;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppResumed;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStarted;
+import com.cookingfox.android.app_lifecycle.api.listener.OnAppStopped;
+import com.cookingfox.android.app_lifecycle.impl.listener.PersistentAppLifecycleListener;
+
+/**
+ * Listeners for benchmarks, which count their invocations so the calls can not be optimized away.
+ */
+final class CountingListeners {
+
+    /**
+     * Number of listener types that are interested in a single event.
+     */
+    static final int NUM_SINGLE_EVENT_TYPES = 6;
+
+    /**
+     * Total number of listener invocations.
+     */
+    int count;
+
+    /**
+     * Creates a listener that implements all event interfaces.
+     */
+    AppLifecycleEventListener createAllEvents() {
+        return new AppLifecycleListener() {
+            @Override
+            public void onAppCreated(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppStarted(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppResumed(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppPaused(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppStopped(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppFinished(Class<?> origin) {
+                count++;
+            }
+        };
+    }
+
+    /**
+     * Creates a listener that implements all event interfaces and is not removed when the app
+     * finishes, so it can be used for multiple create to finish cycles.
+     */
+    AppLifecycleEventListener createPersistent() {
+        return new PersistentAppLifecycleListener() {
+            @Override
+            public void onAppCreated(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppStarted(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppResumed(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppPaused(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppStopped(Class<?> origin) {
+                count++;
+            }
+
+            @Override
+            public void onAppFinished(Class<?> origin) {
+                count++;
+            }
+        };
+    }
+
+    /**
+     * Creates a listener that implements a single event interface.
+     *
+     * @param type The event type, from 0 (created) to {@link #NUM_SINGLE_EVENT_TYPES} (exclusive).
+     */
+    AppLifecycleEventListener createSingleEvent(int type) {
+        switch (type) {
+            case 0:
+                return new OnAppCreated() {
+                    @Override
+                    public void onAppCreated(Class<?> origin) {
+                        count++;
+                    }
+                };
+            case 1:
+                return new OnAppStarted() {
+                    @Override
+                    public void onAppStarted(Class<?> origin) {
+                        count++;
+                    }
+                };
+            case 2:
+                return new OnAppResumed() {
+                    @Override
+                    public void onAppResumed(Class<?> origin) {
+                        count++;
+                    }
+                };
+            case 3:
+                return new OnAppPaused() {
+                    @Override
+                    public void onAppPaused(Class<?> origin) {
+                        count++;
+                    }
+                };
+            case 4:
+                return new OnAppStopped() {
+                    @Override
+                    public void onAppStopped(Class<?> origin) {
+                        count++;
+                    }
+                };
+            case 5:
+                return new OnAppFinished() {
+                    @Override
+                    public void onAppFinished(Class<?> origin) {
+                        count++;
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unsupported listener type: " + type);
+        }
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.cookingfox.android.app_lifecycle.benchmark;
+
+import android.app.Activity;
+
+/**
+ * Stand-in activity for benchmarks.
+ */
+public class FirstActivity extends Activity {
+}
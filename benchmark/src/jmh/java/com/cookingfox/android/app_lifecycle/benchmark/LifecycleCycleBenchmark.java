@@ -0,0 +1,111 @@
+package com.cookingfox.android.app_lifecycle.benchmark;
+
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete lifecycle sequences, as reported by the activity callbacks: a full create to
+ * finish cycle of the app, and navigating to a second activity and back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class LifecycleCycleBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int numListeners;
+
+    private final FirstActivity first = new FirstActivity();
+    private final CountingListeners listeners = new CountingListeners();
+    private CrossActivityAppLifecycleManager manager;
+
+    @Setup
+    public void setUp() {
+        manager = new CrossActivityAppLifecycleManager();
+
+        // persistent, so the listeners are still registered after the app finishes
+        for (int i = 0; i < numListeners; i++) {
+            manager.addListener(listeners.createPersistent());
+        }
+    }
+
+    /**
+     * The app is created, moved to foreground and background, and finished: six app events.
+     */
+    @Benchmark
+    public int createToFinish() {
+        manager.onCreate(first);
+        manager.onStart(first);
+        manager.onResume(first);
+        manager.onPause(first);
+        manager.onStop(first);
+        manager.onFinish(first);
+
+        return listeners.count;
+    }
+
+    /**
+     * The first activity starts the second activity, which is then finished to go back to the
+     * first. The app stays in foreground, so only the pause and resume of each hand-over are app
+     * events, and most callbacks only update the tracked activity instances.
+     */
+    @Benchmark
+    public int crossActivityTransition(ResumedFirst state) {
+        final CrossActivityAppLifecycleManager manager = state.manager;
+
+        // first -> second
+        manager.onPause(state.first);
+        manager.onCreate(state.second);
+        manager.onStart(state.second);
+        manager.onResume(state.second);
+        manager.onStop(state.first);
+
+        // second -> first
+        manager.onPause(state.second);
+        manager.onStart(state.first);
+        manager.onResume(state.first);
+        manager.onStop(state.second);
+        manager.onFinish(state.second);
+
+        return state.listeners.count;
+    }
+
+    /**
+     * State for the transition benchmark: a manager with registered listeners, of which the first
+     * activity is resumed. JMH creates a separate benchmark instance to inject, so this state does
+     * not share the manager or activities of the benchmark.
+     */
+    @State(Scope.Thread)
+    public static class ResumedFirst {
+
+        final FirstActivity first = new FirstActivity();
+        final SecondActivity second = new SecondActivity();
+        final CountingListeners listeners = new CountingListeners();
+        CrossActivityAppLifecycleManager manager;
+
+        @Setup
+        public void setUp(LifecycleCycleBenchmark benchmark) {
+            manager = new CrossActivityAppLifecycleManager();
+
+            for (int i = 0; i < benchmark.numListeners; i++) {
+                manager.addListener(listeners.createPersistent());
+            }
+
+            manager.onCreate(first);
+            manager.onStart(first);
+            manager.onResume(first);
+        }
+
+    }
+
+}
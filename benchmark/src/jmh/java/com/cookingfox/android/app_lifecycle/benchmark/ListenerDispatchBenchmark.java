@@ -0,0 +1,83 @@
+package com.cookingfox.android.app_lifecycle.benchmark;
+
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+import com.cookingfox.android.app_lifecycle.impl.metrics.ListenerMetrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of dispatching a pause and resume event, depending on the number of listeners
+ * and the events they are interested in, with and without listener metrics.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ListenerDispatchBenchmark {
+
+    /**
+     * Which events the registered listeners are interested in.
+     */
+    public enum InterestMix {
+        /**
+         * Every listener implements all event interfaces.
+         */
+        ALL_EVENTS,
+
+        /**
+         * Every listener implements a single event interface, evenly spread over all events.
+         */
+        SINGLE_EVENT
+    }
+
+    @Param({"1", "10", "100", "1000"})
+    public int numListeners;
+
+    @Param({"ALL_EVENTS", "SINGLE_EVENT"})
+    public InterestMix interestMix;
+
+    @Param({"false", "true"})
+    public boolean measured;
+
+    private final FirstActivity activity = new FirstActivity();
+    private final CountingListeners listeners = new CountingListeners();
+    private CrossActivityAppLifecycleManager manager;
+
+    @Setup
+    public void setUp() {
+        manager = new CrossActivityAppLifecycleManager();
+
+        if (measured) {
+            manager.setListenerMetrics(new ListenerMetrics());
+        }
+
+        for (int i = 0; i < numListeners; i++) {
+            if (interestMix == InterestMix.ALL_EVENTS) {
+                manager.addListener(listeners.createAllEvents());
+            } else {
+                manager.addListener(listeners.createSingleEvent(i % CountingListeners.NUM_SINGLE_EVENT_TYPES));
+            }
+        }
+
+        manager.onCreate(activity);
+        manager.onStart(activity);
+        manager.onResume(activity);
+    }
+
+    @Benchmark
+    public int pauseResume() {
+        manager.onPause(activity);
+        manager.onResume(activity);
+
+        return listeners.count;
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.cookingfox.android.app_lifecycle.benchmark;
+
+import com.cookingfox.android.app_lifecycle.api.listener.AppLifecycleEventListener;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of registering and unregistering listeners, depending on the number of
+ * listeners, and of removing all listeners when the app finishes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ListenerRegistrationBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int numListeners;
+
+    private final CountingListeners counting = new CountingListeners();
+    private AppLifecycleEventListener[] listeners;
+    private CrossActivityAppLifecycleManager manager;
+
+    @Setup(Level.Trial)
+    public void createListeners() {
+        listeners = new AppLifecycleEventListener[numListeners];
+
+        for (int i = 0; i < numListeners; i++) {
+            listeners[i] = counting.createSingleEvent(i % CountingListeners.NUM_SINGLE_EVENT_TYPES);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createManager() {
+        manager = new CrossActivityAppLifecycleManager();
+    }
+
+    @Benchmark
+    public CrossActivityAppLifecycleManager addListeners() {
+        for (AppLifecycleEventListener listener : listeners) {
+            manager.addListener(listener);
+        }
+
+        return manager;
+    }
+
+    /**
+     * State for the remove benchmark: a manager with registered listeners.
+     */
+    @State(Scope.Thread)
+    public static class RegisteredManager {
+
+        AppLifecycleEventListener[] listeners;
+        CrossActivityAppLifecycleManager manager;
+
+        @Setup(Level.Invocation)
+        public void setUp(ListenerRegistrationBenchmark benchmark) {
+            listeners = benchmark.listeners;
+            manager = new CrossActivityAppLifecycleManager();
+
+            for (AppLifecycleEventListener listener : listeners) {
+                manager.addListener(listener);
+            }
+        }
+
+    }
+
+    @Benchmark
+    public CrossActivityAppLifecycleManager removeListeners(RegisteredManager state) {
+        // removed in the order they were added: the worst case for the dispatch arrays
+        for (AppLifecycleEventListener listener : state.listeners) {
+            state.manager.removeListener(listener);
+        }
+
+        return state.manager;
+    }
+
+    /**
+     * State for the finish benchmark: a manager with registered listeners in the stopped state.
+     */
+    @State(Scope.Thread)
+    public static class StoppedManager {
+
+        final FirstActivity activity = new FirstActivity();
+        CrossActivityAppLifecycleManager manager;
+
+        @Setup(Level.Invocation)
+        public void setUp(ListenerRegistrationBenchmark benchmark) {
+            manager = new CrossActivityAppLifecycleManager();
+
+            for (AppLifecycleEventListener listener : benchmark.listeners) {
+                manager.addListener(listener);
+            }
+
+            manager.onCreate(activity);
+            manager.onStart(activity);
+            manager.onResume(activity);
+            manager.onPause(activity);
+            manager.onStop(activity);
+        }
+
+    }
+
+    @Benchmark
+    public CrossActivityAppLifecycleManager finishTeardown(StoppedManager state) {
+        state.manager.onFinish(state.activity);
+
+        return state.manager;
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.cookingfox.android.app_lifecycle.benchmark;
+
+import android.app.Activity;
+
+/**
+ * Second stand-in activity for benchmarks, for transitions between activities.
+ */
+public class SecondActivity extends Activity {
+}
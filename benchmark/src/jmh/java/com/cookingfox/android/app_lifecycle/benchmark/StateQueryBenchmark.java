@@ -0,0 +1,64 @@
+package com.cookingfox.android.app_lifecycle.benchmark;
+
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.impl.manager.CrossActivityAppLifecycleManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures querying the app state, as a network layer would on every request, both without
+ * contention and while the main thread keeps moving the app between resumed and paused.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Group)
+public class StateQueryBenchmark {
+
+    private final FirstActivity first = new FirstActivity();
+    private CrossActivityAppLifecycleManager manager;
+
+    @Setup
+    public void setUp() {
+        manager = new CrossActivityAppLifecycleManager();
+        manager.onCreate(first);
+        manager.onStart(first);
+        manager.onResume(first);
+    }
+
+    @Benchmark
+    @Group("foreground")
+    public boolean isInForeground() {
+        return manager.isInForeground();
+    }
+
+    @Benchmark
+    @Group("timeSinceLastTransition")
+    public long getTimeSinceLastTransition() {
+        return manager.getTimeSinceLastTransition();
+    }
+
+    @Benchmark
+    @Group("contended")
+    public AppLifecycleEvent contendedQuery() {
+        return manager.getCurrentState();
+    }
+
+    @Benchmark
+    @Group("contended")
+    public AppLifecycleEvent contendedTransitions() {
+        manager.onPause(first);
+        manager.onResume(first);
+
+        return manager.getCurrentState();
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.cookingfox.android.app_lifecycle.benchmark;
+
+import com.cookingfox.android.app_lifecycle.api.manager.AppLifecycleEvent;
+import com.cookingfox.android.app_lifecycle.impl.manager.TransitionTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validating every transition of a create to finish cycle with the transition table,
+ * against the previous approaches: a varargs list of allowed last events per call, and the same
+ * list as a precomputed array.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TransitionValidationBenchmark {
+
+    static final AppLifecycleEvent[] VALID_BEFORE_CREATE = {null};
+    static final AppLifecycleEvent[] VALID_BEFORE_START =
+            {AppLifecycleEvent.CREATE, AppLifecycleEvent.PAUSE, AppLifecycleEvent.STOP};
+    static final AppLifecycleEvent[] VALID_BEFORE_RESUME = {AppLifecycleEvent.START, AppLifecycleEvent.PAUSE};
+    static final AppLifecycleEvent[] VALID_BEFORE_PAUSE = {AppLifecycleEvent.RESUME};
+    static final AppLifecycleEvent[] VALID_BEFORE_STOP = {AppLifecycleEvent.START, AppLifecycleEvent.PAUSE};
+    static final AppLifecycleEvent[] VALID_BEFORE_FINISH = {AppLifecycleEvent.STOP};
+
+    /**
+     * The last events of a create to finish cycle, starting with the initial state.
+     */
+    private final AppLifecycleEvent[] lastEvents = {null, AppLifecycleEvent.CREATE,
+            AppLifecycleEvent.START, AppLifecycleEvent.RESUME, AppLifecycleEvent.PAUSE,
+            AppLifecycleEvent.STOP};
+
+    private final TransitionTable transitions = TransitionTable.DEFAULT;
+
+    @Benchmark
+    public int varargsAsList() {
+        int valid = 0;
+
+        for (AppLifecycleEvent lastEvent : lastEvents) {
+            if (isValidAsList(lastEvent, (AppLifecycleEvent) null)) {
+                valid++;
+            }
+            if (isValidAsList(lastEvent,
+                    AppLifecycleEvent.CREATE, AppLifecycleEvent.PAUSE, AppLifecycleEvent.STOP)) {
+                valid++;
+            }
+            if (isValidAsList(lastEvent, AppLifecycleEvent.START, AppLifecycleEvent.PAUSE)) {
+                valid++;
+            }
+            if (isValidAsList(lastEvent, AppLifecycleEvent.RESUME)) {
+                valid++;
+            }
+            if (isValidAsList(lastEvent, AppLifecycleEvent.START, AppLifecycleEvent.PAUSE)) {
+                valid++;
+            }
+            if (isValidAsList(lastEvent, AppLifecycleEvent.STOP)) {
+                valid++;
+            }
+        }
+
+        return valid;
+    }
+
+    @Benchmark
+    public int constantArrays() {
+        int valid = 0;
+
+        for (AppLifecycleEvent lastEvent : lastEvents) {
+            if (isValidLoop(lastEvent, VALID_BEFORE_CREATE)) {
+                valid++;
+            }
+            if (isValidLoop(lastEvent, VALID_BEFORE_START)) {
+                valid++;
+            }
+            if (isValidLoop(lastEvent, VALID_BEFORE_RESUME)) {
+                valid++;
+            }
+            if (isValidLoop(lastEvent, VALID_BEFORE_PAUSE)) {
+                valid++;
+            }
+            if (isValidLoop(lastEvent, VALID_BEFORE_STOP)) {
+                valid++;
+            }
+            if (isValidLoop(lastEvent, VALID_BEFORE_FINISH)) {
+                valid++;
+            }
+        }
+
+        return valid;
+    }
+
+    @Benchmark
+    public int transitionTable() {
+        int valid = 0;
+
+        for (AppLifecycleEvent lastEvent : lastEvents) {
+            if (transitions.isAllowed(lastEvent, AppLifecycleEvent.CREATE)) {
+                valid++;
+            }
+            if (transitions.isAllowed(lastEvent, AppLifecycleEvent.START)) {
+                valid++;
+            }
+            if (transitions.isAllowed(lastEvent, AppLifecycleEvent.RESUME)) {
+                valid++;
+            }
+            if (transitions.isAllowed(lastEvent, AppLifecycleEvent.PAUSE)) {
+                valid++;
+            }
+            if (transitions.isAllowed(lastEvent, AppLifecycleEvent.STOP)) {
+                valid++;
+            }
+            if (transitions.isAllowed(lastEvent, AppLifecycleEvent.FINISH)) {
+                valid++;
+            }
+        }
+
+        return valid;
+    }
+
+    /**
+     * The original validation: a varargs array wrapped in a list per call.
+     */
+    static boolean isValidAsList(AppLifecycleEvent lastEvent, AppLifecycleEvent... allowedLastEvents) {
+        return Arrays.asList(allowedLastEvents).contains(lastEvent);
+    }
+
+    /**
+     * The validation with precomputed arrays of allowed last events.
+     */
+    static boolean isValidLoop(AppLifecycleEvent lastEvent, AppLifecycleEvent[] allowedLastEvents) {
+        for (AppLifecycleEvent allowedLastEvent : allowedLastEvents) {
+            if (allowedLastEvent == lastEvent) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,17 @@
+package android.app;
+
+/**
+ * Minimal stand-in for the Android framework class, so the lifecycle manager can be benchmarked on
+ * a plain JVM.
+ */
+public class Activity {
+
+    public boolean isFinishing() {
+        return false;
+    }
+
+    public boolean isChangingConfigurations() {
+        return false;
+    }
+
+}
@@ -0,0 +1,26 @@
+package android.os;
+
+/**
+ * Minimal stand-in for the Android framework class, so the lifecycle manager can be benchmarked on
+ * a plain JVM. Reports the latest supported API level.
+ */
+public final class Build {
+
+    private Build() {
+    }
+
+    public static final class VERSION {
+
+        public static final int SDK_INT = VERSION_CODES.N;
+
+    }
+
+    public static final class VERSION_CODES {
+
+        public static final int HONEYCOMB = 11;
+        public static final int ICE_CREAM_SANDWICH = 14;
+        public static final int N = 24;
+
+    }
+
+}
@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * Minimal stand-in for the Android framework class, so the lifecycle manager can be benchmarked on
+ * a plain JVM.
+ */
+public final class SystemClock {
+
+    private SystemClock() {
+    }
+
+    public static long elapsedRealtime() {
+        return System.nanoTime() / 1000000L;
+    }
+
+}